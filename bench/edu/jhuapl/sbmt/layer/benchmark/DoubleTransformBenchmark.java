@@ -0,0 +1,136 @@
+package edu.jhuapl.sbmt.layer.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.jhuapl.sbmt.layer.api.Layer;
+import edu.jhuapl.sbmt.layer.api.PixelDouble;
+import edu.jhuapl.sbmt.layer.api.PixelVector;
+import edu.jhuapl.sbmt.layer.impl.BulkDoubleTransformFactory;
+import edu.jhuapl.sbmt.layer.impl.DenseLayerOfDouble;
+import edu.jhuapl.sbmt.layer.impl.LayerDoubleTransformFactory;
+import edu.jhuapl.sbmt.layer.impl.LayerDoubleTransformFactory.BulkDoubleTransform;
+import edu.jhuapl.sbmt.layer.impl.PixelDoubleFactory;
+import edu.jhuapl.sbmt.layer.impl.PixelVectorDoubleFactory;
+
+/**
+ * Compares applying a {@link BulkDoubleTransform} to a
+ * {@link DenseLayerOfDouble} one pixel at a time (through
+ * {@link LayerDoubleTransformFactory#toLayerTransform}) with the array path
+ * used by {@link LayerDoubleTransformFactory#toBulkLayerTransform}. Both
+ * benchmarks produce every transformed value in the layer.
+ *
+ * @author James Peachey
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DoubleTransformBenchmark
+{
+    private static final LayerDoubleTransformFactory DoubleTransformFactory = new LayerDoubleTransformFactory();
+    private static final BulkDoubleTransformFactory BulkTransformFactory = new BulkDoubleTransformFactory();
+
+    @Param({ "512", "2048" })
+    public int size;
+
+    @Param({ "1", "16" })
+    public int kSize;
+
+    @Param({ "linear", "log10", "clamp", "power" })
+    public String transformName;
+
+    private DenseLayerOfDouble layer;
+    private BulkDoubleTransform transform;
+    private Function<Layer, Layer> perPixelTransform;
+    private Function<Layer, Layer> bulkTransform;
+
+    @Setup
+    public void setUp()
+    {
+        Random random = new Random(1L);
+
+        double[] values = new double[size * size * kSize];
+        for (int index = 0; index < values.length; ++index)
+        {
+            values[index] = 1.0 + 1000.0 * random.nextDouble();
+        }
+
+        layer = new DenseLayerOfDouble(size, size, kSize, values, null, null);
+
+        transform = switch (transformName)
+        {
+            case "linear" -> BulkTransformFactory.linear(2.5, -3.0);
+            case "log10" -> BulkTransformFactory.log10();
+            case "clamp" -> BulkTransformFactory.clamp(100.0, 900.0);
+            case "power" -> BulkTransformFactory.power(0.5);
+            default -> throw new IllegalArgumentException(transformName);
+        };
+
+        perPixelTransform = DoubleTransformFactory.toLayerTransform(transform, null);
+        bulkTransform = DoubleTransformFactory.toBulkLayerTransform(transform);
+    }
+
+    @Benchmark
+    public double[] perPixel()
+    {
+        Layer transformed = perPixelTransform.apply(layer);
+
+        int iSize = transformed.iSize();
+        int jSize = transformed.jSize();
+        double[] result = new double[iSize * jSize * kSize];
+
+        if (kSize == 1)
+        {
+            PixelDouble p = new PixelDoubleFactory().of(Double.NaN, Double.NaN);
+            for (int j = 0; j < jSize; ++j)
+            {
+                for (int i = 0; i < iSize; ++i)
+                {
+                    transformed.get(i, j, p);
+                    result[j * iSize + i] = p.get();
+                }
+            }
+        }
+        else
+        {
+            PixelVector p = new PixelVectorDoubleFactory().of(kSize, Double.NaN);
+            for (int j = 0; j < jSize; ++j)
+            {
+                for (int i = 0; i < iSize; ++i)
+                {
+                    transformed.get(i, j, p);
+                    for (int k = 0; k < kSize; ++k)
+                    {
+                        result[(k * jSize + j) * iSize + i] = ((PixelDouble) p.get(k)).get();
+                    }
+                }
+            }
+        }
+
+        return result;
+    }
+
+    @Benchmark
+    public double[] bulk()
+    {
+        return ((DenseLayerOfDouble) bulkTransform.apply(layer)).values();
+    }
+
+}
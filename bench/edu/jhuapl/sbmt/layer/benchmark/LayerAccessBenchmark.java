@@ -0,0 +1,188 @@
+package edu.jhuapl.sbmt.layer.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.jhuapl.sbmt.layer.api.Layer;
+import edu.jhuapl.sbmt.layer.api.PixelDouble;
+import edu.jhuapl.sbmt.layer.api.PixelVector;
+import edu.jhuapl.sbmt.layer.impl.BulkDoubleTransformFactory;
+import edu.jhuapl.sbmt.layer.impl.LayerDoubleTransformFactory;
+import edu.jhuapl.sbmt.layer.impl.LayerTransformFactory;
+import edu.jhuapl.sbmt.layer.impl.PlainPixelDoubleFactory;
+import edu.jhuapl.sbmt.layer.impl.PlainPixelVectorDoubleFactory;
+import edu.jhuapl.sbmt.layer.impl.TileCache;
+
+/**
+ * Measures the cost of getting pixels from the basic layer implementations,
+ * and through each transform provided by {@link LayerTransformFactory} and
+ * {@link LayerDoubleTransformFactory}, applied to one of those layers.
+ * <p>
+ * {@link #singlePixel()} gets one pixel at a pseudo-random location, which
+ * measures per-call overhead. {@link #fullScan()} gets every pixel of the
+ * transformed layer, optionally splitting the rows among several threads.
+ * <p>
+ * The transform "none" measures the source layer itself: a
+ * {@link edu.jhuapl.sbmt.layer.impl.BasicLayerOfDouble} when kSize is 1, or a
+ * {@link edu.jhuapl.sbmt.layer.impl.BasicLayerOfVectorDouble} otherwise. The
+ * linear interpolation transforms only support scalar pixels, so vector
+ * layers are sliced before they are interpolated.
+ * <p>
+ * The benchmark profile runs JMH with the GC profiler, which reports
+ * allocation rates along with times.
+ *
+ * @author James Peachey
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LayerAccessBenchmark
+{
+    private static final LayerTransformFactory TransformFactory = new LayerTransformFactory();
+    private static final LayerDoubleTransformFactory DoubleTransformFactory = new LayerDoubleTransformFactory();
+    private static final BulkDoubleTransformFactory BulkTransformFactory = new BulkDoubleTransformFactory();
+
+    /**
+     * Number of pseudo-random locations visited by {@link #singlePixel()}.
+     */
+    private static final int NumberLocations = 1 << 12;
+
+    @Param({ "256", "2048" })
+    public int size;
+
+    @Param({ "1", "8" })
+    public int kSize;
+
+    @Param({ "1", "4" })
+    public int threads;
+
+    @Param({ "none", "identity", "invertI", "invertJ", "invertIJ", "swapIJ", "rotateCW", "rotateCCW", //
+            "subsetI", "subsetJ", "subset", "expand", "trimI", "trimJ", "trim", "slice", "selectBands", "mask", //
+            "resampleNearestNeighbor", "toLayerTransform", "toBulkLayerTransform", "cache", "linearInterpolate", //
+            "expandValue", "rotatePreservingSize", "sliceValue" })
+    public String transformName;
+
+    private Layer layer;
+    private int vectorSize;
+    private int[] iLocations;
+    private int[] jLocations;
+    private int location;
+    private PixelDouble scalarPixel;
+    private PixelVector vectorPixel;
+    private ForkJoinPool pool;
+
+    @Setup
+    public void setUp()
+    {
+        Layer source = LayerScans.createSource(size, size, kSize, false);
+        layer = createTransform(transformName).apply(source);
+        vectorSize = LayerScans.vectorSize(layer);
+
+        Random random = new Random(1L);
+        iLocations = new int[NumberLocations];
+        jLocations = new int[NumberLocations];
+        for (int index = 0; index < NumberLocations; ++index)
+        {
+            iLocations[index] = random.nextInt(layer.iSize());
+            jLocations[index] = random.nextInt(layer.jSize());
+        }
+
+        scalarPixel = new PlainPixelDoubleFactory().of(Double.NaN, Double.NaN);
+        vectorPixel = vectorSize > 0 ? new PlainPixelVectorDoubleFactory().of(vectorSize, Double.NaN) : null;
+
+        pool = LayerScans.createPool(threads);
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        if (pool != null)
+        {
+            pool.shutdown();
+        }
+    }
+
+    @Benchmark
+    public double singlePixel()
+    {
+        int index = location;
+        location = (index + 1) & (NumberLocations - 1);
+
+        if (vectorSize == 0)
+        {
+            layer.get(iLocations[index], jLocations[index], scalarPixel);
+            return scalarPixel.get();
+        }
+
+        layer.get(iLocations[index], jLocations[index], vectorPixel);
+        return ((PixelDouble) vectorPixel.get(0)).get();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public double fullScan()
+    {
+        return LayerScans.scan(layer, pool);
+    }
+
+    protected Function<Layer, Layer> createTransform(String name)
+    {
+        int quarter = size / 4;
+
+        return switch (name)
+        {
+            case "none" -> layer -> layer;
+            case "identity" -> TransformFactory.identity();
+            case "invertI" -> TransformFactory.invertI();
+            case "invertJ" -> TransformFactory.invertJ();
+            case "invertIJ" -> TransformFactory.invertIJ();
+            case "swapIJ" -> TransformFactory.swapIJ();
+            case "rotateCW" -> TransformFactory.rotateCW();
+            case "rotateCCW" -> TransformFactory.rotateCCW();
+            case "subsetI" -> TransformFactory.subsetI(quarter, size - quarter);
+            case "subsetJ" -> TransformFactory.subsetJ(quarter, size - quarter);
+            case "subset" -> TransformFactory.subset(quarter, size - quarter, quarter, size - quarter);
+            case "expand" -> TransformFactory.expand(quarter, quarter, quarter, quarter, p -> p.setInBounds(false));
+            case "trimI" -> TransformFactory.trimI(quarter, quarter);
+            case "trimJ" -> TransformFactory.trimJ(quarter, quarter);
+            case "trim" -> TransformFactory.trim(quarter, quarter, quarter, quarter);
+            case "slice" -> TransformFactory.slice(kSize / 2, () -> new PlainPixelVectorDoubleFactory().of(kSize, Double.NaN));
+            case "selectBands" -> TransformFactory.selectBands(kSize - 1, 0);
+            case "mask" -> TransformFactory.mask(quarter, quarter, quarter, quarter);
+            case "resampleNearestNeighbor" -> TransformFactory.resampleNearestNeighbor(size + size / 2, size + size / 2);
+            case "toLayerTransform" -> DoubleTransformFactory.toLayerTransform(BulkTransformFactory.linear(2.0, 1.0), null);
+            case "toBulkLayerTransform" -> DoubleTransformFactory.toBulkLayerTransform(BulkTransformFactory.linear(2.0, 1.0));
+            case "cache" -> DoubleTransformFactory.cache(new TileCache(256L << 20), 64);
+            case "linearInterpolate" -> scalar().andThen(DoubleTransformFactory.linearInterpolate(size + size / 2, size + size / 2));
+            case "expandValue" -> DoubleTransformFactory.expand(quarter, quarter, quarter, quarter, -1.0);
+            case "rotatePreservingSize" -> DoubleTransformFactory.rotatePreservingSize(90.0);
+            case "sliceValue" -> DoubleTransformFactory.slice(kSize / 2, Double.NaN);
+            default -> throw new IllegalArgumentException(name);
+        };
+    }
+
+    private Function<Layer, Layer> scalar()
+    {
+        return kSize > 1 ? DoubleTransformFactory.slice(kSize / 2, Double.NaN) : TransformFactory.identity();
+    }
+
+}
@@ -0,0 +1,151 @@
+package edu.jhuapl.sbmt.layer.benchmark;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+import edu.jhuapl.sbmt.layer.api.Layer;
+import edu.jhuapl.sbmt.layer.api.PixelDouble;
+import edu.jhuapl.sbmt.layer.api.PixelVector;
+import edu.jhuapl.sbmt.layer.impl.DenseLayerOfDouble;
+import edu.jhuapl.sbmt.layer.impl.LayerDoubleBuilder;
+import edu.jhuapl.sbmt.layer.impl.PlainPixelDoubleFactory;
+import edu.jhuapl.sbmt.layer.impl.PlainPixelVectorDoubleFactory;
+
+/**
+ * Layers and scans shared by the layer access benchmarks.
+ *
+ * @author James Peachey
+ *
+ */
+final class LayerScans
+{
+    private static final PlainPixelDoubleFactory PixelScalarFactory = new PlainPixelDoubleFactory();
+    private static final PlainPixelVectorDoubleFactory PixelVectorFactory = new PlainPixelVectorDoubleFactory();
+
+    /**
+     * Return a source layer with smoothly varying values. Scalar layers are
+     * {@link edu.jhuapl.sbmt.layer.impl.BasicLayerOfDouble}s, and vector
+     * layers are
+     * {@link edu.jhuapl.sbmt.layer.impl.BasicLayerOfVectorDouble}s, both
+     * created by {@link LayerDoubleBuilder}, or {@link DenseLayerOfDouble}s if
+     * dense is true.
+     */
+    static Layer createSource(int iSize, int jSize, int kSize, boolean dense)
+    {
+        if (dense)
+        {
+            double[] values = new double[iSize * jSize * kSize];
+            for (int k = 0; k < kSize; ++k)
+            {
+                for (int j = 0; j < jSize; ++j)
+                {
+                    for (int i = 0; i < iSize; ++i)
+                    {
+                        values[(k * jSize + j) * iSize + i] = value(i, j, k);
+                    }
+                }
+            }
+
+            return new DenseLayerOfDouble(iSize, jSize, kSize, values, null, null);
+        }
+        else if (kSize == 1)
+        {
+            return new LayerDoubleBuilder().doubleGetter((i, j) -> value(i, j, 0), iSize, jSize).build();
+        }
+
+        return new LayerDoubleBuilder().doubleGetter(LayerScans::value, iSize, jSize, kSize).build();
+    }
+
+    /**
+     * Return the number of elements in each pixel of the layer, or 0 if the
+     * layer is scalar and should be read using {@link PixelDouble}s.
+     */
+    static int vectorSize(Layer layer)
+    {
+        List<Integer> dataSizes = layer.dataSizes();
+        int kSize = dataSizes.isEmpty() ? 0 : dataSizes.get(0);
+
+        return kSize == 1 && layer.isGetAccepts(PixelDouble.class) ? 0 : kSize;
+    }
+
+    /**
+     * Get every pixel of the layer, splitting rows among the threads of the
+     * pool, or in the calling thread if the pool is null. Returns the sum of
+     * the values so the work cannot be optimized away.
+     */
+    static double scan(Layer layer, ForkJoinPool pool)
+    {
+        int jSize = layer.jSize();
+        int vectorSize = vectorSize(layer);
+
+        if (pool == null)
+        {
+            return scanRows(layer, vectorSize, 0, jSize);
+        }
+
+        int numberTasks = pool.getParallelism() * 4;
+        int rowsPerTask = Math.max(1, (jSize + numberTasks - 1) / numberTasks);
+
+        return pool.submit(() -> IntStream.range(0, (jSize + rowsPerTask - 1) / rowsPerTask).parallel().mapToDouble(task -> {
+            int jMin = task * rowsPerTask;
+            return scanRows(layer, vectorSize, jMin, Math.min(jSize, jMin + rowsPerTask));
+        }).sum()).join();
+    }
+
+    static double scanRows(Layer layer, int vectorSize, int jMin, int jMax)
+    {
+        int iSize = layer.iSize();
+
+        double sum = 0.0;
+        if (vectorSize == 0)
+        {
+            PixelDouble p = PixelScalarFactory.of(Double.NaN, Double.NaN);
+            for (int j = jMin; j < jMax; ++j)
+            {
+                for (int i = 0; i < iSize; ++i)
+                {
+                    layer.get(i, j, p);
+                    sum += p.get();
+                }
+            }
+        }
+        else
+        {
+            PixelVector p = PixelVectorFactory.of(vectorSize, Double.NaN);
+            for (int j = jMin; j < jMax; ++j)
+            {
+                for (int i = 0; i < iSize; ++i)
+                {
+                    layer.get(i, j, p);
+                    for (int k = 0; k < vectorSize; ++k)
+                    {
+                        sum += ((PixelDouble) p.get(k)).get();
+                    }
+                }
+            }
+        }
+
+        return sum;
+    }
+
+    /**
+     * Return a pool with the specified number of threads, or null for 1
+     * thread, meaning scans run in the calling thread.
+     */
+    static ForkJoinPool createPool(int threads)
+    {
+        return threads > 1 ? new ForkJoinPool(threads) : null;
+    }
+
+    private static double value(int i, int j, int k)
+    {
+        return 1000.0 + 100.0 * Math.sin(0.01 * i) * Math.cos(0.013 * j) + k;
+    }
+
+    private LayerScans()
+    {
+        throw new AssertionError();
+    }
+
+}
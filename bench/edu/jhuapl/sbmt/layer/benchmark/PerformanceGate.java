@@ -0,0 +1,256 @@
+package edu.jhuapl.sbmt.layer.benchmark;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.google.common.base.Preconditions;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+/**
+ * Compares JMH results, written with "-rf json", to a baseline in the same
+ * format, and reports a failure if any benchmark got slower, or allocated
+ * more, than the configured tolerances allow. This is run by the perf-gate
+ * Maven profile after {@link RegressionBenchmark}, so that a drop in
+ * performance fails the build.
+ * <p>
+ * Results are matched to the baseline by benchmark name and parameters.
+ * Scores are compared according to the benchmark mode: for throughput, higher
+ * is better, and for all other modes, lower is better. Allocation is compared
+ * using the gc.alloc.rate.norm secondary metric (bytes per operation) when both
+ * the result and the baseline include it, that is, when the GC profiler was
+ * enabled.
+ * <p>
+ * The gate also fails if the baseline is empty, if any result has no
+ * baseline, or if any baseline entry has no result (e.g., because a benchmark
+ * was renamed or removed), so that it cannot pass without checking anything.
+ * After adding, renaming or removing a benchmark, or to record the first
+ * baseline, pass "true" as the update argument to replace the baseline with
+ * the results. Baselines depend on the machine, so they should be recorded on
+ * the same machine that runs the gate.
+ *
+ * @author James Peachey
+ *
+ */
+public class PerformanceGate
+{
+    protected static final String AllocationMetric = "gc.alloc.rate.norm";
+
+    /**
+     * Allocation increase (bytes per operation) that is always tolerated, so
+     * that benchmarks that allocate (almost) nothing do not fail because of a
+     * few stray bytes.
+     */
+    protected static final double AllocationSlackBytes = 64.0;
+
+    /**
+     * Run the gate.
+     *
+     * @param args the results file, the baseline file, the tolerated fraction
+     *            by which scores may get worse, the tolerated fraction by which
+     *            allocation may increase, and optionally "true" to update the
+     *            baseline rather than checking it
+     */
+    public static void main(String[] args)
+    {
+        if (args.length < 4 || args.length > 5)
+        {
+            System.err.println("Usage: PerformanceGate <results.json> <baseline.json> <score tolerance> <allocation tolerance> [update]");
+            System.exit(2);
+        }
+
+        Path resultsPath = Paths.get(args[0]);
+        Path baselinePath = Paths.get(args[1]);
+        double scoreTolerance = Double.parseDouble(args[2]);
+        double allocationTolerance = Double.parseDouble(args[3]);
+        boolean update = args.length > 4 && Boolean.parseBoolean(args[4]);
+
+        try
+        {
+            if (update)
+            {
+                Files.copy(resultsPath, baselinePath, StandardCopyOption.REPLACE_EXISTING);
+                System.out.println("Updated performance baseline " + baselinePath);
+                return;
+            }
+
+            PerformanceGate gate = new PerformanceGate(scoreTolerance, allocationTolerance);
+            List<String> failures = gate.check(read(resultsPath), read(baselinePath));
+
+            for (String failure : failures)
+            {
+                System.err.println("REGRESSION: " + failure);
+            }
+
+            if (!failures.isEmpty())
+            {
+                System.exit(1);
+            }
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private final double scoreTolerance;
+    private final double allocationTolerance;
+
+    /**
+     * @param scoreTolerance fraction by which a score may get worse, e.g.,
+     *            0.1 for 10%
+     * @param allocationTolerance fraction by which allocation per operation
+     *            may increase
+     */
+    public PerformanceGate(double scoreTolerance, double allocationTolerance)
+    {
+        super();
+
+        Preconditions.checkArgument(scoreTolerance >= 0.0);
+        Preconditions.checkArgument(allocationTolerance >= 0.0);
+
+        this.scoreTolerance = scoreTolerance;
+        this.allocationTolerance = allocationTolerance;
+    }
+
+    /**
+     * Compare results to a baseline, printing a summary line for each result.
+     *
+     * @param results JMH results
+     * @param baseline JMH baseline results
+     * @return descriptions of the regressions and of results and baseline
+     *         entries that do not match, empty if there were none
+     */
+    public List<String> check(JsonArray results, JsonArray baseline)
+    {
+        Map<String, JsonObject> baselineMap = index(baseline);
+        Map<String, JsonObject> resultsMap = index(results);
+
+        List<String> failures = new ArrayList<>();
+        if (baselineMap.isEmpty())
+        {
+            failures.add("baseline is empty; record one with -Dperf.gate.update=true");
+        }
+
+        for (String key : baselineMap.keySet())
+        {
+            if (!resultsMap.containsKey(key))
+            {
+                failures.add(String.format("%s is in the baseline but has no result; update the baseline if it was renamed or removed", key));
+            }
+        }
+
+        for (Map.Entry<String, JsonObject> entry : resultsMap.entrySet())
+        {
+            String key = entry.getKey();
+            JsonObject result = entry.getValue();
+            JsonObject expected = baselineMap.get(key);
+
+            if (expected == null)
+            {
+                if (!baselineMap.isEmpty())
+                {
+                    failures.add(String.format("%s has no baseline; record one with -Dperf.gate.update=true", key));
+                }
+                continue;
+            }
+
+            boolean higherIsBetter = "thrpt".equals(result.get("mode").getAsString());
+            double score = score(result);
+            double expectedScore = score(expected);
+
+            double change = expectedScore != 0.0 ? (score - expectedScore) / expectedScore : 0.0;
+            System.out.println(String.format("%s: %.4g (baseline %.4g, %+.1f%%)", key, score, expectedScore, 100.0 * change));
+
+            if (higherIsBetter ? score < expectedScore * (1.0 - scoreTolerance) : score > expectedScore * (1.0 + scoreTolerance))
+            {
+                failures.add(String.format("%s score %.4g is worse than baseline %.4g by more than %.0f%%", key, score, expectedScore, 100.0 * scoreTolerance));
+            }
+
+            Double allocation = allocation(result);
+            Double expectedAllocation = allocation(expected);
+            if (allocation != null && expectedAllocation != null && allocation > expectedAllocation * (1.0 + allocationTolerance) + AllocationSlackBytes)
+            {
+                failures.add(String.format("%s allocates %.0f B/op, more than baseline %.0f B/op by more than %.0f%%", key, allocation, expectedAllocation, 100.0 * allocationTolerance));
+            }
+        }
+
+        return failures;
+    }
+
+    /**
+     * Index JMH results by benchmark name and parameters, e.g.,
+     * "edu.jhuapl.sbmt.layer.benchmark.RegressionBenchmark.fullScan{kSize=4, size=512}".
+     */
+    protected Map<String, JsonObject> index(JsonArray results)
+    {
+        Map<String, JsonObject> map = new LinkedHashMap<>();
+        for (JsonElement element : results)
+        {
+            JsonObject result = element.getAsJsonObject();
+
+            Map<String, String> params = new TreeMap<>();
+            JsonObject paramsObject = result.getAsJsonObject("params");
+            if (paramsObject != null)
+            {
+                for (Map.Entry<String, JsonElement> param : paramsObject.entrySet())
+                {
+                    params.put(param.getKey(), param.getValue().getAsString());
+                }
+            }
+
+            map.put(result.get("benchmark").getAsString() + params, result);
+        }
+
+        return map;
+    }
+
+    protected double score(JsonObject result)
+    {
+        return result.getAsJsonObject("primaryMetric").get("score").getAsDouble();
+    }
+
+    /**
+     * Return the normalized allocation rate of the result, or null if it was
+     * not measured. Older versions of JMH prefix secondary metrics from
+     * profilers with a middle dot.
+     */
+    protected Double allocation(JsonObject result)
+    {
+        JsonObject secondaryMetrics = result.getAsJsonObject("secondaryMetrics");
+        if (secondaryMetrics != null)
+        {
+            for (Map.Entry<String, JsonElement> entry : secondaryMetrics.entrySet())
+            {
+                if (entry.getKey().replace("\u00b7", "").equals(AllocationMetric))
+                {
+                    return entry.getValue().getAsJsonObject().get("score").getAsDouble();
+                }
+            }
+        }
+
+        return null;
+    }
+
+    protected static JsonArray read(Path path) throws IOException
+    {
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8))
+        {
+            return JsonParser.parseReader(reader).getAsJsonArray();
+        }
+    }
+
+}
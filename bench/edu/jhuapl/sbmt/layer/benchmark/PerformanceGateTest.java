@@ -0,0 +1,155 @@
+package edu.jhuapl.sbmt.layer.benchmark;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+class PerformanceGateTest
+{
+	private static final String Benchmark = "edu.jhuapl.sbmt.layer.benchmark.RegressionBenchmark.";
+
+	private static final PerformanceGate Gate = new PerformanceGate(0.10, 0.10);
+
+	@BeforeAll
+	static void setUpBeforeClass() throws Exception
+	{
+	}
+
+	@AfterAll
+	static void tearDownAfterClass() throws Exception
+	{
+	}
+
+	@Test
+	void testThroughput()
+	{
+		JsonArray baseline = array(result("fullScan", "thrpt", 100.0, null));
+
+		// Higher is better: slower by 5% passes, by 15% fails, faster passes.
+		assertTrue(Gate.check(array(result("fullScan", "thrpt", 95.0, null)), baseline).isEmpty());
+		assertTrue(Gate.check(array(result("fullScan", "thrpt", 150.0, null)), baseline).isEmpty());
+
+		List<String> failures = Gate.check(array(result("fullScan", "thrpt", 85.0, null)), baseline);
+		assertEquals(1, failures.size());
+		assertTrue(failures.get(0).startsWith(Benchmark + "fullScan{} score"));
+	}
+
+	@Test
+	void testAverageTime()
+	{
+		JsonArray baseline = array(result("fullScan", "avgt", 10.0, null));
+
+		// Lower is better: slower by 5% passes, by 15% fails, faster passes.
+		assertTrue(Gate.check(array(result("fullScan", "avgt", 10.5, null)), baseline).isEmpty());
+		assertTrue(Gate.check(array(result("fullScan", "avgt", 5.0, null)), baseline).isEmpty());
+		assertEquals(1, Gate.check(array(result("fullScan", "avgt", 11.5, null)), baseline).size());
+		assertEquals(1, Gate.check(array(result("fullScan", "sample", 11.5, null)), array(result("fullScan", "sample", 10.0, null))).size());
+	}
+
+	@Test
+	void testAllocation()
+	{
+		JsonArray baseline = array(result("fullScan", "avgt", 10.0, 1000.0));
+
+		// 10% plus the fixed slack of 64 bytes is tolerated.
+		assertTrue(Gate.check(array(result("fullScan", "avgt", 10.0, 1160.0)), baseline).isEmpty());
+
+		List<String> failures = Gate.check(array(result("fullScan", "avgt", 10.0, 1170.0)), baseline);
+		assertEquals(1, failures.size());
+		assertTrue(failures.get(0).contains("allocates 1170 B/op"));
+
+		// Benchmarks that allocate nothing may allocate a few stray bytes.
+		JsonArray zeroBaseline = array(result("fullScan", "avgt", 10.0, 0.0));
+		assertTrue(Gate.check(array(result("fullScan", "avgt", 10.0, 60.0)), zeroBaseline).isEmpty());
+		assertEquals(1, Gate.check(array(result("fullScan", "avgt", 10.0, 100.0)), zeroBaseline).size());
+
+		// Allocation is only compared when both sides measured it.
+		assertTrue(Gate.check(array(result("fullScan", "avgt", 10.0, null)), baseline).isEmpty());
+
+		// Older versions of JMH prefix the metric with a middle dot.
+		JsonObject dotted = result("fullScan", "avgt", 10.0, null);
+		dotted.add("secondaryMetrics", metrics("\u00b7" + PerformanceGate.AllocationMetric, 5000.0));
+		assertEquals(1, Gate.check(array(dotted), baseline).size());
+	}
+
+	@Test
+	void testMismatches()
+	{
+		List<String> failures = Gate.check(array(result("fullScan", "avgt", 10.0, null)), new JsonArray());
+		assertEquals(1, failures.size());
+		assertTrue(failures.get(0).startsWith("baseline is empty"));
+
+		JsonArray baseline = array(result("fullScan", "avgt", 10.0, null, "size", "512"), result("slice", "avgt", 10.0, null));
+		JsonArray results = array(result("fullScan", "avgt", 10.0, null, "size", "512"), result("fullScan", "avgt", 10.0, null, "size", "1024"));
+
+		failures = Gate.check(results, baseline);
+		assertEquals(2, failures.size());
+		assertTrue(failures.get(0).startsWith(Benchmark + "slice{} is in the baseline but has no result"));
+		assertTrue(failures.get(1).startsWith(Benchmark + "fullScan{size=1024} has no baseline"));
+
+		// No results at all: every baseline entry is reported.
+		assertEquals(2, Gate.check(new JsonArray(), baseline).size());
+	}
+
+	private static JsonArray array(JsonObject... results)
+	{
+		JsonArray array = new JsonArray();
+		for (JsonObject result : results)
+		{
+			array.add(result);
+		}
+
+		return array;
+	}
+
+	/**
+	 * Return a result in the format that JMH writes with "-rf json", with the
+	 * specified parameter names and values.
+	 */
+	private static JsonObject result(String name, String mode, double score, Double allocation, String... params)
+	{
+		JsonObject result = new JsonObject();
+		result.addProperty("benchmark", Benchmark + name);
+		result.addProperty("mode", mode);
+
+		if (params.length > 0)
+		{
+			JsonObject paramsObject = new JsonObject();
+			for (int index = 0; index < params.length; index += 2)
+			{
+				paramsObject.addProperty(params[index], params[index + 1]);
+			}
+			result.add("params", paramsObject);
+		}
+
+		JsonObject primaryMetric = new JsonObject();
+		primaryMetric.addProperty("score", score);
+		result.add("primaryMetric", primaryMetric);
+
+		if (allocation != null)
+		{
+			result.add("secondaryMetrics", metrics(PerformanceGate.AllocationMetric, allocation));
+		}
+
+		return result;
+	}
+
+	private static JsonObject metrics(String name, double score)
+	{
+		JsonObject metric = new JsonObject();
+		metric.addProperty("score", score);
+
+		JsonObject metrics = new JsonObject();
+		metrics.add(name, metric);
+
+		return metrics;
+	}
+
+}
@@ -0,0 +1,143 @@
+package edu.jhuapl.sbmt.layer.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.jhuapl.sbmt.layer.api.Layer;
+import edu.jhuapl.sbmt.layer.api.PixelDouble;
+import edu.jhuapl.sbmt.layer.api.PixelVector;
+import edu.jhuapl.sbmt.layer.impl.BulkDoubleTransformFactory;
+import edu.jhuapl.sbmt.layer.impl.DenseLayerOfDouble;
+import edu.jhuapl.sbmt.layer.impl.FlatPixelVectorDoubleFactory;
+import edu.jhuapl.sbmt.layer.impl.LayerDoubleTransformFactory;
+import edu.jhuapl.sbmt.layer.impl.PixelDoubleFactory;
+import edu.jhuapl.sbmt.layer.impl.PixelVectorDoubleFactory;
+import edu.jhuapl.sbmt.layer.impl.PlainPixelDoubleFactory;
+import edu.jhuapl.sbmt.layer.impl.PlainPixelVectorDoubleFactory;
+
+/**
+ * Compares the volatile pixel family ({@link PixelDoubleFactory},
+ * {@link PixelVectorDoubleFactory}) with the plain-field family
+ * ({@link PlainPixelDoubleFactory}, {@link PlainPixelVectorDoubleFactory})
+ * and the array-backed vector pixels of {@link FlatPixelVectorDoubleFactory}
+ * when reading every pixel of a chain of per-pixel transforms applied to a
+ * {@link DenseLayerOfDouble}. Each link in the chain sets the value of every
+ * pixel element once, so longer chains emphasize the cost of the fields.
+ *
+ * @author James Peachey
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PixelFamilyBenchmark
+{
+    private static final LayerDoubleTransformFactory DoubleTransformFactory = new LayerDoubleTransformFactory();
+    private static final BulkDoubleTransformFactory BulkTransformFactory = new BulkDoubleTransformFactory();
+
+    @Param({ "1024" })
+    public int size;
+
+    @Param({ "1", "16" })
+    public int kSize;
+
+    @Param({ "1", "8" })
+    public int chainLength;
+
+    @Param({ "volatile", "plain", "flat" })
+    public String pixelFamily;
+
+    private Layer layer;
+    private PixelDoubleFactory scalarFactory;
+    private PixelVectorDoubleFactory vectorFactory;
+
+    @Setup
+    public void setUp()
+    {
+        Random random = new Random(1L);
+
+        double[] values = new double[size * size * kSize];
+        for (int index = 0; index < values.length; ++index)
+        {
+            values[index] = random.nextDouble();
+        }
+
+        Layer chain = new DenseLayerOfDouble(size, size, kSize, values, null, null);
+        for (int link = 0; link < chainLength; ++link)
+        {
+            chain = DoubleTransformFactory.toLayerTransform(BulkTransformFactory.linear(1.0001, 0.5), null).apply(chain);
+        }
+        layer = chain;
+
+        switch (pixelFamily)
+        {
+        case "volatile" -> {
+            scalarFactory = new PixelDoubleFactory();
+            vectorFactory = new PixelVectorDoubleFactory();
+        }
+        case "plain" -> {
+            scalarFactory = new PlainPixelDoubleFactory();
+            vectorFactory = new PlainPixelVectorDoubleFactory();
+        }
+        case "flat" -> {
+            scalarFactory = new PlainPixelDoubleFactory();
+            vectorFactory = new FlatPixelVectorDoubleFactory();
+        }
+        default -> throw new IllegalArgumentException(pixelFamily);
+        }
+    }
+
+    @Benchmark
+    public double scan()
+    {
+        int iSize = layer.iSize();
+        int jSize = layer.jSize();
+
+        double sum = 0.0;
+        if (kSize == 1)
+        {
+            PixelDouble p = scalarFactory.of(Double.NaN, Double.NaN);
+            for (int j = 0; j < jSize; ++j)
+            {
+                for (int i = 0; i < iSize; ++i)
+                {
+                    layer.get(i, j, p);
+                    sum += p.get();
+                }
+            }
+        }
+        else
+        {
+            PixelVector p = vectorFactory.of(kSize, Double.NaN);
+            for (int j = 0; j < jSize; ++j)
+            {
+                for (int i = 0; i < iSize; ++i)
+                {
+                    layer.get(i, j, p);
+                    for (int k = 0; k < kSize; ++k)
+                    {
+                        sum += ((PixelDouble) p.get(k)).get();
+                    }
+                }
+            }
+        }
+
+        return sum;
+    }
+
+}
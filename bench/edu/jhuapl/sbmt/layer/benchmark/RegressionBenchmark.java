@@ -0,0 +1,104 @@
+package edu.jhuapl.sbmt.layer.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.jhuapl.sbmt.layer.api.Layer;
+import edu.jhuapl.sbmt.layer.impl.LayerDoubleTransformFactory;
+import edu.jhuapl.sbmt.layer.impl.LayerRangeFactory;
+import edu.jhuapl.sbmt.layer.impl.LayerUtility;
+import edu.jhuapl.sbmt.layer.impl.VectorRangeGetter;
+
+/**
+ * Fixed set of benchmarks checked by {@link PerformanceGate} against the
+ * stored baseline: scalar and vector full scans, scans of appended and
+ * interpolated layers, and range computation.
+ * <p>
+ * Sizes and parameters are deliberately fixed and small so that a run is
+ * short and its results are comparable from run to run. Do not change them
+ * without recording a new baseline.
+ *
+ * @author James Peachey
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RegressionBenchmark
+{
+    private static final LayerDoubleTransformFactory DoubleTransformFactory = new LayerDoubleTransformFactory();
+    private static final LayerRangeFactory RangeFactory = new LayerRangeFactory();
+
+    @Param({ "512" })
+    public int size;
+
+    @Param({ "4" })
+    public int kSize;
+
+    private Layer scalar;
+    private Layer vector;
+    private Layer[] bands;
+    private Layer interpolated;
+
+    @Setup
+    public void setUp()
+    {
+        scalar = LayerScans.createSource(size, size, 1, false);
+        vector = LayerScans.createSource(size, size, kSize, false);
+
+        bands = new Layer[kSize];
+        for (int k = 0; k < kSize; ++k)
+        {
+            bands[k] = DoubleTransformFactory.slice(k, Double.NaN).apply(vector);
+        }
+
+        interpolated = DoubleTransformFactory.linearInterpolate(size + size / 2, size + size / 2).apply(scalar);
+    }
+
+    @Benchmark
+    public double fullScan()
+    {
+        return LayerScans.scan(scalar, null);
+    }
+
+    @Benchmark
+    public double vectorGet()
+    {
+        return LayerScans.scan(vector, null);
+    }
+
+    @Benchmark
+    public double append()
+    {
+        Layer appended = new LayerUtility() {}.append(bands);
+
+        return LayerScans.scan(appended, null);
+    }
+
+    @Benchmark
+    public double interpolate()
+    {
+        return LayerScans.scan(interpolated, null);
+    }
+
+    @Benchmark
+    public VectorRangeGetter rangeBuild()
+    {
+        return RangeFactory.scan(vector);
+    }
+
+}
@@ -0,0 +1,117 @@
+package edu.jhuapl.sbmt.layer.benchmark;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.jhuapl.sbmt.layer.api.Layer;
+import edu.jhuapl.sbmt.layer.impl.BulkDoubleTransformFactory;
+import edu.jhuapl.sbmt.layer.impl.LayerDoubleTransformFactory;
+import edu.jhuapl.sbmt.layer.impl.LayerPipeline;
+import edu.jhuapl.sbmt.layer.impl.LayerTransformFactory;
+
+/**
+ * Measures full scans of layers derived through chains of transforms like
+ * those used to display images: rotating and interpolating to the display
+ * size, flipping and cropping, and stretching values. Each chain starts with
+ * a slice of the source layer so the same chains apply to vector layers.
+ * <p>
+ * The chains are applied as written, without
+ * {@link edu.jhuapl.sbmt.layer.impl.LayerPipelineOptimizer}, so the
+ * measurements show the cost of each step.
+ *
+ * @author James Peachey
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransformChainBenchmark
+{
+    private static final LayerTransformFactory TransformFactory = new LayerTransformFactory();
+    private static final LayerDoubleTransformFactory DoubleTransformFactory = new LayerDoubleTransformFactory();
+    private static final BulkDoubleTransformFactory BulkTransformFactory = new BulkDoubleTransformFactory();
+
+    @Param({ "256", "2048" })
+    public int size;
+
+    @Param({ "1", "8" })
+    public int kSize;
+
+    @Param({ "1", "4" })
+    public int threads;
+
+    @Param({ "rotateInterpolate", "flipSubsetResample", "stretch", "display" })
+    public String chain;
+
+    private Layer layer;
+    private ForkJoinPool pool;
+
+    @Setup
+    public void setUp()
+    {
+        Layer source = LayerScans.createSource(size, size, kSize, false);
+        layer = createChain(chain).apply(source);
+        pool = LayerScans.createPool(threads);
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        if (pool != null)
+        {
+            pool.shutdown();
+        }
+    }
+
+    @Benchmark
+    public double fullScan()
+    {
+        return LayerScans.scan(layer, pool);
+    }
+
+    protected LayerPipeline createChain(String name)
+    {
+        int quarter = size / 4;
+        int displaySize = size + size / 2;
+
+        LayerPipeline slice = LayerPipeline.of(DoubleTransformFactory.slice(kSize / 2, Double.NaN));
+
+        return switch (name)
+        {
+            case "rotateInterpolate" -> slice //
+                    .then(DoubleTransformFactory.rotatePreservingSize(270.0)) //
+                    .then(DoubleTransformFactory.linearInterpolate(displaySize, displaySize));
+            case "flipSubsetResample" -> slice //
+                    .then(TransformFactory.invertJ()) //
+                    .then(TransformFactory.subset(quarter, size - quarter, quarter, size - quarter)) //
+                    .then(TransformFactory.resampleNearestNeighbor(displaySize, displaySize));
+            case "stretch" -> slice //
+                    .then(DoubleTransformFactory.toBulkLayerTransform(BulkTransformFactory.clamp(900.0, 1100.0))) //
+                    .then(DoubleTransformFactory.toBulkLayerTransform(BulkTransformFactory.linear(1.0 / 200.0, -4.5)));
+            case "display" -> slice //
+                    .then(TransformFactory.invertJ()) //
+                    .then(DoubleTransformFactory.rotatePreservingSize(90.0)) //
+                    .then(TransformFactory.trim(quarter, quarter, quarter, quarter)) //
+                    .then(DoubleTransformFactory.linearInterpolate(displaySize, displaySize)) //
+                    .then(DoubleTransformFactory.toBulkLayerTransform(BulkTransformFactory.log10()));
+            default -> throw new IllegalArgumentException(name);
+        };
+    }
+
+}
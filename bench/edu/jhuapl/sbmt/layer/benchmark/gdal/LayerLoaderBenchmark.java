@@ -0,0 +1,221 @@
+package edu.jhuapl.sbmt.layer.benchmark.gdal;
+
+import java.util.concurrent.TimeUnit;
+
+import org.gdal.gdal.Band;
+import org.gdal.gdal.Dataset;
+import org.gdal.gdal.Driver;
+import org.gdal.gdal.gdal;
+import org.gdal.gdalconst.gdalconst;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.jhuapl.sbmt.layer.api.Layer;
+import edu.jhuapl.sbmt.layer.gdal.LayerLoader;
+import edu.jhuapl.sbmt.layer.gdal.LayerLoaderBuilder;
+import edu.jhuapl.sbmt.layer.impl.BasicPixelBlockDouble;
+import edu.jhuapl.sbmt.layer.impl.PixelBlockDoubleFactory;
+
+/**
+ * Measures the throughput of {@link LayerLoader} on synthetic data sets, so
+ * loader changes can be compared without depending on external files.
+ * <p>
+ * Each data set is created in memory, either as a data set of GDAL's MEM
+ * driver, or as a GeoTIFF under /vsimem/ that is striped, tiled, or tiled and
+ * compressed with DEFLATE. The data type parameter covers every branch of the
+ * data type switch in LayerLoader.loadData. GeoTIFF data sets are reopened
+ * before each invocation so that every load decodes the file rather than
+ * reading GDAL's block cache.
+ * <p>
+ * Results are in loads per second. The auxiliary counter megabytes is the
+ * rate at which native data were loaded in MB/s, and gdalCacheBytes is the
+ * off-heap memory held by GDAL's block cache after the last load. The GC
+ * profiler, which the benchmark profile enables by default, reports the heap
+ * allocated per load.
+ *
+ * @author James Peachey
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LayerLoaderBenchmark
+{
+    private static final PixelBlockDoubleFactory BlockFactory = new PixelBlockDoubleFactory();
+
+    @Param({ "512", "2048" })
+    public int size;
+
+    @Param({ "1", "4" })
+    public int kSize;
+
+    @Param({ "Byte", "Int16", "UInt16", "Int32", "UInt32", "Float32", "Float64", "Int64", "UInt64" })
+    public String dataType;
+
+    @Param({ "mem", "gtiff", "gtiffTiled", "gtiffDeflate" })
+    public String storage;
+
+    private Dataset memDataSet;
+    private String path;
+    private Dataset dataSet;
+    private LayerLoader loader;
+    private BasicPixelBlockDouble block;
+    private double megabytesPerLoad;
+
+    /**
+     * Rate at which native data were loaded, in MB/s.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Throughput
+    {
+        public double megabytes;
+
+        @Setup(Level.Iteration)
+        public void clear()
+        {
+            megabytes = 0.0;
+        }
+    }
+
+    /**
+     * Off-heap memory held by GDAL's block cache after the last load.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Footprint
+    {
+        public long gdalCacheBytes;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        gdal.AllRegister();
+
+        int type = gdal.GetDataTypeByName(dataType);
+        memDataSet = createMemDataSet(size, size, kSize, type);
+        megabytesPerLoad = (double) size * size * kSize * gdal.GetDataTypeSize(type) / 8.0 / (1 << 20);
+
+        String[] options = switch (storage)
+        {
+            case "mem" -> null;
+            case "gtiff" -> new String[0];
+            case "gtiffTiled" -> new String[] { "TILED=YES" };
+            case "gtiffDeflate" -> new String[] { "TILED=YES", "COMPRESS=DEFLATE" };
+            default -> throw new IllegalArgumentException(storage);
+        };
+
+        if (options != null)
+        {
+            path = "/vsimem/layer-loader-benchmark-" + dataType + "-" + storage + ".tif";
+            Driver driver = gdal.GetDriverByName("GTiff");
+            Dataset copy = driver.CreateCopy(path, memDataSet, options);
+            copy.delete();
+        }
+
+        block = BlockFactory.of(size, size, kSize, Double.NaN);
+    }
+
+    @Setup(Level.Invocation)
+    public void open()
+    {
+        if (path != null)
+        {
+            dataSet = gdal.Open(path, gdalconst.GA_ReadOnly);
+        }
+        else
+        {
+            dataSet = memDataSet;
+        }
+
+        loader = new LayerLoaderBuilder().dataSet(dataSet).build();
+    }
+
+    @TearDown(Level.Invocation)
+    public void close()
+    {
+        if (path != null && dataSet != null)
+        {
+            dataSet.delete();
+        }
+        dataSet = null;
+        loader = null;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown()
+    {
+        if (path != null)
+        {
+            gdal.Unlink(path);
+        }
+        if (memDataSet != null)
+        {
+            memDataSet.delete();
+        }
+    }
+
+    @Benchmark
+    public Layer load(Throughput throughput, Footprint footprint)
+    {
+        Layer layer = loader.load();
+
+        throughput.megabytes += megabytesPerLoad;
+        footprint.gdalCacheBytes = gdal.GetCacheUsed();
+
+        return layer;
+    }
+
+    @Benchmark
+    public BasicPixelBlockDouble loadBlock(Throughput throughput, Footprint footprint)
+    {
+        loader.loadBlock(0, 0, block);
+
+        throughput.megabytes += megabytesPerLoad;
+        footprint.gdalCacheBytes = gdal.GetCacheUsed();
+
+        return block;
+    }
+
+    /**
+     * Create a data set using GDAL's MEM driver, filled with values that fit in
+     * every data type.
+     */
+    private static Dataset createMemDataSet(int iSize, int jSize, int kSize, int type)
+    {
+        Dataset dataSet = gdal.GetDriverByName("MEM").Create("", iSize, jSize, kSize, type);
+
+        double[] row = new double[iSize];
+        for (int k = 0; k < kSize; ++k)
+        {
+            Band band = dataSet.GetRasterBand(k + 1);
+            for (int j = 0; j < jSize; ++j)
+            {
+                for (int i = 0; i < iSize; ++i)
+                {
+                    row[i] = (i * 7 + j * 13 + k * 31) % 251;
+                }
+                band.WriteRaster(0, j, iSize, 1, row);
+            }
+        }
+
+        return dataSet;
+    }
+
+}
@@ -97,6 +97,47 @@ public interface Layer
      */
     void get(int i, int j, Pixel p);
 
+    /**
+     * Retrieve data for a rectangle of (I, J) locations starting at the
+     * specified indices, and use it to fill the specified {@link PixelBlock}.
+     * The block's own sizes determine the size of the rectangle and the number
+     * of bands read. Locations (and bands) that are outside the layer are
+     * marked out-of-bounds in the block.
+     * <p>
+     * The default implementation calls {@link #get(int, int, Pixel)} once per
+     * location using a pixel obtained from
+     * {@link PixelBlock#createPixel(boolean)}, then copies the pixel into the
+     * block. Implementations that can move whole runs of values into the block
+     * at once should override this method.
+     *
+     * @param iMin the I index of the layer that corresponds to I == 0 in the
+     *            block
+     * @param jMin the J index of the layer that corresponds to J == 0 in the
+     *            block
+     * @param block the block, which will be mutated by this method
+     * @param throws NullPointerException if block is null
+     * @param throws IllegalArgumentException if the layer implementation does
+     *            not know how to handle the specified block
+     */
+    default void getBlock(int iMin, int jMin, PixelBlock block)
+    {
+        if (block == null)
+        {
+            throw new NullPointerException();
+        }
+
+        Pixel p = block.createPixel(block.kSize() > 1 || !isGetAccepts(PixelDouble.class));
+
+        for (int j = 0; j < block.jSize(); ++j)
+        {
+            for (int i = 0; i < block.iSize(); ++i)
+            {
+                get(iMin + i, jMin + j, p);
+                block.set(i, j, p);
+            }
+        }
+    }
+
     /**
      * Retrieve the smallest and largest values in the layer, and use them to
      * set the specified {@link Pixel} instances.
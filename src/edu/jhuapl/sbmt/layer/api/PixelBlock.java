@@ -0,0 +1,142 @@
+package edu.jhuapl.sbmt.layer.api;
+
+import java.util.BitSet;
+
+/**
+ * A rectangular block of pixel data, stored as struct-of-arrays rather than as
+ * one {@link Pixel} object per (I, J) pair. The block has sizes in the I, J
+ * and K dimensions; the K (band) size is 1 for blocks of scalar data. A run
+ * of pixels along one row is simply a block whose J size is 1.
+ * <p>
+ * Elements are addressed by block-relative indices (I, J, K), which are
+ * mapped onto the flat element index returned by {@link #index(int, int, int)}
+ * band-sequentially, with the I index varying fastest, then J, then K. The
+ * flags of each element are held in two {@link BitSet}s keyed by that flat
+ * index, one for elements that are invalid and one for elements that are out
+ * of bounds. An element is valid only if neither of its bits is set.
+ * <p>
+ * Blocks are filled using {@link Layer#getBlock(int, int, PixelBlock)}.
+ * Sub-interfaces add access to the primitive array that holds the values, so
+ * that code that knows about them may operate on whole runs of values at
+ * once. The methods {@link #get(int, int, Pixel)} and
+ * {@link #set(int, int, Pixel)} exchange the data of one (I, J) location with
+ * an ordinary {@link Pixel}, for code that does not.
+ * <p>
+ * Blocks are intended to be reused, and used by a single thread.
+ *
+ * @author James Peachey
+ *
+ */
+public interface PixelBlock
+{
+    /**
+     * @return the number of values of the I index in the block
+     */
+    int iSize();
+
+    /**
+     * @return the number of values of the J index in the block
+     */
+    int jSize();
+
+    /**
+     * @return the number of values of the K (band) index in the block, 1 for
+     *         blocks of scalar data
+     */
+    int kSize();
+
+    /**
+     * Return the flat index of the element at the specified block-relative
+     * indices. This method does not check bounds.
+     *
+     * @param i the I index
+     * @param j the J index
+     * @param k the K index
+     * @return the flat index
+     */
+    default int index(int i, int j, int k)
+    {
+        return (k * jSize() + j) * iSize() + i;
+    }
+
+    /**
+     * Return the set of flat indices of elements that are in-bounds but not
+     * valid. The set is NOT a copy; changing it changes the flags of the
+     * elements.
+     *
+     * @return the set of invalid elements
+     */
+    BitSet invalid();
+
+    /**
+     * Return the set of flat indices of elements that are out of bounds. The
+     * set is NOT a copy; changing it changes the flags of the elements.
+     *
+     * @return the set of out-of-bounds elements
+     */
+    BitSet outOfBounds();
+
+    /**
+     * Return a flag that indicates whether the element at the specified
+     * block-relative indices is in-bounds.
+     *
+     * @param i the I index
+     * @param j the J index
+     * @param k the K index
+     * @return true if the element is in-bounds
+     */
+    default boolean isInBounds(int i, int j, int k)
+    {
+        return !outOfBounds().get(index(i, j, k));
+    }
+
+    /**
+     * Return a flag that indicates whether the element at the specified
+     * block-relative indices is in-bounds and valid.
+     *
+     * @param i the I index
+     * @param j the J index
+     * @param k the K index
+     * @return true if the element is valid
+     */
+    default boolean isValid(int i, int j, int k)
+    {
+        int index = index(i, j, k);
+
+        return !outOfBounds().get(index) && !invalid().get(index);
+    }
+
+    /**
+     * Create a pixel that is compatible with this block's
+     * {@link #get(int, int, Pixel)} and {@link #set(int, int, Pixel)} methods,
+     * for use by code that must transfer data one pixel at a time.
+     *
+     * @param isVector if true, create a vector pixel with {@link #kSize()}
+     *            elements; if false, create a scalar pixel
+     * @return the pixel
+     */
+    Pixel createPixel(boolean isVector);
+
+    /**
+     * Copy the data and flags of the element(s) at the specified
+     * block-relative (I, J) location into the specified pixel.
+     *
+     * @param i the I index
+     * @param j the J index
+     * @param p the destination pixel
+     * @throws IllegalArgumentException if the pixel has an incompatible type
+     */
+    void get(int i, int j, Pixel p);
+
+    /**
+     * Copy the data and flags of the specified pixel into the element(s) at
+     * the specified block-relative (I, J) location.
+     *
+     * @param i the I index
+     * @param j the J index
+     * @param p the source pixel
+     * @throws IllegalArgumentException if the pixel has an incompatible type
+     */
+    void set(int i, int j, Pixel p);
+
+}
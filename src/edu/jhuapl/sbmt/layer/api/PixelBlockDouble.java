@@ -0,0 +1,30 @@
+package edu.jhuapl.sbmt.layer.api;
+
+/**
+ * Extension of {@link PixelBlock} whose values are held in one array of
+ * doubles, indexed by {@link #index(int, int, int)}.
+ *
+ * @author James Peachey
+ *
+ */
+public interface PixelBlockDouble extends PixelBlock
+{
+    /**
+     * Return the array that holds the values of the elements. The array is
+     * NOT a copy. Its length is at least iSize() * jSize() * kSize(). The
+     * values of out-of-bounds elements are equal to
+     * {@link #getOutOfBoundsValue()}; those of invalid elements are whatever
+     * value was stored.
+     *
+     * @return the backing array
+     */
+    double[] values();
+
+    /**
+     * Return the value stored in elements that are out of bounds.
+     *
+     * @return the out-of-bounds value
+     */
+    double getOutOfBoundsValue();
+
+}
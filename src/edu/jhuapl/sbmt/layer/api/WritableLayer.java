@@ -0,0 +1,89 @@
+package edu.jhuapl.sbmt.layer.api;
+
+/**
+ * Extension of {@link Layer} whose data may be changed in place, so that
+ * edits such as calibration, masking or inpainting do not require wrapping
+ * the layer in yet another derived layer.
+ * <p>
+ * Writing a pixel copies the values and validity of its in-bounds elements
+ * into the layer. Elements of the pixel that are marked out of bounds, and
+ * elements of the layer for which the pixel has no element, are left
+ * unchanged, so a pixel obtained from {@link #get(int, int, Pixel)} may be
+ * modified and written back without affecting anything else.
+ * <p>
+ * Unless an implementation documents otherwise, writable layers are not
+ * thread-safe: a layer may be read by several threads at once only while no
+ * thread is writing it.
+ *
+ * @author James Peachey
+ *
+ */
+public interface WritableLayer extends Layer
+{
+    /**
+     * Return a flag that indicates whether this implementation's
+     * {@link #set(int, int, Pixel)} method can set data using pixels that
+     * implement the specified type.
+     *
+     * @param pixelType the {@link Class} designating the type to check
+     * @return true if this layer's {@link #set(int, int, Pixel)} method
+     *         accepts pixels that have the type pixelType
+     */
+    boolean isSetAccepts(Class<?> pixelType);
+
+    /**
+     * Copy the data of the specified {@link Pixel} into the layer at the
+     * specified indices.
+     *
+     * @param i the I index
+     * @param j the J index
+     * @param p the pixel, which is not modified by this method
+     * @throws NullPointerException if p is null
+     * @throws IndexOutOfBoundsException if either index is out of bounds
+     * @throws IllegalArgumentException if the layer implementation does not
+     *             know how to handle the specified instance of the pixel
+     */
+    void set(int i, int j, Pixel p);
+
+    /**
+     * Copy the data of the specified {@link PixelBlock} into the rectangle of
+     * (I, J) locations that starts at the specified indices. The block's own
+     * sizes determine the size of the rectangle and the number of bands
+     * written. Block locations that fall outside the layer are ignored, as
+     * are elements of the block that are marked out of bounds.
+     * <p>
+     * The default implementation calls {@link PixelBlock#get(int, int, Pixel)}
+     * once per location using a pixel obtained from
+     * {@link PixelBlock#createPixel(boolean)}, then calls
+     * {@link #set(int, int, Pixel)}. Implementations that can move whole runs
+     * of values out of the block at once should override this method.
+     *
+     * @param iMin the I index of the layer that corresponds to I == 0 in the
+     *            block
+     * @param jMin the J index of the layer that corresponds to J == 0 in the
+     *            block
+     * @param block the block, which is not modified by this method
+     * @throws NullPointerException if block is null
+     * @throws IllegalArgumentException if the layer implementation does not
+     *             know how to handle the specified block
+     */
+    default void setBlock(int iMin, int jMin, PixelBlock block)
+    {
+        if (block == null)
+        {
+            throw new NullPointerException();
+        }
+
+        Pixel p = block.createPixel(block.kSize() > 1 || !isSetAccepts(PixelDouble.class));
+
+        for (int j = Math.max(0, -jMin); j < block.jSize() && jMin + j < jSize(); ++j)
+        {
+            for (int i = Math.max(0, -iMin); i < block.iSize() && iMin + i < iSize(); ++i)
+            {
+                block.get(i, j, p);
+                set(iMin + i, jMin + j, p);
+            }
+        }
+    }
+
+}
@@ -1,5 +1,7 @@
 package edu.jhuapl.sbmt.layer.gdal;
 
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Hashtable;
 import java.util.Set;
 import java.util.TreeSet;
@@ -8,10 +10,12 @@ import org.gdal.gdal.Band;
 import org.gdal.gdal.Dataset;
 import org.gdal.gdalconst.gdalconst;
 
+import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 
 import edu.jhuapl.sbmt.layer.api.KeyValueCollection;
 import edu.jhuapl.sbmt.layer.api.Layer;
+import edu.jhuapl.sbmt.layer.api.PixelBlockDouble;
 import edu.jhuapl.sbmt.layer.api.PixelDouble;
 import edu.jhuapl.sbmt.layer.impl.BasicLayer;
 import edu.jhuapl.sbmt.layer.impl.DoubleBuilderBase.DoubleRangeGetter;
@@ -22,6 +26,7 @@ import edu.jhuapl.sbmt.layer.impl.LayerDoubleBuilder;
 import edu.jhuapl.sbmt.layer.impl.RangeGetter;
 import edu.jhuapl.sbmt.layer.impl.ValidityChecker3d;
 import edu.jhuapl.sbmt.layer.impl.VectorRangeGetter;
+import edu.jhuapl.sbmt.layer.jfr.LayerLoadEvent;
 
 /**
  * Load a list of {@link Layer}s from a file using GDAL.
@@ -64,6 +69,22 @@ public abstract class LayerLoader
      *             {@link Dataset} cannot be read into the layer
      */
     public Layer load()
+    {
+        LayerLoadEvent event = new LayerLoadEvent();
+        event.begin();
+
+        Layer layer = doLoad();
+
+        if (event.shouldCommit())
+        {
+            event.setSizes(layer);
+            event.commit();
+        }
+
+        return layer;
+    }
+
+    protected Layer doLoad()
     {
         Dataset dataSet = getDataSet();
         int numBands = dataSet.GetRasterCount();
@@ -267,6 +288,104 @@ public abstract class LayerLoader
         return dg;
     }
 
+    /**
+     * Read a rectangular window of the GDAL {@link Dataset} returned by the
+     * {@link #getDataSet()} method directly into a {@link PixelBlockDouble},
+     * without creating a {@link Layer} or any {@link PixelDouble} objects.
+     * <p>
+     * Band K of the block is read from band K + 1 of the data set, one
+     * {@link Band#ReadRaster(int, int, int, int, double[])} call per band,
+     * with GDAL converting the native data type to double. Elements that lie
+     * outside the band, or whose band is missing, are marked out of bounds.
+     * Elements for which the checker returned by {@link #getValidityChecker()}
+     * returns false are marked invalid.
+     *
+     * @param iMin the I (X) index of the data set that corresponds to I == 0
+     *            in the block
+     * @param jMin the J (Y) index of the data set that corresponds to J == 0
+     *            in the block
+     * @param block the block, which will be mutated by this method
+     * @throws NullPointerException if block is null
+     */
+    public void loadBlock(int iMin, int jMin, PixelBlockDouble block)
+    {
+        Preconditions.checkNotNull(block);
+
+        Dataset dataSet = getDataSet();
+        int numBands = dataSet.GetRasterCount();
+        ValidityChecker3d checker = getValidityChecker();
+
+        int blockISize = block.iSize();
+        int blockJSize = block.jSize();
+        double[] values = block.values();
+        BitSet invalid = block.invalid();
+        BitSet outOfBounds = block.outOfBounds();
+        double outOfBoundsValue = block.getOutOfBoundsValue();
+
+        invalid.clear();
+        outOfBounds.clear();
+
+        double[] window = null;
+        for (int k = 0; k < block.kSize(); ++k)
+        {
+            Band band = k < numBands ? dataSet.GetRasterBand(k + 1) : null;
+
+            // Overlap of the block with this band, in block-relative indices.
+            int iBegin = 0;
+            int iEnd = 0;
+            int jBegin = 0;
+            int jEnd = 0;
+            if (band != null)
+            {
+                iBegin = Math.max(0, Math.min(blockISize, -iMin));
+                iEnd = Math.max(iBegin, Math.min(blockISize, band.getXSize() - iMin));
+                jBegin = Math.max(0, Math.min(blockJSize, -jMin));
+                jEnd = Math.max(jBegin, Math.min(blockJSize, band.getYSize() - jMin));
+            }
+
+            int width = iEnd - iBegin;
+            int height = jEnd - jBegin;
+            if (width > 0 && height > 0)
+            {
+                if (window == null || window.length < width * height)
+                {
+                    window = new double[width * height];
+                }
+                band.ReadRaster(iMin + iBegin, jMin + jBegin, width, height, window);
+            }
+
+            for (int j = 0; j < blockJSize; ++j)
+            {
+                int blockIndex = block.index(0, j, k);
+                if (j < jBegin || j >= jEnd || width <= 0)
+                {
+                    Arrays.fill(values, blockIndex, blockIndex + blockISize, outOfBoundsValue);
+                    outOfBounds.set(blockIndex, blockIndex + blockISize);
+                    continue;
+                }
+
+                Arrays.fill(values, blockIndex, blockIndex + iBegin, outOfBoundsValue);
+                outOfBounds.set(blockIndex, blockIndex + iBegin);
+
+                System.arraycopy(window, (j - jBegin) * width, values, blockIndex + iBegin, width);
+
+                if (checker != null)
+                {
+                    for (int i = iBegin; i < iEnd; ++i)
+                    {
+                        if (!checker.isValid(iMin + i, jMin + j, k, values[blockIndex + i]))
+                        {
+                            invalid.set(blockIndex + i);
+                        }
+                    }
+                }
+
+                Arrays.fill(values, blockIndex + iEnd, blockIndex + blockISize, outOfBoundsValue);
+                outOfBounds.set(blockIndex + iEnd, blockIndex + blockISize);
+            }
+        }
+    }
+
     @Override
     public String toString()
     {
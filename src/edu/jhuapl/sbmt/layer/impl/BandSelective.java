@@ -0,0 +1,129 @@
+package edu.jhuapl.sbmt.layer.impl;
+
+import com.google.common.base.Preconditions;
+
+import edu.jhuapl.sbmt.layer.api.Layer;
+import edu.jhuapl.sbmt.layer.api.Pixel;
+import edu.jhuapl.sbmt.layer.api.PixelDouble;
+import edu.jhuapl.sbmt.layer.api.PixelVector;
+
+/**
+ * Interface for vector {@link Layer}s that can get individual elements (bands)
+ * of a pixel without getting the whole vector. Getting one band costs the same
+ * regardless of the number of bands in the layer, so consumers that only need
+ * a few bands, such as slices, should use {@link #getBand(int, int, int, Pixel)}
+ * or {@link #getBands(int, int, int[], PixelVector)} rather than
+ * {@link Layer#get(int, int, Pixel)}.
+ * <p>
+ * Layers that pass band requests on to other layers should use the static
+ * {@link #getBand(Layer, int, int, int, Pixel, PixelVector)} method, which
+ * falls back on getting the whole vector if the other layer does not
+ * implement this interface.
+ *
+ * @author James Peachey
+ *
+ */
+public interface BandSelective
+{
+
+    /**
+     * Get the element with index K of the vector at the specified (I, J)
+     * indices, and use it to set the specified (scalar) pixel. The pixel's
+     * value and flags are the same as those the K-th element of a vector
+     * pixel would have after a call to {@link Layer#get(int, int, Pixel)}. If
+     * (I, J) or K is out of bounds, the pixel is marked out of bounds.
+     *
+     * @param i the I index
+     * @param j the J index
+     * @param k the K (band) index
+     * @param p the pixel, which will be mutated by this method
+     * @throws NullPointerException if p is null
+     * @throws IllegalArgumentException if the layer implementation does not
+     *             know how to handle the specified instance of the pixel
+     */
+    void getBand(int i, int j, int k, Pixel p);
+
+    /**
+     * Get the specified bands of the vector at the specified (I, J) indices,
+     * and use them to set the elements of the specified vector pixel. Element
+     * N of the pixel receives band bands[N]; elements past the end of the
+     * array of bands are marked out of bounds.
+     *
+     * @param i the I index
+     * @param j the J index
+     * @param bands the indices of the bands to get
+     * @param pv the pixel, which will be mutated by this method
+     * @throws NullPointerException if bands or pv is null
+     */
+    default void getBands(int i, int j, int[] bands, PixelVector pv)
+    {
+        Preconditions.checkNotNull(bands);
+        Preconditions.checkNotNull(pv);
+
+        pv.setInBounds(true);
+        for (int n = 0; n < pv.size(); ++n)
+        {
+            getBand(i, j, n < bands.length ? bands[n] : -1, pv.get(n));
+        }
+    }
+
+    /**
+     * Get one band of the specified layer. If the layer is
+     * {@link BandSelective}, this just calls
+     * {@link #getBand(int, int, int, Pixel)}. Otherwise, if a scratch pixel is
+     * supplied, the whole vector is got into it and the requested element is
+     * assigned to the output pixel. If no scratch pixel is supplied, the layer
+     * is assumed to be scalar, so only K == 0 is in bounds.
+     *
+     * @param layer the layer
+     * @param i the I index
+     * @param j the J index
+     * @param k the K (band) index
+     * @param p the output pixel
+     * @param scratch vector pixel to use if the layer is not
+     *            {@link BandSelective}, or null if the layer is scalar
+     */
+    static void getBand(Layer layer, int i, int j, int k, Pixel p, PixelVector scratch)
+    {
+        if (layer instanceof BandSelective bs)
+        {
+            bs.getBand(i, j, k, p);
+        }
+        else if (scratch != null)
+        {
+            layer.get(i, j, scratch);
+            if (k >= 0 && k < scratch.size())
+            {
+                p.assignFrom(scratch.get(k));
+            }
+            else
+            {
+                setOutOfBounds(p);
+            }
+        }
+        else if (k == 0)
+        {
+            layer.get(i, j, p);
+        }
+        else
+        {
+            setOutOfBounds(p);
+        }
+    }
+
+    /**
+     * Mark the pixel out of bounds, setting its value to the out-of-bounds
+     * value if it is a {@link PixelDouble}.
+     *
+     * @param p the pixel
+     */
+    static void setOutOfBounds(Pixel p)
+    {
+        if (p instanceof PixelDouble pd)
+        {
+            pd.set(pd.getOutOfBoundsValue());
+        }
+        p.setInBounds(false);
+    }
+
+}
@@ -2,6 +2,7 @@ package edu.jhuapl.sbmt.layer.impl;
 
 import java.util.Set;
 
+import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableSet;
 
 import edu.jhuapl.sbmt.layer.api.Pixel;
@@ -12,11 +13,14 @@ import edu.jhuapl.sbmt.layer.api.PixelVector;
  * Abstract extension of {@link BasicLayer} that assumes the native form of the
  * underlying data can be expressed as a double value that is looked up using a
  * set of 3 indices (I, J, K).
+ * <p>
+ * Because each element is looked up independently, layers of this type are
+ * {@link BandSelective}: getting one band does not get the others.
  *
  * @author James Peachey
  *
  */
-public abstract class BasicLayerOfVectorDouble extends BasicLayer
+public abstract class BasicLayerOfVectorDouble extends BasicLayer implements BandSelective
 {
 
     private static final Set<Class<?>> AcceptedPixelTypes = ImmutableSet.of(PixelDouble.class, PixelVector.class);
@@ -55,7 +59,7 @@ public abstract class BasicLayerOfVectorDouble extends BasicLayer
 
             double value = inBounds ? doGetDouble(i, j, k) : pd.getOutOfBoundsValue();
             pd.set(value);
-            pd.setIsValid(isValid(i, j, 0, value));
+            pd.setIsValid(inBounds && isValid(i, j, k, value));
             pd.setInBounds(inBounds);
         }
         else
@@ -64,19 +68,62 @@ public abstract class BasicLayerOfVectorDouble extends BasicLayer
         }
     }
 
+    @Override
+    public void getBand(int i, int j, int k, Pixel p)
+    {
+        Preconditions.checkNotNull(p);
+
+        if (checkIndices(i, j, p))
+        {
+            getElement(i, j, k, p);
+        }
+        else
+        {
+            BandSelective.setOutOfBounds(p);
+        }
+    }
+
     /*
      * Override to circumvent bounds checking at this level -- getScalar handles
-     * that for each sub-pixel in this implementation.
+     * that for each sub-pixel in this implementation. Flat vector pixels are
+     * filled directly, without going through their element pixels.
      */
     @Override
     protected void getVector(int i, int j, PixelVector pv)
     {
+        if (pv instanceof FlatPixelVectorDouble fv)
+        {
+            getFlatVector(i, j, fv);
+            return;
+        }
+
         for (int k = 0; k < pv.size(); ++k)
         {
             getElement(i, j, k, pv.get(k));
         }
     }
 
+    /**
+     * Fill a {@link FlatPixelVectorDouble} with the same values and flags that
+     * {@link #getElement(int, int, int, Pixel)} would give its elements.
+     *
+     * @param i the I index
+     * @param j the J index
+     * @param fv the output (vector) pixel
+     */
+    protected void getFlatVector(int i, int j, FlatPixelVectorDouble fv)
+    {
+        int kSize = kSize(i, j);
+
+        for (int k = 0; k < fv.size(); ++k)
+        {
+            boolean inBounds = checkIndex(k, 0, kSize);
+
+            double value = inBounds ? doGetDouble(i, j, k) : fv.getOutOfBoundsValue();
+            fv.setElement(k, value, inBounds && isValid(i, j, k, value), inBounds);
+        }
+    }
+
     protected abstract double doGetDouble(int i, int j, int k);
 
     protected abstract boolean isValid(int i, int j, int k, double value);
@@ -0,0 +1,236 @@
+package edu.jhuapl.sbmt.layer.impl;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import com.google.common.base.Preconditions;
+
+import edu.jhuapl.sbmt.layer.api.Pixel;
+import edu.jhuapl.sbmt.layer.api.PixelBlockDouble;
+import edu.jhuapl.sbmt.layer.api.PixelDouble;
+import edu.jhuapl.sbmt.layer.api.PixelVector;
+
+/**
+ * Implementation of {@link PixelBlockDouble} that holds its values in one
+ * array of doubles and its flags in two {@link BitSet}s. A newly created block
+ * has every element out of bounds.
+ * <p>
+ * Pixels created by {@link #createPixel(boolean)} come from the
+ * {@link PlainPixelDoubleFactory} and {@link FlatPixelVectorDoubleFactory}, so
+ * transfers between the block and vector pixels avoid the element pixel
+ * objects entirely. Like those pixels, instances are intended for use by a
+ * single thread.
+ *
+ * @author James Peachey
+ *
+ */
+public class BasicPixelBlockDouble implements PixelBlockDouble
+{
+    protected static final PixelDoubleFactory PixelScalarFactory = new PlainPixelDoubleFactory();
+    protected static final FlatPixelVectorDoubleFactory PixelVectorFactory = new FlatPixelVectorDoubleFactory();
+
+    private final int iSize;
+    private final int jSize;
+    private final int kSize;
+    private final double[] values;
+    private final BitSet invalid;
+    private final BitSet outOfBounds;
+    private final double outOfBoundsValue;
+
+    /**
+     * Create a block of the specified size, with all elements out of bounds.
+     *
+     * @param iSize the number of values of the I index
+     * @param jSize the number of values of the J index
+     * @param kSize the number of values of the K index
+     * @param outOfBoundsValue value stored in elements that are out of bounds
+     */
+    protected BasicPixelBlockDouble(int iSize, int jSize, int kSize, double outOfBoundsValue)
+    {
+        super();
+
+        Preconditions.checkArgument(iSize >= 0);
+        Preconditions.checkArgument(jSize >= 0);
+        Preconditions.checkArgument(kSize > 0);
+        Preconditions.checkArgument((long) iSize * jSize * kSize <= Integer.MAX_VALUE, //
+                "Block of size %s x %s x %s is too large", iSize, jSize, kSize);
+
+        int size = iSize * jSize * kSize;
+
+        this.iSize = iSize;
+        this.jSize = jSize;
+        this.kSize = kSize;
+        this.values = new double[size];
+        this.invalid = new BitSet(size);
+        this.outOfBounds = new BitSet(size);
+        this.outOfBoundsValue = outOfBoundsValue;
+
+        Arrays.fill(values, outOfBoundsValue);
+        outOfBounds.set(0, size);
+    }
+
+    @Override
+    public int iSize()
+    {
+        return iSize;
+    }
+
+    @Override
+    public int jSize()
+    {
+        return jSize;
+    }
+
+    @Override
+    public int kSize()
+    {
+        return kSize;
+    }
+
+    @Override
+    public int index(int i, int j, int k)
+    {
+        return (k * jSize + j) * iSize + i;
+    }
+
+    @Override
+    public BitSet invalid()
+    {
+        return invalid;
+    }
+
+    @Override
+    public BitSet outOfBounds()
+    {
+        return outOfBounds;
+    }
+
+    @Override
+    public double[] values()
+    {
+        return values;
+    }
+
+    @Override
+    public double getOutOfBoundsValue()
+    {
+        return outOfBoundsValue;
+    }
+
+    @Override
+    public Pixel createPixel(boolean isVector)
+    {
+        return isVector ? PixelVectorFactory.of(kSize, outOfBoundsValue) : PixelScalarFactory.of(Double.NaN, outOfBoundsValue);
+    }
+
+    @Override
+    public void get(int i, int j, Pixel p)
+    {
+        Preconditions.checkNotNull(p);
+
+        if (p instanceof FlatPixelVectorDouble fv)
+        {
+            fv.setIsValid(true);
+            fv.setInBounds(true);
+            for (int k = 0; k < fv.size(); ++k)
+            {
+                if (k < kSize)
+                {
+                    int index = index(i, j, k);
+                    fv.setElement(k, values[index], !invalid.get(index), !outOfBounds.get(index));
+                }
+                else
+                {
+                    fv.setElement(k, outOfBoundsValue, false, false);
+                }
+            }
+        }
+        else if (p instanceof PixelVector pv)
+        {
+            pv.setIsValid(true);
+            pv.setInBounds(true);
+            for (int k = 0; k < pv.size(); ++k)
+            {
+                getElement(i, j, k, pv.get(k));
+            }
+        }
+        else
+        {
+            getElement(i, j, 0, p);
+        }
+    }
+
+    @Override
+    public void set(int i, int j, Pixel p)
+    {
+        Preconditions.checkNotNull(p);
+
+        if (p instanceof PixelVector pv)
+        {
+            for (int k = 0; k < kSize; ++k)
+            {
+                setElement(i, j, k, k < pv.size() ? pv.get(k) : null);
+            }
+        }
+        else
+        {
+            setElement(i, j, 0, p);
+            for (int k = 1; k < kSize; ++k)
+            {
+                setElement(i, j, k, null);
+            }
+        }
+    }
+
+    protected void getElement(int i, int j, int k, Pixel p)
+    {
+        if (p instanceof PixelDouble pd)
+        {
+            boolean inBounds = k < kSize && !outOfBounds.get(index(i, j, k));
+            boolean isValid = inBounds && !invalid.get(index(i, j, k));
+
+            pd.set(inBounds ? values[index(i, j, k)] : outOfBoundsValue);
+            pd.setIsValid(isValid);
+            pd.setInBounds(inBounds);
+        }
+        else
+        {
+            throw new IllegalArgumentException("Cannot get pixel of type " + p.getClass() + " from a block of doubles");
+        }
+    }
+
+    /**
+     * Set one element from the specified pixel, or mark it out of bounds if
+     * the pixel is null.
+     */
+    protected void setElement(int i, int j, int k, Pixel p)
+    {
+        int index = index(i, j, k);
+
+        if (p == null)
+        {
+            values[index] = outOfBoundsValue;
+            invalid.clear(index);
+            outOfBounds.set(index);
+        }
+        else if (p instanceof PixelDouble pd)
+        {
+            boolean inBounds = pd.isInBounds();
+
+            values[index] = inBounds ? pd.getStoredValue() : outOfBoundsValue;
+            invalid.set(index, inBounds && !pd.isValid());
+            outOfBounds.set(index, !inBounds);
+        }
+        else
+        {
+            throw new IllegalArgumentException("Cannot set a block of doubles from pixel of type " + p.getClass());
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return "Block of doubles (" + iSize + ", " + jSize + ") x " + kSize;
+    }
+
+}
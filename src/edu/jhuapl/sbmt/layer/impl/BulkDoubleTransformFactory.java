@@ -0,0 +1,262 @@
+package edu.jhuapl.sbmt.layer.impl;
+
+import com.google.common.base.Preconditions;
+
+import edu.jhuapl.sbmt.layer.impl.LayerDoubleTransformFactory.BulkDoubleTransform;
+import edu.jhuapl.sbmt.layer.impl.LayerDoubleTransformFactory.Monotonicity;
+
+/**
+ * Factory for commonly used {@link BulkDoubleTransform} instances. Each
+ * transform's array method is a plain counted loop over primitive doubles with
+ * no branches other than those inside the JDK math intrinsics, which is the
+ * form HotSpot's C2 compiler turns into SIMD instructions where the platform
+ * supports it. No incubator modules are required.
+ * <p>
+ * Use these with
+ * {@link LayerDoubleTransformFactory#toBulkLayerTransform(BulkDoubleTransform)}
+ * to transform whole {@link DenseLayerOfDouble} instances, or with
+ * {@link LayerDoubleTransformFactory#toLayerTransform(LayerDoubleTransformFactory.DoubleTransform, LayerDoubleTransformFactory.DoubleTransform)}
+ * to transform any layer one value at a time.
+ *
+ * @author James Peachey
+ *
+ */
+public class BulkDoubleTransformFactory
+{
+
+    public BulkDoubleTransformFactory()
+    {
+        super();
+    }
+
+    /**
+     * Return a transform that computes value * scale + offset.
+     *
+     * @param scale the multiplicative factor
+     * @param offset the additive offset
+     * @return the transform
+     */
+    public BulkDoubleTransform linear(double scale, double offset)
+    {
+        return new BulkDoubleTransform() {
+
+            @Override
+            public double apply(double value)
+            {
+                return value * scale + offset;
+            }
+
+            @Override
+            public void apply(double[] source, double[] destination, int start, int length)
+            {
+                int end = start + length;
+                for (int index = start; index < end; ++index)
+                {
+                    destination[index] = source[index] * scale + offset;
+                }
+            }
+
+            @Override
+            public String toString()
+            {
+                return "linear(" + scale + ", " + offset + ")";
+            }
+
+            @Override
+            public String getSpec()
+            {
+                return toString();
+            }
+
+            @Override
+            public Monotonicity monotonicity()
+            {
+                return scale > 0.0 ? Monotonicity.Increasing : scale < 0.0 ? Monotonicity.Decreasing : Monotonicity.Unknown;
+            }
+        };
+    }
+
+    /**
+     * Return a transform that computes the natural logarithm of a value.
+     *
+     * @return the transform
+     */
+    public BulkDoubleTransform log()
+    {
+        return new BulkDoubleTransform() {
+
+            @Override
+            public double apply(double value)
+            {
+                return Math.log(value);
+            }
+
+            @Override
+            public void apply(double[] source, double[] destination, int offset, int length)
+            {
+                int end = offset + length;
+                for (int index = offset; index < end; ++index)
+                {
+                    destination[index] = Math.log(source[index]);
+                }
+            }
+
+            @Override
+            public String toString()
+            {
+                return "log";
+            }
+
+            @Override
+            public String getSpec()
+            {
+                return toString();
+            }
+
+            @Override
+            public Monotonicity monotonicity()
+            {
+                return Monotonicity.Increasing;
+            }
+        };
+    }
+
+    /**
+     * Return a transform that computes the base-10 logarithm of a value.
+     *
+     * @return the transform
+     */
+    public BulkDoubleTransform log10()
+    {
+        return new BulkDoubleTransform() {
+
+            @Override
+            public double apply(double value)
+            {
+                return Math.log10(value);
+            }
+
+            @Override
+            public void apply(double[] source, double[] destination, int offset, int length)
+            {
+                int end = offset + length;
+                for (int index = offset; index < end; ++index)
+                {
+                    destination[index] = Math.log10(source[index]);
+                }
+            }
+
+            @Override
+            public String toString()
+            {
+                return "log10";
+            }
+
+            @Override
+            public String getSpec()
+            {
+                return toString();
+            }
+
+            @Override
+            public Monotonicity monotonicity()
+            {
+                return Monotonicity.Increasing;
+            }
+        };
+    }
+
+    /**
+     * Return a transform that clamps values to the closed range [min, max].
+     * NaN values are passed through unchanged.
+     *
+     * @param min the smallest value the transform returns
+     * @param max the largest value the transform returns
+     * @return the transform
+     * @throws IllegalArgumentException if min > max
+     */
+    public BulkDoubleTransform clamp(double min, double max)
+    {
+        Preconditions.checkArgument(min <= max);
+
+        return new BulkDoubleTransform() {
+
+            @Override
+            public double apply(double value)
+            {
+                return Math.max(min, Math.min(max, value));
+            }
+
+            @Override
+            public void apply(double[] source, double[] destination, int offset, int length)
+            {
+                int end = offset + length;
+                for (int index = offset; index < end; ++index)
+                {
+                    destination[index] = Math.max(min, Math.min(max, source[index]));
+                }
+            }
+
+            @Override
+            public String toString()
+            {
+                return "clamp(" + min + ", " + max + ")";
+            }
+
+            @Override
+            public String getSpec()
+            {
+                return toString();
+            }
+
+            @Override
+            public Monotonicity monotonicity()
+            {
+                return Monotonicity.Increasing;
+            }
+        };
+    }
+
+    /**
+     * Return a transform that raises values to the specified power. Because
+     * the monotonicity of this transform depends on the signs of both the
+     * inputs and the exponent, it reports {@link Monotonicity#Unknown}.
+     *
+     * @param exponent the exponent
+     * @return the transform
+     */
+    public BulkDoubleTransform power(double exponent)
+    {
+        return new BulkDoubleTransform() {
+
+            @Override
+            public double apply(double value)
+            {
+                return Math.pow(value, exponent);
+            }
+
+            @Override
+            public void apply(double[] source, double[] destination, int offset, int length)
+            {
+                int end = offset + length;
+                for (int index = offset; index < end; ++index)
+                {
+                    destination[index] = Math.pow(source[index], exponent);
+                }
+            }
+
+            @Override
+            public String toString()
+            {
+                return "power(" + exponent + ")";
+            }
+
+            @Override
+            public String getSpec()
+            {
+                return toString();
+            }
+        };
+    }
+
+}
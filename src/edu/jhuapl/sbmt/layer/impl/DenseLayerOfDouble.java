@@ -0,0 +1,259 @@
+package edu.jhuapl.sbmt.layer.impl;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+
+import edu.jhuapl.sbmt.layer.api.KeyValueCollection;
+import edu.jhuapl.sbmt.layer.api.Layer;
+import edu.jhuapl.sbmt.layer.api.PixelBlock;
+import edu.jhuapl.sbmt.layer.api.PixelBlockDouble;
+
+/**
+ * Implementation of {@link Layer} whose data are held in one contiguous array
+ * of doubles. Elements are stored band-sequentially, with the I index varying
+ * fastest, then J, then K, i.e., the element at (I, J, K) is located at array
+ * index (K * jSize + J) * iSize + I. This is the same layout GDAL uses when
+ * reading a band, so each band (K slice) is one contiguous run of values.
+ * <p>
+ * Element validity is stored separately from the values in a {@link BitSet}
+ * of invalid elements, so that transforms of the values do not affect
+ * validity. If no such set is supplied, all elements are valid.
+ * <p>
+ * Because the backing array is exposed through {@link #values()}, code that
+ * knows about this class may operate on whole runs of values at once rather
+ * than one {@link edu.jhuapl.sbmt.layer.api.Pixel} at a time.
+ *
+ * @author James Peachey
+ *
+ */
+public class DenseLayerOfDouble extends BasicLayerOfVectorDouble
+{
+    private final int kSize;
+    private final List<Integer> dataSizes;
+    private final double[] values;
+    private final BitSet invalid;
+    private final KeyValueCollection keyValueCollection;
+
+    /**
+     * Create a dense layer that uses (does not copy) the specified array and
+     * invalid element set.
+     *
+     * @param iSize the number of in-bounds values of the I index
+     * @param jSize the number of in-bounds values of the J index
+     * @param kSize the number of in-bounds values of the K index
+     * @param values the values, which must have exactly iSize * jSize * kSize
+     *            elements
+     * @param invalid the set of array indices of invalid elements, or null if
+     *            all elements are valid
+     * @param keyValueCollection the key-value pairs describing the layer, or
+     *            null for none
+     * @throws IllegalArgumentException if any size is negative, kSize is 0, or
+     *             the array has the wrong length
+     * @throws NullPointerException if values is null
+     */
+    public DenseLayerOfDouble(int iSize, int jSize, int kSize, double[] values, BitSet invalid, KeyValueCollection keyValueCollection)
+    {
+        super(iSize, jSize);
+
+        Preconditions.checkArgument(iSize >= 0);
+        Preconditions.checkArgument(jSize >= 0);
+        Preconditions.checkArgument(kSize > 0);
+        Preconditions.checkNotNull(values);
+        Preconditions.checkArgument((long) iSize * jSize * kSize == values.length, //
+                "Array of length %s cannot hold a layer of size %s x %s x %s", values.length, iSize, jSize, kSize);
+
+        this.kSize = kSize;
+        this.dataSizes = ImmutableList.of(Integer.valueOf(kSize));
+        this.values = values;
+        this.invalid = invalid;
+        this.keyValueCollection = keyValueCollection != null ? keyValueCollection : ImmutableKeyValueCollection.of();
+    }
+
+    @Override
+    public List<Integer> dataSizes()
+    {
+        return dataSizes;
+    }
+
+    /**
+     * Return the number of elements in the K dimension.
+     *
+     * @return the size in the K dimension
+     */
+    public int kSize()
+    {
+        return kSize;
+    }
+
+    /**
+     * Return the array that backs this layer. The array is NOT a copy, so
+     * callers must not modify it unless they own this layer.
+     *
+     * @return the backing array
+     */
+    public double[] values()
+    {
+        return values;
+    }
+
+    /**
+     * Return the set of array indices of invalid elements. The set is NOT a
+     * copy. May return null, which means all elements are valid.
+     *
+     * @return the set of invalid elements, or null
+     */
+    public BitSet invalid()
+    {
+        return invalid;
+    }
+
+    /**
+     * Return the index in the backing array of the element at the specified
+     * indices. This method does not check bounds.
+     *
+     * @param i the I index
+     * @param j the J index
+     * @param k the K index
+     * @return the array index
+     */
+    public int index(int i, int j, int k)
+    {
+        return (k * jSize() + j) * iSize() + i;
+    }
+
+    /**
+     * Read the elements of the pixel straight from the backing array, which
+     * holds the elements of one pixel at a fixed stride of iSize * jSize.
+     */
+    @Override
+    protected void getFlatVector(int i, int j, FlatPixelVectorDouble fv)
+    {
+        int size = fv.size();
+        int n = Math.min(size, kSize);
+        int stride = iSize() * jSize();
+        int index = j * iSize() + i;
+
+        double[] destination = fv.values();
+        for (int k = 0; k < n; ++k, index += stride)
+        {
+            destination[k] = values[index];
+        }
+
+        fv.setAll(true, true);
+
+        if (invalid != null)
+        {
+            index = j * iSize() + i;
+            for (int k = 0; k < n; ++k, index += stride)
+            {
+                if (invalid.get(index))
+                {
+                    fv.setElementValidFlag(k, false);
+                }
+            }
+        }
+
+        double outOfBoundsValue = fv.getOutOfBoundsValue();
+        for (int k = n; k < size; ++k)
+        {
+            fv.setElement(k, outOfBoundsValue, false, false);
+        }
+    }
+
+    /**
+     * Copy whole rows of each band from the backing array if the block is a
+     * {@link PixelBlockDouble}, otherwise fall back on the per-pixel default.
+     */
+    @Override
+    public void getBlock(int iMin, int jMin, PixelBlock block)
+    {
+        Preconditions.checkNotNull(block);
+
+        if (!(block instanceof PixelBlockDouble bd))
+        {
+            super.getBlock(iMin, jMin, block);
+            return;
+        }
+
+        int iSize = iSize();
+        int jSize = jSize();
+        int blockISize = bd.iSize();
+        int blockJSize = bd.jSize();
+        int blockKSize = bd.kSize();
+
+        double[] destination = bd.values();
+        BitSet blockInvalid = bd.invalid();
+        BitSet blockOutOfBounds = bd.outOfBounds();
+        double outOfBoundsValue = bd.getOutOfBoundsValue();
+
+        blockInvalid.clear();
+        blockOutOfBounds.clear();
+
+        // Overlap of the block with this layer, in block-relative I indices.
+        int iBegin = Math.max(0, Math.min(blockISize, -iMin));
+        int iEnd = Math.max(iBegin, Math.min(blockISize, iSize - iMin));
+
+        for (int k = 0; k < blockKSize; ++k)
+        {
+            for (int j = 0; j < blockJSize; ++j)
+            {
+                int blockIndex = bd.index(0, j, k);
+                int jj = jMin + j;
+
+                if (k >= kSize || jj < 0 || jj >= jSize || iBegin == iEnd)
+                {
+                    Arrays.fill(destination, blockIndex, blockIndex + blockISize, outOfBoundsValue);
+                    blockOutOfBounds.set(blockIndex, blockIndex + blockISize);
+                    continue;
+                }
+
+                Arrays.fill(destination, blockIndex, blockIndex + iBegin, outOfBoundsValue);
+                blockOutOfBounds.set(blockIndex, blockIndex + iBegin);
+
+                int index = index(iMin + iBegin, jj, k);
+                System.arraycopy(values, index, destination, blockIndex + iBegin, iEnd - iBegin);
+
+                if (invalid != null)
+                {
+                    int indexEnd = index + iEnd - iBegin;
+                    for (int n = invalid.nextSetBit(index); n >= 0 && n < indexEnd; n = invalid.nextSetBit(n + 1))
+                    {
+                        blockInvalid.set(blockIndex + iBegin + n - index);
+                    }
+                }
+
+                Arrays.fill(destination, blockIndex + iEnd, blockIndex + blockISize, outOfBoundsValue);
+                blockOutOfBounds.set(blockIndex + iEnd, blockIndex + blockISize);
+            }
+        }
+    }
+
+    @Override
+    protected double doGetDouble(int i, int j, int k)
+    {
+        return values[index(i, j, k)];
+    }
+
+    @Override
+    protected boolean isValid(int i, int j, int k, double value)
+    {
+        return invalid == null || !invalid.get(index(i, j, k));
+    }
+
+    @Override
+    public KeyValueCollection getKeyValueCollection()
+    {
+        return keyValueCollection;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "Dense " + super.toString();
+    }
+
+}
@@ -0,0 +1,533 @@
+package edu.jhuapl.sbmt.layer.impl;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.google.common.base.Preconditions;
+
+import edu.jhuapl.sbmt.layer.api.Layer;
+import edu.jhuapl.sbmt.layer.jfr.LayerCacheEvent;
+import edu.jhuapl.sbmt.layer.jfr.LayerMaterializeEvent;
+
+/**
+ * Cache of materialized derived layers, stored in files in a local directory,
+ * so that results may be reused across sessions, and by all users who share
+ * the directory. Entries are identified by keys from
+ * {@link LayerContentKeyFactory}, and each entry is a
+ * {@link DenseLayerOfDouble}.
+ * <p>
+ * The cache is bounded by the total size of its files, and evicts the
+ * least-recently-used entries when that bound is exceeded. Use is tracked using
+ * the files' modification times, which are updated when an entry is read.
+ * <p>
+ * Entries are written to a temporary file, then moved into place, so readers
+ * never see partial entries, and two processes that compute the same entry at
+ * the same time simply both write it. Pixels that are out-of-bounds within the
+ * bounds of a materialized layer are stored as invalid pixels. Key-value
+ * collections are not stored.
+ * <p>
+ * This class is thread-safe. I/O errors while reading or writing entries are
+ * treated as cache misses, so a damaged or unwritable cache only costs time.
+ *
+ * @author James Peachey
+ *
+ */
+public class DiskLayerCache
+{
+    protected static final LayerContentKeyFactory KeyFactory = new LayerContentKeyFactory();
+
+    protected static final PixelBlockDoubleFactory BlockFactory = new PixelBlockDoubleFactory();
+
+    protected static final String Suffix = ".layer";
+
+    /**
+     * First 4 bytes of each entry, followed by the format version.
+     */
+    protected static final int Magic = 0x53424C43;
+    protected static final int FormatVersion = 1;
+
+    /**
+     * Size of the header: magic, version, I, J and K sizes, and the number of
+     * longs in the invalid set.
+     */
+    protected static final int HeaderBytes = 6 * Integer.BYTES;
+
+    protected static final int BufferBytes = 1 << 16;
+
+    private final Path directory;
+    private final long maxBytes;
+    private final LongAdder hitCount;
+    private final LongAdder missCount;
+    private final LongAdder evictionCount;
+
+    /**
+     * Create a cache that stores entries in the specified directory, which is
+     * created if necessary.
+     *
+     * @param directory the directory
+     * @param maxBytes the maximum total size of all entries
+     * @throws IllegalArgumentException if maxBytes is negative
+     * @throws UncheckedIOException if the directory cannot be created
+     */
+    public DiskLayerCache(Path directory, long maxBytes)
+    {
+        super();
+
+        Preconditions.checkNotNull(directory);
+        Preconditions.checkArgument(maxBytes >= 0);
+
+        try
+        {
+            Files.createDirectories(directory);
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        this.hitCount = new LongAdder();
+        this.missCount = new LongAdder();
+        this.evictionCount = new LongAdder();
+    }
+
+    /**
+     * Return the layer obtained by applying the pipeline to the source layer,
+     * reusing the cached result if there is one, and otherwise computing,
+     * materializing and caching the result. If the pipeline has no stable spec
+     * (see {@link LayerContentKeyFactory#spec(LayerPipeline)}), the pipeline is
+     * simply applied to the source.
+     *
+     * @param pipeline the pipeline
+     * @param source the source layer
+     * @param fingerprint the fingerprint of the source layer
+     * @return the derived layer
+     */
+    public Layer apply(LayerPipeline pipeline, Layer source, String fingerprint)
+    {
+        Preconditions.checkNotNull(pipeline);
+        Preconditions.checkNotNull(source);
+
+        String key = KeyFactory.key(fingerprint, pipeline);
+        if (key == null)
+        {
+            return pipeline.apply(source);
+        }
+
+        DenseLayerOfDouble result = get(key);
+        if (result == null)
+        {
+            result = materialize(pipeline.apply(source));
+            put(key, result);
+        }
+
+        return result;
+    }
+
+    /**
+     * Return the entry with the specified key, or null if there is none.
+     *
+     * @param key the key
+     * @return the cached layer, or null
+     */
+    public DenseLayerOfDouble get(String key)
+    {
+        Path path = toPath(key);
+
+        LayerCacheEvent event = new LayerCacheEvent();
+        event.begin();
+
+        DenseLayerOfDouble layer;
+        try
+        {
+            layer = read(path);
+        }
+        catch (IOException | RuntimeException e)
+        {
+            layer = null;
+        }
+
+        if (layer != null)
+        {
+            try
+            {
+                touch(path);
+            }
+            catch (IOException e)
+            {
+                // Only the owner of a file may set its time, so this fails for
+                // entries written by another user of a shared directory. The
+                // entry is still good; it just may be evicted sooner.
+            }
+        }
+
+        if (layer != null)
+        {
+            hitCount.increment();
+        }
+        else
+        {
+            missCount.increment();
+        }
+
+        if (event.shouldCommit())
+        {
+            event.setOperation("get");
+            event.setKey(key);
+            event.setHit(layer != null);
+            if (layer != null)
+            {
+                event.setSizes(layer);
+                event.setBytes(entryBytes(layer));
+            }
+            event.commit();
+        }
+
+        return layer;
+    }
+
+    /**
+     * Store a layer as the entry with the specified key, replacing any
+     * existing entry, then evict entries if the cache is too big.
+     *
+     * @param key the key
+     * @param layer the layer
+     */
+    public void put(String key, DenseLayerOfDouble layer)
+    {
+        Preconditions.checkNotNull(layer);
+
+        Path path = toPath(key);
+
+        LayerCacheEvent event = new LayerCacheEvent();
+        event.begin();
+
+        boolean stored = false;
+        Path tmpPath = null;
+        try
+        {
+            tmpPath = Files.createTempFile(directory, key, ".tmp");
+            write(tmpPath, layer);
+            Files.move(tmpPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            stored = true;
+        }
+        catch (IOException e)
+        {
+            // Caching is only an optimization; just clean up.
+            deleteQuietly(tmpPath);
+        }
+
+        if (event.shouldCommit())
+        {
+            event.setOperation("put");
+            event.setKey(key);
+            event.setHit(stored);
+            event.setSizes(layer);
+            event.setBytes(entryBytes(layer));
+            event.commit();
+        }
+
+        evict();
+    }
+
+    /**
+     * @return the total size of all the entries in the cache
+     */
+    public long size()
+    {
+        long size = 0;
+        for (Entry entry : listEntries())
+        {
+            size += entry.bytes;
+        }
+
+        return size;
+    }
+
+    public long getMaxBytes()
+    {
+        return maxBytes;
+    }
+
+    public long getHitCount()
+    {
+        return hitCount.sum();
+    }
+
+    public long getMissCount()
+    {
+        return missCount.sum();
+    }
+
+    public long getEvictionCount()
+    {
+        return evictionCount.sum();
+    }
+
+    /**
+     * Copy every element of a layer into a new {@link DenseLayerOfDouble}.
+     * Elements that are out-of-bounds are stored as invalid, with the value
+     * NaN. The key-value collection is not copied, so that the layer is the
+     * same as it will be when it is read back from the cache.
+     *
+     * @param layer the layer
+     * @return the dense layer
+     */
+    protected DenseLayerOfDouble materialize(Layer layer)
+    {
+        List<Integer> dataSizes = layer.dataSizes();
+        Preconditions.checkArgument(dataSizes.size() == 1, "Can only cache scalar or vector layers");
+
+        int iSize = layer.iSize();
+        int jSize = layer.jSize();
+        int kSize = dataSizes.get(0);
+
+        LayerMaterializeEvent event = new LayerMaterializeEvent();
+        event.begin();
+
+        BasicPixelBlockDouble block = BlockFactory.of(iSize, jSize, kSize, Double.NaN);
+        layer.getBlock(0, 0, block);
+
+        BitSet invalid = (BitSet) block.invalid().clone();
+        invalid.or(block.outOfBounds());
+
+        if (event.shouldCommit())
+        {
+            event.setSizes(iSize, jSize, kSize);
+            event.commit();
+        }
+
+        return new DenseLayerOfDouble(iSize, jSize, kSize, block.values(), invalid.isEmpty() ? null : invalid, null);
+    }
+
+    /**
+     * @return the size of the file that stores the specified layer
+     */
+    protected static long entryBytes(DenseLayerOfDouble layer)
+    {
+        long numberLongs = layer.invalid() != null ? (layer.invalid().length() + Long.SIZE - 1) / Long.SIZE : 0;
+
+        return HeaderBytes + (long) Double.BYTES * layer.values().length + Long.BYTES * numberLongs;
+    }
+
+    /**
+     * Mark the entry as recently used, for least-recently-used eviction.
+     *
+     * @param path the path of the entry
+     * @throws IOException if the time of the entry's file cannot be set
+     */
+    protected void touch(Path path) throws IOException
+    {
+        Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis()));
+    }
+
+    protected Path toPath(String key)
+    {
+        Preconditions.checkNotNull(key);
+        Preconditions.checkArgument(key.matches("[0-9a-f]+"), "Invalid cache key %s", key);
+
+        return directory.resolve(key + Suffix);
+    }
+
+    protected void write(Path path, DenseLayerOfDouble layer) throws IOException
+    {
+        double[] values = layer.values();
+        long[] invalid = layer.invalid() != null ? layer.invalid().toLongArray() : new long[0];
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))
+        {
+            ByteBuffer buffer = ByteBuffer.allocate(BufferBytes).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(Magic).putInt(FormatVersion);
+            buffer.putInt(layer.iSize()).putInt(layer.jSize()).putInt(layer.kSize());
+            buffer.putInt(invalid.length);
+
+            for (double value : values)
+            {
+                if (buffer.remaining() < Double.BYTES)
+                {
+                    drain(channel, buffer);
+                }
+                buffer.putDouble(value);
+            }
+            for (long bits : invalid)
+            {
+                if (buffer.remaining() < Long.BYTES)
+                {
+                    drain(channel, buffer);
+                }
+                buffer.putLong(bits);
+            }
+            drain(channel, buffer);
+        }
+    }
+
+    protected DenseLayerOfDouble read(Path path) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ))
+        {
+            ByteBuffer buffer = ByteBuffer.allocate(BufferBytes).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.limit(0);
+            fill(channel, buffer, HeaderBytes);
+
+            if (buffer.getInt() != Magic || buffer.getInt() != FormatVersion)
+            {
+                throw new IOException("Not a cache entry: " + path);
+            }
+
+            int iSize = buffer.getInt();
+            int jSize = buffer.getInt();
+            int kSize = buffer.getInt();
+            int numberLongs = buffer.getInt();
+
+            long numberValues = (long) iSize * jSize * kSize;
+            if (iSize < 0 || jSize < 0 || kSize <= 0 || numberLongs < 0 || numberValues > Integer.MAX_VALUE)
+            {
+                throw new IOException("Corrupt cache entry: " + path);
+            }
+
+            double[] values = new double[(int) numberValues];
+            for (int index = 0; index < values.length; ++index)
+            {
+                if (buffer.remaining() < Double.BYTES)
+                {
+                    fill(channel, buffer, Double.BYTES);
+                }
+                values[index] = buffer.getDouble();
+            }
+
+            long[] invalid = new long[numberLongs];
+            for (int index = 0; index < invalid.length; ++index)
+            {
+                if (buffer.remaining() < Long.BYTES)
+                {
+                    fill(channel, buffer, Long.BYTES);
+                }
+                invalid[index] = buffer.getLong();
+            }
+
+            return new DenseLayerOfDouble(iSize, jSize, kSize, values, numberLongs > 0 ? BitSet.valueOf(invalid) : null, null);
+        }
+    }
+
+    /**
+     * Delete the least-recently-used entries until the total size is within
+     * bounds.
+     */
+    protected synchronized void evict()
+    {
+        List<Entry> entries = listEntries();
+
+        long totalBytes = 0;
+        for (Entry entry : entries)
+        {
+            totalBytes += entry.bytes;
+        }
+
+        entries.sort(Comparator.comparing(entry -> entry.lastUsed));
+        for (Entry entry : entries)
+        {
+            if (totalBytes <= maxBytes)
+            {
+                break;
+            }
+
+            deleteQuietly(entry.path);
+            totalBytes -= entry.bytes;
+            evictionCount.increment();
+        }
+    }
+
+    protected List<Entry> listEntries()
+    {
+        List<Entry> entries = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + Suffix))
+        {
+            for (Path path : stream)
+            {
+                try
+                {
+                    entries.add(new Entry(path, Files.size(path), Files.getLastModifiedTime(path)));
+                }
+                catch (NoSuchFileException e)
+                {
+                    // Evicted by another thread or process.
+                }
+            }
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+
+        return entries;
+    }
+
+    private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException
+    {
+        buffer.flip();
+        while (buffer.hasRemaining())
+        {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private static void fill(FileChannel channel, ByteBuffer buffer, int minBytes) throws IOException
+    {
+        buffer.compact();
+        while (buffer.position() < minBytes)
+        {
+            if (channel.read(buffer) < 0)
+            {
+                throw new IOException("Truncated cache entry");
+            }
+        }
+        buffer.flip();
+    }
+
+    private static void deleteQuietly(Path path)
+    {
+        if (path != null)
+        {
+            try
+            {
+                Files.deleteIfExists(path);
+            }
+            catch (IOException e)
+            {
+                // Nothing else to do.
+            }
+        }
+    }
+
+    protected static final class Entry
+    {
+        private final Path path;
+        private final long bytes;
+        private final FileTime lastUsed;
+
+        private Entry(Path path, long bytes, FileTime lastUsed)
+        {
+            this.path = path;
+            this.bytes = bytes;
+            this.lastUsed = lastUsed;
+        }
+    }
+
+}
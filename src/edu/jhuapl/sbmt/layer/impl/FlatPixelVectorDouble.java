@@ -0,0 +1,437 @@
+package edu.jhuapl.sbmt.layer.impl;
+
+import java.util.Arrays;
+
+import com.google.common.base.Preconditions;
+
+import edu.jhuapl.sbmt.layer.api.Pixel;
+import edu.jhuapl.sbmt.layer.api.PixelDouble;
+import edu.jhuapl.sbmt.layer.api.PixelVector;
+
+/**
+ * Implementation of {@link PixelVector} whose element values are stored in
+ * one array of doubles, and whose element flags are packed into two arrays of
+ * bits (one for validity, one for bounds). The number of elements that are
+ * in-bounds, and the number that are also valid, are maintained as the flags
+ * are set, so {@link #isValid()} and {@link #isInBounds()} take constant time
+ * regardless of the size of the vector, as do the same methods of each
+ * element.
+ * <p>
+ * The flag semantics are the same as those of {@link BasicPixelVectorDouble}:
+ * the vector is in-bounds if its own flag is set and at least one element is
+ * in-bounds, and it is valid if its own flag is set, it is in-bounds and at
+ * least one element is valid and in-bounds. An element is in-bounds if both
+ * it and the vector are, and is valid if it is in-bounds and both it and the
+ * vector are flagged valid.
+ * <p>
+ * Layers that know about this class may use the bulk methods
+ * {@link #values()}, {@link #setAll(boolean, boolean)},
+ * {@link #setElement(int, double, boolean, boolean)} etc. to fill the whole
+ * vector without going through the element {@link PixelDouble} objects.
+ * <p>
+ * Like the {@link PlainPixel} family, instances are intended for use by a
+ * single thread.
+ *
+ * @author James Peachey
+ *
+ */
+public class FlatPixelVectorDouble implements PixelVector
+{
+    private final double[] values;
+    private final long[] validBits;
+    private final long[] inBoundsBits;
+    private final Element[] elements;
+    private final double outOfBoundsValue;
+    private final Double invalidValue;
+    private boolean isValid;
+    private boolean inBounds;
+    // Number of elements whose in-bounds flag is set.
+    private int inBoundsCount;
+    // Number of elements whose valid and in-bounds flags are both set.
+    private int validInBoundsCount;
+
+    /**
+     * Create a vector pixel with all elements valid and in-bounds, and all
+     * values set to {@link Double#NaN}.
+     *
+     * @param size the number of elements
+     * @param outOfBoundsValue value returned by elements that are out of
+     *            bounds
+     * @param invalidValue value returned by elements that are invalid, or
+     *            null to return the stored value
+     */
+    protected FlatPixelVectorDouble(int size, double outOfBoundsValue, Double invalidValue)
+    {
+        super();
+
+        Preconditions.checkArgument(size >= 0);
+
+        this.values = new double[size];
+        this.validBits = new long[(size + Long.SIZE - 1) / Long.SIZE];
+        this.inBoundsBits = new long[validBits.length];
+        this.elements = new Element[size];
+        this.outOfBoundsValue = outOfBoundsValue;
+        this.invalidValue = invalidValue;
+        this.isValid = true;
+        this.inBounds = true;
+
+        for (int k = 0; k < size; ++k)
+        {
+            elements[k] = new Element(k);
+        }
+
+        Arrays.fill(values, Double.NaN);
+        setAll(true, true);
+    }
+
+    @Override
+    public int size()
+    {
+        return values.length;
+    }
+
+    @Override
+    public PixelDouble get(int index)
+    {
+        if (index < 0 || index >= elements.length)
+        {
+            throw new IndexOutOfBoundsException();
+        }
+
+        return elements[index];
+    }
+
+    @Override
+    public boolean isValid()
+    {
+        return isValid && isInBounds() && validInBoundsCount > 0;
+    }
+
+    @Override
+    public void setIsValid(boolean isValid)
+    {
+        this.isValid = isValid;
+    }
+
+    @Override
+    public boolean isInBounds()
+    {
+        return inBounds && inBoundsCount > 0;
+    }
+
+    @Override
+    public void setInBounds(boolean inBounds)
+    {
+        this.inBounds = inBounds;
+    }
+
+    /**
+     * @return the value returned by elements that are out of bounds
+     */
+    public double getOutOfBoundsValue()
+    {
+        return outOfBoundsValue;
+    }
+
+    /**
+     * Return the array that holds the stored values of the elements. The
+     * array is NOT a copy; writing to it changes the values of the elements,
+     * but not their flags.
+     *
+     * @return the backing array
+     */
+    public double[] values()
+    {
+        return values;
+    }
+
+    /**
+     * Set the valid and in-bounds flags of every element at once.
+     *
+     * @param isValid the valid flag for all elements
+     * @param inBounds the in-bounds flag for all elements
+     */
+    public void setAll(boolean isValid, boolean inBounds)
+    {
+        fill(validBits, isValid);
+        fill(inBoundsBits, inBounds);
+
+        inBoundsCount = inBounds ? values.length : 0;
+        validInBoundsCount = isValid && inBounds ? values.length : 0;
+    }
+
+    /**
+     * Set the value and flags of one element.
+     *
+     * @param k the element index
+     * @param value the value
+     * @param isValid the element's valid flag
+     * @param inBounds the element's in-bounds flag
+     */
+    public void setElement(int k, double value, boolean isValid, boolean inBounds)
+    {
+        values[k] = value;
+        setElementFlags(k, isValid, inBounds);
+    }
+
+    /**
+     * @param k the element index
+     * @return the element's own valid flag, independent of the vector's flags
+     */
+    public boolean getElementValidFlag(int k)
+    {
+        return getBit(validBits, k);
+    }
+
+    /**
+     * @param k the element index
+     * @return the element's own in-bounds flag, independent of the vector's
+     *         flags
+     */
+    public boolean getElementInBoundsFlag(int k)
+    {
+        return getBit(inBoundsBits, k);
+    }
+
+    /**
+     * Set the element's own valid flag.
+     *
+     * @param k the element index
+     * @param isValid the flag
+     */
+    public void setElementValidFlag(int k, boolean isValid)
+    {
+        setElementFlags(k, isValid, getBit(inBoundsBits, k));
+    }
+
+    /**
+     * Set the element's own in-bounds flag.
+     *
+     * @param k the element index
+     * @param inBounds the flag
+     */
+    public void setElementInBoundsFlag(int k, boolean inBounds)
+    {
+        setElementFlags(k, getBit(validBits, k), inBounds);
+    }
+
+    protected void setElementFlags(int k, boolean isValid, boolean inBounds)
+    {
+        boolean wasValid = getBit(validBits, k);
+        boolean wasInBounds = getBit(inBoundsBits, k);
+
+        inBoundsCount += (inBounds ? 1 : 0) - (wasInBounds ? 1 : 0);
+        validInBoundsCount += (isValid && inBounds ? 1 : 0) - (wasValid && wasInBounds ? 1 : 0);
+
+        setBit(validBits, k, isValid);
+        setBit(inBoundsBits, k, inBounds);
+    }
+
+    @Override
+    public void assignFrom(Pixel source)
+    {
+        Preconditions.checkNotNull(source);
+
+        if (source instanceof PixelVector pv)
+        {
+            for (int k = 0; k < size(); ++k)
+            {
+                get(k).assignFrom(pv.get(k));
+            }
+        }
+        else if (source instanceof PixelDouble pd)
+        {
+            get(0).assignFrom(pd);
+            boolean isValid = isValid();
+            for (int k = 1; k < size(); ++k)
+            {
+                setElement(k, outOfBoundsValue, isValid, false);
+            }
+        }
+        else
+        {
+            throw new IllegalArgumentException("Cannot assign to a vector double pixel from pixel of type " + source.getClass());
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder builder = new StringBuilder();
+
+        if (!isInBounds())
+        {
+            builder.append("O (");
+        }
+        else if (!isValid())
+        {
+            builder.append("I (");
+        }
+        else
+        {
+            builder.append("  (");
+        }
+
+        String delim = "";
+        for (int k = 0; k < size(); ++k)
+        {
+            builder.append(delim);
+            builder.append(get(k));
+
+            delim = ", ";
+        }
+        builder.append(")");
+
+        return builder.toString();
+    }
+
+    private static boolean getBit(long[] bits, int k)
+    {
+        return (bits[k >>> 6] & (1L << k)) != 0;
+    }
+
+    private static void setBit(long[] bits, int k, boolean value)
+    {
+        if (value)
+        {
+            bits[k >>> 6] |= 1L << k;
+        }
+        else
+        {
+            bits[k >>> 6] &= ~(1L << k);
+        }
+    }
+
+    private void fill(long[] bits, boolean value)
+    {
+        Arrays.fill(bits, value ? -1L : 0L);
+        int extra = bits.length * Long.SIZE - values.length;
+        if (value && extra > 0)
+        {
+            // Keep unused bits clear.
+            bits[bits.length - 1] >>>= extra;
+        }
+    }
+
+    /**
+     * View of one element of the vector.
+     */
+    private final class Element implements PixelDouble
+    {
+        private final int k;
+
+        private Element(int k)
+        {
+            this.k = k;
+        }
+
+        @Override
+        public boolean isValid()
+        {
+            return isValid && getBit(validBits, k) && isInBounds();
+        }
+
+        @Override
+        public void setIsValid(boolean isValid)
+        {
+            setElementValidFlag(k, isValid);
+        }
+
+        @Override
+        public boolean isInBounds()
+        {
+            // If this element is in-bounds, the vector has at least one
+            // in-bounds element, so only the vector's own flag is needed.
+            return inBounds && getBit(inBoundsBits, k);
+        }
+
+        @Override
+        public void setInBounds(boolean inBounds)
+        {
+            setElementInBoundsFlag(k, inBounds);
+        }
+
+        @Override
+        public double get()
+        {
+            if (!isInBounds())
+            {
+                return outOfBoundsValue;
+            }
+            else if (invalidValue != null && !isValid())
+            {
+                return invalidValue.doubleValue();
+            }
+
+            return values[k];
+        }
+
+        @Override
+        public double getStoredValue()
+        {
+            return values[k];
+        }
+
+        @Override
+        public void set(double value)
+        {
+            values[k] = value;
+        }
+
+        @Override
+        public double getOutOfBoundsValue()
+        {
+            return outOfBoundsValue;
+        }
+
+        @Override
+        public void assignFrom(Pixel source)
+        {
+            Preconditions.checkNotNull(source);
+
+            boolean isValid = true;
+            boolean inBounds = true;
+            if (source instanceof PixelVector pv)
+            {
+                if (pv.size() > 0)
+                {
+                    source = pv.get(0);
+                }
+                isValid = pv.isValid();
+                inBounds = pv.isInBounds();
+            }
+
+            if (source instanceof PixelDouble pd)
+            {
+                setElement(k, pd.get(), isValid && pd.isValid(), inBounds && pd.isInBounds());
+            }
+            else
+            {
+                throw new IllegalArgumentException("Cannot assign to a scalar double pixel from pixel of type " + source.getClass());
+            }
+        }
+
+        @Override
+        public String toString()
+        {
+            String formattedValue = String.format("%.3g", get());
+            String stringFormat = "%9s";
+            if (!isInBounds())
+            {
+                formattedValue = String.format(stringFormat, "(O) " + formattedValue);
+            }
+            else if (!isValid())
+            {
+                formattedValue = String.format(stringFormat, "(I) " + formattedValue);
+            }
+            else
+            {
+                formattedValue = String.format(stringFormat, formattedValue);
+            }
+
+            return formattedValue;
+        }
+
+    }
+
+}
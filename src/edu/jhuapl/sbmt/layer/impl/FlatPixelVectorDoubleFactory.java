@@ -0,0 +1,39 @@
+package edu.jhuapl.sbmt.layer.impl;
+
+import com.google.common.base.Preconditions;
+
+import edu.jhuapl.sbmt.layer.api.PixelVector;
+
+/**
+ * Factory for creating {@link PixelVector} instances backed by a single array
+ * of values (see {@link FlatPixelVectorDouble}). These are best for pixels
+ * with many elements, and for use with layers that fill the backing array
+ * directly. Like the pixels created by {@link PlainPixelVectorDoubleFactory},
+ * they are intended for use by a single thread.
+ *
+ * @author James Peachey
+ *
+ */
+public class FlatPixelVectorDoubleFactory extends PixelVectorDoubleFactory
+{
+
+    public FlatPixelVectorDoubleFactory()
+    {
+        super();
+    }
+
+    @Override
+    public FlatPixelVectorDouble of(int size, double outOfBoundsValue)
+    {
+        return of(size, outOfBoundsValue, null);
+    }
+
+    @Override
+    public FlatPixelVectorDouble of(int size, double outOfBoundsValue, Double invalidValue)
+    {
+        Preconditions.checkArgument(size >= 0);
+
+        return new FlatPixelVectorDouble(size, outOfBoundsValue, invalidValue);
+    }
+
+}
@@ -0,0 +1,286 @@
+package edu.jhuapl.sbmt.layer.impl;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+
+import com.google.common.base.Preconditions;
+
+import edu.jhuapl.sbmt.layer.api.Layer;
+import edu.jhuapl.sbmt.layer.impl.LayerDoubleTransformFactory.DoubleTransform;
+import edu.jhuapl.sbmt.layer.impl.LayerTransform.Kind;
+
+/**
+ * Factory for stable content identities of derived layers. A derived layer is
+ * identified by a key computed from two parts:
+ * <ol>
+ * <li>a fingerprint of the source layer, which is either computed from the
+ * source's pixels using {@link #fingerprint(Layer)}, or built from a
+ * description of the source (such as a file name and modification time) using
+ * {@link #fingerprint(String)}, and
+ * <li>the spec of the {@link LayerPipeline} applied to the source, which is a
+ * canonical string built from the kinds and parameters of the pipeline's
+ * {@link LayerTransform}s.
+ * </ol>
+ * Fingerprints and keys are hexadecimal SHA-256 digests. They depend only on
+ * the content of the source and the steps of the pipeline, so they are the same
+ * in every session, and may be used to look up results in persistent caches
+ * such as {@link DiskLayerCache}.
+ * <p>
+ * Not every pipeline has a spec. Steps of kind {@link Kind#Custom}, and steps
+ * with parameters that have no stable description, such as lambda
+ * {@link DoubleTransform}s (see {@link DoubleTransform#getSpec()}) or
+ * arbitrary {@link edu.jhuapl.sbmt.layer.api.PixelOperator}s, make the whole
+ * pipeline unspecifiable. Steps that do not change pixels, such as
+ * {@link Kind#Identity} and {@link Kind#Cache}, are left out of the spec.
+ *
+ * @author James Peachey
+ *
+ */
+public class LayerContentKeyFactory
+{
+    /**
+     * Version of the fingerprint and spec formats. Change this whenever
+     * either format changes, so that stale cache entries are never matched.
+     */
+    protected static final String FormatVersion = "1";
+
+    protected static final PixelBlockDoubleFactory BlockFactory = new PixelBlockDoubleFactory();
+
+    /**
+     * Approximate number of elements read per block when fingerprinting.
+     */
+    protected static final int ElementsPerBlock = 1 << 16;
+
+    public LayerContentKeyFactory()
+    {
+        super();
+    }
+
+    /**
+     * Return a fingerprint of a source that is described by the specified
+     * string. The description must change whenever the content of the source
+     * changes, for example by including a file's name, length and modification
+     * time.
+     *
+     * @param description the description of the source
+     * @return the fingerprint
+     */
+    public String fingerprint(String description)
+    {
+        Preconditions.checkNotNull(description);
+
+        MessageDigest digest = createDigest();
+        digest.update(("source:" + FormatVersion + "\n" + description).getBytes(StandardCharsets.UTF_8));
+
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Return a fingerprint computed from the dimensions and every element of
+     * the specified layer: values, validity and in-bounds status. This reads
+     * the whole layer once.
+     *
+     * @param layer the layer
+     * @return the fingerprint
+     * @throws IllegalArgumentException if the layer is neither scalar nor
+     *             vector
+     */
+    public String fingerprint(Layer layer)
+    {
+        Preconditions.checkNotNull(layer);
+
+        List<Integer> dataSizes = layer.dataSizes();
+        Preconditions.checkArgument(dataSizes.size() <= 1, "Can only fingerprint scalar or vector layers");
+
+        int iSize = layer.iSize();
+        int jSize = layer.jSize();
+        int kSize = dataSizes.isEmpty() ? 0 : dataSizes.get(0);
+
+        MessageDigest digest = createDigest();
+        digest.update(("layer:" + FormatVersion + "\n" + iSize + "," + jSize + "," + kSize + "\n").getBytes(StandardCharsets.UTF_8));
+
+        if (iSize > 0 && jSize > 0 && kSize > 0)
+        {
+            int rowsPerBlock = Math.max(1, Math.min(jSize, ElementsPerBlock / Math.max(1, iSize * kSize)));
+            BasicPixelBlockDouble block = BlockFactory.of(iSize, rowsPerBlock, kSize, Double.NaN);
+            ByteBuffer buffer = ByteBuffer.allocate(9 * kSize);
+
+            for (int jMin = 0; jMin < jSize; jMin += rowsPerBlock)
+            {
+                layer.getBlock(0, jMin, block);
+
+                // Digest pixel by pixel so the result does not depend on the
+                // block size.
+                int jMax = Math.min(rowsPerBlock, jSize - jMin);
+                for (int j = 0; j < jMax; ++j)
+                {
+                    for (int i = 0; i < iSize; ++i)
+                    {
+                        buffer.clear();
+                        for (int k = 0; k < kSize; ++k)
+                        {
+                            int index = block.index(i, j, k);
+                            if (block.outOfBounds().get(index))
+                            {
+                                buffer.put((byte) 2);
+                                buffer.putDouble(0.0);
+                            }
+                            else
+                            {
+                                buffer.put(block.invalid().get(index) ? (byte) 1 : (byte) 0);
+                                buffer.putDouble(block.values()[index]);
+                            }
+                        }
+                        buffer.flip();
+                        digest.update(buffer);
+                    }
+                }
+            }
+        }
+
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Return the canonical spec of the specified pipeline, or null if the
+     * pipeline has no stable spec.
+     *
+     * @param pipeline the pipeline
+     * @return the spec, or null
+     */
+    public String spec(LayerPipeline pipeline)
+    {
+        Preconditions.checkNotNull(pipeline);
+
+        StringBuilder builder = new StringBuilder("pipeline:" + FormatVersion);
+        for (LayerTransform step : pipeline.getSteps())
+        {
+            Kind kind = step.getKind();
+            if (kind == Kind.Identity || kind == Kind.Cache)
+            {
+                continue;
+            }
+            else if (kind == Kind.Custom)
+            {
+                return null;
+            }
+
+            builder.append("\n");
+            builder.append(kind.name());
+            builder.append("(");
+            String delim = "";
+            for (Object parameter : step.getParameters())
+            {
+                builder.append(delim);
+                if (!appendSpec(builder, parameter))
+                {
+                    return null;
+                }
+                delim = ",";
+            }
+            builder.append(")");
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * Return the key that identifies the layer obtained by applying the
+     * specified pipeline to the source with the specified fingerprint, or null
+     * if the pipeline has no stable spec.
+     *
+     * @param fingerprint the fingerprint of the source layer
+     * @param pipeline the pipeline
+     * @return the key, or null
+     */
+    public String key(String fingerprint, LayerPipeline pipeline)
+    {
+        Preconditions.checkNotNull(fingerprint);
+
+        String spec = spec(pipeline);
+        if (spec == null)
+        {
+            return null;
+        }
+
+        MessageDigest digest = createDigest();
+        digest.update(("key:" + FormatVersion + "\n" + fingerprint + "\n" + spec).getBytes(StandardCharsets.UTF_8));
+
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Append the spec of one parameter to the builder.
+     *
+     * @param builder the builder
+     * @param parameter the parameter
+     * @return true if the parameter had a stable spec, false if not
+     */
+    protected boolean appendSpec(StringBuilder builder, Object parameter)
+    {
+        if (parameter == null || parameter instanceof Integer || parameter instanceof Long || parameter instanceof Boolean)
+        {
+            builder.append(parameter);
+        }
+        else if (parameter instanceof Double || parameter instanceof Float)
+        {
+            // Double.toString round-trips exactly.
+            builder.append(Double.toString(((Number) parameter).doubleValue()));
+        }
+        else if (parameter instanceof String s)
+        {
+            builder.append('"').append(s.replace("\\", "\\\\").replace("\"", "\\\"")).append('"');
+        }
+        else if (parameter instanceof Enum<?> e)
+        {
+            builder.append(e.name());
+        }
+        else if (parameter instanceof List<?> list)
+        {
+            builder.append("[");
+            String delim = "";
+            for (Object element : list)
+            {
+                builder.append(delim);
+                if (!appendSpec(builder, element))
+                {
+                    return false;
+                }
+                delim = ",";
+            }
+            builder.append("]");
+        }
+        else if (parameter instanceof DoubleTransform transform && transform.getSpec() != null)
+        {
+            builder.append(transform.getSpec());
+        }
+        else if (parameter == LayerDoubleTransformFactory.OutOfBoundsOperator)
+        {
+            builder.append("outOfBounds");
+        }
+        else
+        {
+            return false;
+        }
+
+        return true;
+    }
+
+    protected static MessageDigest createDigest()
+    {
+        try
+        {
+            return MessageDigest.getInstance("SHA-256");
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            // Every Java platform is required to support SHA-256.
+            throw new AssertionError(e);
+        }
+    }
+
+}
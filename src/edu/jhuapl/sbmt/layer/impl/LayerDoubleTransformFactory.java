@@ -1,15 +1,20 @@
 package edu.jhuapl.sbmt.layer.impl;
 
+import java.util.BitSet;
 import java.util.function.Function;
+import java.util.stream.IntStream;
 
 import com.google.common.base.Preconditions;
 
 import edu.jhuapl.sbmt.layer.api.KeyValueCollection;
 import edu.jhuapl.sbmt.layer.api.Layer;
 import edu.jhuapl.sbmt.layer.api.Pixel;
+import edu.jhuapl.sbmt.layer.api.PixelBlock;
+import edu.jhuapl.sbmt.layer.api.PixelBlockDouble;
 import edu.jhuapl.sbmt.layer.api.PixelDouble;
 import edu.jhuapl.sbmt.layer.api.PixelOperator;
 import edu.jhuapl.sbmt.layer.api.PixelVector;
+import edu.jhuapl.sbmt.layer.impl.LayerTransform.Kind;
 import edu.jhuapl.sbmt.layer.impl.LayerTransformFactory.ForwardingLayer;
 
 /**
@@ -22,6 +27,15 @@ import edu.jhuapl.sbmt.layer.impl.LayerTransformFactory.ForwardingLayer;
  * <p>
  * The {@link Function#apply(Layer)} methods for all the functions returned by
  * this factory will return null if called with a null layer argument.
+ * <p>
+ * Transforms are returned as {@link LayerTransform}s, which implement
+ * {@link Function} and also describe themselves, for use in
+ * {@link LayerPipeline}s. The factory methods formerly returned
+ * {@code Function<Layer, Layer>}, and changing their return types is an
+ * intentional binary and source incompatibility: code compiled against the
+ * old signatures fails with {@link NoSuchMethodError} until it is recompiled,
+ * and subclasses that override a factory method must declare the new return
+ * type. Callers that just apply the returned functions need no other change.
  *
  * @author James Peachey
  *
@@ -34,17 +48,105 @@ public class LayerDoubleTransformFactory
 
     protected static final LayerTransformFactory TransformFactory = new LayerTransformFactory();
 
+    protected static final LayerRangeFactory RangeFactory = new LayerRangeFactory();
+
     /**
      * {@link PixelOperator} instance that only sets the pixel out-of-bounds.
      */
     protected static final PixelOperator OutOfBoundsOperator = p -> p.setInBounds(false);
 
+    /**
+     * Ordering properties of a {@link DoubleTransform}. A transform that is
+     * (even non-strictly) monotonic maps the range of its inputs onto the
+     * range of its outputs, so the range of a transformed layer may be
+     * computed from the range of the original without scanning the layer.
+     */
+    public enum Monotonicity
+    {
+        /**
+         * Larger inputs never produce smaller outputs.
+         */
+        Increasing,
+        /**
+         * Larger inputs never produce larger outputs.
+         */
+        Decreasing,
+        /**
+         * Nothing is known about the ordering of outputs.
+         */
+        Unknown
+    }
+
     @FunctionalInterface
     public interface DoubleTransform
     {
         double apply(double value);
+
+        /**
+         * Return the {@link Monotonicity} of this transform over all finite
+         * inputs. The default implementation returns
+         * {@link Monotonicity#Unknown}.
+         *
+         * @return the monotonicity
+         */
+        default Monotonicity monotonicity()
+        {
+            return Monotonicity.Unknown;
+        }
+
+        /**
+         * Return a description of this transform that is the same for all
+         * transforms that compute the same values, in this or any other
+         * session, such as "linear(2.0, 1.0)". Descriptions are used to build
+         * keys for cached results, so transforms that cannot guarantee this
+         * must return null, which is what the default implementation does.
+         *
+         * @return the description, or null if there is no stable description
+         */
+        default String getSpec()
+        {
+            return null;
+        }
+    }
+
+    /**
+     * Extension of {@link DoubleTransform} that can also transform a
+     * contiguous run of values held in an array. The default implementation
+     * simply loops over the run, calling {@link #apply(double)} for each
+     * value. Implementations should override
+     * {@link #apply(double[], double[], int, int)} with a simple counted loop
+     * whose body the JIT compiler can vectorize.
+     */
+    @FunctionalInterface
+    public interface BulkDoubleTransform extends DoubleTransform
+    {
+        /**
+         * Transform the values in the source array that are in the half-open
+         * range [offset, offset + length), storing the results at the same
+         * indices in the destination array. The source and destination may be
+         * the same array.
+         *
+         * @param source the array of values to transform
+         * @param destination the array that receives the transformed values
+         * @param offset index of the first value to transform
+         * @param length number of values to transform
+         */
+        default void apply(double[] source, double[] destination, int offset, int length)
+        {
+            int end = offset + length;
+            for (int index = offset; index < end; ++index)
+            {
+                destination[index] = apply(source[index]);
+            }
+        }
     }
 
+    /**
+     * Number of array elements transformed by each parallel task in
+     * {@link #toBulkLayerTransform(BulkDoubleTransform)}.
+     */
+    protected static final int BulkChunkSize = 1 << 16;
+
     public static final DoubleTransform DoubleIdentity = value -> {
         return value;
     };
@@ -64,6 +166,20 @@ public class LayerDoubleTransformFactory
      * ensure that out-of-bounds values are not used in computations, and that
      * the correct {@link DoubleTransform} instance is used for valid and
      * invalid values.
+     * <p>
+     * The {@link Layer#getBlock(int, int, PixelBlock)} method of the returned
+     * layer fills a {@link PixelBlockDouble} from the input layer and
+     * transforms its array of values in place. If the value transform is a
+     * {@link BulkDoubleTransform} that is also used for invalid values, the
+     * whole array is transformed in one call.
+     * <p>
+     * The {@link Layer#getRange(Pixel, Pixel)} method of the returned layer
+     * computes the range of the transformed values the first time it is
+     * called, and caches it until the version of the input layer changes (see
+     * {@link Versioned}). If the value transform reports it is monotonic (see
+     * {@link DoubleTransform#monotonicity()}), the range is derived from the
+     * input layer's range; otherwise (or if the input layer has no range) the
+     * transformed layer is scanned in parallel.
      *
      * @param valueTransform the transform to use on valid values
      * @param invalidValueTransform the transform to use on invalid values (if
@@ -71,7 +187,7 @@ public class LayerDoubleTransformFactory
      *            values as well).
      * @return the layer-to-layer transform
      */
-    public Function<Layer, Layer> toLayerTransform(DoubleTransform valueTransform, DoubleTransform invalidValueTransform)
+    public LayerTransform toLayerTransform(DoubleTransform valueTransform, DoubleTransform invalidValueTransform)
     {
         Preconditions.checkNotNull(valueTransform);
 
@@ -93,98 +209,232 @@ public class LayerDoubleTransformFactory
                 @Override
                 public void get(int i, int j, Pixel p)
                 {
-                    if (p instanceof PixelDouble)
+                    // Get the pixel from the input layer directly into the
+                    // caller's pixel, then transform its value(s) in place, so
+                    // that this method allocates nothing.
+                    if (p instanceof PixelDouble pd)
                     {
-                        PixelDouble pd = (PixelDouble) p;
+                        layer.get(i, j, pd);
 
-                        // Create a pixel in the same state as the input.
-                        PixelDouble tmpPd = PixelScalarFactory.of(pd);
-                        layer.get(i, j, tmpPd);
+                        transform(pd);
+                    }
+                    else if (p instanceof FlatPixelVectorDouble fv)
+                    {
+                        layer.get(i, j, fv);
 
-                        boolean valid = tmpPd.isValid();
-                        boolean inBounds = tmpPd.isInBounds();
-                        double outOfBoundsValue = tmpPd.getOutOfBoundsValue();
+                        transform(fv);
+                    }
+                    else if (p instanceof PixelVector pv)
+                    {
+                        layer.get(i, j, pv);
 
-                        // Handle all the special cases.
-                        double value;
-                        if (!inBounds)
+                        for (int k = 0; k < pv.size(); ++k)
                         {
-                            // Do not transform an out-of-bounds value, ever.
-                            // Pass through the canonical value.
-                            value = outOfBoundsValue;
-                        }
-                        else if (valid)
-                        {
-                            // Value is in-bounds and valid, so use the regular
-                            // value transform.
-                            value = valueTransform.apply(tmpPd.getStoredValue());
-                        }
-                        else
-                        {
-                            // Value is not valid, so use the invalid value
-                            // transform.
-                            value = finalInvalidValueTransform.apply(tmpPd.getStoredValue());
+                            if (pv.get(k) instanceof PixelDouble pd)
+                            {
+                                transform(pd);
+                            }
                         }
+                    }
+                    else
+                    {
+                        throw new IllegalArgumentException();
+                    }
+                }
+
+                @Override
+                public void getBlock(int iMin, int jMin, PixelBlock block)
+                {
+                    if (block instanceof PixelBlockDouble bd)
+                    {
+                        layer.getBlock(iMin, jMin, bd);
 
-                        pd.set(value);
-                        pd.setIsValid(valid);
-                        pd.setInBounds(inBounds);
+                        transform(bd);
                     }
-                    else if (p instanceof PixelVector pv)
+                    else
                     {
-                        // Make a copy of the pixel, and get its state from the
-                        // layer.
-                        PixelVector tmpPv = PixelVectorFactory.of(pv.size(), Double.NaN, null);
-                        layer.get(i, j, tmpPv);
+                        super.getBlock(iMin, jMin, block);
+                    }
+                }
+
+                private void transform(PixelBlockDouble bd)
+                {
+                    double[] values = bd.values();
+                    int size = bd.iSize() * bd.jSize() * bd.kSize();
+                    BitSet invalid = bd.invalid();
+                    BitSet outOfBounds = bd.outOfBounds();
 
-                        boolean valid = tmpPv.isValid();
-                        boolean inBounds = tmpPv.isInBounds();
-                        int kSize = tmpPv.size();
+                    if (valueTransform instanceof BulkDoubleTransform bulkTransform && finalInvalidValueTransform == valueTransform)
+                    {
+                        // Transform the whole array in one loop, then restore
+                        // the out-of-bounds values.
+                        bulkTransform.apply(values, values, 0, size);
 
-                        for (int k = 0; k < kSize; ++k)
+                        double outOfBoundsValue = bd.getOutOfBoundsValue();
+                        for (int n = outOfBounds.nextSetBit(0); n >= 0 && n < size; n = outOfBounds.nextSetBit(n + 1))
+                        {
+                            values[n] = outOfBoundsValue;
+                        }
+                    }
+                    else
+                    {
+                        for (int n = 0; n < size; ++n)
                         {
-                            Pixel pk = pv.get(k);
-                            if (pk instanceof PixelDouble pd)
+                            if (outOfBounds.get(n))
                             {
-                                // Handle all the special cases.
-                                double value;
-                                if (!inBounds || !checkIndex(k, 0, kSize))
-                                {
-                                    // Do not transform an out-of-bounds value,
-                                    // ever. Pass through the canonical value.
-                                    value = pd.getOutOfBoundsValue();
-                                }
-                                else if (valid)
-                                {
-                                    // Value is in-bounds and valid, so use the
-                                    // regular value transform.
-                                    value = valueTransform.apply(pd.getStoredValue());
-                                }
-                                else
-                                {
-                                    // Value is not valid, so use the invalid
-                                    // value
-                                    // transform.
-                                    value = finalInvalidValueTransform.apply(pd.getStoredValue());
-                                }
-                                pd.set(value);
+                                continue;
                             }
 
-                            pv.setIsValid(valid);
-                            pv.setInBounds(inBounds);
+                            values[n] = invalid.get(n) ? finalInvalidValueTransform.apply(values[n]) : valueTransform.apply(values[n]);
+                        }
+                    }
+                }
+
+                private void transform(FlatPixelVectorDouble fv)
+                {
+                    // Same as transforming each element, but working directly
+                    // on the backing array.
+                    double[] values = fv.values();
+                    boolean vectorValid = fv.isValid();
+                    boolean vectorInBounds = fv.isInBounds();
+                    double outOfBoundsValue = fv.getOutOfBoundsValue();
+                    for (int k = 0; k < values.length; ++k)
+                    {
+                        if (!vectorInBounds || !fv.getElementInBoundsFlag(k))
+                        {
+                            values[k] = outOfBoundsValue;
+                        }
+                        else if (vectorValid && fv.getElementValidFlag(k))
+                        {
+                            values[k] = valueTransform.apply(values[k]);
+                        }
+                        else
+                        {
+                            values[k] = finalInvalidValueTransform.apply(values[k]);
                         }
                     }
+                }
+
+                private void transform(PixelDouble pd)
+                {
+                    // Handle all the special cases. Validity and bounds of
+                    // the pixel are exactly as the input layer set them.
+                    if (!pd.isInBounds())
+                    {
+                        // Do not transform an out-of-bounds value, ever. Pass
+                        // through the canonical value.
+                        pd.set(pd.getOutOfBoundsValue());
+                    }
+                    else if (pd.isValid())
+                    {
+                        // Value is in-bounds and valid, so use the regular
+                        // value transform.
+                        pd.set(valueTransform.apply(pd.getStoredValue()));
+                    }
                     else
                     {
-                        throw new IllegalArgumentException();
+                        // Value is not valid, so use the invalid value
+                        // transform.
+                        pd.set(finalInvalidValueTransform.apply(pd.getStoredValue()));
+                    }
+                }
+
+                private final LazyLayerRange range = new LazyLayerRange(this::getVersion, this::computeRange);
+
+                @Override
+                public void getRange(Pixel pMin, Pixel pMax)
+                {
+                    RangeFactory.setRange(range.get(), pMin, pMax);
+                }
+
+                /**
+                 * Derive the range from the source layer's range if the
+                 * transform is monotonic, otherwise scan this layer.
+                 */
+                private RangeGetter computeRange()
+                {
+                    VectorRangeGetter derivedRange = null;
+                    if (valueTransform.monotonicity() != Monotonicity.Unknown)
+                    {
+                        derivedRange = RangeFactory.transform(RangeFactory.query(layer), valueTransform);
                     }
+
+                    return derivedRange != null ? derivedRange : RangeFactory.scan(this);
                 }
 
             };
 
         };
 
-        return function;
+        return LayerTransform.of(Kind.ValueTransform, function, valueTransform, invalidValueTransform);
+    }
+
+    /**
+     * Convert a {@link BulkDoubleTransform} into a {@link Function} that
+     * operates on a {@link Layer}.
+     * <p>
+     * If the layer is a {@link DenseLayerOfDouble}, the function eagerly
+     * creates a new {@link DenseLayerOfDouble} by applying the transform to the
+     * whole backing array, in parallel chunks of contiguous values. Validity of
+     * each element is unchanged, and the same transform is applied to valid
+     * and invalid values. The input layer is not modified.
+     * <p>
+     * For any other layer, the function falls back to the value-at-a-time
+     * forwarding layer returned by
+     * {@link #toLayerTransform(DoubleTransform, DoubleTransform)}.
+     *
+     * @param transform the transform to use on all values
+     * @return the layer-to-layer transform
+     */
+    public LayerTransform toBulkLayerTransform(BulkDoubleTransform transform)
+    {
+        Preconditions.checkNotNull(transform);
+
+        Function<Layer, Layer> fallback = toLayerTransform(transform, null);
+
+        return LayerTransform.of(Kind.BulkValueTransform, layer -> {
+            Preconditions.checkNotNull(layer);
+
+            if (layer instanceof DenseLayerOfDouble dense)
+            {
+                double[] source = dense.values();
+                double[] destination = new double[source.length];
+
+                int numberChunks = (source.length + BulkChunkSize - 1) / BulkChunkSize;
+                IntStream.range(0, numberChunks).parallel().forEach(chunk -> {
+                    int offset = chunk * BulkChunkSize;
+                    transform.apply(source, destination, offset, Math.min(BulkChunkSize, source.length - offset));
+                });
+
+                BitSet invalid = dense.invalid() != null ? (BitSet) dense.invalid().clone() : null;
+
+                return new DenseLayerOfDouble(dense.iSize(), dense.jSize(), dense.kSize(), destination, invalid, dense.getKeyValueCollection());
+            }
+
+            return fallback.apply(layer);
+        }, transform);
+    }
+
+    /**
+     * Return a function that wraps a layer in a {@link TileCachedLayer}, so
+     * that each tile of the layer is computed at most once while it remains in
+     * the specified cache. Share one {@link TileCache} among all the layers
+     * that should compete for the same memory budget.
+     *
+     * @param cache the cache in which to store tiles
+     * @param tileSize the number of I and J indices covered by each tile
+     * @return the function
+     */
+    public LayerTransform cache(TileCache cache, int tileSize)
+    {
+        Preconditions.checkNotNull(cache);
+        Preconditions.checkArgument(tileSize > 0);
+
+        return LayerTransform.of(Kind.Cache, layer -> {
+            Preconditions.checkNotNull(layer);
+
+            return new TileCachedLayer(layer, cache, tileSize);
+        }, cache, tileSize);
     }
 
     /**
@@ -225,19 +475,21 @@ public class LayerDoubleTransformFactory
      * @param jNewSize the size of the output layer in the J dimension
      * @return the function
      */
-    public Function<Layer, Layer> linearInterpolate(int iNewSize, int jNewSize)
+    public LayerTransform linearInterpolate(int iNewSize, int jNewSize)
     {
         Preconditions.checkArgument(iNewSize > 1);
         Preconditions.checkArgument(jNewSize > 1);
 
-        return layer -> {
+        return LayerTransform.of(Kind.LinearInterpolate, layer -> {
             Preconditions.checkNotNull(layer);
             Preconditions.checkArgument(layer.isGetAccepts(PixelDouble.class));
 
             int iOrigSize = layer.iSize();
             int jOrigSize = layer.jSize();
 
-            PixelDouble tmpPd = PixelScalarFactory.of(0., Double.NaN, Double.NaN);
+            // One scratch pixel per thread, because the range of the
+            // resampled layer is found by getting its pixels in parallel.
+            ThreadLocal<PixelDouble> tmpPixel = ThreadLocal.withInitial(() -> PixelScalarFactory.of(0., Double.NaN, Double.NaN));
 
             return new ResampledLayer(iNewSize, jNewSize) {
 
@@ -252,6 +504,8 @@ public class LayerDoubleTransformFactory
                 {
                     if (d instanceof PixelDouble pd)
                     {
+                        PixelDouble tmpPd = tmpPixel.get();
+
                         // Get coordinates of the new pixel in the old pixel
                         // index space.
                         double x = (double) (iNew * (iOrigSize - 1)) / (iNewSize - 1);
@@ -346,7 +600,7 @@ public class LayerDoubleTransformFactory
                 }
 
             };
-        };
+        }, iNewSize, jNewSize);
     }
 
     /**
@@ -382,14 +636,16 @@ public class LayerDoubleTransformFactory
      * @see LayerTransformFactory#expand(int, int, int, int, PixelOperator) for
      *      a more general expansion utility
      */
-    public Function<Layer, Layer> expand(int iLowerOffset, int iUpperOffset, int jLowerOffset, int jUpperOffset, double expandValue)
+    public LayerTransform expand(int iLowerOffset, int iUpperOffset, int jLowerOffset, int jUpperOffset, double expandValue)
     {
         // The out-of-bounds value of this pixel will not normally be used.
         PixelDouble expandPixel = new PixelDoubleFactory().of(expandValue, Double.NaN);
 
-        return new LayerTransformFactory().expand(iLowerOffset, iUpperOffset, jLowerOffset, jUpperOffset, p -> {
+        Function<Layer, Layer> function = new LayerTransformFactory().expand(iLowerOffset, iUpperOffset, jLowerOffset, jUpperOffset, p -> {
             p.assignFrom(expandPixel);
         });
+
+        return LayerTransform.of(Kind.Expand, function, iLowerOffset, iUpperOffset, jLowerOffset, jUpperOffset, expandValue);
     }
 
     /**
@@ -425,7 +681,7 @@ public class LayerDoubleTransformFactory
      * @see #rotatePreservingSize(double, PixelOperator) for a more general
      *      rotation utility
      */
-    public Function<Layer, Layer> rotatePreservingSize(double rotation)
+    public LayerTransform rotatePreservingSize(double rotation)
     {
         return rotatePreservingSize(rotation, OutOfBoundsOperator);
     }
@@ -445,14 +701,21 @@ public class LayerDoubleTransformFactory
      * @see #rotatePreservingSize(double, PixelOperator) for a more general
      *      rotation utility
      */
-    public Function<Layer, Layer> rotatePreservingSize(double rotation, double expandValue)
+    public LayerTransform rotatePreservingSize(double rotation, double expandValue)
     {
         // The out-of-bounds value will not be used.
         PixelDouble expandPixel = new PixelDoubleFactory().of(expandValue, Double.NaN);
 
-        return rotatePreservingSize(rotation, p -> {
+        LayerTransform function = rotatePreservingSize(rotation, p -> {
             p.assignFrom(expandPixel);
         });
+
+        if (function.getKind() != Kind.RotatePreservingSize)
+        {
+            return function;
+        }
+
+        return LayerTransform.of(Kind.RotatePreservingSize, function, putInRange0to360(rotation), expandValue);
     }
 
     /**
@@ -480,20 +743,19 @@ public class LayerDoubleTransformFactory
      *      single constant value into pixels in the output layer that are
      *      created by the rotation
      */
-    public Function<Layer, Layer> rotatePreservingSize(double rotation, PixelOperator expandOperator)
+    public LayerTransform rotatePreservingSize(double rotation, PixelOperator expandOperator)
     {
         Preconditions.checkNotNull(expandOperator);
 
         rotation = putInRange0to360(rotation);
 
-        Function<Layer, Layer> function;
         if (rotation == 0.0)
         {
-            function = TransformFactory.identity();
+            return TransformFactory.identity();
         }
         else if (rotation == 180.0)
         {
-            function = TransformFactory.invertIJ();
+            return TransformFactory.invertIJ();
         }
         else
         {
@@ -511,7 +773,7 @@ public class LayerDoubleTransformFactory
                 throw new IllegalArgumentException("Rotation by angle of " + rotation + " is not (yet) supported.");
             }
 
-            function = layer -> {
+            Function<Layer, Layer> function = layer -> {
                 int iSize = layer.iSize();
                 int jSize = layer.jSize();
 
@@ -539,22 +801,19 @@ public class LayerDoubleTransformFactory
 
                 return r.apply(layer);
             };
-        }
 
-        return function;
+            return LayerTransform.of(Kind.RotatePreservingSize, function, rotation, expandOperator);
+        }
     }
 
-    public Function<Layer, Layer> slice(int index, double oobValue)
+    public LayerTransform slice(int index, double oobValue)
     {
         Preconditions.checkArgument(index >= 0);
 
         int size = index + 1;
 
-        PixelVector slicePixel = PixelVectorFactory.of(size, oobValue);
-        PixelVector minPixel = PixelVectorFactory.of(size, oobValue);
-        PixelVector maxPixel = PixelVectorFactory.of(size, oobValue);
-
-        return TransformFactory.slice(index, slicePixel, minPixel, maxPixel);
+        // Each slice layer gets its own pixels for each thread that reads it.
+        return LayerTransform.of(Kind.Slice, TransformFactory.slice(index, () -> PixelVectorFactory.of(size, oobValue)), index, oobValue);
     }
 
 }
@@ -0,0 +1,163 @@
+package edu.jhuapl.sbmt.layer.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+
+import edu.jhuapl.sbmt.layer.api.Layer;
+
+/**
+ * An immutable sequence of {@link LayerTransform}s that is applied in order to
+ * a {@link Layer}. Unlike a chain of functions assembled using
+ * {@link Function#andThen(Function)}, a pipeline keeps its steps, so that they
+ * may be inspected and rewritten (for example, to remove redundant steps, or
+ * to move cheap steps ahead of expensive ones) before the pipeline is applied.
+ * <p>
+ * Functions that are not {@link LayerTransform}s may be added to a pipeline;
+ * they are wrapped in transforms of kind {@link LayerTransform.Kind#Custom},
+ * which should be treated as opaque by code that rewrites pipelines.
+ *
+ * @author James Peachey
+ *
+ */
+public final class LayerPipeline implements Function<Layer, Layer>
+{
+
+    private static final LayerPipeline Empty = new LayerPipeline(ImmutableList.of());
+
+    /**
+     * @return a pipeline with no steps, which returns its input layer
+     */
+    public static LayerPipeline of()
+    {
+        return Empty;
+    }
+
+    /**
+     * Return a pipeline that applies the specified functions in order.
+     *
+     * @param steps the functions
+     * @return the pipeline
+     */
+    @SafeVarargs
+    public static LayerPipeline of(Function<Layer, Layer>... steps)
+    {
+        Preconditions.checkNotNull(steps);
+
+        // Copy the elements, rather than passing the array on, so that the
+        // generic array does not escape this method.
+        List<Function<Layer, Layer>> stepList = new ArrayList<>(steps.length);
+        for (Function<Layer, Layer> step : steps)
+        {
+            stepList.add(step);
+        }
+
+        return of(stepList);
+    }
+
+    /**
+     * Return a pipeline that applies the specified functions in order.
+     *
+     * @param steps the functions
+     * @return the pipeline
+     */
+    public static LayerPipeline of(Iterable<? extends Function<Layer, Layer>> steps)
+    {
+        Preconditions.checkNotNull(steps);
+
+        ImmutableList.Builder<LayerTransform> builder = ImmutableList.builder();
+        for (Function<Layer, Layer> step : steps)
+        {
+            if (step instanceof LayerPipeline pipeline)
+            {
+                builder.addAll(pipeline.getSteps());
+            }
+            else
+            {
+                builder.add(LayerTransform.of(step));
+            }
+        }
+
+        return new LayerPipeline(builder.build());
+    }
+
+    private final ImmutableList<LayerTransform> steps;
+
+    private LayerPipeline(ImmutableList<LayerTransform> steps)
+    {
+        super();
+
+        this.steps = steps;
+    }
+
+    /**
+     * @return the steps of this pipeline, in the order they are applied
+     */
+    public List<LayerTransform> getSteps()
+    {
+        return steps;
+    }
+
+    /**
+     * @return the number of steps in this pipeline
+     */
+    public int size()
+    {
+        return steps.size();
+    }
+
+    /**
+     * Return a pipeline that applies the steps of this pipeline, followed by
+     * the specified function. If the function is itself a pipeline, its steps
+     * are appended individually.
+     *
+     * @param step the function to apply after this pipeline
+     * @return the new pipeline
+     */
+    public LayerPipeline then(Function<Layer, Layer> step)
+    {
+        Preconditions.checkNotNull(step);
+
+        return of(ImmutableList.<Function<Layer, Layer>> builder().addAll(steps).add(step).build());
+    }
+
+    @Override
+    public Layer apply(Layer layer)
+    {
+        Preconditions.checkNotNull(layer);
+
+        for (LayerTransform step : steps)
+        {
+            layer = step.apply(layer);
+        }
+
+        return layer;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return steps.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj)
+    {
+        if (this == obj)
+        {
+            return true;
+        }
+
+        return obj instanceof LayerPipeline other && steps.equals(other.steps);
+    }
+
+    @Override
+    public String toString()
+    {
+        return steps.isEmpty() ? "Identity" : String.join(" -> ", steps.stream().map(LayerTransform::toString).toList());
+    }
+
+}
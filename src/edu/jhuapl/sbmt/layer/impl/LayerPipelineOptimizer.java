@@ -0,0 +1,319 @@
+package edu.jhuapl.sbmt.layer.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.common.base.Preconditions;
+
+import edu.jhuapl.sbmt.layer.api.Layer;
+import edu.jhuapl.sbmt.layer.impl.LayerTransform.Kind;
+
+/**
+ * Rewrites {@link LayerPipeline}s so that they produce the same pixels while
+ * doing less work.
+ * <p>
+ * The main optimization is region-of-interest push-down. When a pipeline ends
+ * with a step that keeps only part of a layer (a subset, trim or mask), the
+ * optimizer works back through the pipeline, mapping the visible window into
+ * the index space of each earlier step, including through flips, rotations by
+ * multiples of 90 degrees, nearest-neighbor resampling and linear
+ * interpolation. It then inserts a {@link LayerTransformFactory#mask(int, int,
+ * int, int)} step as early as possible, which marks every pixel that cannot
+ * contribute to the visible window as out-of-bounds without reading it. Steps
+ * between the mask and the end of the pipeline, such as bulk value transforms
+ * or caches, then only compute the pixels that contribute to the window.
+ * <p>
+ * Mapping the window requires the sizes of the layers between steps, so the
+ * optimizer needs the size of the input layer, and does not push anything
+ * down if any step's output size is not known, as is the case for
+ * {@link LayerTransform.Kind#Custom} functions. The push-down stops at steps
+ * whose mapping of indices is not known, such as a rotation by an angle that is
+ * not a multiple of 180 degrees.
+ * <p>
+ * The optimized pipeline gets exactly the same pixels as the original
+ * pipeline. Ranges may differ, because ranges are computed from the pixels of
+ * the intermediate layers, and the optimized pipeline's intermediate layers
+ * have out-of-bounds pixels outside the region of interest.
+ *
+ * @author James Peachey
+ *
+ */
+public class LayerPipelineOptimizer
+{
+    private static final LayerTransformFactory TransformFactory = new LayerTransformFactory();
+
+    public LayerPipelineOptimizer()
+    {
+        super();
+    }
+
+    /**
+     * Optimize a pipeline for application to the specified input layer.
+     *
+     * @param pipeline the pipeline to optimize
+     * @param layer the layer to which the pipeline will be applied
+     * @return the optimized pipeline
+     */
+    public LayerPipeline optimize(LayerPipeline pipeline, Layer layer)
+    {
+        Preconditions.checkNotNull(layer);
+
+        return optimize(pipeline, layer.iSize(), layer.jSize());
+    }
+
+    /**
+     * Optimize a pipeline for application to input layers with the specified
+     * dimensions. The pipeline returned by this method must only be applied to
+     * layers with these dimensions.
+     *
+     * @param pipeline the pipeline to optimize
+     * @param iSize the I dimension of the input layer
+     * @param jSize the J dimension of the input layer
+     * @return the optimized pipeline
+     */
+    public LayerPipeline optimize(LayerPipeline pipeline, int iSize, int jSize)
+    {
+        Preconditions.checkNotNull(pipeline);
+        Preconditions.checkArgument(iSize >= 0);
+        Preconditions.checkArgument(jSize >= 0);
+
+        List<LayerTransform> steps = new ArrayList<>();
+        for (LayerTransform step : pipeline.getSteps())
+        {
+            if (step.getKind() != Kind.Identity)
+            {
+                steps.add(step);
+            }
+        }
+
+        // Sizes of the layers between steps: sizes[n] is the size of the input
+        // to step n, and sizes[steps.size()] is the size of the output. Null
+        // once the size is no longer known.
+        Region[] sizes = new Region[steps.size() + 1];
+        sizes[0] = Region.of(iSize, jSize);
+        for (int n = 0; n < steps.size(); ++n)
+        {
+            sizes[n + 1] = sizes[n] != null ? outputSize(steps.get(n), sizes[n]) : null;
+        }
+
+        // Work back from the end of the pipeline, mapping the region of the
+        // output that is needed into the index space of each step's input.
+        int level = steps.size();
+        Region region = sizes[level];
+        while (level > 0 && region != null && sizes[level - 1] != null)
+        {
+            Region inputRegion = inputRegion(steps.get(level - 1), region, sizes[level - 1], sizes[level]);
+            if (inputRegion == null)
+            {
+                break;
+            }
+
+            region = inputRegion.intersect(sizes[level - 1]);
+            --level;
+        }
+
+        if (region != null && !region.equals(sizes[level]))
+        {
+            LayerTransform mask = toMask(region, sizes[level]);
+
+            // Do not insert the same mask again if the pipeline was already
+            // optimized.
+            if (level == steps.size() || !mask.equals(steps.get(level)))
+            {
+                steps.add(level, mask);
+            }
+        }
+
+        return LayerPipeline.of(steps);
+    }
+
+    /**
+     * Return the size of the layer output by the specified step, or null if
+     * it is not known.
+     *
+     * @param step the step
+     * @param size the size of the step's input
+     * @return the size of the step's output
+     */
+    protected Region outputSize(LayerTransform step, Region size)
+    {
+        int iSize = size.iMax;
+        int jSize = size.jMax;
+
+        return switch (step.getKind())
+        {
+            case Identity, InvertI, InvertJ, InvertIJ, Mask, Slice, SelectBands, ValueTransform, BulkValueTransform, Cache, RotatePreservingSize -> size;
+            case SwapIJ, RotateCW, RotateCCW -> Region.of(jSize, iSize);
+            case SubsetI -> Region.of(param(step, 1) - param(step, 0), jSize);
+            case SubsetJ -> Region.of(iSize, param(step, 1) - param(step, 0));
+            case Subset -> Region.of(param(step, 1) - param(step, 0), param(step, 3) - param(step, 2));
+            case TrimI -> Region.of(iSize - param(step, 0) - param(step, 1), jSize);
+            case TrimJ -> Region.of(iSize, jSize - param(step, 0) - param(step, 1));
+            case Trim -> Region.of(iSize - param(step, 0) - param(step, 1), jSize - param(step, 2) - param(step, 3));
+            case Expand -> Region.of(iSize + param(step, 0) + param(step, 1), jSize + param(step, 2) + param(step, 3));
+            case ResampleNearestNeighbor, LinearInterpolate -> Region.of(param(step, 0), param(step, 1));
+            default -> null;
+        };
+    }
+
+    /**
+     * Return the region of a step's input that contains every pixel the step
+     * reads in order to get the pixels in the specified region of its output,
+     * or null if this is not known.
+     *
+     * @param step the step
+     * @param region the region of the step's output
+     * @param inSize the size of the step's input
+     * @param outSize the size of the step's output
+     * @return the region of the step's input, which may extend beyond its
+     *         bounds
+     */
+    protected Region inputRegion(LayerTransform step, Region region, Region inSize, Region outSize)
+    {
+        return switch (step.getKind())
+        {
+            case Identity, Slice, SelectBands, ValueTransform, BulkValueTransform, Cache -> region;
+            case InvertI -> region.invertI(outSize.iMax);
+            case InvertJ -> region.invertJ(outSize.jMax);
+            case InvertIJ -> region.invertI(outSize.iMax).invertJ(outSize.jMax);
+            case SwapIJ -> region.swap();
+            // RotateCW swaps, then inverts I; RotateCCW swaps, then inverts J.
+            case RotateCW -> region.invertI(outSize.iMax).swap();
+            case RotateCCW -> region.invertJ(outSize.jMax).swap();
+            case SubsetI, TrimI -> region.shift(param(step, 0), 0);
+            case SubsetJ, TrimJ -> region.shift(0, param(step, 0));
+            case Subset -> region.shift(param(step, 0), param(step, 2));
+            case Trim -> region.shift(param(step, 0), param(step, 2));
+            case Expand -> region.shift(-param(step, 0), -param(step, 2));
+            case Mask -> region.intersect(new Region(param(step, 0), inSize.iMax - param(step, 1), param(step, 2), inSize.jMax - param(step, 3)));
+            case ResampleNearestNeighbor -> region.isEmpty() ? region : new Region( //
+                    nearestNeighbor(region.iMin, inSize.iMax, outSize.iMax), //
+                    nearestNeighbor(region.iMax - 1, inSize.iMax, outSize.iMax) + 1, //
+                    nearestNeighbor(region.jMin, inSize.jMax, outSize.jMax), //
+                    nearestNeighbor(region.jMax - 1, inSize.jMax, outSize.jMax) + 1);
+            case LinearInterpolate -> region.isEmpty() ? region : new Region( //
+                    linear(region.iMin, inSize.iMax, outSize.iMax), //
+                    linear(region.iMax - 1, inSize.iMax, outSize.iMax) + 2, //
+                    linear(region.jMin, inSize.jMax, outSize.jMax), //
+                    linear(region.jMax - 1, inSize.jMax, outSize.jMax) + 2);
+            default -> null;
+        };
+    }
+
+    /**
+     * Return a mask transform that marks everything outside the specified
+     * region out-of-bounds.
+     *
+     * @param region the region, which must be within the layer
+     * @param size the size of the layer
+     * @return the mask transform
+     */
+    protected LayerTransform toMask(Region region, Region size)
+    {
+        if (region.isEmpty())
+        {
+            return TransformFactory.mask(size.iMax, 0, size.jMax, 0);
+        }
+
+        return TransformFactory.mask(region.iMin, size.iMax - region.iMax, region.jMin, size.jMax - region.jMax);
+    }
+
+    /**
+     * Same mapping as {@link LayerTransformFactory#resampleNearestNeighbor(int,
+     * int)} uses from new to original index.
+     */
+    private static int nearestNeighbor(int newIndex, int origSize, int newSize)
+    {
+        return (int) Math.floor((double) (newIndex * origSize) / newSize);
+    }
+
+    /**
+     * Same mapping as {@link LayerDoubleTransformFactory#linearInterpolate(int,
+     * int)} uses from new index to the lower of the two original indices.
+     */
+    private static int linear(int newIndex, int origSize, int newSize)
+    {
+        return (int) Math.floor((double) (newIndex * (origSize - 1)) / (newSize - 1));
+    }
+
+    private static int param(LayerTransform step, int index)
+    {
+        return step.getParameter(index, Integer.class);
+    }
+
+    /**
+     * Half-open rectangle of (I, J) indices. Also used to hold layer sizes, as
+     * the region from (0, 0) to (iSize, jSize).
+     */
+    protected static final class Region
+    {
+        static Region of(int iSize, int jSize)
+        {
+            return new Region(0, iSize, 0, jSize);
+        }
+
+        final int iMin;
+        final int iMax;
+        final int jMin;
+        final int jMax;
+
+        Region(int iMin, int iMax, int jMin, int jMax)
+        {
+            this.iMin = iMin;
+            this.iMax = iMax;
+            this.jMin = jMin;
+            this.jMax = jMax;
+        }
+
+        boolean isEmpty()
+        {
+            return iMax <= iMin || jMax <= jMin;
+        }
+
+        Region shift(int iOffset, int jOffset)
+        {
+            return new Region(iMin + iOffset, iMax + iOffset, jMin + jOffset, jMax + jOffset);
+        }
+
+        Region invertI(int iSize)
+        {
+            return new Region(iSize - iMax, iSize - iMin, jMin, jMax);
+        }
+
+        Region invertJ(int jSize)
+        {
+            return new Region(iMin, iMax, jSize - jMax, jSize - jMin);
+        }
+
+        Region swap()
+        {
+            return new Region(jMin, jMax, iMin, iMax);
+        }
+
+        Region intersect(Region other)
+        {
+            Region region = new Region(Math.max(iMin, other.iMin), Math.min(iMax, other.iMax), Math.max(jMin, other.jMin), Math.min(jMax, other.jMax));
+
+            return region.isEmpty() ? new Region(0, 0, 0, 0) : region;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return ((iMin * 31 + iMax) * 31 + jMin) * 31 + jMax;
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            return obj instanceof Region other && iMin == other.iMin && iMax == other.iMax && jMin == other.jMin && jMax == other.jMax;
+        }
+
+        @Override
+        public String toString()
+        {
+            return "[" + iMin + ", " + iMax + ") x [" + jMin + ", " + jMax + ")";
+        }
+    }
+
+}
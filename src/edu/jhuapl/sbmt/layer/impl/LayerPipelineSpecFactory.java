@@ -0,0 +1,479 @@
+package edu.jhuapl.sbmt.layer.impl;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.google.common.base.Enums;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.JsonParseException;
+
+import edu.jhuapl.sbmt.layer.impl.LayerDoubleTransformFactory.BulkDoubleTransform;
+import edu.jhuapl.sbmt.layer.impl.LayerDoubleTransformFactory.DoubleTransform;
+import edu.jhuapl.sbmt.layer.impl.LayerTransform.Kind;
+
+/**
+ * Factory that converts {@link LayerPipeline}s to and from a compact JSON
+ * spec, so pipelines may be stored, or shipped to other processes, without
+ * custom code for each pipeline. For example, the pipeline
+ *
+ * <pre>
+ * LayerPipeline.of(DoubleTransformFactory.rotatePreservingSize(90.0), //
+ *         DoubleTransformFactory.linearInterpolate(512, 512), //
+ *         DoubleTransformFactory.toLayerTransform(BulkFactory.clamp(0.0, 1.0), null));
+ * </pre>
+ *
+ * has the spec
+ *
+ * <pre>
+ * {"version":1,"steps":[
+ *   {"op":"RotatePreservingSize","args":[90.0,"outOfBounds"]},
+ *   {"op":"LinearInterpolate","args":[512,512]},
+ *   {"op":"ValueTransform","args":["clamp(0.0, 1.0)",null]}]}
+ * </pre>
+ *
+ * Each step names a {@link Kind} and lists the step's parameters, as recorded
+ * by its {@link LayerTransform}. Value transforms are written as their
+ * {@link DoubleTransform#getSpec()} strings, and must be ones that
+ * {@link BulkDoubleTransformFactory} can create. Steps of kind
+ * {@link Kind#Custom}, and steps with parameters that have no stable
+ * description, cannot be written.
+ * <p>
+ * {@link Kind#Cache} steps are written with just their tile size, because a
+ * {@link TileCache} belongs to one process. When reading, cache steps use the
+ * {@link TileCache} supplied to the factory's constructor, or are dropped if
+ * there is none.
+ * <p>
+ * Pipelines that are read from a spec have the same
+ * {@link LayerContentKeyFactory} keys as the pipelines that were written.
+ *
+ * @author James Peachey
+ *
+ */
+public class LayerPipelineSpecFactory
+{
+    protected static final int FormatVersion = 1;
+
+    protected static final String OutOfBounds = "outOfBounds";
+
+    protected static final LayerTransformFactory TransformFactory = new LayerTransformFactory();
+    protected static final LayerDoubleTransformFactory DoubleTransformFactory = new LayerDoubleTransformFactory();
+    protected static final BulkDoubleTransformFactory BulkFactory = new BulkDoubleTransformFactory();
+    protected static final LayerPipelineOptimizer Optimizer = new LayerPipelineOptimizer();
+
+    private static final Pattern TransformPattern = Pattern.compile("(\\w+)(?:\\((.*)\\))?");
+
+    private static final Gson SpecWriter = new GsonBuilder().serializeSpecialFloatingPointValues().create();
+
+    private final TileCache cache;
+
+    /**
+     * Create a factory that drops cache steps when reading specs.
+     */
+    public LayerPipelineSpecFactory()
+    {
+        this(null);
+    }
+
+    /**
+     * Create a factory that uses the specified tile cache for cache steps
+     * when reading specs.
+     *
+     * @param cache the cache, or null to drop cache steps
+     */
+    public LayerPipelineSpecFactory(TileCache cache)
+    {
+        super();
+
+        this.cache = cache;
+    }
+
+    /**
+     * Return the JSON spec of the specified pipeline.
+     *
+     * @param pipeline the pipeline
+     * @return the spec
+     * @throws IllegalArgumentException if any step of the pipeline cannot be
+     *             written
+     */
+    public String toJson(LayerPipeline pipeline)
+    {
+        Preconditions.checkNotNull(pipeline);
+
+        JsonArray steps = new JsonArray();
+        for (LayerTransform step : pipeline.getSteps())
+        {
+            Preconditions.checkArgument(step.getKind() != Kind.Custom, "Cannot write custom step %s", step);
+
+            List<Object> parameters = step.getParameters();
+            if (step.getKind() == Kind.Cache)
+            {
+                // The TileCache itself belongs to this process.
+                parameters = parameters.subList(1, parameters.size());
+            }
+
+            JsonObject object = new JsonObject();
+            object.addProperty("op", step.getKind().name());
+            if (!parameters.isEmpty())
+            {
+                JsonArray args = new JsonArray();
+                for (Object parameter : parameters)
+                {
+                    JsonElement element = toJsonElement(parameter);
+                    Preconditions.checkArgument(element != null, "Cannot write parameter %s of step %s", parameter, step);
+
+                    args.add(element);
+                }
+                object.add("args", args);
+            }
+
+            steps.add(object);
+        }
+
+        JsonObject spec = new JsonObject();
+        spec.addProperty("version", FormatVersion);
+        spec.add("steps", steps);
+
+        return SpecWriter.toJson(spec);
+    }
+
+    /**
+     * Build the pipeline described by the specified JSON spec.
+     *
+     * @param json the spec
+     * @return the pipeline
+     * @throws IllegalArgumentException if the spec is not valid
+     */
+    public LayerPipeline fromJson(String json)
+    {
+        Preconditions.checkNotNull(json);
+
+        JsonElement root;
+        try
+        {
+            root = JsonParser.parseString(json);
+        }
+        catch (JsonParseException e)
+        {
+            throw new IllegalArgumentException("Invalid pipeline spec: " + e.getMessage(), e);
+        }
+        Preconditions.checkArgument(root.isJsonObject(), "Pipeline spec must be a JSON object");
+        JsonObject spec = root.getAsJsonObject();
+
+        int version = toInt(spec.get("version"), "Version");
+        Preconditions.checkArgument(version == FormatVersion, "Unsupported pipeline spec version %s", version);
+
+        JsonElement steps = spec.get("steps");
+        Preconditions.checkArgument(steps != null && steps.isJsonArray(), "Pipeline spec must have an array of steps");
+
+        ImmutableList.Builder<LayerTransform> builder = ImmutableList.builder();
+        int index = 0;
+        for (JsonElement element : steps.getAsJsonArray())
+        {
+            try
+            {
+                LayerTransform transform = toTransform(element);
+                if (transform != null)
+                {
+                    builder.add(transform);
+                }
+            }
+            catch (IllegalArgumentException e)
+            {
+                throw new IllegalArgumentException("Invalid step " + index + " of pipeline spec: " + e.getMessage(), e);
+            }
+            ++index;
+        }
+
+        return LayerPipeline.of(builder.build());
+    }
+
+    /**
+     * Build the pipeline described by the specified JSON spec, optimized for
+     * input layers with the specified dimensions using
+     * {@link LayerPipelineOptimizer}.
+     *
+     * @param json the spec
+     * @param iSize the I dimension of the input layer
+     * @param jSize the J dimension of the input layer
+     * @return the optimized pipeline
+     * @throws IllegalArgumentException if the spec is not valid
+     */
+    public LayerPipeline fromJson(String json, int iSize, int jSize)
+    {
+        return Optimizer.optimize(fromJson(json), iSize, jSize);
+    }
+
+    /**
+     * Return a value transform given its spec, which must be the spec of a
+     * transform created by {@link BulkDoubleTransformFactory}.
+     *
+     * @param spec the spec
+     * @return the transform
+     * @throws IllegalArgumentException if the spec is not recognized
+     */
+    public BulkDoubleTransform toDoubleTransform(String spec)
+    {
+        Preconditions.checkNotNull(spec);
+
+        Matcher matcher = TransformPattern.matcher(spec.trim());
+        Preconditions.checkArgument(matcher.matches(), "Invalid transform spec %s", spec);
+
+        String name = matcher.group(1);
+        double[] args = new double[0];
+        if (matcher.group(2) != null && !matcher.group(2).isBlank())
+        {
+            String[] tokens = matcher.group(2).split(",");
+            args = new double[tokens.length];
+            for (int index = 0; index < tokens.length; ++index)
+            {
+                args[index] = Double.parseDouble(tokens[index].trim());
+            }
+        }
+
+        BulkDoubleTransform transform = switch (name)
+        {
+            case "linear" -> args.length == 2 ? BulkFactory.linear(args[0], args[1]) : null;
+            case "log" -> args.length == 0 ? BulkFactory.log() : null;
+            case "log10" -> args.length == 0 ? BulkFactory.log10() : null;
+            case "clamp" -> args.length == 2 ? BulkFactory.clamp(args[0], args[1]) : null;
+            case "power" -> args.length == 1 ? BulkFactory.power(args[0]) : null;
+            default -> null;
+        };
+        Preconditions.checkArgument(transform != null, "Unknown transform spec %s", spec);
+
+        return transform;
+    }
+
+    /**
+     * Return the JSON form of one parameter, or null if it cannot be written.
+     *
+     * @param parameter the parameter
+     * @return the JSON element, or null
+     */
+    protected JsonElement toJsonElement(Object parameter)
+    {
+        if (parameter == null)
+        {
+            return JsonNull.INSTANCE;
+        }
+        else if (parameter instanceof Integer || parameter instanceof Long || parameter instanceof Double)
+        {
+            return new JsonPrimitive((Number) parameter);
+        }
+        else if (parameter instanceof List<?> list)
+        {
+            JsonArray array = new JsonArray();
+            for (Object element : list)
+            {
+                JsonElement jsonElement = toJsonElement(element);
+                if (jsonElement == null)
+                {
+                    return null;
+                }
+                array.add(jsonElement);
+            }
+
+            return array;
+        }
+        else if (parameter instanceof DoubleTransform transform && transform.getSpec() != null)
+        {
+            return new JsonPrimitive(transform.getSpec());
+        }
+        else if (parameter == LayerDoubleTransformFactory.OutOfBoundsOperator)
+        {
+            return new JsonPrimitive(OutOfBounds);
+        }
+
+        return null;
+    }
+
+    /**
+     * Create the transform for one step of a spec, after checking that the
+     * step names a known operation and has the right number of arguments.
+     *
+     * @param element the step
+     * @return the transform, or null if the step should be dropped
+     * @throws IllegalArgumentException if the step is not valid
+     */
+    protected LayerTransform toTransform(JsonElement element)
+    {
+        Preconditions.checkArgument(element.isJsonObject(), "Step %s is not a JSON object", element);
+        JsonObject step = element.getAsJsonObject();
+
+        JsonElement op = step.get("op");
+        Preconditions.checkArgument(op != null && op.isJsonPrimitive() && op.getAsJsonPrimitive().isString(), "Step %s has no op", step);
+        Kind kind = Enums.getIfPresent(Kind.class, op.getAsString()).orNull();
+        Preconditions.checkArgument(kind != null, "Unknown op %s", op);
+
+        JsonArray args = new JsonArray();
+        if (step.has("args"))
+        {
+            Preconditions.checkArgument(step.get("args").isJsonArray(), "Args of op %s must be an array", kind);
+            args = step.getAsJsonArray("args");
+        }
+
+        int arity = getArity(kind);
+        Preconditions.checkArgument(args.size() == arity, "Op %s takes %s args, not %s", kind, arity, args.size());
+
+        return toTransform(kind, args);
+    }
+
+    /**
+     * Return the number of arguments that the spec of each kind of step has.
+     *
+     * @param kind the kind of step
+     * @return the number of arguments
+     * @throws IllegalArgumentException if the kind of step cannot be read
+     */
+    protected int getArity(Kind kind)
+    {
+        return switch (kind)
+        {
+            case Identity, InvertI, InvertJ, InvertIJ, SwapIJ, RotateCW, RotateCCW -> 0;
+            case SelectBands, BulkValueTransform, Cache -> 1;
+            case SubsetI, SubsetJ, TrimI, TrimJ, Slice, ResampleNearestNeighbor, LinearInterpolate, ValueTransform, RotatePreservingSize -> 2;
+            case Subset, Trim, Mask -> 4;
+            case Expand -> 5;
+            case Custom -> throw new IllegalArgumentException("Cannot read custom steps");
+        };
+    }
+
+    /**
+     * Create the transform for one step of a spec.
+     *
+     * @param kind the kind of step
+     * @param args the parameters of the step
+     * @return the transform, or null if the step should be dropped
+     */
+    protected LayerTransform toTransform(Kind kind, JsonArray args)
+    {
+        return switch (kind)
+        {
+            case Identity -> TransformFactory.identity();
+            case InvertI -> TransformFactory.invertI();
+            case InvertJ -> TransformFactory.invertJ();
+            case InvertIJ -> TransformFactory.invertIJ();
+            case SwapIJ -> TransformFactory.swapIJ();
+            case RotateCW -> TransformFactory.rotateCW();
+            case RotateCCW -> TransformFactory.rotateCCW();
+            case SubsetI -> TransformFactory.subsetI(intArg(args, 0), intArg(args, 1));
+            case SubsetJ -> TransformFactory.subsetJ(intArg(args, 0), intArg(args, 1));
+            case Subset -> TransformFactory.subset(intArg(args, 0), intArg(args, 1), intArg(args, 2), intArg(args, 3));
+            case TrimI -> TransformFactory.trimI(intArg(args, 0), intArg(args, 1));
+            case TrimJ -> TransformFactory.trimJ(intArg(args, 0), intArg(args, 1));
+            case Trim -> TransformFactory.trim(intArg(args, 0), intArg(args, 1), intArg(args, 2), intArg(args, 3));
+            case Mask -> TransformFactory.mask(intArg(args, 0), intArg(args, 1), intArg(args, 2), intArg(args, 3));
+            case Expand -> isOutOfBounds(args, 4) //
+                    ? TransformFactory.expand(intArg(args, 0), intArg(args, 1), intArg(args, 2), intArg(args, 3), LayerDoubleTransformFactory.OutOfBoundsOperator) //
+                    : DoubleTransformFactory.expand(intArg(args, 0), intArg(args, 1), intArg(args, 2), intArg(args, 3), doubleArg(args, 4));
+            case Slice -> DoubleTransformFactory.slice(intArg(args, 0), doubleArg(args, 1));
+            case SelectBands -> TransformFactory.selectBands(toIntArray(args, 0));
+            case ResampleNearestNeighbor -> TransformFactory.resampleNearestNeighbor(intArg(args, 0), intArg(args, 1));
+            case LinearInterpolate -> DoubleTransformFactory.linearInterpolate(intArg(args, 0), intArg(args, 1));
+            case ValueTransform -> DoubleTransformFactory.toLayerTransform(transformArg(args, 0), args.get(1).isJsonNull() ? null : transformArg(args, 1));
+            case BulkValueTransform -> DoubleTransformFactory.toBulkLayerTransform(transformArg(args, 0));
+            case Cache -> cache != null ? DoubleTransformFactory.cache(cache, intArg(args, 0)) : null;
+            case RotatePreservingSize -> isOutOfBounds(args, 1) //
+                    ? DoubleTransformFactory.rotatePreservingSize(doubleArg(args, 0)) //
+                    : DoubleTransformFactory.rotatePreservingSize(doubleArg(args, 0), doubleArg(args, 1));
+            case Custom -> throw new IllegalArgumentException("Cannot read custom steps");
+        };
+    }
+
+    private static boolean isOutOfBounds(JsonArray args, int index)
+    {
+        JsonElement element = args.get(index);
+
+        return element.isJsonPrimitive() && element.getAsJsonPrimitive().isString() && OutOfBounds.equals(element.getAsString());
+    }
+
+    private static int intArg(JsonArray args, int index)
+    {
+        return toInt(args.get(index), "Arg " + index);
+    }
+
+    private static double doubleArg(JsonArray args, int index)
+    {
+        JsonElement element = args.get(index);
+        Preconditions.checkArgument(element.isJsonPrimitive(), "Arg %s (%s) is not a number", index, element);
+
+        // Non-finite values are written as bare NaN, Infinity or -Infinity,
+        // which read back as strings.
+        JsonPrimitive primitive = element.getAsJsonPrimitive();
+        if (primitive.isString())
+        {
+            String value = primitive.getAsString();
+            Preconditions.checkArgument(value.equals("NaN") || value.equals("Infinity") || value.equals("-Infinity"), "Arg %s (%s) is not a number", index, element);
+
+            return Double.parseDouble(value);
+        }
+        Preconditions.checkArgument(primitive.isNumber(), "Arg %s (%s) is not a number", index, element);
+
+        return primitive.getAsDouble();
+    }
+
+    private BulkDoubleTransform transformArg(JsonArray args, int index)
+    {
+        JsonElement element = args.get(index);
+        Preconditions.checkArgument(element.isJsonPrimitive() && element.getAsJsonPrimitive().isString(), "Arg %s (%s) is not a transform spec", index, element);
+
+        return toDoubleTransform(element.getAsString());
+    }
+
+    private static int[] toIntArray(JsonArray args, int index)
+    {
+        JsonElement element = args.get(index);
+        Preconditions.checkArgument(element.isJsonArray(), "Arg %s (%s) is not an array", index, element);
+
+        JsonArray array = element.getAsJsonArray();
+        int[] result = new int[array.size()];
+        for (int n = 0; n < result.length; ++n)
+        {
+            result[n] = toInt(array.get(n), "Element " + n + " of arg " + index);
+        }
+
+        return result;
+    }
+
+    /**
+     * Return the value of an element that must be an integer that fits in an
+     * int, such as 3 or 3.0, but not 3.5.
+     */
+    private static int toInt(JsonElement element, String name)
+    {
+        Preconditions.checkArgument(element != null, "Missing %s", name);
+        Preconditions.checkArgument(element.isJsonPrimitive() && element.getAsJsonPrimitive().isNumber(), "%s (%s) is not an integer", name, element);
+
+        BigDecimal value;
+        try
+        {
+            value = element.getAsBigDecimal();
+        }
+        catch (NumberFormatException e)
+        {
+            throw new IllegalArgumentException(name + " (" + element + ") is not an integer", e);
+        }
+
+        Preconditions.checkArgument(value.stripTrailingZeros().scale() <= 0, "%s (%s) is not an integer", name, element);
+        try
+        {
+            return value.intValueExact();
+        }
+        catch (ArithmeticException e)
+        {
+            throw new IllegalArgumentException(name + " (" + element + ") is out of range", e);
+        }
+    }
+
+}
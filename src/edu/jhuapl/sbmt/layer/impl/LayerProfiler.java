@@ -0,0 +1,348 @@
+package edu.jhuapl.sbmt.layer.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+
+import edu.jhuapl.sbmt.layer.api.Layer;
+import edu.jhuapl.sbmt.layer.api.Pixel;
+import edu.jhuapl.sbmt.layer.api.PixelBlock;
+import edu.jhuapl.sbmt.layer.api.PixelVector;
+import edu.jhuapl.sbmt.layer.impl.LayerTransformFactory.ForwardingLayer;
+
+/**
+ * Profiler that shows which stage of a chain of derived layers is
+ * responsible for the time spent getting pixels from the final layer.
+ * <p>
+ * {@link #apply(LayerPipeline, Layer)} applies a {@link LayerPipeline} to a
+ * source layer, wrapping the source and the output of every step in an
+ * instrumented layer that counts calls to get, getBlock and getRange and
+ * measures their times. Use the returned layer as usual, then call
+ * {@link #report()} (or {@link #getStages()}) to see, for each stage, the
+ * number of calls, the total time spent in the stage (including the stages
+ * below it), and its self time (excluding the stage below it).
+ * <p>
+ * To keep the overhead low, only a random sample of about 1 in
+ * {@link #SampleInterval} calls to get is timed, and total times are
+ * estimated from the sample. Calls to getBlock and getRange are always timed.
+ * Instrumented layers forward getBlock and band access
+ * ({@link BandSelective}), so those paths stay fast, but steps that check the
+ * concrete type of their input, such as the {@link DenseLayerOfDouble} path of
+ * {@link LayerDoubleTransformFactory#toBulkLayerTransform(LayerDoubleTransformFactory.BulkDoubleTransform)},
+ * see only the instrumented layer.
+ * <p>
+ * Self times assume each stage is called only by the stage above it, which is
+ * true for layers created by this class unless the caller also uses a stage
+ * directly. Counts and times accumulate until the next call to
+ * {@link #apply(LayerPipeline, Layer)} or {@link #reset()}. This class is
+ * thread-safe.
+ *
+ * @author James Peachey
+ *
+ */
+public class LayerProfiler
+{
+    /**
+     * On average, 1 in this many get calls is timed.
+     */
+    public static final int SampleInterval = 64;
+
+    private volatile ImmutableList<Stage> stages;
+
+    public LayerProfiler()
+    {
+        super();
+        this.stages = ImmutableList.of();
+    }
+
+    /**
+     * Apply the pipeline to the source layer, instrumenting the source and
+     * the output of each step. Any stages from a previous call are discarded.
+     *
+     * @param pipeline the pipeline
+     * @param source the source layer
+     * @return the instrumented output of the last step
+     */
+    public Layer apply(LayerPipeline pipeline, Layer source)
+    {
+        Preconditions.checkNotNull(pipeline);
+        Preconditions.checkNotNull(source);
+
+        List<Stage> stages = new ArrayList<>();
+
+        Stage stage = new Stage(stages.size(), "source");
+        stages.add(stage);
+        Layer layer = instrument(source, stage);
+
+        for (LayerTransform step : pipeline.getSteps())
+        {
+            stage = new Stage(stages.size(), step.toString());
+            stages.add(stage);
+            layer = instrument(step.apply(layer), stage);
+        }
+
+        this.stages = ImmutableList.copyOf(stages);
+
+        return layer;
+    }
+
+    /**
+     * @return the stages of the most recent pipeline, source first
+     */
+    public List<Stage> getStages()
+    {
+        return stages;
+    }
+
+    /**
+     * Zero the counts and times of all the stages.
+     */
+    public void reset()
+    {
+        for (Stage stage : stages)
+        {
+            stage.reset();
+        }
+    }
+
+    /**
+     * Return a table of the counts and times of each stage, with the source
+     * first, and the stage whose layer was returned by
+     * {@link #apply(LayerPipeline, Layer)} last.
+     *
+     * @return the report
+     */
+    public String report()
+    {
+        List<Stage> stages = this.stages;
+
+        StringBuilder builder = new StringBuilder();
+        builder.append(String.format("%5s %14s %10s %10s %12s %12s  %s%n", "stage", "get", "getBlock", "getRange", "total ms", "self ms", "step"));
+
+        for (Stage stage : stages)
+        {
+            double totalNanos = stage.getTotalNanos();
+            double selfNanos = getSelfNanos(stages, stage.getIndex());
+            builder.append(String.format("%5d %14d %10d %10d %12.3f %12.3f  %s%n", stage.getIndex(), stage.getGetCount(), stage.getBlockCount(), stage.getRangeCount(), 1.0e-6 * totalNanos, 1.0e-6 * selfNanos, stage.getName()));
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * Return the self time of the specified stage, that is its total time
+     * minus the total time of the stage below it.
+     *
+     * @param index the index of the stage
+     * @return the estimated self time in nanoseconds
+     */
+    public double getSelfNanos(int index)
+    {
+        return getSelfNanos(stages, index);
+    }
+
+    protected static double getSelfNanos(List<Stage> stages, int index)
+    {
+        double totalNanos = stages.get(index).getTotalNanos();
+        double belowNanos = index > 0 ? stages.get(index - 1).getTotalNanos() : 0.0;
+
+        return Math.max(0.0, totalNanos - belowNanos);
+    }
+
+    protected Layer instrument(Layer layer, Stage stage)
+    {
+        return layer instanceof BandSelective ? new InstrumentedBandSelectiveLayer(layer, stage) : new InstrumentedLayer(layer, stage);
+    }
+
+    /**
+     * Counts and times for one stage.
+     */
+    public static final class Stage
+    {
+        private final int index;
+        private final String name;
+        private final LongAdder getCount;
+        private final LongAdder sampledGetCount;
+        private final LongAdder sampledGetNanos;
+        private final LongAdder blockCount;
+        private final LongAdder blockNanos;
+        private final LongAdder rangeCount;
+        private final LongAdder rangeNanos;
+
+        private Stage(int index, String name)
+        {
+            this.index = index;
+            this.name = name;
+            this.getCount = new LongAdder();
+            this.sampledGetCount = new LongAdder();
+            this.sampledGetNanos = new LongAdder();
+            this.blockCount = new LongAdder();
+            this.blockNanos = new LongAdder();
+            this.rangeCount = new LongAdder();
+            this.rangeNanos = new LongAdder();
+        }
+
+        public int getIndex()
+        {
+            return index;
+        }
+
+        public String getName()
+        {
+            return name;
+        }
+
+        /**
+         * @return the number of calls to get, including getBand and getBands
+         */
+        public long getGetCount()
+        {
+            return getCount.sum();
+        }
+
+        public long getBlockCount()
+        {
+            return blockCount.sum();
+        }
+
+        public long getRangeCount()
+        {
+            return rangeCount.sum();
+        }
+
+        /**
+         * @return the estimated time spent in this stage and the stages below
+         *         it, in nanoseconds
+         */
+        public double getTotalNanos()
+        {
+            long sampledCount = sampledGetCount.sum();
+            double getNanos = sampledCount > 0 ? (double) sampledGetNanos.sum() * getCount.sum() / sampledCount : 0.0;
+
+            return getNanos + blockNanos.sum() + rangeNanos.sum();
+        }
+
+        private void reset()
+        {
+            getCount.reset();
+            sampledGetCount.reset();
+            sampledGetNanos.reset();
+            blockCount.reset();
+            blockNanos.reset();
+            rangeCount.reset();
+            rangeNanos.reset();
+        }
+
+        @Override
+        public String toString()
+        {
+            return "stage " + index + " (" + name + ")";
+        }
+
+    }
+
+    protected static class InstrumentedLayer extends ForwardingLayer
+    {
+        protected final Layer target;
+        protected final Stage stage;
+
+        protected InstrumentedLayer(Layer target, Stage stage)
+        {
+            super(target);
+            this.target = target;
+            this.stage = stage;
+        }
+
+        @Override
+        public void get(int i, int j, Pixel p)
+        {
+            stage.getCount.increment();
+            if (ThreadLocalRandom.current().nextInt(SampleInterval) != 0)
+            {
+                target.get(i, j, p);
+                return;
+            }
+
+            long start = System.nanoTime();
+            target.get(i, j, p);
+            stage.sampledGetNanos.add(System.nanoTime() - start);
+            stage.sampledGetCount.increment();
+        }
+
+        @Override
+        public void getBlock(int iMin, int jMin, PixelBlock block)
+        {
+            stage.blockCount.increment();
+
+            long start = System.nanoTime();
+            target.getBlock(iMin, jMin, block);
+            stage.blockNanos.add(System.nanoTime() - start);
+        }
+
+        @Override
+        public void getRange(Pixel pMin, Pixel pMax)
+        {
+            stage.rangeCount.increment();
+
+            long start = System.nanoTime();
+            target.getRange(pMin, pMax);
+            stage.rangeNanos.add(System.nanoTime() - start);
+        }
+
+        @Override
+        public String toString()
+        {
+            return "instrumented " + stage + ": " + target;
+        }
+
+    }
+
+    protected static class InstrumentedBandSelectiveLayer extends InstrumentedLayer implements BandSelective
+    {
+        private final BandSelective bandSelective;
+
+        protected InstrumentedBandSelectiveLayer(Layer target, Stage stage)
+        {
+            super(target, stage);
+            this.bandSelective = (BandSelective) target;
+        }
+
+        @Override
+        public void getBand(int i, int j, int k, Pixel p)
+        {
+            stage.getCount.increment();
+            if (ThreadLocalRandom.current().nextInt(SampleInterval) != 0)
+            {
+                bandSelective.getBand(i, j, k, p);
+                return;
+            }
+
+            long start = System.nanoTime();
+            bandSelective.getBand(i, j, k, p);
+            stage.sampledGetNanos.add(System.nanoTime() - start);
+            stage.sampledGetCount.increment();
+        }
+
+        @Override
+        public void getBands(int i, int j, int[] bands, PixelVector pv)
+        {
+            stage.getCount.increment();
+            if (ThreadLocalRandom.current().nextInt(SampleInterval) != 0)
+            {
+                bandSelective.getBands(i, j, bands, pv);
+                return;
+            }
+
+            long start = System.nanoTime();
+            bandSelective.getBands(i, j, bands, pv);
+            stage.sampledGetNanos.add(System.nanoTime() - start);
+            stage.sampledGetCount.increment();
+        }
+
+    }
+
+}
@@ -0,0 +1,238 @@
+package edu.jhuapl.sbmt.layer.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+
+import edu.jhuapl.sbmt.layer.api.Layer;
+import edu.jhuapl.sbmt.layer.api.Pixel;
+import edu.jhuapl.sbmt.layer.api.PixelDouble;
+import edu.jhuapl.sbmt.layer.api.PixelVector;
+
+/**
+ * Factory that fills {@link QuantileSketch}es (one per band) from scalar or
+ * vector {@link Layer}s, and creates percentile-clipped range getters from
+ * them. Only values of pixel elements that are in-bounds, valid and finite
+ * are included.
+ * <p>
+ * A full fill reads every pixel: blocks of rows are processed in parallel,
+ * each into its own set of sketches, and the sketches for the blocks are then
+ * merged. A sampled fill reads only a fixed number of randomly chosen pixels,
+ * which is fast enough to give an immediate preview of the distribution of
+ * values in even the largest layers.
+ *
+ * @author James Peachey
+ *
+ */
+public class LayerQuantileFactory
+{
+    /**
+     * Approximate number of pixel elements to process in each parallel task.
+     */
+    protected static final int ElementsPerTask = 1 << 16;
+
+    protected static final PixelDoubleFactory PixelScalarFactory = new PlainPixelDoubleFactory();
+    protected static final PixelVectorDoubleFactory PixelVectorFactory = new PlainPixelVectorDoubleFactory();
+    protected static final RangeGetterVectorDoubleFactory VectorRangeFactory = new RangeGetterVectorDoubleFactory();
+
+    private final int k;
+
+    /**
+     * Create a factory that makes sketches with the default accuracy
+     * parameter {@link QuantileSketch#DefaultK}.
+     */
+    public LayerQuantileFactory()
+    {
+        this(QuantileSketch.DefaultK);
+    }
+
+    /**
+     * Create a factory that makes sketches with the specified accuracy
+     * parameter.
+     *
+     * @param k the accuracy parameter (see {@link QuantileSketch})
+     */
+    public LayerQuantileFactory(int k)
+    {
+        super();
+
+        this.k = k;
+    }
+
+    /**
+     * Fill one sketch per band from every pixel in the layer.
+     *
+     * @param layer the layer
+     * @return the sketches, one per band
+     */
+    public List<QuantileSketch> of(Layer layer)
+    {
+        Preconditions.checkNotNull(layer);
+
+        int kSize = kSize(layer);
+        int iSize = layer.iSize();
+        int jSize = layer.jSize();
+
+        QuantileSketch[] result = createSketches(kSize, 0L);
+
+        if (kSize > 0 && iSize > 0 && jSize > 0)
+        {
+            int rowsPerTask = Math.max(1, ElementsPerTask / Math.max(1, iSize * kSize));
+            int numberTasks = (jSize + rowsPerTask - 1) / rowsPerTask;
+
+            result = IntStream.range(0, numberTasks).parallel().mapToObj(task -> {
+                int jMin = task * rowsPerTask;
+                int jMax = Math.min(jSize, jMin + rowsPerTask);
+
+                QuantileSketch[] sketches = createSketches(kSize, task);
+                Accessor accessor = new Accessor(layer, kSize);
+                for (int j = jMin; j < jMax; ++j)
+                {
+                    for (int i = 0; i < iSize; ++i)
+                    {
+                        accessor.add(i, j, sketches);
+                    }
+                }
+
+                return sketches;
+            }).reduce(this::merge).orElse(result);
+        }
+
+        return ImmutableList.copyOf(result);
+    }
+
+    /**
+     * Fill one sketch per band from a random sample of pixels in the layer.
+     * Pixels are sampled with replacement.
+     *
+     * @param layer the layer
+     * @param sampleSize the number of pixels to sample
+     * @param seed the seed for the random number generator, which makes the
+     *            sample reproducible
+     * @return the sketches, one per band
+     */
+    public List<QuantileSketch> sample(Layer layer, int sampleSize, long seed)
+    {
+        Preconditions.checkNotNull(layer);
+        Preconditions.checkArgument(sampleSize >= 0);
+
+        int kSize = kSize(layer);
+        int iSize = layer.iSize();
+        int jSize = layer.jSize();
+
+        QuantileSketch[] sketches = createSketches(kSize, seed);
+
+        if (kSize > 0 && iSize > 0 && jSize > 0)
+        {
+            SplittableRandom random = new SplittableRandom(seed);
+            Accessor accessor = new Accessor(layer, kSize);
+            for (int index = 0; index < sampleSize; ++index)
+            {
+                accessor.add(random.nextInt(iSize), random.nextInt(jSize), sketches);
+            }
+        }
+
+        return ImmutableList.copyOf(sketches);
+    }
+
+    /**
+     * Create a range getter whose per-band ranges span the specified
+     * quantiles of the values in the sketches. The range getter may be used
+     * with {@link LayerDoubleBuilder#rangeGetter(VectorRangeGetter)}.
+     *
+     * @param sketches the sketches, one per band
+     * @param lowerFraction the quantile used for the minimum of each band
+     * @param upperFraction the quantile used for the maximum of each band
+     * @return the range getter
+     */
+    public VectorRangeGetter rangeGetter(List<QuantileSketch> sketches, double lowerFraction, double upperFraction)
+    {
+        Preconditions.checkNotNull(sketches);
+
+        List<QuantileRangeGetter> ranges = new ArrayList<>(sketches.size());
+        for (QuantileSketch sketch : sketches)
+        {
+            ranges.add(new QuantileRangeGetter(sketch, lowerFraction, upperFraction));
+        }
+
+        return VectorRangeFactory.of(ranges);
+    }
+
+    protected int kSize(Layer layer)
+    {
+        List<Integer> dataSizes = layer.dataSizes();
+        Preconditions.checkArgument(dataSizes.size() <= 1, "Can only compute quantiles of scalar or vector layers");
+
+        return dataSizes.isEmpty() ? 0 : dataSizes.get(0);
+    }
+
+    protected QuantileSketch[] createSketches(int kSize, long seed)
+    {
+        QuantileSketch[] sketches = new QuantileSketch[kSize];
+        for (int index = 0; index < kSize; ++index)
+        {
+            sketches[index] = new QuantileSketch(k, seed * kSize + index);
+        }
+
+        return sketches;
+    }
+
+    protected QuantileSketch[] merge(QuantileSketch[] sketches0, QuantileSketch[] sketches1)
+    {
+        for (int index = 0; index < sketches0.length; ++index)
+        {
+            sketches0[index].merge(sketches1[index]);
+        }
+
+        return sketches0;
+    }
+
+    /**
+     * Reads pixels from a layer into sketches, reusing one pixel. Not
+     * thread-safe.
+     */
+    private static final class Accessor
+    {
+        private final Layer layer;
+        private final PixelVector pv;
+        private final PixelDouble pd;
+
+        private Accessor(Layer layer, int kSize)
+        {
+            boolean isVector = kSize > 1 || !layer.isGetAccepts(PixelDouble.class);
+
+            this.layer = layer;
+            this.pv = isVector ? PixelVectorFactory.of(kSize, Double.NaN) : null;
+            this.pd = isVector ? null : PixelScalarFactory.of(Double.NaN, Double.NaN);
+        }
+
+        private void add(int i, int j, QuantileSketch[] sketches)
+        {
+            if (pv != null)
+            {
+                layer.get(i, j, pv);
+                for (int k = 0; k < sketches.length; ++k)
+                {
+                    Pixel pk = pv.get(k);
+                    if (pk.isValid())
+                    {
+                        sketches[k].add(((PixelDouble) pk).getStoredValue());
+                    }
+                }
+            }
+            else
+            {
+                layer.get(i, j, pd);
+                if (pd.isValid())
+                {
+                    sketches[0].add(pd.getStoredValue());
+                }
+            }
+        }
+    }
+
+}
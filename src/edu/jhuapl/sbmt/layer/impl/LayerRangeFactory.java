@@ -0,0 +1,440 @@
+package edu.jhuapl.sbmt.layer.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import com.google.common.base.Preconditions;
+
+import edu.jhuapl.sbmt.layer.api.Layer;
+import edu.jhuapl.sbmt.layer.api.Pixel;
+import edu.jhuapl.sbmt.layer.api.PixelDouble;
+import edu.jhuapl.sbmt.layer.api.PixelVector;
+import edu.jhuapl.sbmt.layer.impl.DoubleBuilderBase.DoubleRangeGetter;
+import edu.jhuapl.sbmt.layer.impl.LayerDoubleTransformFactory.DoubleTransform;
+import edu.jhuapl.sbmt.layer.impl.LayerDoubleTransformFactory.Monotonicity;
+import edu.jhuapl.sbmt.layer.jfr.RangeComputationEvent;
+
+/**
+ * Factory that creates {@link RangeGetter}s for existing {@link Layer}s of
+ * scalar or vector double values, either by scanning the layer or by querying
+ * the layer's {@link Layer#getRange(Pixel, Pixel)} method. All the range
+ * getters returned are {@link VectorRangeGetter}s with one element per band
+ * (one element in total for a scalar layer).
+ * <p>
+ * Only values of pixel elements that are in-bounds, valid and finite
+ * contribute to a range. A band with no such values has a range whose minimum
+ * and maximum are both {@link Double#NaN}.
+ *
+ * @author James Peachey
+ *
+ */
+public class LayerRangeFactory
+{
+    /**
+     * Approximate number of pixel elements to scan in each parallel task.
+     */
+    protected static final int ElementsPerTask = 1 << 16;
+
+    protected static final PixelDoubleFactory PixelScalarFactory = new PlainPixelDoubleFactory();
+    protected static final PixelVectorDoubleFactory PixelVectorFactory = new PlainPixelVectorDoubleFactory();
+    protected static final RangeGetterVectorDoubleFactory VectorRangeFactory = new RangeGetterVectorDoubleFactory();
+
+    /**
+     * Used only to assign ranges to pixels; its range-handling methods do not
+     * depend on the builder's state.
+     */
+    private static final LayerDoubleBuilder RangeAssigner = new LayerDoubleBuilder();
+
+    public LayerRangeFactory()
+    {
+        super();
+    }
+
+    /**
+     * Compute the range of each band of the specified layer by getting every
+     * pixel in it. Rows of the layer are scanned in parallel.
+     *
+     * @param layer the layer to scan
+     * @return the range getter
+     */
+    public VectorRangeGetter scan(Layer layer)
+    {
+        Preconditions.checkNotNull(layer);
+
+        int kSize = kSize(layer);
+        int iSize = layer.iSize();
+        int jSize = layer.jSize();
+
+        double[] range = initRange(kSize);
+
+        RangeComputationEvent event = new RangeComputationEvent();
+        event.begin();
+
+        if (kSize > 0 && iSize > 0 && jSize > 0)
+        {
+            int rowsPerTask = Math.max(1, ElementsPerTask / Math.max(1, iSize * kSize));
+            int numberTasks = (jSize + rowsPerTask - 1) / rowsPerTask;
+
+            range = IntStream.range(0, numberTasks).parallel().mapToObj(task -> {
+                int jMin = task * rowsPerTask;
+                int jMax = Math.min(jSize, jMin + rowsPerTask);
+
+                return scanRows(layer, kSize, jMin, jMax);
+            }).reduce(range, this::merge);
+        }
+
+        if (event.shouldCommit())
+        {
+            event.setOperation("LayerRangeFactory.scan");
+            event.setSizes(iSize, jSize, kSize);
+            event.commit();
+        }
+
+        return toRangeGetter(range);
+    }
+
+    /**
+     * Return the range of each band of the specified layer as reported by its
+     * {@link Layer#getRange(Pixel, Pixel)} method. Bands for which the layer
+     * reports no valid range have minimum and maximum equal to
+     * {@link Double#NaN}.
+     *
+     * @param layer the layer to query
+     * @return the range getter
+     */
+    public VectorRangeGetter query(Layer layer)
+    {
+        Preconditions.checkNotNull(layer);
+
+        int kSize = kSize(layer);
+
+        double[] range = initRange(kSize);
+
+        if (kSize > 0)
+        {
+            PixelVector pMin = PixelVectorFactory.of(kSize, Double.NaN);
+            PixelVector pMax = PixelVectorFactory.of(kSize, Double.NaN);
+
+            layer.getRange(pMin, pMax);
+
+            for (int k = 0; k < kSize; ++k)
+            {
+                PixelDouble min = (PixelDouble) pMin.get(k);
+                PixelDouble max = (PixelDouble) pMax.get(k);
+                if (min.isValid() && max.isValid())
+                {
+                    update(range, k, min.getStoredValue());
+                    update(range, k, max.getStoredValue());
+                }
+            }
+        }
+
+        return toRangeGetter(range);
+    }
+
+    /**
+     * Return the range of each band of the specified layer as reported by its
+     * {@link Layer#getRange(Pixel, Pixel)} method, falling back on a
+     * {@link #scan(Layer)} if the layer reports no range for any band.
+     *
+     * @param layer the layer
+     * @return the range getter
+     */
+    public VectorRangeGetter queryOrScan(Layer layer)
+    {
+        VectorRangeGetter range = query(layer);
+
+        return isComplete(range) ? range : scan(layer);
+    }
+
+    /**
+     * Derive the range of a layer transformed by a monotonic
+     * {@link DoubleTransform} from the range of the original layer, without
+     * scanning either layer. The result is only as accurate as the original
+     * range.
+     *
+     * @param range the range of the original layer
+     * @param transform the transform
+     * @return the range of the transformed layer, or null if it cannot be
+     *         derived, either because the transform is not known to be
+     *         monotonic, or because the range of any band is missing or is
+     *         transformed to a non-finite value
+     */
+    public VectorRangeGetter transform(VectorRangeGetter range, DoubleTransform transform)
+    {
+        Preconditions.checkNotNull(range);
+        Preconditions.checkNotNull(transform);
+
+        Monotonicity monotonicity = transform.monotonicity();
+        if (monotonicity == Monotonicity.Unknown || !isComplete(range))
+        {
+            return null;
+        }
+
+        double[] result = initRange(range.size());
+        for (int k = 0; k < range.size(); ++k)
+        {
+            DoubleRangeGetter g = (DoubleRangeGetter) range.get(k);
+            double min = transform.apply(g.getMin());
+            double max = transform.apply(g.getMax());
+            if (!Double.isFinite(min) || !Double.isFinite(max))
+            {
+                return null;
+            }
+
+            result[2 * k] = monotonicity == Monotonicity.Increasing ? min : max;
+            result[2 * k + 1] = monotonicity == Monotonicity.Increasing ? max : min;
+        }
+
+        return toRangeGetter(result);
+    }
+
+    /**
+     * Concatenate the per-band ranges of several layers, in order, as for a
+     * layer created by appending them.
+     *
+     * @param ranges the ranges
+     * @return the concatenated range getter
+     */
+    public VectorRangeGetter concatenate(List<? extends VectorRangeGetter> ranges)
+    {
+        Preconditions.checkNotNull(ranges);
+
+        List<RangeGetter> elements = new ArrayList<>();
+        for (VectorRangeGetter range : ranges)
+        {
+            for (int k = 0; k < range.size(); ++k)
+            {
+                elements.add(range.get(k));
+            }
+        }
+
+        return VectorRangeFactory.of(elements);
+    }
+
+    /**
+     * Select the ranges of the specified bands, in order, as for a layer
+     * created by selecting those bands of another layer.
+     *
+     * @param range the range of the original layer
+     * @param bands the indices of the bands to select
+     * @return the selected range getter
+     * @throws IndexOutOfBoundsException if any band index is out of bounds
+     */
+    public VectorRangeGetter select(VectorRangeGetter range, int[] bands)
+    {
+        Preconditions.checkNotNull(range);
+        Preconditions.checkNotNull(bands);
+
+        List<RangeGetter> elements = new ArrayList<>(bands.length);
+        for (int band : bands)
+        {
+            elements.add(range.get(band));
+        }
+
+        return VectorRangeFactory.of(elements);
+    }
+
+    /**
+     * Return true if every band of the specified range has a finite minimum
+     * and maximum.
+     *
+     * @param range the range
+     * @return true if the range is complete
+     */
+    public boolean isComplete(VectorRangeGetter range)
+    {
+        Preconditions.checkNotNull(range);
+
+        for (int k = 0; k < range.size(); ++k)
+        {
+            if (!(range.get(k) instanceof DoubleRangeGetter g) || !Double.isFinite(g.getMin()) || !Double.isFinite(g.getMax()))
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Use the specified range getter to set the values of the minimum and
+     * maximum pixels, which may be either {@link PixelDouble} or
+     * {@link PixelVector} instances.
+     *
+     * @param rangeGetter the range getter
+     * @param pMin the pixel that receives the minimum value(s)
+     * @param pMax the pixel that receives the maximum value(s)
+     */
+    public void setRange(RangeGetter rangeGetter, Pixel pMin, Pixel pMax)
+    {
+        Preconditions.checkNotNull(rangeGetter);
+        Preconditions.checkNotNull(pMin);
+        Preconditions.checkNotNull(pMax);
+
+        RangeAssigner.getRange(rangeGetter, pMin, pMax);
+
+        // Mark bands with no range invalid rather than NaN-valued but valid.
+        setIsValid(pMin);
+        setIsValid(pMax);
+    }
+
+    /**
+     * Return the number of bands in a scalar or vector layer: 0 for an empty
+     * layer, otherwise the first data size.
+     *
+     * @param layer the layer
+     * @return the number of bands
+     */
+    protected int kSize(Layer layer)
+    {
+        List<Integer> dataSizes = layer.dataSizes();
+        Preconditions.checkArgument(dataSizes.size() <= 1, "Can only get ranges of scalar or vector layers");
+
+        return dataSizes.isEmpty() ? 0 : dataSizes.get(0);
+    }
+
+    protected double[] scanRows(Layer layer, int kSize, int jMin, int jMax)
+    {
+        double[] range = initRange(kSize);
+
+        boolean isVector = kSize > 1 || !layer.isGetAccepts(PixelDouble.class);
+        PixelVector pv = isVector ? PixelVectorFactory.of(kSize, Double.NaN) : null;
+        PixelDouble pd = isVector ? null : PixelScalarFactory.of(Double.NaN, Double.NaN);
+
+        int iSize = layer.iSize();
+        for (int j = jMin; j < jMax; ++j)
+        {
+            for (int i = 0; i < iSize; ++i)
+            {
+                if (isVector)
+                {
+                    layer.get(i, j, pv);
+                    for (int k = 0; k < kSize; ++k)
+                    {
+                        Pixel pk = pv.get(k);
+                        if (pk.isValid())
+                        {
+                            update(range, k, ((PixelDouble) pk).getStoredValue());
+                        }
+                    }
+                }
+                else
+                {
+                    layer.get(i, j, pd);
+                    if (pd.isValid())
+                    {
+                        update(range, 0, pd.getStoredValue());
+                    }
+                }
+            }
+        }
+
+        return range;
+    }
+
+    /**
+     * Create a range array for the specified number of bands. Element 2 * k
+     * holds the minimum, and element 2 * k + 1 the maximum, for band k.
+     *
+     * @param kSize the number of bands
+     * @return the range array, with all elements set to {@link Double#NaN}
+     */
+    protected double[] initRange(int kSize)
+    {
+        double[] range = new double[2 * kSize];
+        Arrays.fill(range, Double.NaN);
+
+        return range;
+    }
+
+    protected void update(double[] range, int k, double value)
+    {
+        if (Double.isFinite(value))
+        {
+            int minIndex = 2 * k;
+            int maxIndex = minIndex + 1;
+            if (!(range[minIndex] <= value))
+            {
+                range[minIndex] = value;
+            }
+            if (!(range[maxIndex] >= value))
+            {
+                range[maxIndex] = value;
+            }
+        }
+    }
+
+    protected double[] merge(double[] range0, double[] range1)
+    {
+        double[] range = range0.clone();
+        for (int k = 0; k < range.length / 2; ++k)
+        {
+            update(range, k, range1[2 * k]);
+            update(range, k, range1[2 * k + 1]);
+        }
+
+        return range;
+    }
+
+    protected VectorRangeGetter toRangeGetter(double[] range)
+    {
+        List<DoubleRangeGetter> ranges = new ArrayList<>(range.length / 2);
+        for (int k = 0; k < range.length / 2; ++k)
+        {
+            ranges.add(toRangeGetter(range[2 * k], range[2 * k + 1]));
+        }
+
+        return VectorRangeFactory.of(ranges);
+    }
+
+    /**
+     * Return a {@link DoubleRangeGetter} with the specified minimum and
+     * maximum values.
+     *
+     * @param min the minimum, may be {@link Double#NaN}
+     * @param max the maximum, may be {@link Double#NaN}
+     * @return the range getter
+     */
+    public DoubleRangeGetter toRangeGetter(double min, double max)
+    {
+        return new DoubleRangeGetter() {
+
+            @Override
+            public double getMin()
+            {
+                return min;
+            }
+
+            @Override
+            public double getMax()
+            {
+                return max;
+            }
+
+            @Override
+            public String toString()
+            {
+                return "[" + min + ", " + max + "]";
+            }
+        };
+    }
+
+    protected void setIsValid(Pixel p)
+    {
+        if (p instanceof PixelVector pv)
+        {
+            for (int k = 0; k < pv.size(); ++k)
+            {
+                setIsValid(pv.get(k));
+            }
+        }
+        else if (p instanceof PixelDouble pd && Double.isNaN(pd.getStoredValue()))
+        {
+            pd.setIsValid(false);
+        }
+    }
+
+}
@@ -0,0 +1,253 @@
+package edu.jhuapl.sbmt.layer.impl;
+
+import java.util.List;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+
+import edu.jhuapl.sbmt.layer.api.Layer;
+
+/**
+ * Immutable summary statistics for each band of a scalar or vector
+ * {@link Layer}: the number of valid values, their minimum, maximum, mean and
+ * standard deviation, and a histogram with equal-width bins. Only values of
+ * pixel elements that are in-bounds, valid and finite are included.
+ * <p>
+ * Because instances are immutable, they may be cached and shared freely. The
+ * {@link #getVersion()} method returns the version of the layer (see
+ * {@link Versioned}) at the time the statistics were computed, so a cached
+ * instance is current for as long as the layer's version is unchanged.
+ * <p>
+ * Use {@link LayerStatisticsFactory} to compute instances.
+ *
+ * @author James Peachey
+ *
+ */
+public final class LayerStatistics
+{
+    /**
+     * Statistics for one band of a layer.
+     */
+    public static final class Band
+    {
+        private final long count;
+        private final double min;
+        private final double max;
+        private final double mean;
+        private final double sumSquaredDeviations;
+        private final double binMin;
+        private final double binMax;
+        private final long[] histogram;
+        private final long outOfRangeCount;
+
+        protected Band(long count, double min, double max, double mean, double sumSquaredDeviations, double binMin, double binMax, long[] histogram, long outOfRangeCount)
+        {
+            super();
+
+            Preconditions.checkArgument(count >= 0);
+            Preconditions.checkNotNull(histogram);
+
+            this.count = count;
+            this.min = count > 0 ? min : Double.NaN;
+            this.max = count > 0 ? max : Double.NaN;
+            this.mean = count > 0 ? mean : Double.NaN;
+            this.sumSquaredDeviations = count > 0 ? sumSquaredDeviations : Double.NaN;
+            this.binMin = binMin;
+            this.binMax = binMax;
+            this.histogram = histogram.clone();
+            this.outOfRangeCount = outOfRangeCount;
+        }
+
+        /**
+         * @return the number of valid, finite values in the band
+         */
+        public long getCount()
+        {
+            return count;
+        }
+
+        /**
+         * @return the minimum value, or {@link Double#NaN} if the count is 0
+         */
+        public double getMin()
+        {
+            return min;
+        }
+
+        /**
+         * @return the maximum value, or {@link Double#NaN} if the count is 0
+         */
+        public double getMax()
+        {
+            return max;
+        }
+
+        /**
+         * @return the mean value, or {@link Double#NaN} if the count is 0
+         */
+        public double getMean()
+        {
+            return mean;
+        }
+
+        /**
+         * @return the population variance of the values, or
+         *         {@link Double#NaN} if the count is 0
+         */
+        public double getVariance()
+        {
+            return sumSquaredDeviations / count;
+        }
+
+        /**
+         * @return the population standard deviation of the values, or
+         *         {@link Double#NaN} if the count is 0
+         */
+        public double getStandardDeviation()
+        {
+            return Math.sqrt(getVariance());
+        }
+
+        /**
+         * @return the number of histogram bins
+         */
+        public int getNumberBins()
+        {
+            return histogram.length;
+        }
+
+        /**
+         * @return the lower edge of the first histogram bin
+         */
+        public double getBinMin()
+        {
+            return binMin;
+        }
+
+        /**
+         * @return the upper edge of the last histogram bin
+         */
+        public double getBinMax()
+        {
+            return binMax;
+        }
+
+        /**
+         * Return the lower edge of the specified histogram bin. Each bin
+         * includes its lower edge; the last bin also includes its upper edge.
+         *
+         * @param bin the bin index
+         * @return the lower edge
+         */
+        public double getBinLowerEdge(int bin)
+        {
+            Preconditions.checkElementIndex(bin, histogram.length + 1);
+
+            return bin == histogram.length ? binMax : binMin + bin * (binMax - binMin) / histogram.length;
+        }
+
+        /**
+         * Return the number of values in the specified histogram bin.
+         *
+         * @param bin the bin index
+         * @return the count in the bin
+         */
+        public long getBinCount(int bin)
+        {
+            Preconditions.checkElementIndex(bin, histogram.length);
+
+            return histogram[bin];
+        }
+
+        /**
+         * @return a copy of the counts in all the histogram bins
+         */
+        public long[] getHistogram()
+        {
+            return histogram.clone();
+        }
+
+        /**
+         * @return the number of valid values that fell outside the range of
+         *         the histogram bins
+         */
+        public long getOutOfRangeCount()
+        {
+            return outOfRangeCount;
+        }
+
+        @Override
+        public String toString()
+        {
+            return "count = " + count + ", range = [" + min + ", " + max + "], mean = " + mean + ", std = " + getStandardDeviation();
+        }
+
+    }
+
+    private final ImmutableList<Band> bands;
+    private final long version;
+
+    protected LayerStatistics(List<Band> bands, long version)
+    {
+        super();
+
+        this.bands = ImmutableList.copyOf(bands);
+        this.version = version;
+    }
+
+    /**
+     * @return the number of bands
+     */
+    public int size()
+    {
+        return bands.size();
+    }
+
+    /**
+     * Return the statistics for the specified band.
+     *
+     * @param k the band index
+     * @return the statistics
+     * @throws IndexOutOfBoundsException if the index is out of bounds
+     */
+    public Band get(int k)
+    {
+        return bands.get(k);
+    }
+
+    /**
+     * @return the statistics for all bands
+     */
+    public List<Band> getBands()
+    {
+        return bands;
+    }
+
+    /**
+     * @return the version of the layer when these statistics were computed
+     */
+    public long getVersion()
+    {
+        return version;
+    }
+
+    /**
+     * Return true if these statistics were computed for the current version
+     * of the specified layer. This does not check that the statistics came
+     * from the same layer.
+     *
+     * @param layer the layer
+     * @return true if the statistics are current
+     */
+    public boolean isCurrent(Layer layer)
+    {
+        return Versioned.versionOf(layer) == version;
+    }
+
+    @Override
+    public String toString()
+    {
+        return bands.toString();
+    }
+
+}
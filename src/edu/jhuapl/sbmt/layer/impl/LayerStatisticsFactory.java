@@ -0,0 +1,344 @@
+package edu.jhuapl.sbmt.layer.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import com.google.common.base.Preconditions;
+
+import edu.jhuapl.sbmt.layer.api.Layer;
+import edu.jhuapl.sbmt.layer.api.Pixel;
+import edu.jhuapl.sbmt.layer.api.PixelDouble;
+import edu.jhuapl.sbmt.layer.api.PixelVector;
+import edu.jhuapl.sbmt.layer.impl.DoubleBuilderBase.DoubleRangeGetter;
+import edu.jhuapl.sbmt.layer.impl.LayerStatistics.Band;
+
+/**
+ * Factory that computes {@link LayerStatistics} for scalar or vector
+ * {@link Layer}s. Statistics for all bands are accumulated together in a
+ * single pass over the layer, in which blocks of rows are processed in
+ * parallel, and the partial results for the blocks are then merged. The
+ * histograms need a range before that pass starts, so if the caller does not
+ * supply one and the layer does not report one, the layer is first scanned
+ * for its range (see {@link #of(Layer, int)}).
+ * <p>
+ * Means and standard deviations are accumulated using Welford's algorithm
+ * within each block, and the blocks are merged using the pairwise update of
+ * Chan et al., so the results are numerically stable even for large layers.
+ *
+ * @author James Peachey
+ *
+ */
+public class LayerStatisticsFactory
+{
+    /**
+     * Number of histogram bins used if none is specified.
+     */
+    public static final int DefaultNumberBins = 256;
+
+    /**
+     * Approximate number of pixel elements to process in each parallel task.
+     */
+    protected static final int ElementsPerTask = 1 << 16;
+
+    protected static final PixelDoubleFactory PixelScalarFactory = new PlainPixelDoubleFactory();
+    protected static final PixelVectorDoubleFactory PixelVectorFactory = new PlainPixelVectorDoubleFactory();
+    protected static final LayerRangeFactory RangeFactory = new LayerRangeFactory();
+
+    public LayerStatisticsFactory()
+    {
+        super();
+    }
+
+    /**
+     * Compute statistics for the specified layer, with histograms that have
+     * {@link #DefaultNumberBins} bins each, spanning the range of each band.
+     *
+     * @param layer the layer
+     * @return the statistics
+     */
+    public LayerStatistics of(Layer layer)
+    {
+        return of(layer, DefaultNumberBins);
+    }
+
+    /**
+     * Compute statistics for the specified layer, with histograms that have
+     * the specified number of bins each, spanning the range of each band.
+     * <p>
+     * The range is obtained from the layer's
+     * {@link Layer#getRange(Pixel, Pixel)} method if it reports one for every
+     * band; otherwise the layer is first scanned to find it, so every pixel is
+     * got twice: once by {@link LayerRangeFactory#scan(Layer)} and once by the
+     * statistics pass. For derived layers that are expensive to evaluate,
+     * either supply the bin range to
+     * {@link #of(Layer, int, VectorRangeGetter)}, or materialize or cache the
+     * layer first (e.g., with
+     * {@link LayerDoubleTransformFactory#cache(TileCache, int)}).
+     *
+     * @param layer the layer
+     * @param numberBins the number of histogram bins
+     * @return the statistics
+     */
+    public LayerStatistics of(Layer layer, int numberBins)
+    {
+        Preconditions.checkNotNull(layer);
+
+        return of(layer, numberBins, RangeFactory.queryOrScan(layer));
+    }
+
+    /**
+     * Compute statistics for the specified layer in a single pass, with
+     * histograms that have the specified number of bins each, spanning the
+     * specified range for each band. Valid values outside the range are
+     * counted (see {@link Band#getOutOfRangeCount()}) but are not included in
+     * any bin; they are included in all the other statistics.
+     *
+     * @param layer the layer
+     * @param numberBins the number of histogram bins
+     * @param binRange the range spanned by the bins of each band; must have
+     *            one {@link DoubleRangeGetter} per band
+     * @return the statistics
+     */
+    public LayerStatistics of(Layer layer, int numberBins, VectorRangeGetter binRange)
+    {
+        Preconditions.checkNotNull(layer);
+        Preconditions.checkArgument(numberBins > 0);
+        Preconditions.checkNotNull(binRange);
+
+        List<Integer> dataSizes = layer.dataSizes();
+        Preconditions.checkArgument(dataSizes.size() <= 1, "Can only compute statistics of scalar or vector layers");
+
+        int kSize = dataSizes.isEmpty() ? 0 : dataSizes.get(0);
+        Preconditions.checkArgument(binRange.size() == kSize, "Need one histogram range per band");
+
+        long version = Versioned.versionOf(layer);
+
+        int iSize = layer.iSize();
+        int jSize = layer.jSize();
+
+        Accumulator[] result = createAccumulators(kSize, numberBins, binRange);
+
+        if (kSize > 0 && iSize > 0 && jSize > 0)
+        {
+            int rowsPerTask = Math.max(1, ElementsPerTask / Math.max(1, iSize * kSize));
+            int numberTasks = (jSize + rowsPerTask - 1) / rowsPerTask;
+
+            result = IntStream.range(0, numberTasks).parallel().mapToObj(task -> {
+                int jMin = task * rowsPerTask;
+                int jMax = Math.min(jSize, jMin + rowsPerTask);
+
+                Accumulator[] accumulators = createAccumulators(kSize, numberBins, binRange);
+                accumulateRows(layer, accumulators, jMin, jMax);
+
+                return accumulators;
+            }).reduce(this::merge).orElse(result);
+        }
+
+        List<Band> bands = new ArrayList<>(kSize);
+        for (Accumulator accumulator : result)
+        {
+            bands.add(accumulator.toBand());
+        }
+
+        return new LayerStatistics(bands, version);
+    }
+
+    protected Accumulator[] createAccumulators(int kSize, int numberBins, VectorRangeGetter binRange)
+    {
+        Accumulator[] accumulators = new Accumulator[kSize];
+        for (int k = 0; k < kSize; ++k)
+        {
+            RangeGetter g = binRange.get(k);
+            Preconditions.checkArgument(g instanceof DoubleRangeGetter, "Histogram range must be a DoubleRangeGetter");
+
+            DoubleRangeGetter range = (DoubleRangeGetter) g;
+            accumulators[k] = new Accumulator(numberBins, range.getMin(), range.getMax());
+        }
+
+        return accumulators;
+    }
+
+    protected void accumulateRows(Layer layer, Accumulator[] accumulators, int jMin, int jMax)
+    {
+        int kSize = accumulators.length;
+
+        boolean isVector = kSize > 1 || !layer.isGetAccepts(PixelDouble.class);
+        PixelVector pv = isVector ? PixelVectorFactory.of(kSize, Double.NaN) : null;
+        PixelDouble pd = isVector ? null : PixelScalarFactory.of(Double.NaN, Double.NaN);
+
+        int iSize = layer.iSize();
+        for (int j = jMin; j < jMax; ++j)
+        {
+            for (int i = 0; i < iSize; ++i)
+            {
+                if (isVector)
+                {
+                    layer.get(i, j, pv);
+                    for (int k = 0; k < kSize; ++k)
+                    {
+                        Pixel pk = pv.get(k);
+                        if (pk.isValid())
+                        {
+                            accumulators[k].add(((PixelDouble) pk).getStoredValue());
+                        }
+                    }
+                }
+                else
+                {
+                    layer.get(i, j, pd);
+                    if (pd.isValid())
+                    {
+                        accumulators[0].add(pd.getStoredValue());
+                    }
+                }
+            }
+        }
+    }
+
+    protected Accumulator[] merge(Accumulator[] accumulators0, Accumulator[] accumulators1)
+    {
+        for (int k = 0; k < accumulators0.length; ++k)
+        {
+            accumulators0[k].merge(accumulators1[k]);
+        }
+
+        return accumulators0;
+    }
+
+    /**
+     * Mutable accumulator of statistics for one band. Not thread-safe; each
+     * parallel task uses its own accumulators.
+     */
+    protected static final class Accumulator
+    {
+        private final double binMin;
+        private final double binMax;
+        private final double binScale;
+        private final long[] histogram;
+        private long outOfRangeCount;
+        private long count;
+        private double min;
+        private double max;
+        private double mean;
+        private double sumSquaredDeviations;
+
+        protected Accumulator(int numberBins, double binMin, double binMax)
+        {
+            super();
+
+            this.binMin = binMin;
+            this.binMax = binMax;
+            this.binScale = binMax > binMin ? numberBins / (binMax - binMin) : 0.0;
+            this.histogram = new long[numberBins];
+            this.outOfRangeCount = 0;
+            this.count = 0;
+            this.min = Double.POSITIVE_INFINITY;
+            this.max = Double.NEGATIVE_INFINITY;
+            this.mean = 0.0;
+            this.sumSquaredDeviations = 0.0;
+        }
+
+        /**
+         * Add one value. Non-finite values are ignored.
+         *
+         * @param value the value
+         */
+        public void add(double value)
+        {
+            if (!Double.isFinite(value))
+            {
+                return;
+            }
+
+            ++count;
+            if (value < min)
+            {
+                min = value;
+            }
+            if (value > max)
+            {
+                max = value;
+            }
+
+            double delta = value - mean;
+            mean += delta / count;
+            sumSquaredDeviations += delta * (value - mean);
+
+            int bin = bin(value);
+            if (bin >= 0)
+            {
+                ++histogram[bin];
+            }
+            else
+            {
+                ++outOfRangeCount;
+            }
+        }
+
+        /**
+         * Merge the other accumulator into this one.
+         *
+         * @param other the accumulator to merge, which must have the same bins
+         */
+        public void merge(Accumulator other)
+        {
+            if (other.count == 0)
+            {
+                return;
+            }
+
+            if (count == 0)
+            {
+                min = other.min;
+                max = other.max;
+                mean = other.mean;
+                sumSquaredDeviations = other.sumSquaredDeviations;
+            }
+            else
+            {
+                long total = count + other.count;
+                double delta = other.mean - mean;
+
+                min = Math.min(min, other.min);
+                max = Math.max(max, other.max);
+                mean += delta * other.count / total;
+                sumSquaredDeviations += other.sumSquaredDeviations + delta * delta * ((double) count * other.count / total);
+            }
+            count += other.count;
+
+            for (int bin = 0; bin < histogram.length; ++bin)
+            {
+                histogram[bin] += other.histogram[bin];
+            }
+            outOfRangeCount += other.outOfRangeCount;
+        }
+
+        /**
+         * Return the histogram bin for the value, or -1 if the value is outside
+         * the range of the bins (or the bin range is not valid).
+         */
+        private int bin(double value)
+        {
+            if (!(value >= binMin && value <= binMax))
+            {
+                return -1;
+            }
+
+            if (binScale == 0.0)
+            {
+                // Degenerate range: only possible value is binMin == binMax.
+                return 0;
+            }
+
+            return Math.min(histogram.length - 1, (int) ((value - binMin) * binScale));
+        }
+
+        public Band toBand()
+        {
+            return new Band(count, min, max, mean, sumSquaredDeviations, binMin, binMax, histogram, outOfRangeCount);
+        }
+
+    }
+
+}
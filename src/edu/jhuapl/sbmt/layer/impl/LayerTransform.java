@@ -0,0 +1,199 @@
+package edu.jhuapl.sbmt.layer.impl;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+
+import com.google.common.base.Preconditions;
+
+import edu.jhuapl.sbmt.layer.api.Layer;
+
+/**
+ * A {@link Function} that transforms a {@link Layer} into another layer, which
+ * also describes itself: it records the {@link Kind} of operation it performs,
+ * and the parameters with which it was created. These descriptors allow code
+ * such as a {@link LayerPipeline} optimizer to inspect, reorder, merge or
+ * cache transforms without applying them.
+ * <p>
+ * The parameters of a transform are the arguments that were passed to the
+ * factory method that created it, in order. For example, the transform
+ * returned by {@link LayerTransformFactory#subset(int, int, int, int)} has
+ * kind {@link Kind#Subset} and parameters (iMin, iMax, jMin, jMax). Factory
+ * methods that are aliases of others (e.g.,
+ * {@link LayerTransformFactory#flipAboutX()}) return the same descriptor as
+ * the method they alias. Rotations are recorded in degrees in the range [0,
+ * 360), and rotations that are exact flips (0 and 180 degrees) are described
+ * as the equivalent index transform.
+ * <p>
+ * Two transforms are equal if they have the same kind and equal parameters.
+ * Parameters that are objects such as
+ * {@link edu.jhuapl.sbmt.layer.api.PixelOperator}s or
+ * {@link LayerDoubleTransformFactory.DoubleTransform}s typically are equal
+ * only if they are the same instance.
+ *
+ * @author James Peachey
+ *
+ */
+public final class LayerTransform implements Function<Layer, Layer>
+{
+
+    /**
+     * The kinds of operation performed by transforms, one for each factory
+     * method (other than aliases) in {@link LayerTransformFactory} and
+     * {@link LayerDoubleTransformFactory}.
+     */
+    public enum Kind
+    {
+        Identity,
+        InvertI,
+        InvertJ,
+        InvertIJ,
+        SwapIJ,
+        RotateCW,
+        RotateCCW,
+        SubsetI,
+        SubsetJ,
+        Subset,
+        Expand,
+        TrimI,
+        TrimJ,
+        Trim,
+        Slice,
+        SelectBands,
+        Mask,
+        ResampleNearestNeighbor,
+        ValueTransform,
+        BulkValueTransform,
+        Cache,
+        LinearInterpolate,
+        RotatePreservingSize,
+        /**
+         * Any other function, about which nothing is known.
+         */
+        Custom
+    }
+
+    /**
+     * Create a transform descriptor.
+     *
+     * @param kind the kind of operation
+     * @param function the function that performs the operation
+     * @param parameters the parameters of the operation, which may include
+     *            nulls
+     * @return the transform
+     */
+    public static LayerTransform of(Kind kind, Function<Layer, Layer> function, Object... parameters)
+    {
+        return new LayerTransform(kind, function, parameters);
+    }
+
+    /**
+     * Return a transform that describes the specified function. If the
+     * function is already a {@link LayerTransform}, it is returned as is,
+     * otherwise it is wrapped in a transform of kind {@link Kind#Custom},
+     * whose only parameter is the function.
+     *
+     * @param function the function
+     * @return the transform
+     */
+    public static LayerTransform of(Function<Layer, Layer> function)
+    {
+        Preconditions.checkNotNull(function);
+
+        return function instanceof LayerTransform t ? t : of(Kind.Custom, function, function);
+    }
+
+    private final Kind kind;
+    private final Function<Layer, Layer> function;
+    private final List<Object> parameters;
+
+    private LayerTransform(Kind kind, Function<Layer, Layer> function, Object[] parameters)
+    {
+        super();
+
+        this.kind = Preconditions.checkNotNull(kind);
+        this.function = Preconditions.checkNotNull(function);
+        this.parameters = Collections.unmodifiableList(Arrays.asList(parameters.clone()));
+    }
+
+    /**
+     * @return the kind of operation this transform performs
+     */
+    public Kind getKind()
+    {
+        return kind;
+    }
+
+    /**
+     * Return the parameters with which this transform was created. The list
+     * is unmodifiable, and may contain nulls.
+     *
+     * @return the parameters
+     */
+    public List<Object> getParameters()
+    {
+        return parameters;
+    }
+
+    /**
+     * Return one parameter, cast to the specified type.
+     *
+     * @param <T> the type of the parameter
+     * @param index the index of the parameter
+     * @param type the class of the parameter
+     * @return the parameter
+     * @throws IndexOutOfBoundsException if there is no such parameter
+     * @throws ClassCastException if the parameter is not of the specified type
+     */
+    public <T> T getParameter(int index, Class<T> type)
+    {
+        return type.cast(parameters.get(index));
+    }
+
+    @Override
+    public Layer apply(Layer layer)
+    {
+        return function.apply(layer);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash(kind, parameters);
+    }
+
+    @Override
+    public boolean equals(Object obj)
+    {
+        if (this == obj)
+        {
+            return true;
+        }
+
+        return obj instanceof LayerTransform other && kind == other.kind && parameters.equals(other.parameters);
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder builder = new StringBuilder(kind.toString());
+
+        if (!parameters.isEmpty())
+        {
+            builder.append("(");
+            String delim = "";
+            for (Object parameter : parameters)
+            {
+                builder.append(delim);
+                builder.append(parameter);
+                delim = ", ";
+            }
+            builder.append(")");
+        }
+
+        return builder.toString();
+    }
+
+}
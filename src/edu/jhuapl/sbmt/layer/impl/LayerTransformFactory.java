@@ -2,15 +2,19 @@ package edu.jhuapl.sbmt.layer.impl;
 
 import java.util.List;
 import java.util.function.Function;
+import java.util.function.Supplier;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
+import com.google.common.primitives.Ints;
 
 import edu.jhuapl.sbmt.layer.api.KeyValueCollection;
 import edu.jhuapl.sbmt.layer.api.Layer;
 import edu.jhuapl.sbmt.layer.api.Pixel;
+import edu.jhuapl.sbmt.layer.api.PixelDouble;
 import edu.jhuapl.sbmt.layer.api.PixelOperator;
 import edu.jhuapl.sbmt.layer.api.PixelVector;
+import edu.jhuapl.sbmt.layer.impl.LayerTransform.Kind;
 
 /**
  * Factory class for creating {@link Layer} transforms (that is,
@@ -19,6 +23,15 @@ import edu.jhuapl.sbmt.layer.api.PixelVector;
  * This factory provides transforms that involve only changes to indices, no
  * operations that are specific to the underlying data type associated with each
  * pixel.
+ * <p>
+ * Transforms are returned as {@link LayerTransform}s, which implement
+ * {@link Function} and also describe themselves, for use in
+ * {@link LayerPipeline}s. The factory methods formerly returned
+ * {@code Function<Layer, Layer>}, and changing their return types is an
+ * intentional binary and source incompatibility: code compiled against the
+ * old signatures fails with {@link NoSuchMethodError} until it is recompiled,
+ * and subclasses that override a factory method must declare the new return
+ * type. Callers that just apply the returned functions need no other change.
  *
  * @see {@link LayerDoubleTransformFactory} for transforms that modify pixel
  *      data.
@@ -28,16 +41,16 @@ import edu.jhuapl.sbmt.layer.api.PixelVector;
 public class LayerTransformFactory
 {
 
-    private static final Function<Layer, Layer> Identity = layer -> {
+    private static final LayerTransform Identity = LayerTransform.of(Kind.Identity, layer -> {
         Preconditions.checkNotNull(layer);
 
         return layer;
-    };
+    });
 
     /**
      * Invert indices in the Ith dimension.
      */
-    private static final Function<Layer, Layer> InvertI = layer -> {
+    private static final LayerTransform InvertI = LayerTransform.of(Kind.InvertI, layer -> {
         Preconditions.checkNotNull(layer);
 
         return new ForwardingLayer(layer) {
@@ -49,12 +62,12 @@ public class LayerTransformFactory
             }
 
         };
-    };
+    });
 
     /**
      * Invert indices in the Jth dimension.
      */
-    private static final Function<Layer, Layer> InvertJ = layer -> {
+    private static final LayerTransform InvertJ = LayerTransform.of(Kind.InvertJ, layer -> {
         Preconditions.checkNotNull(layer);
 
         return new ForwardingLayer(layer) {
@@ -66,12 +79,12 @@ public class LayerTransformFactory
             }
 
         };
-    };
+    });
 
     /**
      * Invert indices in the both I and J dimensions.
      */
-    private static final Function<Layer, Layer> InvertIJ = layer -> {
+    private static final LayerTransform InvertIJ = LayerTransform.of(Kind.InvertIJ, layer -> {
         Preconditions.checkNotNull(layer);
 
         return new ForwardingLayer(layer) {
@@ -83,13 +96,13 @@ public class LayerTransformFactory
             }
 
         };
-    };
+    });
 
     /**
      * Swap I with J. This is like rotation about the diagonal elements, or
      * doing a flip and a rotation together.
      */
-    private static final Function<Layer, Layer> SwapIJ = layer -> {
+    private static final LayerTransform SwapIJ = LayerTransform.of(Kind.SwapIJ, layer -> {
         Preconditions.checkNotNull(layer);
 
         return new ForwardingLayer(layer) {
@@ -113,24 +126,24 @@ public class LayerTransformFactory
             }
 
         };
-    };
+    });
 
     /**
      * Rotate clockwise.
      */
-    private static final Function<Layer, Layer> RotateClockwise = InvertI.compose(SwapIJ);
+    private static final LayerTransform RotateClockwise = LayerTransform.of(Kind.RotateCW, InvertI.compose(SwapIJ));
 
     /**
      * Rotate counterclockwise.
      */
-    private static final Function<Layer, Layer> RotateCounterClockwise = InvertJ.compose(SwapIJ);
+    private static final LayerTransform RotateCounterClockwise = LayerTransform.of(Kind.RotateCCW, InvertJ.compose(SwapIJ));
 
     public LayerTransformFactory()
     {
         super();
     }
 
-    public Function<Layer, Layer> identity()
+    public LayerTransform identity()
     {
         return Identity;
     }
@@ -140,7 +153,7 @@ public class LayerTransformFactory
      *
      * @return the function
      */
-    public Function<Layer, Layer> flipAboutX()
+    public LayerTransform flipAboutX()
     {
         return invertJ();
     }
@@ -151,7 +164,7 @@ public class LayerTransformFactory
      *
      * @return the function
      */
-    public Function<Layer, Layer> flipAboutY()
+    public LayerTransform flipAboutY()
     {
         return invertI();
     }
@@ -163,7 +176,7 @@ public class LayerTransformFactory
      *
      * @return the function
      */
-    public Function<Layer, Layer> flipAboutXY()
+    public LayerTransform flipAboutXY()
     {
         return invertIJ();
     }
@@ -173,7 +186,7 @@ public class LayerTransformFactory
      *
      * @return the function
      */
-    public Function<Layer, Layer> rotateCW()
+    public LayerTransform rotateCW()
     {
         return RotateClockwise;
     }
@@ -183,7 +196,7 @@ public class LayerTransformFactory
      *
      * @return the function
      */
-    public Function<Layer, Layer> rotateCCW()
+    public LayerTransform rotateCCW()
     {
         return RotateCounterClockwise;
     }
@@ -194,7 +207,7 @@ public class LayerTransformFactory
      *
      * @return the function
      */
-    public Function<Layer, Layer> rotateHalfway()
+    public LayerTransform rotateHalfway()
     {
         return invertIJ();
     }
@@ -206,7 +219,7 @@ public class LayerTransformFactory
      *
      * @return the function
      */
-    public Function<Layer, Layer> invertI()
+    public LayerTransform invertI()
     {
         return InvertI;
     }
@@ -218,7 +231,7 @@ public class LayerTransformFactory
      *
      * @return the function
      */
-    public Function<Layer, Layer> invertJ()
+    public LayerTransform invertJ()
     {
         return InvertJ;
     }
@@ -231,7 +244,7 @@ public class LayerTransformFactory
      *
      * @return the function
      */
-    public Function<Layer, Layer> invertIJ()
+    public LayerTransform invertIJ()
     {
         return InvertIJ;
     }
@@ -243,7 +256,7 @@ public class LayerTransformFactory
      *
      * @return the function
      */
-    public Function<Layer, Layer> swapIJ()
+    public LayerTransform swapIJ()
     {
         return SwapIJ;
     }
@@ -266,16 +279,16 @@ public class LayerTransformFactory
      * @throws IllegalArgumentException if iMin or iMax is negative, or iMax <
      *             iMin
      */
-    public Function<Layer, Layer> subsetI(int iMin, int iMax)
+    public LayerTransform subsetI(int iMin, int iMax)
     {
         Preconditions.checkArgument(iMin >= 0);
         Preconditions.checkArgument(iMax >= iMin);
 
         int iNewSize = iMax - iMin;
 
-        return layer -> {
+        return LayerTransform.of(Kind.SubsetI, layer -> {
             return subsetLayer(layer, iMin, iNewSize, 0, layer.jSize());
-        };
+        }, iMin, iMax);
     }
 
     /**
@@ -295,16 +308,16 @@ public class LayerTransformFactory
      * @throws IllegalArgumentException if jMin or jMax is negative, or jMax <
      *             jMin
      */
-    public Function<Layer, Layer> subsetJ(int jMin, int jMax)
+    public LayerTransform subsetJ(int jMin, int jMax)
     {
         Preconditions.checkArgument(jMin >= 0);
         Preconditions.checkArgument(jMax >= jMin);
 
         int jNewSize = jMax - jMin;
 
-        return layer -> {
+        return LayerTransform.of(Kind.SubsetJ, layer -> {
             return subsetLayer(layer, 0, layer.iSize(), jMin, jNewSize);
-        };
+        }, jMin, jMax);
     }
 
     /**
@@ -324,7 +337,7 @@ public class LayerTransformFactory
      * @throws IllegalArgumentException if iMin or iMax is negative, iMax <
      *             iMin, jMin or jMax is negative, or jMax < jMin
      */
-    public Function<Layer, Layer> subset(int iMin, int iMax, int jMin, int jMax)
+    public LayerTransform subset(int iMin, int iMax, int jMin, int jMax)
     {
         Preconditions.checkArgument(iMin >= 0);
         Preconditions.checkArgument(iMax >= iMin);
@@ -334,9 +347,9 @@ public class LayerTransformFactory
         int iNewSize = iMax - iMin;
         int jNewSize = jMax - jMin;
 
-        return layer -> {
+        return LayerTransform.of(Kind.Subset, layer -> {
             return subsetLayer(layer, iMin, iNewSize, jMin, jNewSize);
-        };
+        }, iMin, iMax, jMin, jMax);
     }
 
     /**
@@ -360,7 +373,7 @@ public class LayerTransformFactory
      *      convenient front-end to this method that sets expanded pixels to a
      *      specified constant value
      */
-    public Function<Layer, Layer> expand(int iLowerOffset, int iUpperOffset, int jLowerOffset, int jUpperOffset, PixelOperator expandOperator)
+    public LayerTransform expand(int iLowerOffset, int iUpperOffset, int jLowerOffset, int jUpperOffset, PixelOperator expandOperator)
     {
         Preconditions.checkArgument(iLowerOffset >= 0);
         Preconditions.checkArgument(iUpperOffset >= 0);
@@ -368,7 +381,7 @@ public class LayerTransformFactory
         Preconditions.checkArgument(jUpperOffset >= 0);
         Preconditions.checkNotNull(expandOperator);
 
-        return layer -> {
+        return LayerTransform.of(Kind.Expand, layer -> {
             return new ForwardingLayer(layer) {
 
                 int origISize = layer.iSize();
@@ -421,7 +434,7 @@ public class LayerTransformFactory
                 }
 
             };
-        };
+        }, iLowerOffset, iUpperOffset, jLowerOffset, jUpperOffset, expandOperator);
     }
 
     /**
@@ -440,18 +453,18 @@ public class LayerTransformFactory
      * @return the function
      * @throws IllegalArgumentException if either argument is negative
      */
-    public Function<Layer, Layer> trimI(int iLowerOffset, int iUpperOffset)
+    public LayerTransform trimI(int iLowerOffset, int iUpperOffset)
     {
         Preconditions.checkArgument(iLowerOffset >= 0);
         Preconditions.checkArgument(iUpperOffset >= 0);
 
-        return layer -> {
+        return LayerTransform.of(Kind.TrimI, layer -> {
             Preconditions.checkNotNull(layer);
 
             int iNewSize = layer.iSize() - iLowerOffset - iUpperOffset;
 
             return subsetLayer(layer, iLowerOffset, iNewSize, 0, layer.jSize());
-        };
+        }, iLowerOffset, iUpperOffset);
     }
 
     /**
@@ -470,18 +483,18 @@ public class LayerTransformFactory
      * @return the function
      * @throws IllegalArgumentException if either argument is negative
      */
-    public Function<Layer, Layer> trimJ(int jLowerOffset, int jUpperOffset)
+    public LayerTransform trimJ(int jLowerOffset, int jUpperOffset)
     {
         Preconditions.checkArgument(jLowerOffset >= 0);
         Preconditions.checkArgument(jUpperOffset >= 0);
 
-        return layer -> {
+        return LayerTransform.of(Kind.TrimJ, layer -> {
             Preconditions.checkNotNull(layer);
 
             int jNewSize = layer.jSize() - jLowerOffset - jUpperOffset;
 
             return subsetLayer(layer, 0, layer.iSize(), jLowerOffset, jNewSize);
-        };
+        }, jLowerOffset, jUpperOffset);
     }
 
     /**
@@ -504,30 +517,70 @@ public class LayerTransformFactory
      * @return the function
      * @throws IllegalArgumentException if any argument is negative
      */
-    public Function<Layer, Layer> trim(int iLowerOffset, int iUpperOffset, int jLowerOffset, int jUpperOffset)
+    public LayerTransform trim(int iLowerOffset, int iUpperOffset, int jLowerOffset, int jUpperOffset)
     {
         Preconditions.checkArgument(iLowerOffset >= 0);
         Preconditions.checkArgument(iUpperOffset >= 0);
         Preconditions.checkArgument(jLowerOffset >= 0);
         Preconditions.checkArgument(jUpperOffset >= 0);
 
-        return layer -> {
+        return LayerTransform.of(Kind.Trim, layer -> {
             Preconditions.checkNotNull(layer);
 
             int iNewSize = layer.iSize() - iLowerOffset - iUpperOffset;
             int jNewSize = layer.jSize() - jLowerOffset - jUpperOffset;
 
             return subsetLayer(layer, iLowerOffset, iNewSize, jLowerOffset, jNewSize);
-        };
+        }, iLowerOffset, iUpperOffset, jLowerOffset, jUpperOffset);
+    }
+
+    /**
+     * Return a function that extracts one scalar slice from a vector layer.
+     * <p>
+     * If the vector layer is {@link BandSelective}, only the sliced band is
+     * read, so the cost of getting a pixel does not depend on the number of
+     * bands. Otherwise the whole vector is got into a slice pixel obtained
+     * from the supplier. Each layer created by the function obtains its own
+     * slice pixel for each thread that reads it, so the layers may be read by
+     * several threads at once.
+     *
+     * @param index to slice from within the vector layer
+     * @param pixelSupplier supplier of vector pixels with more than index
+     *            elements, used as intermediary pixel values to get the whole
+     *            vector from which the slice is picked, and to get the range
+     * @return the function
+     */
+    public LayerTransform slice(int index, Supplier<? extends PixelVector> pixelSupplier)
+    {
+        Preconditions.checkNotNull(pixelSupplier);
+        Preconditions.checkArgument(index >= 0);
+        Preconditions.checkArgument(pixelSupplier.get().size() > index);
+
+        return LayerTransform.of(Kind.Slice, layer -> {
+            ThreadLocal<PixelVector> slicePixel = ThreadLocal.withInitial(pixelSupplier);
+
+            return sliceLayer(layer, index, slicePixel::get, pixelSupplier, pixelSupplier, null);
+        }, index, pixelSupplier);
     }
 
     /**
-     * Return a function that extracts one scalar slice from a vector layer
-     * 
+     * Return a function that extracts one scalar slice from a vector layer.
+     * <p>
+     * If the vector layer is {@link BandSelective}, only the sliced band is
+     * read, so the cost of getting a pixel does not depend on the number of
+     * bands. Otherwise the whole vector is got into the slice pixel.
+     * <p>
+     * The specified pixels are shared by every layer the function creates, so
+     * those layers synchronize on the slice pixel while using it. Use
+     * {@link #slice(int, Supplier)} for layers that are read by several
+     * threads at once, such as by the parallel scans of
+     * {@link LayerStatisticsFactory}.
+     *
      * @param index to slice from within the vector layer
      * @param slicePixel vector pixel adopted by the slice function and used as
      *            an intermediary pixel value to get the whole vector from which
-     *            the slice is picked
+     *            the slice is picked, if the layer is not
+     *            {@link BandSelective}
      * @param minPixel vector pixel adopted by the slice functions and used as
      *            an intermediary pixel for the minimum value when getting the
      *            range
@@ -537,7 +590,7 @@ public class LayerTransformFactory
      *
      * @return the function
      */
-    public Function<Layer, Layer> slice(int index, PixelVector slicePixel, PixelVector minPixel, PixelVector maxPixel)
+    public LayerTransform slice(int index, PixelVector slicePixel, PixelVector minPixel, PixelVector maxPixel)
     {
         Preconditions.checkNotNull(slicePixel);
         Preconditions.checkNotNull(minPixel);
@@ -547,85 +600,163 @@ public class LayerTransformFactory
         Preconditions.checkArgument(minPixel.size() == slicePixel.size());
         Preconditions.checkArgument(maxPixel.size() == slicePixel.size());
 
-        return layer -> {
-            Preconditions.checkNotNull(layer);
+        return LayerTransform.of(Kind.Slice, layer -> sliceLayer(layer, index, () -> slicePixel, () -> minPixel, () -> maxPixel, slicePixel), //
+                index, slicePixel, minPixel, maxPixel);
+    }
+
+    /**
+     * Create the layer for one of the slice functions.
+     *
+     * @param layer the vector layer to slice
+     * @param index to slice from within the vector layer
+     * @param slicePixel supplier of the pixel into which to get whole vectors
+     * @param minPixel supplier of the pixel into which to get the minimum
+     * @param maxPixel supplier of the pixel into which to get the maximum
+     * @param lock object on which to synchronize while using the pixels, or
+     *            null if the pixels are not shared between threads
+     * @return the slice layer
+     */
+    protected Layer sliceLayer(Layer layer, int index, Supplier<? extends PixelVector> slicePixel, Supplier<? extends PixelVector> minPixel, Supplier<? extends PixelVector> maxPixel, Object lock)
+    {
+        Preconditions.checkNotNull(layer);
+
+        List<Integer> dataSizes = layer.dataSizes();
+        Preconditions.checkNotNull(dataSizes);
+
+        Integer size;
+        if (dataSizes.isEmpty())
+        {
+            // Slicing a scalar layer is OK, though that will force index to
+            // be 0 below.
+            size = Integer.valueOf(1);
+        }
+        else
+        {
+            // Slicing a vector layer is OK.
+            Preconditions.checkArgument(dataSizes.size() == 1);
+            size = dataSizes.get(0);
+        }
 
-            List<Integer> dataSizes = layer.dataSizes();
-            Preconditions.checkNotNull(dataSizes);
+        // Confirm the layer has at least *some* data.
+        Preconditions.checkNotNull(size);
+        Preconditions.checkArgument(size > index);
 
-            Integer size;
-            if (dataSizes.isEmpty())
+        return new BasicLayer(layer.iSize(), layer.jSize()) {
+
+            @Override
+            public List<Integer> dataSizes()
             {
-                // Slicing a scalar layer is OK, though that will force index to
-                // be 0 below.
-                size = Integer.valueOf(1);
+                return ImmutableList.of(Integer.valueOf(1));
             }
-            else
+
+            @Override
+            protected void getElement(int i, int j, int k, Pixel p)
             {
-                // Slicing a vector layer is OK.
-                Preconditions.checkArgument(dataSizes.size() == 1);
-                size = dataSizes.get(0);
+                getBand(i, j, p);
             }
 
-            // Confirm the layer has at least *some* data.
-            Preconditions.checkNotNull(size);
-            Preconditions.checkArgument(size > index);
-
-            return new BasicLayer(layer.iSize(), layer.jSize()) {
+            @Override
+            protected void getVector(int i, int j, PixelVector pv)
+            {
+                getBand(i, j, pv.get(0));
 
-                @Override
-                public List<Integer> dataSizes()
+                for (int k = 1; k < pv.size(); ++k)
                 {
-                    return ImmutableList.of(Integer.valueOf(1));
+                    Pixel p = pv.get(k);
+                    p.setInBounds(false);
                 }
+            }
 
-                @Override
-                protected void getElement(int i, int j, int k, Pixel p)
-                {
-                    layer.get(i, j, slicePixel);
-                    p.assignFrom(slicePixel.get(index));
-                }
+            @Override
+            public boolean isGetAccepts(Class<?> pixelType)
+            {
+                return layer.isGetAccepts(pixelType);
+            }
 
-                @Override
-                protected void getVector(int i, int j, PixelVector pv)
+            @Override
+            public void getRange(Pixel pMin, Pixel pMax)
+            {
+                if (lock != null)
                 {
-                    layer.get(i, j, slicePixel);
-
-                    pv.get(0).assignFrom(slicePixel.get(index));
-
-                    for (int k = 1; k < pv.size(); ++k)
+                    synchronized (lock)
                     {
-                        Pixel p = pv.get(k);
-                        p.setInBounds(false);
+                        getSliceRange(pMin, pMax);
                     }
                 }
-
-                @Override
-                public boolean isGetAccepts(Class<?> pixelType)
+                else
                 {
-                    return layer.isGetAccepts(pixelType);
+                    getSliceRange(pMin, pMax);
                 }
+            }
 
-                @Override
-                public void getRange(Pixel pMin, Pixel pMax)
-                {
-                    layer.getRange(minPixel, maxPixel);
+            @Override
+            public KeyValueCollection getKeyValueCollection()
+            {
+                return layer.getKeyValueCollection();
+            }
 
-                    pMin.assignFrom(minPixel.get(index));
-                    pMax.assignFrom(minPixel.get(index));
+            private void getBand(int i, int j, Pixel p)
+            {
+                // The slice pixel is not used if the layer is BandSelective.
+                if (lock != null && !(layer instanceof BandSelective))
+                {
+                    synchronized (lock)
+                    {
+                        BandSelective.getBand(layer, i, j, index, p, slicePixel.get());
+                    }
                 }
-
-                @Override
-                public KeyValueCollection getKeyValueCollection()
+                else
                 {
-                    return layer.getKeyValueCollection();
+                    BandSelective.getBand(layer, i, j, index, p, slicePixel.get());
                 }
+            }
 
-            };
+            private void getSliceRange(Pixel pMin, Pixel pMax)
+            {
+                PixelVector pvMin = minPixel.get();
+                PixelVector pvMax = maxPixel.get();
+                layer.getRange(pvMin, pvMax);
+
+                pMin.assignFrom(pvMin.get(index));
+                pMax.assignFrom(pvMax.get(index));
+            }
 
         };
     }
 
+    /**
+     * Return a function that selects the specified bands of a scalar or
+     * vector layer, in the specified order, to form a new vector layer. Band N
+     * of the new layer is band bands[N] of the input layer.
+     * <p>
+     * The new layer is {@link BandSelective}. If the input layer is also
+     * {@link BandSelective}, only the selected bands are ever read from it, so
+     * the cost of getting a pixel depends on the number of bands selected, not
+     * on the number of bands in the input layer.
+     *
+     * @param bands the indices of the bands to select
+     * @return the function
+     * @throws IllegalArgumentException if no bands are specified, or any band
+     *             index is negative
+     */
+    public LayerTransform selectBands(int... bands)
+    {
+        Preconditions.checkNotNull(bands);
+        Preconditions.checkArgument(bands.length > 0, "No bands to select");
+        for (int band : bands)
+        {
+            Preconditions.checkArgument(band >= 0, "Band index %s is negative", band);
+        }
+
+        int[] finalBands = bands.clone();
+
+        return LayerTransform.of(Kind.SelectBands, layer -> {
+            Preconditions.checkNotNull(layer);
+
+            return new BandSubsetLayer(layer, finalBands);
+        }, ImmutableList.copyOf(Ints.asList(finalBands)));
+    }
+
     /**
      * Return a function that masks pixels off the edges of a layer.
      * <p>
@@ -644,14 +775,14 @@ public class LayerTransformFactory
      * @return the function
      * @throws IllegalArgumentException if any argument is negative
      */
-    public Function<Layer, Layer> mask(int iLowerOffset, int iUpperOffset, int jLowerOffset, int jUpperOffset)
+    public LayerTransform mask(int iLowerOffset, int iUpperOffset, int jLowerOffset, int jUpperOffset)
     {
         Preconditions.checkArgument(iLowerOffset >= 0);
         Preconditions.checkArgument(iUpperOffset >= 0);
         Preconditions.checkArgument(jLowerOffset >= 0);
         Preconditions.checkArgument(jUpperOffset >= 0);
 
-        return layer -> {
+        return LayerTransform.of(Kind.Mask, layer -> {
             Preconditions.checkNotNull(layer);
 
             return new ForwardingLayer(layer) {
@@ -699,7 +830,7 @@ public class LayerTransformFactory
                 }
 
             };
-        };
+        }, iLowerOffset, iUpperOffset, jLowerOffset, jUpperOffset);
     }
 
     /**
@@ -713,9 +844,9 @@ public class LayerTransformFactory
      * @param jNewSize the size of the output layer in the J dimension
      * @return the function
      */
-    public Function<Layer, Layer> resampleNearestNeighbor(int iNewSize, int jNewSize)
+    public LayerTransform resampleNearestNeighbor(int iNewSize, int jNewSize)
     {
-        return layer -> {
+        return LayerTransform.of(Kind.ResampleNearestNeighbor, layer -> {
             Preconditions.checkNotNull(layer);
 
             int iOrigSize = layer.iSize();
@@ -753,7 +884,7 @@ public class LayerTransformFactory
                 }
 
             };
-        };
+        }, iNewSize, jNewSize);
     }
 
     /**
@@ -878,8 +1009,17 @@ public class LayerTransformFactory
      * Implementation of {@link Layer} that forwards all its methods to another
      * instance of {@link Layer}. Use this as the base class to override only
      * some behaviors defined in another implementation.
+     * <p>
+     * A forwarding layer is {@link Versioned}, and by default has the same
+     * version as its target, so that information derived from the forwarding
+     * layer may be cached until the target changes.
+     * <p>
+     * {@link #getBlock(int, int, edu.jhuapl.sbmt.layer.api.PixelBlock)} is
+     * deliberately NOT forwarded: it uses the default implementation, which
+     * calls this layer's {@link #get(int, int, Pixel)}, so subclasses that
+     * override only {@link #get(int, int, Pixel)} remain correct.
      */
-    public static class ForwardingLayer implements Layer
+    public static class ForwardingLayer implements Layer, Versioned
     {
 
         private final Layer target;
@@ -944,6 +1084,12 @@ public class LayerTransformFactory
             target.getRange(pMin, pMax);
         }
 
+        @Override
+        public long getVersion()
+        {
+            return Versioned.versionOf(target);
+        }
+
         @Override
         public KeyValueCollection getKeyValueCollection()
         {
@@ -958,4 +1104,100 @@ public class LayerTransformFactory
 
     }
 
+    /**
+     * Vector layer made of selected bands of another layer. See
+     * {@link LayerTransformFactory#selectBands(int...)}.
+     */
+    protected static class BandSubsetLayer extends ForwardingLayer implements BandSelective
+    {
+        private static final LayerRangeFactory RangeFactory = new LayerRangeFactory();
+
+        private final Layer layer;
+        private final int[] bands;
+        private final List<Integer> dataSizes;
+        // Scratch pixel per thread, only for input layers that are vector
+        // layers but not BandSelective.
+        private final ThreadLocal<PixelVector> scratch;
+        private final LazyLayerRange range;
+
+        protected BandSubsetLayer(Layer layer, int[] bands)
+        {
+            super(layer);
+
+            List<Integer> layerDataSizes = layer.dataSizes();
+            Preconditions.checkArgument(layerDataSizes.size() <= 1, "Can only select bands of scalar or vector layers");
+
+            int kSize = layerDataSizes.isEmpty() ? 0 : layerDataSizes.get(0);
+            for (int band : bands)
+            {
+                Preconditions.checkArgument(band < kSize, "Band index %s is out of bounds for a layer with %s band(s)", band, kSize);
+            }
+
+            boolean needsScratch = !(layer instanceof BandSelective) && (kSize > 1 || !layer.isGetAccepts(PixelDouble.class));
+
+            this.layer = layer;
+            this.bands = bands;
+            this.dataSizes = ImmutableList.of(Integer.valueOf(bands.length));
+            this.scratch = needsScratch ? ThreadLocal.withInitial(() -> new PlainPixelVectorDoubleFactory().of(kSize, Double.NaN)) : null;
+            this.range = new LazyLayerRange(this::getVersion, () -> {
+                VectorRangeGetter layerRange = RangeFactory.query(layer);
+
+                return RangeFactory.isComplete(layerRange) ? RangeFactory.select(layerRange, bands) : RangeFactory.scan(this);
+            });
+        }
+
+        @Override
+        public List<Integer> dataSizes()
+        {
+            return dataSizes;
+        }
+
+        @Override
+        public boolean isGetAccepts(Class<?> pixelType)
+        {
+            return pixelType == PixelDouble.class || pixelType == PixelVector.class;
+        }
+
+        @Override
+        public void get(int i, int j, Pixel p)
+        {
+            Preconditions.checkNotNull(p);
+
+            if (p instanceof PixelVector pv)
+            {
+                pv.setInBounds(true);
+                for (int k = 0; k < pv.size(); ++k)
+                {
+                    getBand(i, j, k, pv.get(k));
+                }
+            }
+            else
+            {
+                getBand(i, j, 0, p);
+            }
+        }
+
+        @Override
+        public void getBand(int i, int j, int k, Pixel p)
+        {
+            Preconditions.checkNotNull(p);
+
+            if (k >= 0 && k < bands.length)
+            {
+                BandSelective.getBand(layer, i, j, bands[k], p, scratch != null ? scratch.get() : null);
+            }
+            else
+            {
+                BandSelective.setOutOfBounds(p);
+            }
+        }
+
+        @Override
+        public void getRange(Pixel pMin, Pixel pMax)
+        {
+            RangeFactory.setRange(range.get(), pMin, pMax);
+        }
+
+    }
+
 }
@@ -1,19 +1,31 @@
 package edu.jhuapl.sbmt.layer.impl;
 
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
 
 import edu.jhuapl.sbmt.layer.api.Layer;
 import edu.jhuapl.sbmt.layer.api.Pixel;
+import edu.jhuapl.sbmt.layer.api.PixelBlock;
+import edu.jhuapl.sbmt.layer.api.PixelBlockDouble;
 import edu.jhuapl.sbmt.layer.api.PixelDouble;
 import edu.jhuapl.sbmt.layer.api.PixelVector;
+import edu.jhuapl.sbmt.layer.jfr.LayerAppendEvent;
 
 public class LayerUtility
 {
     protected static final int UndefinedIndex = -1;
 
+    protected static final LayerRangeFactory RangeFactory = new LayerRangeFactory();
+
+    protected static final PixelBlockDoubleFactory BlockFactory = new PixelBlockDoubleFactory();
+
+    protected static final PixelVectorDoubleFactory PixelVectorFactory = new PlainPixelVectorDoubleFactory();
+
     protected LayerUtility()
     {
         super();
@@ -30,6 +42,24 @@ public class LayerUtility
     {
         Preconditions.checkNotNull(layers);
 
+        LayerAppendEvent event = new LayerAppendEvent();
+        event.begin();
+
+        Layer appended = doAppend(layers);
+
+        if (event.shouldCommit())
+        {
+            event.setLayerCount(Iterables.size(layers));
+            event.setSizes(appended);
+            event.commit();
+        }
+
+        return appended;
+    }
+
+    protected Layer doAppend(Iterable<? extends Layer> layers)
+    {
+
         int iSize = UndefinedIndex;
         int jSize = UndefinedIndex;
         int tmpKsize = 0;
@@ -125,11 +155,50 @@ public class LayerUtility
 
         ImmutableList<Integer> dataSizes = ImmutableList.of(kSize);
 
+        // Compute once the band offset and band count of each sublayer in the
+        // output layer, and whether each accepts vector pixels, so that get
+        // need not ask the sublayers for this information for every pixel.
+        int numberLayers = layerList.size();
+        Layer[] sublayers = layerList.toArray(new Layer[numberLayers]);
+        int[] bandOffsets = new int[numberLayers];
+        int[] bandCounts = new int[numberLayers];
+        boolean[] acceptsVector = new boolean[numberLayers];
+        // Whether getting a band of a sublayer requires getting the whole
+        // vector into a scratch pixel.
+        boolean[] needsScratch = new boolean[numberLayers];
+        for (int index = 0, offset = 0; index < numberLayers; ++index)
+        {
+            Layer layer = sublayers[index];
+            bandOffsets[index] = offset;
+            bandCounts[index] = layer.dataSizes().get(0);
+            acceptsVector[index] = layer.isGetAccepts(PixelVector.class);
+            needsScratch[index] = !(layer instanceof BandSelective) && (bandCounts[index] > 1 || !layer.isGetAccepts(PixelDouble.class));
+            offset += bandCounts[index];
+        }
+
         // The 0th layer will be used as the starting point for building the
         // resultant (appended) layer.
         Layer layer0 = layerList.get(0);
 
-        return new LayerTransformFactory.ForwardingLayer(layer0) {
+        class AppendedLayer extends LayerTransformFactory.ForwardingLayer implements BandSelective
+        {
+
+            // The range of each band is that of the corresponding band of the
+            // sublayer it came from.
+            private final LazyLayerRange range = new LazyLayerRange(this::getVersion, () -> {
+                return RangeFactory.concatenate(layerList.stream().map(RangeFactory::queryOrScan).toList());
+            });
+
+            // Reusable views of part of the caller's pixel, and scratch blocks,
+            // one of each per thread.
+            private final ThreadLocal<SubPixelVector> subPixels = ThreadLocal.withInitial(SubPixelVector::new);
+            private final ThreadLocal<BasicPixelBlockDouble[]> scratchBlocks = ThreadLocal.withInitial(() -> new BasicPixelBlockDouble[1]);
+            private final ThreadLocal<PixelVector[]> scratchPixels = ThreadLocal.withInitial(() -> new PixelVector[numberLayers]);
+
+            private AppendedLayer()
+            {
+                super(layer0);
+            }
 
             @Override
             public List<Integer> dataSizes()
@@ -170,37 +239,33 @@ public class LayerUtility
                 }
                 else if (p instanceof PixelVector pv)
                 {
-                    int layerK = 0;
                     int pixelKsize = pv.size();
-                    for (Layer layer : layerList)
+                    SubPixelVector subVector = null;
+                    for (int index = 0; index < sublayers.length; ++index)
                     {
+                        int layerK = bandOffsets[index];
                         if (layerK >= pixelKsize)
                         {
                             // Pixel is full, nothing more to do here.
                             break;
                         }
-                        // All layers in this list are guaranteed to contain
-                        // scalars or vectors, so this is safe.
-                        int layerKsize = layer.dataSizes().get(0);
+
+                        Layer layer = sublayers[index];
+                        int layerKsize = bandCounts[index];
 
                         if (layerKsize == 1)
                         {
                             // Scalar case, pull out the relevant pixel from the
                             // vector.
                             layer.get(i, j, pv.get(layerK));
-                            ++layerK;
                         }
-                        else if (layer.isGetAccepts(PixelVector.class))
+                        else if (acceptsVector[index])
                         {
-                            PixelVector subVector = createSubPixel(pv, layerK, layerKsize);
                             if (subVector == null)
                             {
-                                // Means the whole pixel has been filled, so
-                                // we're done.
-                                break;
+                                subVector = subPixels.get();
                             }
-                            layer.get(i, j, subVector);
-                            layerK += subVector.size();
+                            layer.get(i, j, subVector.reset(pv, layerK, Math.min(layerKsize, pixelKsize - layerK)));
                         }
                         else
                         {
@@ -208,28 +273,248 @@ public class LayerUtility
                         }
                     }
 
+                    if (subVector != null)
+                    {
+                        // Do not hold on to the caller's pixel.
+                        subVector.reset(null, 0, 0);
+                    }
+
+                    // Elements past the end of this layer are out of bounds.
+                    for (int k = kSize; k < pixelKsize; ++k)
+                    {
+                        Pixel pk = pv.get(k);
+                        if (pk instanceof PixelDouble pd)
+                        {
+                            pd.set(pd.getOutOfBoundsValue());
+                        }
+                        pk.setInBounds(false);
+                    }
                 }
             }
 
-        };
-    }
+            /**
+             * Get the band from the one sublayer that holds it.
+             */
+            @Override
+            public void getBand(int i, int j, int k, Pixel p)
+            {
+                Preconditions.checkNotNull(p);
 
-    protected PixelVector createSubPixel(PixelVector pv, int startIndex, int subPixelSize)
-    {
-        return new ForwardingPixelVector(pv) {
+                if (k < 0 || k >= kSize)
+                {
+                    BandSelective.setOutOfBounds(p);
+                    return;
+                }
+
+                int index = Arrays.binarySearch(bandOffsets, k);
+                if (index < 0)
+                {
+                    // Insertion point is one past the sublayer that holds k.
+                    index = -index - 2;
+                }
+
+                PixelVector scratch = null;
+                if (needsScratch[index])
+                {
+                    PixelVector[] holder = scratchPixels.get();
+                    scratch = holder[index];
+                    if (scratch == null)
+                    {
+                        scratch = PixelVectorFactory.of(bandCounts[index], Double.NaN);
+                        holder[index] = scratch;
+                    }
+                }
+
+                BandSelective.getBand(sublayers[index], i, j, k - bandOffsets[index], p, scratch);
+            }
+
+            /**
+             * Fill the bands of a {@link PixelBlockDouble} that come from each
+             * sublayer with one call to that sublayer's getBlock method,
+             * copying whole bands into the destination block.
+             */
+            @Override
+            public void getBlock(int iMin, int jMin, PixelBlock block)
+            {
+                if (!(block instanceof PixelBlockDouble bd))
+                {
+                    super.getBlock(iMin, jMin, block);
+                    return;
+                }
+
+                int blockKSize = bd.kSize();
+                int bandSize = bd.iSize() * bd.jSize();
+                double[] values = bd.values();
+                BitSet invalid = bd.invalid();
+                BitSet outOfBounds = bd.outOfBounds();
+
+                invalid.clear();
+                outOfBounds.clear();
+
+                int kEnd = 0;
+                for (int index = 0; index < sublayers.length && bandOffsets[index] < blockKSize; ++index)
+                {
+                    int count = Math.min(bandCounts[index], blockKSize - bandOffsets[index]);
+                    PixelBlockDouble subBlock = scratchBlock(bd, count);
+
+                    sublayers[index].getBlock(iMin, jMin, subBlock);
+
+                    int destination = bandOffsets[index] * bandSize;
+                    int length = count * bandSize;
+                    System.arraycopy(subBlock.values(), 0, values, destination, length);
+                    copyBits(subBlock.invalid(), invalid, destination, length);
+                    copyBits(subBlock.outOfBounds(), outOfBounds, destination, length);
+
+                    kEnd = bandOffsets[index] + count;
+                }
+
+                // Bands past the end of this layer are out of bounds.
+                Arrays.fill(values, kEnd * bandSize, blockKSize * bandSize, bd.getOutOfBoundsValue());
+                outOfBounds.set(kEnd * bandSize, blockKSize * bandSize);
+            }
+
+            private PixelBlockDouble scratchBlock(PixelBlockDouble bd, int kSize)
+            {
+                BasicPixelBlockDouble[] holder = scratchBlocks.get();
+                BasicPixelBlockDouble scratch = holder[0];
+                if (scratch == null || scratch.iSize() != bd.iSize() || scratch.jSize() != bd.jSize() || scratch.kSize() != kSize || //
+                        Double.compare(scratch.getOutOfBoundsValue(), bd.getOutOfBoundsValue()) != 0)
+                {
+                    scratch = BlockFactory.of(bd.iSize(), bd.jSize(), kSize, bd.getOutOfBoundsValue());
+                    holder[0] = scratch;
+                }
+
+                return scratch;
+            }
 
             @Override
-            public int size()
+            public void getRange(Pixel pMin, Pixel pMax)
             {
-                return subPixelSize;
+                RangeFactory.setRange(range.get(), pMin, pMax);
             }
 
             @Override
-            public Pixel get(int index)
+            public long getVersion()
+            {
+                long version = 0L;
+                for (Layer layer : sublayers)
+                {
+                    version += Versioned.versionOf(layer);
+                }
+
+                return version;
+            }
+
+        }
+
+        return new AppendedLayer();
+    }
+
+    /**
+     * Set the bits in the destination set at the specified offset that
+     * correspond to the set bits in the half-open range [0, length) of the
+     * source set.
+     */
+    protected static void copyBits(BitSet source, BitSet destination, int offset, int length)
+    {
+        for (int n = source.nextSetBit(0); n >= 0 && n < length; n = source.nextSetBit(n + 1))
+        {
+            destination.set(offset + n);
+        }
+    }
+
+    protected PixelVector createSubPixel(PixelVector pv, int startIndex, int subPixelSize)
+    {
+        return new SubPixelVector().reset(pv, startIndex, subPixelSize);
+    }
+
+    /**
+     * View of a contiguous run of elements of another {@link PixelVector},
+     * which may be pointed at a different vector and run to avoid creating a
+     * new view for every pixel. The vector-level flags are those of the
+     * target vector.
+     */
+    protected static class SubPixelVector implements PixelVector
+    {
+        private PixelVector target;
+        private int startIndex;
+        private int size;
+
+        protected SubPixelVector()
+        {
+            super();
+        }
+
+        /**
+         * Point this view at the specified run of elements of the target.
+         *
+         * @param target the vector, or null to release the current target
+         * @param startIndex index in the target of the view's element 0
+         * @param size the number of elements in the view
+         * @return this view
+         */
+        protected SubPixelVector reset(PixelVector target, int startIndex, int size)
+        {
+            this.target = target;
+            this.startIndex = startIndex;
+            this.size = size;
+
+            return this;
+        }
+
+        @Override
+        public boolean isValid()
+        {
+            return target.isValid();
+        }
+
+        @Override
+        public void setIsValid(boolean valid)
+        {
+            target.setIsValid(valid);
+        }
+
+        @Override
+        public boolean isInBounds()
+        {
+            return target.isInBounds();
+        }
+
+        @Override
+        public void setInBounds(boolean inBounds)
+        {
+            target.setInBounds(inBounds);
+        }
+
+        @Override
+        public void assignFrom(Pixel source)
+        {
+            target.assignFrom(source);
+        }
+
+        @Override
+        public int size()
+        {
+            return size;
+        }
+
+        @Override
+        public Pixel get(int index)
+        {
+            if (index < 0 || index >= size)
             {
-                return pv.get(index + startIndex);
+                throw new IndexOutOfBoundsException();
             }
-        };
+
+            return target.get(index + startIndex);
+        }
+
+        @Override
+        public String toString()
+        {
+            return target.toString();
+        }
+
     }
 
     protected static class ForwardingPixelVector implements PixelVector
@@ -0,0 +1,103 @@
+package edu.jhuapl.sbmt.layer.impl;
+
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+import com.google.common.base.Preconditions;
+
+import edu.jhuapl.sbmt.layer.api.Layer;
+
+/**
+ * Holder of a {@link RangeGetter} for a derived {@link Layer} that is computed
+ * the first time it is requested, then cached until the version of the source
+ * data changes. The computation is performed at most once per version, even if
+ * several threads request the range at the same time.
+ *
+ * @author James Peachey
+ *
+ */
+public class LazyLayerRange
+{
+    private final LongSupplier version;
+    private final Supplier<? extends RangeGetter> computer;
+    private volatile Entry entry;
+
+    /**
+     * Create a lazy range.
+     *
+     * @param version supplier of the current version of the data from which the
+     *            range is computed (see {@link Versioned})
+     * @param computer supplier that computes the range
+     */
+    public LazyLayerRange(LongSupplier version, Supplier<? extends RangeGetter> computer)
+    {
+        super();
+
+        this.version = Preconditions.checkNotNull(version);
+        this.computer = Preconditions.checkNotNull(computer);
+        this.entry = null;
+    }
+
+    /**
+     * Return the range, computing it if it has not yet been computed for the
+     * current version of the source data.
+     *
+     * @return the range
+     */
+    public RangeGetter get()
+    {
+        long currentVersion = version.getAsLong();
+
+        Entry e = entry;
+        if (e == null || e.version != currentVersion)
+        {
+            synchronized (this)
+            {
+                e = entry;
+                if (e == null || e.version != currentVersion)
+                {
+                    e = new Entry(currentVersion, computer.get());
+                    entry = e;
+                }
+            }
+        }
+
+        return e.range;
+    }
+
+    /**
+     * Return whether the range has already been computed for the current
+     * version of the source data, that is, whether {@link #get()} would return
+     * without computing it.
+     *
+     * @return true if the range is available
+     */
+    public boolean isAvailable()
+    {
+        Entry e = entry;
+
+        return e != null && e.version == version.getAsLong();
+    }
+
+    /**
+     * Discard the cached range so that it will be recomputed on the next
+     * request, even if the version has not changed.
+     */
+    public void invalidate()
+    {
+        entry = null;
+    }
+
+    private static final class Entry
+    {
+        private final long version;
+        private final RangeGetter range;
+
+        private Entry(long version, RangeGetter range)
+        {
+            this.version = version;
+            this.range = Preconditions.checkNotNull(range);
+        }
+    }
+
+}
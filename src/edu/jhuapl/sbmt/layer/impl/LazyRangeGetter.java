@@ -0,0 +1,127 @@
+package edu.jhuapl.sbmt.layer.impl;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import com.google.common.base.Preconditions;
+
+import edu.jhuapl.sbmt.layer.impl.DoubleBuilderBase.DoubleRangeGetter;
+
+/**
+ * {@link DoubleRangeGetter} whose minimum and maximum are computed the first
+ * time either is requested, rather than when the getter is created. The
+ * computation is held by a {@link LazyLayerRange}, so it is performed only
+ * once, even if several threads request the range at the same time, and it
+ * may be shared by the getters of all the bands of a vector range.
+ * <p>
+ * The computation may also be started in the background using
+ * {@link #precompute(LazyLayerRange, Executor)}. A request for the range
+ * while a background computation is running waits for it to finish. If the
+ * background computation fails, the next request computes the range again
+ * and reports the failure to its caller.
+ *
+ * @author James Peachey
+ *
+ */
+public class LazyRangeGetter implements DoubleRangeGetter
+{
+    /**
+     * Submit the computation of the range to the executor. This does nothing if
+     * the executor is null or rejects the task, in which case the range will be
+     * computed when it is first requested.
+     *
+     * @param range the lazy range
+     * @param executor the executor, may be null
+     */
+    public static void precompute(LazyLayerRange range, Executor executor)
+    {
+        Preconditions.checkNotNull(range);
+
+        if (executor != null)
+        {
+            try
+            {
+                executor.execute(() -> {
+                    try
+                    {
+                        range.get();
+                    }
+                    catch (RuntimeException e)
+                    {
+                        // Leave the range uncomputed; the next request will
+                        // compute it and report the failure.
+                    }
+                });
+            }
+            catch (RejectedExecutionException e)
+            {
+                // Compute on demand instead.
+            }
+        }
+    }
+
+    private final LazyLayerRange range;
+    private final int index;
+
+    /**
+     * Create a getter of the range of one band. The computed range may be
+     * either a {@link DoubleRangeGetter}, in which case the index must be 0,
+     * or a {@link VectorRangeGetter} whose element with the specified index is
+     * a {@link DoubleRangeGetter}.
+     *
+     * @param range the lazy range
+     * @param index the index of the band
+     */
+    public LazyRangeGetter(LazyLayerRange range, int index)
+    {
+        super();
+
+        Preconditions.checkNotNull(range);
+        Preconditions.checkArgument(index >= 0);
+
+        this.range = range;
+        this.index = index;
+    }
+
+    @Override
+    public double getMin()
+    {
+        return band().getMin();
+    }
+
+    @Override
+    public double getMax()
+    {
+        return band().getMax();
+    }
+
+    /**
+     * @return true if the range has been computed, so getting it will not block
+     */
+    public boolean isAvailable()
+    {
+        return range.isAvailable();
+    }
+
+    protected DoubleRangeGetter band()
+    {
+        RangeGetter rangeGetter = range.get();
+        if (rangeGetter instanceof VectorRangeGetter vrg)
+        {
+            rangeGetter = vrg.get(index);
+        }
+        else
+        {
+            Preconditions.checkState(index == 0, "Scalar range has no band %s", index);
+        }
+
+        return (DoubleRangeGetter) rangeGetter;
+    }
+
+    @Override
+    public String toString()
+    {
+        return range.isAvailable() ? band().toString() : "range (not yet computed)";
+    }
+
+}
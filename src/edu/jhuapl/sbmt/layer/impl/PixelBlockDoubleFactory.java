@@ -0,0 +1,38 @@
+package edu.jhuapl.sbmt.layer.impl;
+
+import edu.jhuapl.sbmt.layer.api.PixelBlockDouble;
+
+/**
+ * Factory for creating {@link PixelBlockDouble} instances. The base
+ * implementation creates instances of {@link BasicPixelBlockDouble}.
+ *
+ * @author James Peachey
+ *
+ */
+public class PixelBlockDoubleFactory
+{
+
+    public PixelBlockDoubleFactory()
+    {
+        super();
+    }
+
+    /**
+     * Create a block of the specified size, with all elements out of bounds.
+     *
+     * @param iSize the number of values of the I index
+     * @param jSize the number of values of the J index
+     * @param kSize the number of values of the K (band) index, 1 for a block
+     *            of scalar data
+     * @param outOfBoundsValue value stored in elements that are out of bounds
+     * @return the block
+     * @throws IllegalArgumentException if iSize or jSize is negative, kSize is
+     *             not positive, or the block would be too large to hold in one
+     *             array
+     */
+    public BasicPixelBlockDouble of(int iSize, int jSize, int kSize, double outOfBoundsValue)
+    {
+        return new BasicPixelBlockDouble(iSize, jSize, kSize, outOfBoundsValue);
+    }
+
+}
@@ -0,0 +1,74 @@
+package edu.jhuapl.sbmt.layer.impl;
+
+import edu.jhuapl.sbmt.layer.api.Pixel;
+
+/**
+ * Implementation of the {@link Pixel} interface that stores its flags in plain
+ * (non-volatile) fields. This is otherwise identical to {@link BasicPixel}.
+ * <p>
+ * Pixels are usually scratch objects confined to one thread, which sets and
+ * reads them many times per layer scan. Plain fields avoid the memory fence
+ * that each write to a volatile field implies, so pixels in this family are
+ * faster in hot loops. They must not be shared between threads without
+ * external synchronization.
+ *
+ * @author James Peachey
+ *
+ */
+public abstract class PlainPixel implements Pixel
+{
+
+    private boolean isValid;
+    private boolean inBounds;
+
+    protected PlainPixel(boolean isValid, boolean inBounds)
+    {
+        super();
+
+        this.isValid = isValid;
+        this.inBounds = inBounds;
+    }
+
+    @Override
+    public boolean isValid()
+    {
+        return isValid && isInBounds();
+    }
+
+    @Override
+    public void setIsValid(boolean isValid)
+    {
+        this.isValid = isValid;
+    }
+
+    @Override
+    public boolean isInBounds()
+    {
+        return inBounds;
+    }
+
+    @Override
+    public void setInBounds(boolean inBounds)
+    {
+        this.inBounds = inBounds;
+    }
+
+    /**
+     * @return the value of the valid flag of this pixel alone, independent of
+     *         any overrides of {@link #isValid()}
+     */
+    protected final boolean getValidFlag()
+    {
+        return isValid;
+    }
+
+    /**
+     * @return the value of the in-bounds flag of this pixel alone,
+     *         independent of any overrides of {@link #isInBounds()}
+     */
+    protected final boolean getInBoundsFlag()
+    {
+        return inBounds;
+    }
+
+}
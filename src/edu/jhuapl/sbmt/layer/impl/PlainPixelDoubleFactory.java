@@ -0,0 +1,73 @@
+package edu.jhuapl.sbmt.layer.impl;
+
+import edu.jhuapl.sbmt.layer.api.PixelDouble;
+
+/**
+ * Factory for creating {@link PixelDouble} instances intended for use by a
+ * single thread, such as the scratch pixels used in loops over a layer. This
+ * implementation does this by extending {@link PlainPixelDouble}, whose fields
+ * are not volatile.
+ * <p>
+ * This is a drop-in replacement for {@link PixelDoubleFactory} wherever the
+ * pixels it creates are confined to one thread.
+ *
+ * @author James Peachey
+ *
+ */
+public class PlainPixelDoubleFactory extends PixelDoubleFactory
+{
+
+    public PlainPixelDoubleFactory()
+    {
+        super();
+    }
+
+    @Override
+    public PixelDouble of(double value, double outOfBoundsValue)
+    {
+        return new PlainPixelDouble(value, true, true) {
+
+            @Override
+            public double getOutOfBoundsValue()
+            {
+                return outOfBoundsValue;
+            }
+
+        };
+    }
+
+    @Override
+    public PixelDouble of(double value, double outOfBoundsValue, Double invalidValue)
+    {
+        if (invalidValue == null)
+        {
+            return of(value, outOfBoundsValue);
+        }
+
+        return new PlainPixelDouble(value, true, true) {
+
+            @Override
+            public double get()
+            {
+                if (!isInBounds())
+                {
+                    return outOfBoundsValue;
+                }
+                else if (!isValid())
+                {
+                    return invalidValue.doubleValue();
+                }
+
+                return getStoredValue();
+            }
+
+            @Override
+            public double getOutOfBoundsValue()
+            {
+                return outOfBoundsValue;
+            }
+
+        };
+    }
+
+}
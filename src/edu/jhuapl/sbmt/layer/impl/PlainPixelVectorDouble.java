@@ -0,0 +1,223 @@
+package edu.jhuapl.sbmt.layer.impl;
+
+import com.google.common.base.Preconditions;
+
+import edu.jhuapl.sbmt.layer.api.Pixel;
+import edu.jhuapl.sbmt.layer.api.PixelDouble;
+import edu.jhuapl.sbmt.layer.api.PixelVector;
+
+/**
+ * Implementation of {@link PixelVector} that inherits its general {@link Pixel}
+ * functionality from {@link PlainPixel}, and whose elements are
+ * {@link PlainPixelDouble}s. Behaves the same as
+ * {@link BasicPixelVectorDouble}, but is intended only for single-threaded
+ * use.
+ * <p>
+ * In addition, the validity and bounds of each element are determined in
+ * constant time, rather than in time proportional to the size of the vector.
+ *
+ * @author James Peachey
+ *
+ */
+public abstract class PlainPixelVectorDouble extends PlainPixel implements PixelVector
+{
+
+    private final ScalarPixel[] pixels;
+
+    protected PlainPixelVectorDouble(int size, double initialValue, boolean isValid, boolean inBounds)
+    {
+        super(isValid, inBounds);
+
+        Preconditions.checkArgument(size >= 0);
+
+        this.pixels = new ScalarPixel[size];
+        for (int index = 0; index < size; ++index)
+        {
+            pixels[index] = createPixelDouble(initialValue);
+        }
+    }
+
+    protected ScalarPixel createPixelDouble(double initialValue)
+    {
+        return new ScalarPixel(initialValue, true, true);
+    }
+
+    @Override
+    public boolean isValid()
+    {
+        if (!super.isValid())
+        {
+            return false;
+        }
+
+        for (ScalarPixel pixel : pixels)
+        {
+            if (pixel.isThisPixelValid())
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    @Override
+    public boolean isInBounds()
+    {
+        if (!super.isInBounds())
+        {
+            return false;
+        }
+
+        for (ScalarPixel pixel : pixels)
+        {
+            if (pixel.isThisPixelInBounds())
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Return the value that elements of this pixel return if they are out of
+     * bounds.
+     *
+     * @return the out-of-bounds value
+     */
+    protected abstract double getOutOfBoundsValue();
+
+    @Override
+    public int size()
+    {
+        return pixels.length;
+    }
+
+    @Override
+    public PixelDouble get(int index)
+    {
+        if (index < 0 || index >= pixels.length)
+        {
+            throw new IndexOutOfBoundsException();
+        }
+
+        return pixels[index];
+    }
+
+    @Override
+    public void assignFrom(Pixel source)
+    {
+        Preconditions.checkNotNull(source);
+
+        if (source instanceof PixelVector pv)
+        {
+            for (int k = 0; k < size(); ++k)
+            {
+                get(k).assignFrom(pv.get(k));
+            }
+        }
+        else if (source instanceof PixelDouble pd)
+        {
+            get(0).assignFrom(pd);
+            for (int k = 1; k < size(); ++k)
+            {
+                PixelDouble sp = get(k);
+                sp.set(sp.getOutOfBoundsValue());
+                sp.setIsValid(isValid());
+                sp.setInBounds(false);
+            }
+        }
+        else
+        {
+            throw new IllegalArgumentException("Cannot assign to a vector double pixel from pixel of type " + source.getClass());
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder builder = new StringBuilder();
+
+        if (!isInBounds())
+        {
+            builder.append("O (");
+        }
+        else if (!isValid())
+        {
+            builder.append("I (");
+        }
+        else
+        {
+            builder.append("  (");
+        }
+
+        String delim = "";
+        for (int k = 0; k < size(); ++k)
+        {
+            builder.append(delim);
+            builder.append(get(k));
+
+            delim = ", ";
+        }
+        builder.append(")");
+
+        return builder.toString();
+    }
+
+    protected class ScalarPixel extends PlainPixelDouble
+    {
+
+        protected ScalarPixel(double initialValue, boolean isValid, boolean inBounds)
+        {
+            super(initialValue, isValid, inBounds);
+        }
+
+        /**
+         * Equivalent to the element validity of {@link BasicPixelVectorDouble}
+         * (the vector and this element are both valid and in-bounds). This
+         * element being valid and in-bounds already implies the vector has
+         * at least one such element, so only the vector's own flags need be
+         * checked, rather than all its elements.
+         */
+        @Override
+        public boolean isValid()
+        {
+            return isThisPixelValid() && getVectorValidFlag();
+        }
+
+        protected boolean isThisPixelValid()
+        {
+            return getValidFlag() && isInBounds();
+        }
+
+        @Override
+        public boolean isInBounds()
+        {
+            return isThisPixelInBounds() && getVectorInBoundsFlag();
+        }
+
+        protected boolean isThisPixelInBounds()
+        {
+            return getInBoundsFlag();
+        }
+
+        @Override
+        public double getOutOfBoundsValue()
+        {
+            return PlainPixelVectorDouble.this.getOutOfBoundsValue();
+        }
+
+    }
+
+    private boolean getVectorValidFlag()
+    {
+        return getValidFlag();
+    }
+
+    private boolean getVectorInBoundsFlag()
+    {
+        return getInBoundsFlag();
+    }
+
+}
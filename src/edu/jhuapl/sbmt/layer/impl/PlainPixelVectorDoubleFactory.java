@@ -0,0 +1,84 @@
+package edu.jhuapl.sbmt.layer.impl;
+
+import com.google.common.base.Preconditions;
+
+import edu.jhuapl.sbmt.layer.api.PixelVector;
+
+/**
+ * Factory for creating {@link PixelVector} instances intended for use by a
+ * single thread, such as the scratch pixels used in loops over a layer. This
+ * implementation does this by extending {@link PlainPixelVectorDouble}, whose
+ * fields are not volatile.
+ * <p>
+ * This is a drop-in replacement for {@link PixelVectorDoubleFactory} wherever
+ * the pixels it creates are confined to one thread.
+ *
+ * @author James Peachey
+ *
+ */
+public class PlainPixelVectorDoubleFactory extends PixelVectorDoubleFactory
+{
+
+    public PlainPixelVectorDoubleFactory()
+    {
+        super();
+    }
+
+    @Override
+    public PixelVector of(int size, double outOfBoundsValue)
+    {
+        return new PlainPixelVectorDouble(size, Double.NaN, true, true) {
+
+            @Override
+            protected double getOutOfBoundsValue()
+            {
+                return outOfBoundsValue;
+            }
+        };
+    }
+
+    @Override
+    public PixelVector of(int size, double outOfBoundsValue, Double invalidValue)
+    {
+        Preconditions.checkArgument(size >= 0);
+
+        if (invalidValue == null)
+        {
+            return of(size, outOfBoundsValue);
+        }
+
+        return new PlainPixelVectorDouble(size, Double.NaN, true, true) {
+
+            @Override
+            protected ScalarPixel createPixelDouble(double initialValue)
+            {
+                return new ScalarPixel(initialValue, true, true) {
+
+                    @Override
+                    public double get()
+                    {
+                        if (!isInBounds())
+                        {
+                            return outOfBoundsValue;
+                        }
+                        else if (!isValid())
+                        {
+                            return invalidValue.doubleValue();
+                        }
+
+                        return getStoredValue();
+                    }
+
+                };
+            }
+
+            @Override
+            protected double getOutOfBoundsValue()
+            {
+                return outOfBoundsValue;
+            }
+
+        };
+    }
+
+}
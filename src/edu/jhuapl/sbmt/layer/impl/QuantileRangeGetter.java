@@ -0,0 +1,74 @@
+package edu.jhuapl.sbmt.layer.impl;
+
+import com.google.common.base.Preconditions;
+
+import edu.jhuapl.sbmt.layer.impl.DoubleBuilderBase.DoubleRangeGetter;
+
+/**
+ * {@link DoubleRangeGetter} whose minimum and maximum are estimated quantiles
+ * of the values in a {@link QuantileSketch}, for example the 1st and 99th
+ * percentiles, to give a range that is clipped to exclude outliers. The
+ * quantiles are computed once, when the range getter is created.
+ *
+ * @author James Peachey
+ *
+ */
+public class QuantileRangeGetter implements DoubleRangeGetter
+{
+    private final double lowerFraction;
+    private final double upperFraction;
+    private final double min;
+    private final double max;
+
+    /**
+     * Create a range getter from the specified sketch.
+     *
+     * @param sketch the sketch
+     * @param lowerFraction the quantile used for the minimum, in the range
+     *            [0, 1]
+     * @param upperFraction the quantile used for the maximum, in the range
+     *            [lowerFraction, 1]
+     */
+    public QuantileRangeGetter(QuantileSketch sketch, double lowerFraction, double upperFraction)
+    {
+        super();
+
+        Preconditions.checkNotNull(sketch);
+        Preconditions.checkArgument(lowerFraction >= 0.0 && lowerFraction <= upperFraction && upperFraction <= 1.0, //
+                "Quantiles must satisfy 0 <= lower <= upper <= 1");
+
+        this.lowerFraction = lowerFraction;
+        this.upperFraction = upperFraction;
+        this.min = sketch.getQuantile(lowerFraction);
+        this.max = sketch.getQuantile(upperFraction);
+    }
+
+    @Override
+    public double getMin()
+    {
+        return min;
+    }
+
+    @Override
+    public double getMax()
+    {
+        return max;
+    }
+
+    public double getLowerFraction()
+    {
+        return lowerFraction;
+    }
+
+    public double getUpperFraction()
+    {
+        return upperFraction;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "[" + min + ", " + max + "] (quantiles " + lowerFraction + " to " + upperFraction + ")";
+    }
+
+}
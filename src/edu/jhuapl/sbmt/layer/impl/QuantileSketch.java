@@ -0,0 +1,384 @@
+package edu.jhuapl.sbmt.layer.impl;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Mergeable sketch that estimates quantiles of a stream of double values in a
+ * small, bounded amount of memory, based on the KLL algorithm (Karnin, Lang
+ * and Liberty, "Optimal Quantile Approximation in Streams", 2016).
+ * <p>
+ * Values are held in a stack of compactors. Each value at level h stands for
+ * 2<sup>h</sup> of the original values. When the sketch is full, the lowest
+ * compactor that is at capacity is sorted, and every other one of its values
+ * (starting at a random offset) is promoted to the next level, while the rest
+ * are discarded. The capacity of each level shrinks geometrically with its
+ * distance below the top level, so the total memory is O(k), and the rank
+ * error of a quantile estimate is roughly proportional to 1 / k.
+ * <p>
+ * Sketches of parts of a data set may be filled independently (for example,
+ * in parallel) and then combined using {@link #merge(QuantileSketch)}.
+ * Non-finite values are ignored. Instances are not thread-safe.
+ *
+ * @author James Peachey
+ *
+ */
+public class QuantileSketch
+{
+    /**
+     * Default accuracy parameter, which gives a normalized rank error of
+     * about 1%.
+     */
+    public static final int DefaultK = 200;
+
+    /**
+     * Ratio of the capacity of each level to the capacity of the level above.
+     */
+    protected static final double CapacityRatio = 2.0 / 3.0;
+
+    /**
+     * Smallest capacity of any level.
+     */
+    protected static final int MinCapacity = 8;
+
+    private final int k;
+    private final SplittableRandom random;
+    private double[][] levels;
+    private int[] sizes;
+    private int numberLevels;
+    private long count;
+    private double min;
+    private double max;
+
+    /**
+     * Create an empty sketch with the {@link #DefaultK} accuracy parameter.
+     */
+    public QuantileSketch()
+    {
+        this(DefaultK, 0L);
+    }
+
+    /**
+     * Create an empty sketch.
+     *
+     * @param k the accuracy parameter; larger values give more accurate
+     *            estimates at the cost of more memory
+     * @param seed seed for the random choices made during compaction, which
+     *            makes results reproducible
+     */
+    public QuantileSketch(int k, long seed)
+    {
+        super();
+
+        Preconditions.checkArgument(k >= MinCapacity, "Sketch parameter k must be at least " + MinCapacity);
+
+        this.k = k;
+        this.random = new SplittableRandom(seed);
+        this.levels = new double[1][k];
+        this.sizes = new int[1];
+        this.numberLevels = 1;
+        this.count = 0;
+        this.min = Double.NaN;
+        this.max = Double.NaN;
+    }
+
+    /**
+     * @return the accuracy parameter of this sketch
+     */
+    public int getK()
+    {
+        return k;
+    }
+
+    /**
+     * @return the number of (finite) values added to this sketch, including
+     *         those added to sketches merged into this one
+     */
+    public long getCount()
+    {
+        return count;
+    }
+
+    /**
+     * @return true if no values have been added to this sketch
+     */
+    public boolean isEmpty()
+    {
+        return count == 0;
+    }
+
+    /**
+     * @return the exact minimum value added, or {@link Double#NaN} if the
+     *         sketch is empty
+     */
+    public double getMin()
+    {
+        return min;
+    }
+
+    /**
+     * @return the exact maximum value added, or {@link Double#NaN} if the
+     *         sketch is empty
+     */
+    public double getMax()
+    {
+        return max;
+    }
+
+    /**
+     * Add a value to the sketch. Non-finite values are ignored.
+     *
+     * @param value the value
+     */
+    public void add(double value)
+    {
+        if (!Double.isFinite(value))
+        {
+            return;
+        }
+
+        if (count == 0)
+        {
+            min = value;
+            max = value;
+        }
+        else if (value < min)
+        {
+            min = value;
+        }
+        else if (value > max)
+        {
+            max = value;
+        }
+        ++count;
+
+        append(0, value);
+
+        if (sizes[0] >= capacity(0))
+        {
+            compress();
+        }
+    }
+
+    /**
+     * Merge another sketch into this one. The other sketch is not modified.
+     * Merging a sketch into itself doubles the weight of every value.
+     *
+     * @param other the sketch to merge
+     */
+    public void merge(QuantileSketch other)
+    {
+        Preconditions.checkNotNull(other);
+
+        if (other.isEmpty())
+        {
+            return;
+        }
+
+        if (count == 0)
+        {
+            min = other.min;
+            max = other.max;
+        }
+        else
+        {
+            min = Math.min(min, other.min);
+            max = Math.max(max, other.max);
+        }
+        count += other.count;
+
+        // Copy the other sketch's levels first: if other is this sketch,
+        // appending would otherwise grow the levels being read.
+        int otherNumberLevels = other.numberLevels;
+        double[][] otherLevels = new double[otherNumberLevels][];
+        for (int level = 0; level < otherNumberLevels; ++level)
+        {
+            otherLevels[level] = Arrays.copyOf(other.levels[level], other.sizes[level]);
+        }
+
+        for (int level = 0; level < otherNumberLevels; ++level)
+        {
+            for (double value : otherLevels[level])
+            {
+                append(level, value);
+            }
+        }
+
+        compress();
+    }
+
+    /**
+     * Estimate the value at the specified quantile. Fraction 0.0 returns the
+     * exact minimum, and 1.0 the exact maximum.
+     *
+     * @param fraction the quantile, in the range [0.0, 1.0]
+     * @return the estimated value, or {@link Double#NaN} if the sketch is
+     *         empty
+     */
+    public double getQuantile(double fraction)
+    {
+        Preconditions.checkArgument(fraction >= 0.0 && fraction <= 1.0, "Quantile must be in the range [0, 1]");
+
+        if (count == 0)
+        {
+            return Double.NaN;
+        }
+        if (fraction == 0.0)
+        {
+            return min;
+        }
+        if (fraction == 1.0)
+        {
+            return max;
+        }
+
+        int retained = getRetainedCount();
+        double[] values = new double[retained];
+        long[] weights = new long[retained];
+
+        // Gather the retained values with their weights, then sort both
+        // arrays by value.
+        int n = 0;
+        long totalWeight = 0;
+        for (int level = 0; level < numberLevels; ++level)
+        {
+            long weight = 1L << level;
+            for (int index = 0; index < sizes[level]; ++index)
+            {
+                values[n] = levels[level][index];
+                weights[n] = weight;
+                totalWeight += weight;
+                ++n;
+            }
+        }
+
+        Integer[] order = new Integer[retained];
+        for (int index = 0; index < retained; ++index)
+        {
+            order[index] = index;
+        }
+        Arrays.sort(order, (i0, i1) -> Double.compare(values[i0], values[i1]));
+
+        double targetWeight = fraction * totalWeight;
+        long cumulativeWeight = 0;
+        for (int index : order)
+        {
+            cumulativeWeight += weights[index];
+            if (cumulativeWeight >= targetWeight)
+            {
+                return values[index];
+            }
+        }
+
+        return max;
+    }
+
+    /**
+     * @return the number of values currently retained by the sketch
+     */
+    public int getRetainedCount()
+    {
+        int retained = 0;
+        for (int level = 0; level < numberLevels; ++level)
+        {
+            retained += sizes[level];
+        }
+
+        return retained;
+    }
+
+    /**
+     * Return the capacity of the specified level, which depends on how far
+     * below the top level it is.
+     */
+    protected int capacity(int level)
+    {
+        int depth = numberLevels - level - 1;
+
+        return Math.max(MinCapacity, (int) Math.ceil(k * Math.pow(CapacityRatio, depth)));
+    }
+
+    private void append(int level, double value)
+    {
+        while (level >= numberLevels)
+        {
+            addLevel();
+        }
+
+        double[] items = levels[level];
+        if (sizes[level] == items.length)
+        {
+            levels[level] = items = Arrays.copyOf(items, 2 * items.length);
+        }
+        items[sizes[level]++] = value;
+    }
+
+    private void addLevel()
+    {
+        if (numberLevels == levels.length)
+        {
+            levels = Arrays.copyOf(levels, 2 * numberLevels);
+            sizes = Arrays.copyOf(sizes, 2 * numberLevels);
+        }
+        levels[numberLevels] = new double[MinCapacity];
+        sizes[numberLevels] = 0;
+        ++numberLevels;
+    }
+
+    /**
+     * Compact levels, starting at the bottom, until every level is within its
+     * capacity.
+     */
+    private void compress()
+    {
+        for (int level = 0; level < numberLevels; ++level)
+        {
+            if (sizes[level] >= capacity(level))
+            {
+                compact(level);
+            }
+        }
+    }
+
+    private void compact(int level)
+    {
+        double[] items = levels[level];
+        int size = sizes[level];
+
+        Arrays.sort(items, 0, size);
+
+        // If there is an odd number of items, leave the largest one behind.
+        int pairs = size / 2;
+        int offset = random.nextBoolean() ? 1 : 0;
+
+        if (level + 1 >= numberLevels)
+        {
+            addLevel();
+            items = levels[level];
+        }
+
+        for (int pair = 0; pair < pairs; ++pair)
+        {
+            append(level + 1, items[2 * pair + offset]);
+        }
+
+        if (size % 2 == 1)
+        {
+            items[0] = items[size - 1];
+            sizes[level] = 1;
+        }
+        else
+        {
+            sizes[level] = 0;
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return "QuantileSketch(k = " + k + ", count = " + count + ", retained = " + getRetainedCount() + ")";
+    }
+
+}
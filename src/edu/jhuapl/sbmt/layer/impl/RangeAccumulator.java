@@ -0,0 +1,336 @@
+package edu.jhuapl.sbmt.layer.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import com.google.common.base.Preconditions;
+
+import edu.jhuapl.sbmt.layer.api.PixelBlockDouble;
+import edu.jhuapl.sbmt.layer.impl.DoubleBuilderBase.DoubleRangeGetter;
+
+/**
+ * Incrementally updatable range of the K bands of a layer's values, for data
+ * that arrive in strips, such as from a streaming read or a pushbroom
+ * instrument. Each call to one of the add methods scans only the strip it is
+ * given, and {@link #getRange(int)} or {@link #getRanges()} return a snapshot
+ * of the range of all the values added so far at any time, without scanning
+ * any values again.
+ * <p>
+ * Strips may be added in any order, and accumulators that were filled
+ * separately, e.g., by different threads, may be combined using
+ * {@link #merge(RangeAccumulator)}. The result is the same as building each
+ * band's range from all the values with a {@link RangeGetterDoubleBuilder}:
+ * the range includes only values that the checker (if any) accepts, and
+ * prefers finite values to non-finite ones. A band that has only non-finite
+ * values has the range of the last such value in the order in which that
+ * builder scans values (I slowest, then J), so the accumulator needs to know
+ * the number of J indices.
+ * <p>
+ * This class is thread-safe. Each add method scans its strip without holding
+ * the lock, then merges the strip's range, so several threads may add strips
+ * to the same accumulator concurrently.
+ *
+ * @author James Peachey
+ *
+ */
+public class RangeAccumulator
+{
+    private final int jSize;
+    private final int kSize;
+    private final double[] min;
+    private final double[] max;
+    private final double[] nonFinite;
+    private final long[] nonFinitePosition;
+
+    /**
+     * Create an accumulator to which no values have been added.
+     *
+     * @param jSize the number of J indices of the layer
+     * @param kSize the number of bands of the layer
+     */
+    public RangeAccumulator(int jSize, int kSize)
+    {
+        super();
+
+        Preconditions.checkArgument(jSize >= 0 && kSize >= 0);
+
+        this.jSize = jSize;
+        this.kSize = kSize;
+        this.min = new double[kSize];
+        this.max = new double[kSize];
+        this.nonFinite = new double[kSize];
+        this.nonFinitePosition = new long[kSize];
+
+        Arrays.fill(min, Double.NaN);
+        Arrays.fill(max, Double.NaN);
+        Arrays.fill(nonFinite, Double.NaN);
+        Arrays.fill(nonFinitePosition, -1L);
+    }
+
+    public int jSize()
+    {
+        return jSize;
+    }
+
+    /**
+     * @return the number of bands
+     */
+    public int size()
+    {
+        return kSize;
+    }
+
+    /**
+     * Add the values of a scalar strip of the layer, i.e., those with indices
+     * {@code iMin <= i < iMax, jMin <= j < jMax}. The accumulator must have
+     * one band.
+     *
+     * @param doubleGetter the getter of values
+     * @param checker the validity checker, or null if all values are valid
+     * @param iMin the first I index of the strip
+     * @param iMax one past the last I index of the strip
+     * @param jMin the first J index of the strip
+     * @param jMax one past the last J index of the strip
+     */
+    public void add(DoubleGetter2d doubleGetter, ValidityChecker2d checker, int iMin, int iMax, int jMin, int jMax)
+    {
+        Preconditions.checkNotNull(doubleGetter);
+        Preconditions.checkState(kSize == 1, "Cannot add scalar values to a range of %s bands", kSize);
+        checkStrip(iMin, iMax, jMin, jMax);
+
+        RangeAccumulator strip = new RangeAccumulator(jSize, kSize);
+        for (int i = iMin; i < iMax; ++i)
+        {
+            for (int j = jMin; j < jMax; ++j)
+            {
+                double value = doubleGetter.get(i, j);
+                if (checker == null || checker.isValid(i, j, value))
+                {
+                    strip.update(0, value, position(i, j));
+                }
+            }
+        }
+
+        merge(strip);
+    }
+
+    /**
+     * Add the values of all the bands of a strip of the layer, i.e., those
+     * with indices {@code iMin <= i < iMax, jMin <= j < jMax}.
+     *
+     * @param doubleGetter the getter of values
+     * @param checker the validity checker, or null if all values are valid
+     * @param iMin the first I index of the strip
+     * @param iMax one past the last I index of the strip
+     * @param jMin the first J index of the strip
+     * @param jMax one past the last J index of the strip
+     */
+    public void add(DoubleGetter3d doubleGetter, ValidityChecker3d checker, int iMin, int iMax, int jMin, int jMax)
+    {
+        Preconditions.checkNotNull(doubleGetter);
+        checkStrip(iMin, iMax, jMin, jMax);
+
+        RangeAccumulator strip = new RangeAccumulator(jSize, kSize);
+        for (int j = jMin; j < jMax; ++j)
+        {
+            for (int i = iMin; i < iMax; ++i)
+            {
+                long position = position(i, j);
+                for (int k = 0; k < kSize; ++k)
+                {
+                    double value = doubleGetter.get(i, j, k);
+                    if (checker == null || checker.isValid(i, j, k, value))
+                    {
+                        strip.update(k, value, position);
+                    }
+                }
+            }
+        }
+
+        merge(strip);
+    }
+
+    /**
+     * Add the values of a block of pixels, such as one filled by
+     * {@link edu.jhuapl.sbmt.layer.api.Layer#getBlock(int, int, edu.jhuapl.sbmt.layer.api.PixelBlock)}.
+     * Elements that are invalid or out of bounds are skipped. The block must
+     * have one element per band.
+     *
+     * @param block the block
+     * @param iMin the I index in the layer of the block's first pixel
+     * @param jMin the J index in the layer of the block's first pixel
+     */
+    public void add(PixelBlockDouble block, int iMin, int jMin)
+    {
+        Preconditions.checkNotNull(block);
+        Preconditions.checkArgument(block.kSize() == kSize, "Block has %s elements per pixel, not %s", block.kSize(), kSize);
+        Preconditions.checkArgument(iMin >= 0 && jMin >= 0);
+
+        double[] values = block.values();
+        BitSet invalid = block.invalid();
+        BitSet outOfBounds = block.outOfBounds();
+
+        RangeAccumulator strip = new RangeAccumulator(jSize, kSize);
+        for (int k = 0; k < kSize; ++k)
+        {
+            for (int j = 0; j < block.jSize(); ++j)
+            {
+                for (int i = 0; i < block.iSize(); ++i)
+                {
+                    int index = block.index(i, j, k);
+                    if (!invalid.get(index) && !outOfBounds.get(index))
+                    {
+                        strip.update(k, values[index], position(iMin + i, jMin + j));
+                    }
+                }
+            }
+        }
+
+        merge(strip);
+    }
+
+    /**
+     * Add all the values that have been added to another accumulator of the
+     * same size. The other accumulator is not changed.
+     *
+     * @param other the other accumulator
+     */
+    public void merge(RangeAccumulator other)
+    {
+        Preconditions.checkNotNull(other);
+        Preconditions.checkArgument(other.jSize == jSize && other.kSize == kSize, //
+                "Cannot merge ranges of %s x %s with %s x %s", other.jSize, other.kSize, jSize, kSize);
+
+        if (other == this)
+        {
+            return;
+        }
+
+        // Copy the other's state first so that the two locks are never held
+        // at once.
+        RangeAccumulator copy = other.copy();
+
+        synchronized (this)
+        {
+            for (int k = 0; k < kSize; ++k)
+            {
+                if (Double.isFinite(copy.min[k]))
+                {
+                    update(k, copy.min[k], -1L);
+                    update(k, copy.max[k], -1L);
+                }
+                if (copy.nonFinitePosition[k] >= 0)
+                {
+                    update(k, copy.nonFinite[k], copy.nonFinitePosition[k]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Return a snapshot of the range of the values of one band added so far.
+     * If no values have been added, the minimum and maximum are NaN.
+     *
+     * @param k the band
+     * @return the range
+     */
+    public DoubleRangeGetter getRange(int k)
+    {
+        Preconditions.checkElementIndex(k, kSize);
+
+        return new RangeGetterDoubleBuilder().create(toRange(k));
+    }
+
+    /**
+     * Return a snapshot of the ranges of all the bands added so far.
+     *
+     * @return the ranges
+     */
+    public VectorRangeGetter getRanges()
+    {
+        RangeGetterDoubleBuilder b = new RangeGetterDoubleBuilder();
+
+        List<DoubleRangeGetter> ranges = new ArrayList<>(kSize);
+        synchronized (this)
+        {
+            for (int k = 0; k < kSize; ++k)
+            {
+                ranges.add(b.create(toRange(k)));
+            }
+        }
+
+        return new RangeGetterVectorDoubleFactory().of(ranges);
+    }
+
+    /**
+     * @return the range of band K, or null if it has no values, in the form
+     *         used by {@link DoubleBuilderBase}
+     */
+    protected synchronized double[] toRange(int k)
+    {
+        if (Double.isFinite(min[k]))
+        {
+            return new double[] { min[k], max[k] };
+        }
+        else if (nonFinitePosition[k] >= 0)
+        {
+            return new double[] { nonFinite[k], nonFinite[k] };
+        }
+
+        return null;
+    }
+
+    protected synchronized RangeAccumulator copy()
+    {
+        RangeAccumulator copy = new RangeAccumulator(jSize, kSize);
+        System.arraycopy(min, 0, copy.min, 0, kSize);
+        System.arraycopy(max, 0, copy.max, 0, kSize);
+        System.arraycopy(nonFinite, 0, copy.nonFinite, 0, kSize);
+        System.arraycopy(nonFinitePosition, 0, copy.nonFinitePosition, 0, kSize);
+
+        return copy;
+    }
+
+    /**
+     * Update the range of band K with a value. Callers must either hold the
+     * lock or own an accumulator that no other thread can see.
+     *
+     * @param k the band
+     * @param value the value
+     * @param position the position of the value in scan order, used only if
+     *            the value is not finite
+     */
+    private void update(int k, double value, long position)
+    {
+        if (Double.isFinite(value))
+        {
+            if (!(min[k] <= value))
+            {
+                min[k] = value;
+            }
+            if (!(max[k] >= value))
+            {
+                max[k] = value;
+            }
+        }
+        else if (position > nonFinitePosition[k])
+        {
+            nonFinite[k] = value;
+            nonFinitePosition[k] = position;
+        }
+    }
+
+    private long position(int i, int j)
+    {
+        return (long) i * jSize + j;
+    }
+
+    private void checkStrip(int iMin, int iMax, int jMin, int jMax)
+    {
+        Preconditions.checkArgument(0 <= iMin && iMin <= iMax, "Invalid I range [%s, %s)", iMin, iMax);
+        Preconditions.checkArgument(0 <= jMin && jMin <= jMax && jMax <= jSize, "Invalid J range [%s, %s)", jMin, jMax);
+    }
+
+}
@@ -1,7 +1,10 @@
 package edu.jhuapl.sbmt.layer.impl;
 
+import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicReference;
 
+import edu.jhuapl.sbmt.layer.jfr.RangeComputationEvent;
+
 public class RangeGetterDoubleBuilder extends DoubleBuilderBase
 {
 
@@ -66,7 +69,17 @@ public class RangeGetterDoubleBuilder extends DoubleBuilderBase
         {
             ValidityChecker2d checker = validityChecker2d();
 
+            RangeComputationEvent event = new RangeComputationEvent();
+            event.begin();
+
             range = getRange(getter, checker);
+
+            if (event.shouldCommit())
+            {
+                event.setOperation("RangeGetterDoubleBuilder.build");
+                event.setSizes(iSize(), jSize(), 1);
+                event.commit();
+            }
         }
 
         range = updateMin(range, min());
@@ -75,6 +88,37 @@ public class RangeGetterDoubleBuilder extends DoubleBuilderBase
         return create(range);
     }
 
+    /**
+     * Return a range getter that calls {@link #build()} the first time its
+     * minimum or maximum is requested, so creating it costs nothing however
+     * large the data are. Set all of this builder's properties before
+     * calling this method.
+     *
+     * @return the range getter
+     */
+    public DoubleRangeGetter buildLazy()
+    {
+        return buildLazy(null);
+    }
+
+    /**
+     * Return a range getter that calls {@link #build()} the first time its
+     * minimum or maximum is requested, and also start computing the range in
+     * the background using the specified executor. Set all of this builder's
+     * properties before calling this method.
+     *
+     * @param executor the executor for the background computation, or null to
+     *            compute the range only on demand
+     * @return the range getter
+     */
+    public DoubleRangeGetter buildLazy(Executor executor)
+    {
+        LazyLayerRange range = new LazyLayerRange(() -> 0L, this::build);
+        LazyRangeGetter.precompute(range, executor);
+
+        return new LazyRangeGetter(range, 0);
+    }
+
     protected double[] getRange(DoubleGetter2d doubleGetter, ValidityChecker2d checker)
     {
         double[] range = null;
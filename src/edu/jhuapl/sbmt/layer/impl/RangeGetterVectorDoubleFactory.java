@@ -2,14 +2,22 @@ package edu.jhuapl.sbmt.layer.impl;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.stream.IntStream;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 
 import edu.jhuapl.sbmt.layer.impl.DoubleBuilderBase.DoubleRangeGetter;
+import edu.jhuapl.sbmt.layer.jfr.RangeComputationEvent;
 
 public class RangeGetterVectorDoubleFactory
 {
+    /**
+     * Number of I and J indices on each side of the tiles scanned in parallel
+     * by {@link #of(DoubleGetter3d, ValidityChecker3d, DoubleRangeGetter, int, int, int)}.
+     */
+    protected static final int TileSize = 128;
 
     public RangeGetterVectorDoubleFactory()
     {
@@ -92,30 +100,103 @@ public class RangeGetterVectorDoubleFactory
         };
     }
 
+    /**
+     * Compute the range of each band of the values returned by the getter, in
+     * one pass over all the values. Tiles of (I, J) indices are scanned in
+     * parallel, each updating the ranges of all K bands for each pixel, and
+     * the ranges of the tiles are then merged in a {@link RangeAccumulator},
+     * so the getter and the checker must be safe to call from multiple
+     * threads.
+     * <p>
+     * The result is the same as building each band's range with a
+     * {@link RangeGetterDoubleBuilder}: the range of each band includes only
+     * values that the checker (if any) accepts, prefers finite values to
+     * non-finite ones, and is widened to include the finite limits of the
+     * overall range (if any).
+     *
+     * @param doubleGetter the getter of values
+     * @param checker the validity checker, or null if all values are valid
+     * @param overallRange range to include in every band's range, or null
+     * @param iSize the number of I indices
+     * @param jSize the number of J indices
+     * @param kSize the number of bands
+     * @return the ranges of the bands
+     */
     public VectorRangeGetter of(DoubleGetter3d doubleGetter, ValidityChecker3d checker, DoubleRangeGetter overallRange, int iSize, int jSize, int kSize)
     {
+        Preconditions.checkNotNull(doubleGetter);
+        Preconditions.checkArgument(iSize >= 0 && jSize >= 0 && kSize >= 0);
+
+        RangeComputationEvent event = new RangeComputationEvent();
+        event.begin();
+
+        RangeAccumulator accumulator = new RangeAccumulator(jSize, kSize);
+        if (iSize > 0 && jSize > 0 && kSize > 0)
+        {
+            int iTiles = (iSize + TileSize - 1) / TileSize;
+            int jTiles = (jSize + TileSize - 1) / TileSize;
+
+            IntStream.range(0, iTiles * jTiles).parallel().forEach(tile -> {
+                int iMin = (tile % iTiles) * TileSize;
+                int jMin = (tile / iTiles) * TileSize;
+
+                accumulator.add(doubleGetter, checker, iMin, Math.min(iSize, iMin + TileSize), jMin, Math.min(jSize, jMin + TileSize));
+            });
+        }
+
+        RangeGetterDoubleBuilder b = new RangeGetterDoubleBuilder();
+        Double overallMin = overallRange != null ? Double.valueOf(overallRange.getMin()) : null;
+        Double overallMax = overallRange != null ? Double.valueOf(overallRange.getMax()) : null;
+
         List<DoubleRangeGetter> ranges = new ArrayList<>(kSize);
         for (int k = 0; k < kSize; ++k)
         {
-            DoubleGetter2d sGetter = kSlice(doubleGetter, k);
-            ValidityChecker2d sChecker = slice(checker, k);
+            double[] range = accumulator.toRange(k);
+            range = b.updateMin(range, overallMin);
+            range = b.updateMax(range, overallMax);
 
-            RangeGetterDoubleBuilder b = new RangeGetterDoubleBuilder();
+            ranges.add(b.create(range));
+        }
 
-            if (overallRange != null)
-            {
-                b.min(overallRange.getMin());
-                b.max(overallRange.getMax());
-            }
+        if (event.shouldCommit())
+        {
+            event.setOperation("RangeGetterVectorDoubleFactory.of");
+            event.setSizes(iSize, jSize, kSize);
+            event.commit();
+        }
 
-            b.getter(sGetter, iSize, jSize);
+        return of(ranges);
+    }
 
-            if (sChecker != null)
-            {
-                b.checker(sChecker);
-            }
+    /**
+     * Return a range getter whose bands' ranges are computed, all together, the
+     * first time the minimum or maximum of any band is requested, so creating
+     * it costs nothing however large the data are. The computation is the same
+     * as that of
+     * {@link #of(DoubleGetter3d, ValidityChecker3d, DoubleRangeGetter, int, int, int)}.
+     *
+     * @param doubleGetter the getter of values
+     * @param checker the validity checker, or null if all values are valid
+     * @param overallRange range to include in every band's range, or null
+     * @param iSize the number of I indices
+     * @param jSize the number of J indices
+     * @param kSize the number of bands
+     * @param executor executor used to start computing the ranges in the
+     *            background, or null to compute them only on demand
+     * @return the ranges of the bands
+     */
+    public VectorRangeGetter lazy(DoubleGetter3d doubleGetter, ValidityChecker3d checker, DoubleRangeGetter overallRange, int iSize, int jSize, int kSize, Executor executor)
+    {
+        Preconditions.checkNotNull(doubleGetter);
+        Preconditions.checkArgument(iSize >= 0 && jSize >= 0 && kSize >= 0);
+
+        LazyLayerRange range = new LazyLayerRange(() -> 0L, () -> of(doubleGetter, checker, overallRange, iSize, jSize, kSize));
+        LazyRangeGetter.precompute(range, executor);
 
-            ranges.add(b.build());
+        List<DoubleRangeGetter> ranges = new ArrayList<>(kSize);
+        for (int k = 0; k < kSize; ++k)
+        {
+            ranges.add(new LazyRangeGetter(range, k));
         }
 
         return of(ranges);
@@ -144,4 +225,5 @@ public class RangeGetterVectorDoubleFactory
             throw new IndexOutOfBoundsException();
         }
     }
+
 }
@@ -3,12 +3,26 @@ package edu.jhuapl.sbmt.layer.impl;
 import java.util.List;
 
 import edu.jhuapl.sbmt.layer.api.Layer;
-
-public abstract class ResampledLayer extends BasicLayer
+import edu.jhuapl.sbmt.layer.api.Pixel;
+
+/**
+ * Base class for layers whose pixels are resampled from an input layer. The
+ * range of a resampled layer is computed by scanning it in parallel the first
+ * time {@link #getRange(Pixel, Pixel)} is called, and is cached until the
+ * version of the input layer changes (see {@link Versioned}). Implementations
+ * must therefore ensure that their pixel-getting methods are thread-safe.
+ */
+public abstract class ResampledLayer extends BasicLayer implements Versioned
 {
+    protected static final LayerRangeFactory RangeFactory = new LayerRangeFactory();
+
+    private final LazyLayerRange range;
+
     protected ResampledLayer(int iSize, int jSize)
     {
         super(iSize, jSize);
+
+        this.range = new LazyLayerRange(this::getVersion, () -> RangeFactory.scan(this));
     }
 
     protected abstract Layer getInputLayer();
@@ -25,6 +39,18 @@ public abstract class ResampledLayer extends BasicLayer
         return getInputLayer().isGetAccepts(pixelType);
     }
 
+    @Override
+    public void getRange(Pixel pMin, Pixel pMax)
+    {
+        RangeFactory.setRange(range.get(), pMin, pMax);
+    }
+
+    @Override
+    public long getVersion()
+    {
+        return Versioned.versionOf(getInputLayer());
+    }
+
     @Override
     public String toString()
     {
@@ -0,0 +1,311 @@
+package edu.jhuapl.sbmt.layer.impl;
+
+import com.google.common.base.Preconditions;
+
+import edu.jhuapl.sbmt.layer.api.Layer;
+import edu.jhuapl.sbmt.layer.impl.DoubleBuilderBase.DoubleRangeGetter;
+
+/**
+ * Factory for procedural {@link Layer}s of arbitrary size, for use in
+ * benchmarks and stress tests. Unlike the layers created by
+ * {@link FakePipeline}, these layers compute each value on the fly from its
+ * indices, so they use no storage, and may be as large as int indices allow,
+ * e.g., 100,000 x 100,000 x K.
+ * <p>
+ * Each layer follows a {@link Pattern}, with band K offset by K so the bands
+ * are distinguishable. A configurable fraction of elements is marked invalid,
+ * and a separate fraction has the value {@link Double#NaN}. Both are chosen by
+ * hashing the element's indices with a seed, so the same arguments always
+ * produce the same layer, and the defects are scattered uniformly. NaN values
+ * are not marked invalid unless they are also chosen to be invalid, so
+ * consumers see both kinds of defect.
+ * <p>
+ * The layers report their ranges from the pattern without scanning (see
+ * {@link #getMax(Pattern, int, int, int)}), so the range of even the largest
+ * layer is available immediately. These ranges ignore invalid and NaN
+ * elements, so they may be slightly wider than the range of the valid
+ * elements.
+ *
+ * @author James Peachey
+ *
+ */
+public class SyntheticLayerFactory
+{
+    /**
+     * Patterns of values. The values shown are for band K == 0.
+     */
+    public enum Pattern
+    {
+        /**
+         * i / iSize + j / jSize, which is in [0.0, 2.0).
+         */
+        Gradient,
+        /**
+         * Uniform pseudo-random values in [0.0, 1.0).
+         */
+        Noise,
+        /**
+         * Alternating squares of 0.0 and 1.0, each
+         * {@link SyntheticLayerFactory#CheckerboardCellSize} pixels on a
+         * side.
+         */
+        Checkerboard,
+    }
+
+    public static final int CheckerboardCellSize = 16;
+
+    public static final long DefaultSeed = 1L;
+
+    /**
+     * Salts that decorrelate the hashes used for values, invalid elements and
+     * NaN elements.
+     */
+    private static final long ValueSalt = 0x6A09E667F3BCC908L;
+    private static final long InvalidSalt = 0xBB67AE8584CAA73BL;
+    private static final long NaNSalt = 0x3C6EF372FE94F82BL;
+
+    public SyntheticLayerFactory()
+    {
+        super();
+    }
+
+    /**
+     * Return a scalar layer with the specified pattern, with no invalid or NaN
+     * elements.
+     *
+     * @param pattern the pattern
+     * @param iSize the number of in-bounds values of the I index
+     * @param jSize the number of in-bounds values of the J index
+     * @return the layer
+     */
+    public Layer scalar(Pattern pattern, int iSize, int jSize)
+    {
+        return scalar(pattern, iSize, jSize, 0.0, 0.0, DefaultSeed);
+    }
+
+    /**
+     * Return a scalar layer with the specified pattern and defects.
+     *
+     * @param pattern the pattern
+     * @param iSize the number of in-bounds values of the I index
+     * @param jSize the number of in-bounds values of the J index
+     * @param invalidFraction the fraction of pixels to mark invalid
+     * @param nanFraction the fraction of pixels whose value is NaN
+     * @param seed the seed for the noise pattern and the defects
+     * @return the layer
+     * @throws IllegalArgumentException if either size is negative, or either
+     *             fraction is not in the range [0.0, 1.0]
+     */
+    public Layer scalar(Pattern pattern, int iSize, int jSize, double invalidFraction, double nanFraction, long seed)
+    {
+        checkArguments(pattern, iSize, jSize, 1, invalidFraction, nanFraction);
+
+        DoubleGetter2d getter = (i, j) -> value(pattern, iSize, jSize, i, j, 0, nanFraction, seed);
+
+        LayerDoubleBuilder builder = new LayerDoubleBuilder().doubleGetter(getter, iSize, jSize);
+        builder.rangeGetter(rangeGetter(pattern, iSize, jSize, 0));
+
+        if (invalidFraction > 0.0)
+        {
+            builder.checker((ValidityChecker2d) (i, j, value) -> !isSelected(InvalidSalt, seed, i, j, 0, invalidFraction));
+        }
+
+        return builder.build();
+    }
+
+    /**
+     * Return a vector layer with the specified pattern, with no invalid or NaN
+     * elements.
+     *
+     * @param pattern the pattern
+     * @param iSize the number of in-bounds values of the I index
+     * @param jSize the number of in-bounds values of the J index
+     * @param kSize the number of elements in each pixel
+     * @return the layer
+     */
+    public Layer vector(Pattern pattern, int iSize, int jSize, int kSize)
+    {
+        return vector(pattern, iSize, jSize, kSize, 0.0, 0.0, DefaultSeed);
+    }
+
+    /**
+     * Return a vector layer with the specified pattern and defects.
+     *
+     * @param pattern the pattern
+     * @param iSize the number of in-bounds values of the I index
+     * @param jSize the number of in-bounds values of the J index
+     * @param kSize the number of elements in each pixel
+     * @param invalidFraction the fraction of elements to mark invalid
+     * @param nanFraction the fraction of elements whose value is NaN
+     * @param seed the seed for the noise pattern and the defects
+     * @return the layer
+     * @throws IllegalArgumentException if any size is negative, or either
+     *             fraction is not in the range [0.0, 1.0]
+     */
+    public Layer vector(Pattern pattern, int iSize, int jSize, int kSize, double invalidFraction, double nanFraction, long seed)
+    {
+        checkArguments(pattern, iSize, jSize, kSize, invalidFraction, nanFraction);
+
+        DoubleGetter3d getter = (i, j, k) -> value(pattern, iSize, jSize, i, j, k, nanFraction, seed);
+
+        LayerDoubleBuilder builder = new LayerDoubleBuilder().doubleGetter(getter, iSize, jSize, kSize);
+
+        DoubleRangeGetter[] ranges = new DoubleRangeGetter[kSize];
+        for (int k = 0; k < kSize; ++k)
+        {
+            ranges[k] = rangeGetter(pattern, iSize, jSize, k);
+        }
+        builder.rangeGetter(new VectorRangeGetter() {
+
+            @Override
+            public int size()
+            {
+                return ranges.length;
+            }
+
+            @Override
+            public RangeGetter get(int index)
+            {
+                return ranges[index];
+            }
+
+            @Override
+            public String toString()
+            {
+                return ranges.length > 0 ? ranges[0] + "..." : "[]";
+            }
+
+        });
+
+        if (invalidFraction > 0.0)
+        {
+            builder.checker((ValidityChecker3d) (i, j, k, value) -> !isSelected(InvalidSalt, seed, i, j, k, invalidFraction));
+        }
+
+        return builder.build();
+    }
+
+    /**
+     * Return the smallest value the pattern can have in band K.
+     *
+     * @param pattern the pattern
+     * @param k the K index
+     * @return the minimum
+     */
+    public double getMin(Pattern pattern, int k)
+    {
+        Preconditions.checkNotNull(pattern);
+
+        return k;
+    }
+
+    /**
+     * Return the largest value the pattern can have in band K of a layer with
+     * the specified dimensions.
+     *
+     * @param pattern the pattern
+     * @param iSize the number of in-bounds values of the I index
+     * @param jSize the number of in-bounds values of the J index
+     * @param k the K index
+     * @return the maximum
+     */
+    public double getMax(Pattern pattern, int iSize, int jSize, int k)
+    {
+        Preconditions.checkNotNull(pattern);
+
+        return switch (pattern)
+        {
+            case Gradient -> k + (iSize > 0 ? (double) (iSize - 1) / iSize : 0.0) + (jSize > 0 ? (double) (jSize - 1) / jSize : 0.0);
+            case Noise -> k + 1.0;
+            case Checkerboard -> k + (iSize > CheckerboardCellSize || jSize > CheckerboardCellSize ? 1.0 : 0.0);
+        };
+    }
+
+    protected double value(Pattern pattern, int iSize, int jSize, int i, int j, int k, double nanFraction, long seed)
+    {
+        if (nanFraction > 0.0 && isSelected(NaNSalt, seed, i, j, k, nanFraction))
+        {
+            return Double.NaN;
+        }
+
+        return k + switch (pattern)
+        {
+            case Gradient -> (double) i / iSize + (double) j / jSize;
+            case Noise -> toUnit(hash(ValueSalt, seed, i, j, k));
+            case Checkerboard -> (i / CheckerboardCellSize + j / CheckerboardCellSize) & 1;
+        };
+    }
+
+    protected DoubleRangeGetter rangeGetter(Pattern pattern, int iSize, int jSize, int k)
+    {
+        double min = getMin(pattern, k);
+        double max = getMax(pattern, iSize, jSize, k);
+
+        return new DoubleRangeGetter() {
+
+            @Override
+            public double getMin()
+            {
+                return min;
+            }
+
+            @Override
+            public double getMax()
+            {
+                return max;
+            }
+
+            @Override
+            public String toString()
+            {
+                return "range [" + min + ", " + max + "]";
+            }
+
+        };
+    }
+
+    protected static void checkArguments(Pattern pattern, int iSize, int jSize, int kSize, double invalidFraction, double nanFraction)
+    {
+        Preconditions.checkNotNull(pattern);
+        Preconditions.checkArgument(iSize >= 0 && jSize >= 0 && kSize >= 0, "Sizes must be non-negative");
+        Preconditions.checkArgument(invalidFraction >= 0.0 && invalidFraction <= 1.0, "Invalid fraction %s is not in [0, 1]", invalidFraction);
+        Preconditions.checkArgument(nanFraction >= 0.0 && nanFraction <= 1.0, "NaN fraction %s is not in [0, 1]", nanFraction);
+    }
+
+    protected static boolean isSelected(long salt, long seed, int i, int j, int k, double fraction)
+    {
+        return toUnit(hash(salt, seed, i, j, k)) < fraction;
+    }
+
+    /**
+     * Hash the indices using the finalizer of the SplitMix64 generator, which
+     * is fast and mixes well enough that neighboring indices give unrelated
+     * results.
+     */
+    protected static long hash(long salt, long seed, int i, int j, int k)
+    {
+        long h = salt ^ seed;
+        h = mix(h + i * 0x9E3779B97F4A7C15L);
+        h = mix(h + j * 0xC2B2AE3D27D4EB4FL);
+        h = mix(h + k * 0x165667B19E3779F9L);
+
+        return h;
+    }
+
+    private static long mix(long h)
+    {
+        h = (h ^ (h >>> 30)) * 0xBF58476D1CE4E5B9L;
+        h = (h ^ (h >>> 27)) * 0x94D049BB133111EBL;
+
+        return h ^ (h >>> 31);
+    }
+
+    /**
+     * @return the top 53 bits of the hash as a double in [0.0, 1.0)
+     */
+    private static double toUnit(long hash)
+    {
+        return (hash >>> 11) * 0x1.0p-53;
+    }
+
+}
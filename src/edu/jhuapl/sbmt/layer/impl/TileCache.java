@@ -0,0 +1,458 @@
+package edu.jhuapl.sbmt.layer.impl;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Cache of rectangular tiles of pixel data computed from {@link TileCachedLayer}
+ * instances. One cache may (and normally should) be shared by many cached
+ * layers. The cache is bounded by the total number of bytes held in its tiles,
+ * and evicts the least-recently-used tiles when that bound is exceeded.
+ * <p>
+ * The cache keeps counts of hits, misses and evictions, which may be used to
+ * tune tile and cache sizes.
+ * <p>
+ * This class is thread-safe. Tiles are computed outside the cache's lock, so
+ * two threads that miss on the same tile at the same time may both compute it;
+ * the second tile computed simply replaces the first. While any of an owner's
+ * tiles are being computed, the cache keeps a generation for the owner that
+ * {@link #invalidate(long)} increments, and a tile is only added to the cache
+ * if its owner's generation did not change while it was computed, so a tile
+ * computed from data that changed during the computation is never served
+ * after the owner is invalidated. The generation is dropped when the owner's
+ * last computation finishes, so the cache keeps no state for owners that are
+ * not computing tiles, other than their tiles.
+ *
+ * @author James Peachey
+ *
+ */
+public class TileCache
+{
+    private static final AtomicLong NextOwnerId = new AtomicLong();
+
+    private final long maxBytes;
+    private final LinkedHashMap<TileKey, Tile> tiles;
+    // Owners that have tiles being computed now.
+    private final Map<Long, Computations> computations;
+    private final LongAdder hitCount;
+    private final LongAdder missCount;
+    private final LongAdder evictionCount;
+    private long totalBytes;
+
+    /**
+     * Create a cache that holds at most the specified number of bytes of tile
+     * data.
+     *
+     * @param maxBytes the maximum total size of all tiles in the cache
+     * @throws IllegalArgumentException if maxBytes is negative
+     */
+    public TileCache(long maxBytes)
+    {
+        super();
+
+        Preconditions.checkArgument(maxBytes >= 0);
+
+        this.maxBytes = maxBytes;
+        // Access order makes the iteration order least- to most-recently used.
+        this.tiles = new LinkedHashMap<>(16, 0.75f, true);
+        this.computations = new HashMap<>();
+        this.hitCount = new LongAdder();
+        this.missCount = new LongAdder();
+        this.evictionCount = new LongAdder();
+        this.totalBytes = 0;
+    }
+
+    /**
+     * Return a new identifier, unique within this JVM, to be used as the owner
+     * of a set of tiles.
+     *
+     * @return the identifier
+     */
+    public static long nextOwnerId()
+    {
+        return NextOwnerId.getAndIncrement();
+    }
+
+    /**
+     * Return the tile with the specified owner and tile indices, using the
+     * supplier to compute the tile if it is not present in the cache.
+     *
+     * @param owner the identifier of the owner of the tile
+     * @param tileI the tile index in the I dimension
+     * @param tileJ the tile index in the J dimension
+     * @param supplier the supplier of the tile if it is not in the cache
+     * @return the tile, never null
+     */
+    public Tile get(long owner, int tileI, int tileJ, Supplier<Tile> supplier)
+    {
+        TileKey key = new TileKey(owner, tileI, tileJ);
+
+        Tile tile;
+        long generation;
+        synchronized (this)
+        {
+            tile = tiles.get(key);
+            if (tile != null)
+            {
+                hitCount.increment();
+                return tile;
+            }
+
+            generation = startComputation(owner);
+        }
+
+        missCount.increment();
+
+        try
+        {
+            tile = supplier.get();
+            Preconditions.checkNotNull(tile);
+        }
+        catch (RuntimeException | Error e)
+        {
+            finishComputation(owner);
+            throw e;
+        }
+
+        put(key, tile, generation);
+
+        return tile;
+    }
+
+    /**
+     * Record a hit that was satisfied without consulting the cache's map, for
+     * example by a tile a cached layer kept from its previous access.
+     */
+    public void recordHit()
+    {
+        hitCount.increment();
+    }
+
+    /**
+     * Remove all tiles belonging to the specified owner, including tiles that
+     * are being computed now, which will be returned to their callers but not
+     * added to the cache.
+     *
+     * @param owner the owner identifier
+     */
+    public synchronized void invalidate(long owner)
+    {
+        Computations ownerComputations = computations.get(owner);
+        if (ownerComputations != null)
+        {
+            ++ownerComputations.generation;
+        }
+
+        Iterator<Map.Entry<TileKey, Tile>> iterator = tiles.entrySet().iterator();
+        while (iterator.hasNext())
+        {
+            Map.Entry<TileKey, Tile> entry = iterator.next();
+            if (entry.getKey().owner == owner)
+            {
+                totalBytes -= entry.getValue().byteSize();
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Remove all tiles from the cache. Counts of hits, misses and evictions
+     * are not reset.
+     */
+    public synchronized void clear()
+    {
+        tiles.clear();
+        totalBytes = 0;
+    }
+
+    public long getMaxBytes()
+    {
+        return maxBytes;
+    }
+
+    public synchronized long getTotalBytes()
+    {
+        return totalBytes;
+    }
+
+    public synchronized int getTileCount()
+    {
+        return tiles.size();
+    }
+
+    public long getHitCount()
+    {
+        return hitCount.sum();
+    }
+
+    public long getMissCount()
+    {
+        return missCount.sum();
+    }
+
+    public long getEvictionCount()
+    {
+        return evictionCount.sum();
+    }
+
+    /**
+     * Return the number of owners that have tiles being computed now, for
+     * which the cache is keeping a generation.
+     *
+     * @return the number of owners
+     */
+    protected synchronized int getComputingOwnerCount()
+    {
+        return computations.size();
+    }
+
+    /**
+     * Record that a tile of the specified owner is about to be computed.
+     *
+     * @return the owner's current generation
+     */
+    protected synchronized long startComputation(long owner)
+    {
+        Computations ownerComputations = computations.computeIfAbsent(owner, o -> new Computations());
+        ++ownerComputations.count;
+
+        return ownerComputations.generation;
+    }
+
+    /**
+     * Record that the computation of a tile of the specified owner finished.
+     *
+     * @return the owner's current generation
+     */
+    protected synchronized long finishComputation(long owner)
+    {
+        Computations ownerComputations = computations.get(owner);
+        Preconditions.checkState(ownerComputations != null, "No tile of owner %s is being computed", owner);
+
+        if (--ownerComputations.count == 0)
+        {
+            computations.remove(owner);
+        }
+
+        return ownerComputations.generation;
+    }
+
+    /**
+     * Finish the computation of a tile, and add the tile to the cache, unless
+     * its owner has been invalidated since the specified generation.
+     */
+    protected synchronized void put(TileKey key, Tile tile, long generation)
+    {
+        if (finishComputation(key.owner) != generation)
+        {
+            return;
+        }
+
+        Tile previous = tiles.put(key, tile);
+        if (previous != null)
+        {
+            totalBytes -= previous.byteSize();
+        }
+        totalBytes += tile.byteSize();
+
+        // Evict least-recently used tiles, but never the one just added.
+        Iterator<Map.Entry<TileKey, Tile>> iterator = tiles.entrySet().iterator();
+        while (totalBytes > maxBytes && iterator.hasNext())
+        {
+            Map.Entry<TileKey, Tile> entry = iterator.next();
+            if (entry.getValue() == tile)
+            {
+                break;
+            }
+
+            totalBytes -= entry.getValue().byteSize();
+            iterator.remove();
+            evictionCount.increment();
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("Tile cache %d/%d bytes in %d tiles, %d hits, %d misses, %d evictions", //
+                getTotalBytes(), maxBytes, getTileCount(), getHitCount(), getMissCount(), getEvictionCount());
+    }
+
+    /**
+     * Immutable block of pixel data covering a rectangle of (I, J) indices and
+     * all K indices of a layer. Elements are stored band-sequentially within
+     * the tile, with I varying fastest. Each element has its own validity and
+     * in-bounds flag, and each (I, J) position has an in-bounds flag for the
+     * pixel as a whole.
+     */
+    public static final class Tile
+    {
+        private final int tileI;
+        private final int tileJ;
+        private final int iSize;
+        private final int jSize;
+        private final int kSize;
+        private final double[] values;
+        private final BitSet invalid;
+        private final BitSet outOfBounds;
+        private final BitSet pixelOutOfBounds;
+
+        /**
+         * Create a tile. The tile adopts (does not copy) the arrays and bit
+         * sets passed to it, which must not be modified afterwards.
+         *
+         * @param tileI the tile index in the I dimension
+         * @param tileJ the tile index in the J dimension
+         * @param iSize number of I indices covered by the tile
+         * @param jSize number of J indices covered by the tile
+         * @param kSize number of elements at each (I, J) position
+         * @param values the element values
+         * @param invalid set of element indices that are invalid
+         * @param outOfBounds set of element indices that are out of bounds
+         * @param pixelOutOfBounds set of (I, J) positions (index J * iSize + I)
+         *            whose pixels are out of bounds
+         */
+        public Tile(int tileI, int tileJ, int iSize, int jSize, int kSize, double[] values, BitSet invalid, BitSet outOfBounds, BitSet pixelOutOfBounds)
+        {
+            super();
+
+            Preconditions.checkArgument(values.length == iSize * jSize * kSize);
+
+            this.tileI = tileI;
+            this.tileJ = tileJ;
+            this.iSize = iSize;
+            this.jSize = jSize;
+            this.kSize = kSize;
+            this.values = values;
+            this.invalid = Preconditions.checkNotNull(invalid);
+            this.outOfBounds = Preconditions.checkNotNull(outOfBounds);
+            this.pixelOutOfBounds = Preconditions.checkNotNull(pixelOutOfBounds);
+        }
+
+        public int tileI()
+        {
+            return tileI;
+        }
+
+        public int tileJ()
+        {
+            return tileJ;
+        }
+
+        public int kSize()
+        {
+            return kSize;
+        }
+
+        /**
+         * Return the index of an element within this tile, given indices
+         * relative to the tile's origin.
+         *
+         * @param i the I index within the tile
+         * @param j the J index within the tile
+         * @param k the K index
+         * @return the element index
+         */
+        public int index(int i, int j, int k)
+        {
+            return (k * jSize + j) * iSize + i;
+        }
+
+        public double value(int index)
+        {
+            return values[index];
+        }
+
+        public boolean isValid(int index)
+        {
+            return !invalid.get(index);
+        }
+
+        public boolean isInBounds(int index)
+        {
+            return !outOfBounds.get(index);
+        }
+
+        public boolean isPixelInBounds(int i, int j)
+        {
+            return !pixelOutOfBounds.get(j * iSize + i);
+        }
+
+        /**
+         * Return an estimate of the number of bytes of heap used by this tile.
+         *
+         * @return the size in bytes
+         */
+        public long byteSize()
+        {
+            return 8L * values.length + (invalid.size() + outOfBounds.size() + pixelOutOfBounds.size()) / 8 + 128;
+        }
+
+    }
+
+    protected static final class TileKey
+    {
+        private final long owner;
+        private final int tileI;
+        private final int tileJ;
+
+        protected TileKey(long owner, int tileI, int tileJ)
+        {
+            super();
+
+            this.owner = owner;
+            this.tileI = tileI;
+            this.tileJ = tileJ;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(owner, tileI, tileJ);
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if (this == obj)
+            {
+                return true;
+            }
+            if (obj instanceof TileKey other)
+            {
+                return owner == other.owner && tileI == other.tileI && tileJ == other.tileJ;
+            }
+            return false;
+        }
+
+    }
+
+    /**
+     * Tiles of one owner that are being computed, and the number of times the
+     * owner was invalidated since the first of them started. Guarded by the
+     * cache's lock.
+     */
+    private static final class Computations
+    {
+        private int count;
+        private long generation;
+
+        private Computations()
+        {
+            super();
+
+            this.count = 0;
+            this.generation = 0;
+        }
+    }
+
+}
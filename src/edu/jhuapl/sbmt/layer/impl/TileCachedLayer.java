@@ -0,0 +1,240 @@
+package edu.jhuapl.sbmt.layer.impl;
+
+import java.util.BitSet;
+import java.util.List;
+
+import com.google.common.base.Preconditions;
+
+import edu.jhuapl.sbmt.layer.api.Layer;
+import edu.jhuapl.sbmt.layer.api.Pixel;
+import edu.jhuapl.sbmt.layer.api.PixelDouble;
+import edu.jhuapl.sbmt.layer.api.PixelVector;
+import edu.jhuapl.sbmt.layer.impl.LayerTransformFactory.ForwardingLayer;
+import edu.jhuapl.sbmt.layer.impl.TileCache.Tile;
+
+/**
+ * Decorator {@link Layer} that computes square tiles of a target layer on
+ * first access, stores them in a {@link TileCache}, and serves subsequent
+ * {@link #get(int, int, Pixel)} calls from the cached tiles. This is useful
+ * for expensive derived layers (interpolated, rotated, appended, etc.), which
+ * otherwise would recompute each pixel every time it is requested.
+ * <p>
+ * The target layer must accept {@link PixelDouble} pixels (if scalar) or
+ * {@link PixelVector} pixels (if vector). Indices that are out of bounds are
+ * passed straight through to the target layer.
+ * <p>
+ * Tiles capture the state of the target layer at the time they are computed.
+ * If the target layer can change, call {@link #invalidate()} afterwards.
+ *
+ * @author James Peachey
+ *
+ */
+public class TileCachedLayer extends ForwardingLayer
+{
+    private final Layer target;
+    private final TileCache cache;
+    private final int tileSize;
+    private final long owner;
+    private final int kSize;
+    // Number of calls to invalidate.
+    private volatile long generation;
+    // Tile used in the most recent call to get, with the generation in which
+    // its computation started. Tiles are immutable, so it is safe to share
+    // this between threads without synchronization.
+    private LastTile lastTile;
+
+    /**
+     * Create a cached layer.
+     *
+     * @param target the layer whose tiles will be cached
+     * @param cache the cache in which to store tiles
+     * @param tileSize the number of I and J indices covered by each tile
+     * @throws NullPointerException if target or cache is null
+     * @throws IllegalArgumentException if tileSize is not positive, or the
+     *             target layer is not a scalar or vector layer
+     */
+    public TileCachedLayer(Layer target, TileCache cache, int tileSize)
+    {
+        super(Preconditions.checkNotNull(target));
+
+        Preconditions.checkNotNull(cache);
+        Preconditions.checkArgument(tileSize > 0);
+
+        List<Integer> dataSizes = target.dataSizes();
+        Preconditions.checkArgument(dataSizes.size() == 1, "Can only cache scalar or vector layers");
+
+        this.target = target;
+        this.cache = cache;
+        this.tileSize = tileSize;
+        this.owner = TileCache.nextOwnerId();
+        this.kSize = dataSizes.get(0);
+        this.generation = 0;
+        this.lastTile = null;
+    }
+
+    /**
+     * Discard all cached tiles for this layer, so they will be recomputed from
+     * the target layer on the next access.
+     */
+    public void invalidate()
+    {
+        synchronized (this)
+        {
+            ++generation;
+        }
+        lastTile = null;
+        cache.invalidate(owner);
+    }
+
+    @Override
+    public void get(int i, int j, Pixel p)
+    {
+        Preconditions.checkNotNull(p);
+
+        if (!isInBounds(i, j))
+        {
+            super.get(i, j, p);
+            return;
+        }
+
+        Tile tile = getTile(i / tileSize, j / tileSize);
+
+        int iTile = i % tileSize;
+        int jTile = j % tileSize;
+
+        if (p instanceof PixelDouble pd)
+        {
+            assign(tile, tile.index(iTile, jTile, 0), pd);
+            pd.setInBounds(tile.isPixelInBounds(iTile, jTile) && tile.isInBounds(tile.index(iTile, jTile, 0)));
+        }
+        else if (p instanceof PixelVector pv)
+        {
+            int kSize = tile.kSize();
+            for (int k = 0; k < pv.size(); ++k)
+            {
+                Pixel pk = pv.get(k);
+                if (k < kSize && pk instanceof PixelDouble pd)
+                {
+                    int index = tile.index(iTile, jTile, k);
+                    assign(tile, index, pd);
+                    pd.setInBounds(tile.isInBounds(index));
+                }
+                else if (pk instanceof PixelDouble pd)
+                {
+                    pd.set(pd.getOutOfBoundsValue());
+                    pd.setInBounds(false);
+                }
+                else
+                {
+                    throw new IllegalArgumentException();
+                }
+            }
+            pv.setInBounds(tile.isPixelInBounds(iTile, jTile));
+        }
+        else
+        {
+            throw new IllegalArgumentException();
+        }
+    }
+
+    protected void assign(Tile tile, int index, PixelDouble pd)
+    {
+        pd.set(tile.value(index));
+        pd.setIsValid(tile.isValid(index));
+    }
+
+    protected Tile getTile(int tileI, int tileJ)
+    {
+        long currentGeneration = generation;
+
+        LastTile last = lastTile;
+        if (last != null && last.generation == currentGeneration && last.tile.tileI() == tileI && last.tile.tileJ() == tileJ)
+        {
+            cache.recordHit();
+            return last.tile;
+        }
+
+        Tile tile = cache.get(owner, tileI, tileJ, () -> computeTile(tileI, tileJ));
+
+        // If this layer was invalidated meanwhile, the tile may be stale, and
+        // its generation will never match again.
+        lastTile = new LastTile(tile, currentGeneration);
+
+        return tile;
+    }
+
+    /**
+     * Compute one tile by getting every pixel it covers from the target layer.
+     *
+     * @param tileI the tile index in the I dimension
+     * @param tileJ the tile index in the J dimension
+     * @return the tile
+     */
+    protected Tile computeTile(int tileI, int tileJ)
+    {
+        int iMin = tileI * tileSize;
+        int jMin = tileJ * tileSize;
+        int iSize = Math.min(tileSize, target.iSize() - iMin);
+        int jSize = Math.min(tileSize, target.jSize() - jMin);
+
+        double[] values = new double[iSize * jSize * kSize];
+        BitSet invalid = new BitSet();
+        BitSet outOfBounds = new BitSet();
+        BitSet pixelOutOfBounds = new BitSet();
+
+        boolean isVector = kSize > 1 || !target.isGetAccepts(PixelDouble.class);
+        PixelVector pv = isVector ? new PlainPixelVectorDoubleFactory().of(kSize, Double.NaN) : null;
+        PixelDouble pd = isVector ? null : new PlainPixelDoubleFactory().of(Double.NaN, Double.NaN);
+
+        for (int j = 0; j < jSize; ++j)
+        {
+            for (int i = 0; i < iSize; ++i)
+            {
+                Pixel p = isVector ? pv : pd;
+                target.get(iMin + i, jMin + j, p);
+
+                if (!p.isInBounds())
+                {
+                    pixelOutOfBounds.set(j * iSize + i);
+                }
+
+                for (int k = 0; k < kSize; ++k)
+                {
+                    PixelDouble pk = isVector ? (PixelDouble) pv.get(k) : pd;
+
+                    int index = (k * jSize + j) * iSize + i;
+                    values[index] = pk.getStoredValue();
+                    if (!pk.isValid())
+                    {
+                        invalid.set(index);
+                    }
+                    if (!pk.isInBounds())
+                    {
+                        outOfBounds.set(index);
+                    }
+                }
+            }
+        }
+
+        return new Tile(tileI, tileJ, iSize, jSize, kSize, values, invalid, outOfBounds, pixelOutOfBounds);
+    }
+
+    @Override
+    public String toString()
+    {
+        return super.toString() + ", cached in " + tileSize + " x " + tileSize + " tiles";
+    }
+
+    private static final class LastTile
+    {
+        private final Tile tile;
+        private final long generation;
+
+        private LastTile(Tile tile, long generation)
+        {
+            this.tile = tile;
+            this.generation = generation;
+        }
+    }
+
+}
@@ -0,0 +1,34 @@
+package edu.jhuapl.sbmt.layer.impl;
+
+/**
+ * Interface for objects whose content may change over time, and which keep a
+ * version number that changes whenever their content does. Cached information
+ * derived from such an object (such as the range of a {@link
+ * edu.jhuapl.sbmt.layer.api.Layer}) is still current as long as the version
+ * number is the same as when the information was computed.
+ */
+public interface Versioned
+{
+
+    /**
+     * Return the current version of this object's content. Implementations
+     * shall never return a smaller version than one returned previously.
+     *
+     * @return the version
+     */
+    long getVersion();
+
+    /**
+     * Return the version of the specified object if it is {@link Versioned},
+     * or 0 if it is not. Objects that are not {@link Versioned} are assumed
+     * never to change.
+     *
+     * @param object the object, may be null
+     * @return the version
+     */
+    static long versionOf(Object object)
+    {
+        return object instanceof Versioned v ? v.getVersion() : 0L;
+    }
+
+}
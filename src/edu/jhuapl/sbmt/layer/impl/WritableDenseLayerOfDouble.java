@@ -0,0 +1,282 @@
+package edu.jhuapl.sbmt.layer.impl;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableSet;
+
+import edu.jhuapl.sbmt.layer.api.KeyValueCollection;
+import edu.jhuapl.sbmt.layer.api.Pixel;
+import edu.jhuapl.sbmt.layer.api.PixelBlock;
+import edu.jhuapl.sbmt.layer.api.PixelBlockDouble;
+import edu.jhuapl.sbmt.layer.api.PixelDouble;
+import edu.jhuapl.sbmt.layer.api.PixelVector;
+import edu.jhuapl.sbmt.layer.api.WritableLayer;
+import edu.jhuapl.sbmt.layer.impl.LayerDoubleTransformFactory.BulkDoubleTransform;
+
+/**
+ * {@link DenseLayerOfDouble} that is also a {@link WritableLayer}, for
+ * in-place editing of scalar (kSize == 1) or vector layers of doubles.
+ * Writing a pixel or block changes the backing array and the set of invalid
+ * elements directly, and {@link #transform(BulkDoubleTransform)} applies a
+ * transform to all the values in place, so a chain of edits needs neither
+ * new arrays nor new derived layers. Callers may also change the array or the
+ * set returned by {@link #values()} or {@link #invalid()}, then call
+ * {@link #touch()}.
+ * <p>
+ * The layer is {@link Versioned}: every write increments its version, so
+ * ranges and statistics cached by derived layers are recomputed after the
+ * layer changes. The range of the layer itself is computed by scanning it the
+ * first time it is requested after each change. Derived layers that copy
+ * their input when they are created, such as those returned by
+ * {@link LayerDoubleTransformFactory#toBulkLayerTransform(BulkDoubleTransform)},
+ * do not see later writes.
+ * <p>
+ * Like other {@link WritableLayer}s, this class is not thread-safe for
+ * writing, except that {@link #transform(BulkDoubleTransform)} itself uses
+ * multiple threads.
+ *
+ * @author James Peachey
+ *
+ */
+public class WritableDenseLayerOfDouble extends DenseLayerOfDouble implements WritableLayer, Versioned
+{
+    private static final Set<Class<?>> AcceptedPixelTypes = ImmutableSet.of(PixelDouble.class, PixelVector.class);
+
+    protected static final LayerRangeFactory RangeFactory = new LayerRangeFactory();
+
+    private final AtomicLong version;
+    private final LazyLayerRange range;
+
+    /**
+     * Create a writable dense layer with every element valid and equal to the
+     * specified value.
+     *
+     * @param iSize the number of in-bounds values of the I index
+     * @param jSize the number of in-bounds values of the J index
+     * @param kSize the number of in-bounds values of the K index
+     * @param initialValue the value of every element
+     * @throws IllegalArgumentException if any size is negative, kSize is 0, or
+     *             the layer would have too many elements for one array
+     */
+    public WritableDenseLayerOfDouble(int iSize, int jSize, int kSize, double initialValue)
+    {
+        this(iSize, jSize, kSize, allocate(iSize, jSize, kSize, initialValue), null, null);
+    }
+
+    /**
+     * Create a writable dense layer that uses (does not copy) the specified
+     * array and invalid element set.
+     *
+     * @param iSize the number of in-bounds values of the I index
+     * @param jSize the number of in-bounds values of the J index
+     * @param kSize the number of in-bounds values of the K index
+     * @param values the values, which must have exactly iSize * jSize * kSize
+     *            elements
+     * @param invalid the set of array indices of invalid elements, or null if
+     *            all elements are initially valid
+     * @param keyValueCollection the key-value pairs describing the layer, or
+     *            null for none
+     * @throws IllegalArgumentException if any size is negative, kSize is 0, or
+     *             the array has the wrong length
+     * @throws NullPointerException if values is null
+     */
+    public WritableDenseLayerOfDouble(int iSize, int jSize, int kSize, double[] values, BitSet invalid, KeyValueCollection keyValueCollection)
+    {
+        super(iSize, jSize, kSize, values, invalid != null ? invalid : new BitSet(), keyValueCollection);
+
+        this.version = new AtomicLong();
+        this.range = new LazyLayerRange(this::getVersion, () -> RangeFactory.scan(this));
+    }
+
+    /**
+     * Increment the version of this layer, to record that its values or
+     * validity were changed directly through {@link #values()} or
+     * {@link #invalid()}.
+     */
+    public void touch()
+    {
+        version.incrementAndGet();
+    }
+
+    @Override
+    public boolean isSetAccepts(Class<?> pixelType)
+    {
+        return AcceptedPixelTypes.contains(pixelType);
+    }
+
+    @Override
+    public void set(int i, int j, Pixel p)
+    {
+        Preconditions.checkNotNull(p);
+        Preconditions.checkElementIndex(i, iSize());
+        Preconditions.checkElementIndex(j, jSize());
+
+        int n = Math.min(p instanceof PixelVector pv ? pv.size() : 1, kSize());
+
+        if (p instanceof FlatPixelVectorDouble fv)
+        {
+            double[] source = fv.values();
+            for (int k = 0; k < n; ++k)
+            {
+                if (fv.getElementInBoundsFlag(k))
+                {
+                    setElement(index(i, j, k), source[k], fv.getElementValidFlag(k));
+                }
+            }
+        }
+        else if (p instanceof PixelVector pv)
+        {
+            for (int k = 0; k < n; ++k)
+            {
+                setElement(index(i, j, k), pv.get(k));
+            }
+        }
+        else
+        {
+            setElement(index(i, j, 0), p);
+        }
+
+        version.incrementAndGet();
+    }
+
+    /**
+     * Copy whole rows of each band into the backing array if the block is a
+     * {@link PixelBlockDouble}, otherwise fall back on the per-pixel default.
+     */
+    @Override
+    public void setBlock(int iMin, int jMin, PixelBlock block)
+    {
+        Preconditions.checkNotNull(block);
+
+        if (!(block instanceof PixelBlockDouble bd))
+        {
+            WritableLayer.super.setBlock(iMin, jMin, block);
+            return;
+        }
+
+        double[] values = values();
+        BitSet invalid = invalid();
+        double[] source = bd.values();
+        BitSet blockInvalid = bd.invalid();
+        BitSet blockOutOfBounds = bd.outOfBounds();
+
+        // Overlap of the block with this layer, in block-relative indices.
+        int iBegin = Math.max(0, Math.min(bd.iSize(), -iMin));
+        int iEnd = Math.max(iBegin, Math.min(bd.iSize(), iSize() - iMin));
+        int jBegin = Math.max(0, Math.min(bd.jSize(), -jMin));
+        int jEnd = Math.max(jBegin, Math.min(bd.jSize(), jSize() - jMin));
+        int kEnd = Math.min(bd.kSize(), kSize());
+        int length = iEnd - iBegin;
+
+        for (int k = 0; k < kEnd; ++k)
+        {
+            for (int j = jBegin; j < jEnd; ++j)
+            {
+                int blockIndex = bd.index(iBegin, j, k);
+                int blockIndexEnd = blockIndex + length;
+                int index = index(iMin + iBegin, jMin + j, k);
+
+                int outOfBounds = blockOutOfBounds.nextSetBit(blockIndex);
+                if (outOfBounds < 0 || outOfBounds >= blockIndexEnd)
+                {
+                    System.arraycopy(source, blockIndex, values, index, length);
+
+                    invalid.clear(index, index + length);
+                    for (int n = blockInvalid.nextSetBit(blockIndex); n >= 0 && n < blockIndexEnd; n = blockInvalid.nextSetBit(n + 1))
+                    {
+                        invalid.set(index + n - blockIndex);
+                    }
+                }
+                else
+                {
+                    for (int n = 0; n < length; ++n)
+                    {
+                        if (!blockOutOfBounds.get(blockIndex + n))
+                        {
+                            setElement(index + n, source[blockIndex + n], !blockInvalid.get(blockIndex + n));
+                        }
+                    }
+                }
+            }
+        }
+
+        version.incrementAndGet();
+    }
+
+    /**
+     * Apply the transform in place to every value in the layer, valid or not,
+     * using multiple threads. The validity of the elements is unchanged.
+     *
+     * @param transform the transform
+     */
+    public void transform(BulkDoubleTransform transform)
+    {
+        Preconditions.checkNotNull(transform);
+
+        double[] values = values();
+        int chunkSize = LayerDoubleTransformFactory.BulkChunkSize;
+
+        int numberChunks = (values.length + chunkSize - 1) / chunkSize;
+        IntStream.range(0, numberChunks).parallel().forEach(chunk -> {
+            int offset = chunk * chunkSize;
+            transform.apply(values, values, offset, Math.min(chunkSize, values.length - offset));
+        });
+
+        version.incrementAndGet();
+    }
+
+    @Override
+    public void getRange(Pixel pMin, Pixel pMax)
+    {
+        RangeFactory.setRange(range.get(), pMin, pMax);
+    }
+
+    @Override
+    public long getVersion()
+    {
+        return version.get();
+    }
+
+    protected void setElement(int index, Pixel p)
+    {
+        if (!(p instanceof PixelDouble pd))
+        {
+            throw new IllegalArgumentException("Cannot set a layer of doubles from pixel of type " + p.getClass());
+        }
+
+        if (pd.isInBounds())
+        {
+            setElement(index, pd.getStoredValue(), pd.isValid());
+        }
+    }
+
+    protected void setElement(int index, double value, boolean isValid)
+    {
+        values()[index] = value;
+        invalid().set(index, !isValid);
+    }
+
+    protected static double[] allocate(int iSize, int jSize, int kSize, double initialValue)
+    {
+        Preconditions.checkArgument(iSize >= 0 && jSize >= 0 && kSize > 0);
+        Preconditions.checkArgument((long) iSize * jSize * kSize <= Integer.MAX_VALUE, //
+                "Layer of size %s x %s x %s is too large", iSize, jSize, kSize);
+
+        double[] values = new double[iSize * jSize * kSize];
+        Arrays.fill(values, initialValue);
+
+        return values;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "Writable " + super.toString();
+    }
+
+}
@@ -0,0 +1,443 @@
+package edu.jhuapl.sbmt.layer.impl;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+import edu.jhuapl.sbmt.layer.api.KeyValueCollection;
+import edu.jhuapl.sbmt.layer.api.Pixel;
+import edu.jhuapl.sbmt.layer.api.PixelBlock;
+import edu.jhuapl.sbmt.layer.api.PixelBlockDouble;
+import edu.jhuapl.sbmt.layer.api.PixelDouble;
+import edu.jhuapl.sbmt.layer.api.PixelVector;
+import edu.jhuapl.sbmt.layer.api.WritableLayer;
+
+/**
+ * Writable layer of scalar (kSize == 1) or vector values held in one
+ * contiguous array of floats, which takes half the memory of a
+ * {@link WritableDenseLayerOfDouble}. Elements are stored in the same
+ * band-sequential order as {@link DenseLayerOfDouble}, i.e., the element at
+ * (I, J, K) is located at array index (K * jSize + J) * iSize + I, and their
+ * validity is held in a {@link BitSet} of invalid elements.
+ * <p>
+ * Values are read as doubles, and written values are rounded to the nearest
+ * float, so values outside the range of float become infinite.
+ * <p>
+ * The layer is {@link Versioned}: every write increments its version, so
+ * ranges and statistics cached by derived layers are recomputed after the
+ * layer changes. The range of the layer itself is computed by scanning it the
+ * first time it is requested after each change. Like other
+ * {@link WritableLayer}s, this class is not thread-safe for writing.
+ *
+ * @author James Peachey
+ *
+ */
+public class WritableDenseLayerOfFloat extends BasicLayerOfVectorDouble implements WritableLayer, Versioned
+{
+    private static final Set<Class<?>> AcceptedPixelTypes = ImmutableSet.of(PixelDouble.class, PixelVector.class);
+
+    protected static final LayerRangeFactory RangeFactory = new LayerRangeFactory();
+
+    private final int kSize;
+    private final List<Integer> dataSizes;
+    private final float[] values;
+    private final BitSet invalid;
+    private final KeyValueCollection keyValueCollection;
+    private final AtomicLong version;
+    private final LazyLayerRange range;
+
+    /**
+     * Create a writable dense layer with every element valid and equal to the
+     * specified value.
+     *
+     * @param iSize the number of in-bounds values of the I index
+     * @param jSize the number of in-bounds values of the J index
+     * @param kSize the number of in-bounds values of the K index
+     * @param initialValue the value of every element
+     * @throws IllegalArgumentException if any size is negative, kSize is 0, or
+     *             the layer would have too many elements for one array
+     */
+    public WritableDenseLayerOfFloat(int iSize, int jSize, int kSize, float initialValue)
+    {
+        this(iSize, jSize, kSize, allocate(iSize, jSize, kSize, initialValue), null, null);
+    }
+
+    /**
+     * Create a writable dense layer that uses (does not copy) the specified
+     * array and invalid element set.
+     *
+     * @param iSize the number of in-bounds values of the I index
+     * @param jSize the number of in-bounds values of the J index
+     * @param kSize the number of in-bounds values of the K index
+     * @param values the values, which must have exactly iSize * jSize * kSize
+     *            elements
+     * @param invalid the set of array indices of invalid elements, or null if
+     *            all elements are initially valid
+     * @param keyValueCollection the key-value pairs describing the layer, or
+     *            null for none
+     * @throws IllegalArgumentException if any size is negative, kSize is 0, or
+     *             the array has the wrong length
+     * @throws NullPointerException if values is null
+     */
+    public WritableDenseLayerOfFloat(int iSize, int jSize, int kSize, float[] values, BitSet invalid, KeyValueCollection keyValueCollection)
+    {
+        super(iSize, jSize);
+
+        Preconditions.checkArgument(iSize >= 0);
+        Preconditions.checkArgument(jSize >= 0);
+        Preconditions.checkArgument(kSize > 0);
+        Preconditions.checkNotNull(values);
+        Preconditions.checkArgument((long) iSize * jSize * kSize == values.length, //
+                "Array of length %s cannot hold a layer of size %s x %s x %s", values.length, iSize, jSize, kSize);
+
+        this.kSize = kSize;
+        this.dataSizes = ImmutableList.of(Integer.valueOf(kSize));
+        this.values = values;
+        this.invalid = invalid != null ? invalid : new BitSet();
+        this.keyValueCollection = keyValueCollection != null ? keyValueCollection : ImmutableKeyValueCollection.of();
+        this.version = new AtomicLong();
+        this.range = new LazyLayerRange(this::getVersion, () -> RangeFactory.scan(this));
+    }
+
+    @Override
+    public List<Integer> dataSizes()
+    {
+        return dataSizes;
+    }
+
+    /**
+     * Return the number of elements in the K dimension.
+     *
+     * @return the size in the K dimension
+     */
+    public int kSize()
+    {
+        return kSize;
+    }
+
+    /**
+     * Return the array that backs this layer. The array is NOT a copy. Callers
+     * that modify it must call {@link #touch()} afterwards.
+     *
+     * @return the backing array
+     */
+    public float[] values()
+    {
+        return values;
+    }
+
+    /**
+     * Return the set of array indices of invalid elements. The set is NOT a
+     * copy. Callers that modify it must call {@link #touch()} afterwards.
+     *
+     * @return the set of invalid elements
+     */
+    public BitSet invalid()
+    {
+        return invalid;
+    }
+
+    /**
+     * Return the index in the backing array of the element at the specified
+     * indices. This method does not check bounds.
+     *
+     * @param i the I index
+     * @param j the J index
+     * @param k the K index
+     * @return the array index
+     */
+    public int index(int i, int j, int k)
+    {
+        return (k * jSize() + j) * iSize() + i;
+    }
+
+    /**
+     * Increment the version of this layer, to record that its values or
+     * validity were changed directly through {@link #values()} or
+     * {@link #invalid()}.
+     */
+    public void touch()
+    {
+        version.incrementAndGet();
+    }
+
+    @Override
+    public boolean isSetAccepts(Class<?> pixelType)
+    {
+        return AcceptedPixelTypes.contains(pixelType);
+    }
+
+    @Override
+    public void set(int i, int j, Pixel p)
+    {
+        Preconditions.checkNotNull(p);
+        Preconditions.checkElementIndex(i, iSize());
+        Preconditions.checkElementIndex(j, jSize());
+
+        int n = Math.min(p instanceof PixelVector pv ? pv.size() : 1, kSize);
+
+        if (p instanceof FlatPixelVectorDouble fv)
+        {
+            double[] source = fv.values();
+            for (int k = 0; k < n; ++k)
+            {
+                if (fv.getElementInBoundsFlag(k))
+                {
+                    setElement(index(i, j, k), source[k], fv.getElementValidFlag(k));
+                }
+            }
+        }
+        else if (p instanceof PixelVector pv)
+        {
+            for (int k = 0; k < n; ++k)
+            {
+                setElement(index(i, j, k), pv.get(k));
+            }
+        }
+        else
+        {
+            setElement(index(i, j, 0), p);
+        }
+
+        version.incrementAndGet();
+    }
+
+    /**
+     * Copy whole rows of each band into the backing array if the block is a
+     * {@link PixelBlockDouble}, otherwise fall back on the per-pixel default.
+     */
+    @Override
+    public void setBlock(int iMin, int jMin, PixelBlock block)
+    {
+        Preconditions.checkNotNull(block);
+
+        if (!(block instanceof PixelBlockDouble bd))
+        {
+            WritableLayer.super.setBlock(iMin, jMin, block);
+            return;
+        }
+
+        double[] source = bd.values();
+        BitSet blockInvalid = bd.invalid();
+        BitSet blockOutOfBounds = bd.outOfBounds();
+
+        // Overlap of the block with this layer, in block-relative indices.
+        int iBegin = Math.max(0, Math.min(bd.iSize(), -iMin));
+        int iEnd = Math.max(iBegin, Math.min(bd.iSize(), iSize() - iMin));
+        int jBegin = Math.max(0, Math.min(bd.jSize(), -jMin));
+        int jEnd = Math.max(jBegin, Math.min(bd.jSize(), jSize() - jMin));
+        int kEnd = Math.min(bd.kSize(), kSize);
+        int length = iEnd - iBegin;
+
+        for (int k = 0; k < kEnd; ++k)
+        {
+            for (int j = jBegin; j < jEnd; ++j)
+            {
+                int blockIndex = bd.index(iBegin, j, k);
+                int blockIndexEnd = blockIndex + length;
+                int index = index(iMin + iBegin, jMin + j, k);
+
+                int outOfBounds = blockOutOfBounds.nextSetBit(blockIndex);
+                if (outOfBounds < 0 || outOfBounds >= blockIndexEnd)
+                {
+                    for (int n = 0; n < length; ++n)
+                    {
+                        values[index + n] = (float) source[blockIndex + n];
+                    }
+
+                    invalid.clear(index, index + length);
+                    for (int n = blockInvalid.nextSetBit(blockIndex); n >= 0 && n < blockIndexEnd; n = blockInvalid.nextSetBit(n + 1))
+                    {
+                        invalid.set(index + n - blockIndex);
+                    }
+                }
+                else
+                {
+                    for (int n = 0; n < length; ++n)
+                    {
+                        if (!blockOutOfBounds.get(blockIndex + n))
+                        {
+                            setElement(index + n, source[blockIndex + n], !blockInvalid.get(blockIndex + n));
+                        }
+                    }
+                }
+            }
+        }
+
+        version.incrementAndGet();
+    }
+
+    /**
+     * Read the elements of the pixel straight from the backing array, which
+     * holds the elements of one pixel at a fixed stride of iSize * jSize.
+     */
+    @Override
+    protected void getFlatVector(int i, int j, FlatPixelVectorDouble fv)
+    {
+        int size = fv.size();
+        int n = Math.min(size, kSize);
+        int stride = iSize() * jSize();
+        int index = j * iSize() + i;
+
+        double[] destination = fv.values();
+        for (int k = 0; k < n; ++k, index += stride)
+        {
+            destination[k] = values[index];
+        }
+
+        fv.setAll(true, true);
+
+        index = j * iSize() + i;
+        for (int k = 0; k < n; ++k, index += stride)
+        {
+            if (invalid.get(index))
+            {
+                fv.setElementValidFlag(k, false);
+            }
+        }
+
+        double outOfBoundsValue = fv.getOutOfBoundsValue();
+        for (int k = n; k < size; ++k)
+        {
+            fv.setElement(k, outOfBoundsValue, false, false);
+        }
+    }
+
+    /**
+     * Copy whole rows of each band from the backing array if the block is a
+     * {@link PixelBlockDouble}, otherwise fall back on the per-pixel default.
+     */
+    @Override
+    public void getBlock(int iMin, int jMin, PixelBlock block)
+    {
+        Preconditions.checkNotNull(block);
+
+        if (!(block instanceof PixelBlockDouble bd))
+        {
+            super.getBlock(iMin, jMin, block);
+            return;
+        }
+
+        int blockISize = bd.iSize();
+
+        double[] destination = bd.values();
+        BitSet blockInvalid = bd.invalid();
+        BitSet blockOutOfBounds = bd.outOfBounds();
+        double outOfBoundsValue = bd.getOutOfBoundsValue();
+
+        blockInvalid.clear();
+        blockOutOfBounds.clear();
+
+        // Overlap of the block with this layer, in block-relative I indices.
+        int iBegin = Math.max(0, Math.min(blockISize, -iMin));
+        int iEnd = Math.max(iBegin, Math.min(blockISize, iSize() - iMin));
+
+        for (int k = 0; k < bd.kSize(); ++k)
+        {
+            for (int j = 0; j < bd.jSize(); ++j)
+            {
+                int blockIndex = bd.index(0, j, k);
+                int jj = jMin + j;
+
+                if (k >= kSize || jj < 0 || jj >= jSize() || iBegin == iEnd)
+                {
+                    Arrays.fill(destination, blockIndex, blockIndex + blockISize, outOfBoundsValue);
+                    blockOutOfBounds.set(blockIndex, blockIndex + blockISize);
+                    continue;
+                }
+
+                Arrays.fill(destination, blockIndex, blockIndex + iBegin, outOfBoundsValue);
+                blockOutOfBounds.set(blockIndex, blockIndex + iBegin);
+
+                int index = index(iMin + iBegin, jj, k);
+                for (int n = 0; n < iEnd - iBegin; ++n)
+                {
+                    destination[blockIndex + iBegin + n] = values[index + n];
+                }
+
+                int indexEnd = index + iEnd - iBegin;
+                for (int n = invalid.nextSetBit(index); n >= 0 && n < indexEnd; n = invalid.nextSetBit(n + 1))
+                {
+                    blockInvalid.set(blockIndex + iBegin + n - index);
+                }
+
+                Arrays.fill(destination, blockIndex + iEnd, blockIndex + blockISize, outOfBoundsValue);
+                blockOutOfBounds.set(blockIndex + iEnd, blockIndex + blockISize);
+            }
+        }
+    }
+
+    @Override
+    protected double doGetDouble(int i, int j, int k)
+    {
+        return values[index(i, j, k)];
+    }
+
+    @Override
+    protected boolean isValid(int i, int j, int k, double value)
+    {
+        return !invalid.get(index(i, j, k));
+    }
+
+    @Override
+    public void getRange(Pixel pMin, Pixel pMax)
+    {
+        RangeFactory.setRange(range.get(), pMin, pMax);
+    }
+
+    @Override
+    public long getVersion()
+    {
+        return version.get();
+    }
+
+    @Override
+    public KeyValueCollection getKeyValueCollection()
+    {
+        return keyValueCollection;
+    }
+
+    protected void setElement(int index, Pixel p)
+    {
+        if (!(p instanceof PixelDouble pd))
+        {
+            throw new IllegalArgumentException("Cannot set a layer of floats from pixel of type " + p.getClass());
+        }
+
+        if (pd.isInBounds())
+        {
+            setElement(index, pd.getStoredValue(), pd.isValid());
+        }
+    }
+
+    protected void setElement(int index, double value, boolean isValid)
+    {
+        values[index] = (float) value;
+        invalid.set(index, !isValid);
+    }
+
+    protected static float[] allocate(int iSize, int jSize, int kSize, float initialValue)
+    {
+        Preconditions.checkArgument(iSize >= 0 && jSize >= 0 && kSize > 0);
+        Preconditions.checkArgument((long) iSize * jSize * kSize <= Integer.MAX_VALUE, //
+                "Layer of size %s x %s x %s is too large", iSize, jSize, kSize);
+
+        float[] values = new float[iSize * jSize * kSize];
+        Arrays.fill(values, initialValue);
+
+        return values;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "Writable Float " + super.toString();
+    }
+
+}
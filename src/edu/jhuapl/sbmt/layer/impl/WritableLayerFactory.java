@@ -0,0 +1,118 @@
+package edu.jhuapl.sbmt.layer.impl;
+
+import java.util.List;
+
+import com.google.common.base.Preconditions;
+
+import edu.jhuapl.sbmt.layer.api.Layer;
+import edu.jhuapl.sbmt.layer.api.WritableLayer;
+
+/**
+ * Factory for writable copies of {@link Layer}s, which are the usual starting
+ * point for in-place edits: copy the source once, then change the copy using
+ * {@link WritableLayer#set(int, int, edu.jhuapl.sbmt.layer.api.Pixel)},
+ * {@link WritableLayer#setBlock(int, int, edu.jhuapl.sbmt.layer.api.PixelBlock)}
+ * or {@link WritableDenseLayerOfDouble#transform(LayerDoubleTransformFactory.BulkDoubleTransform)}.
+ * <p>
+ * Layers are copied in blocks of whole rows using
+ * {@link Layer#getBlock(int, int, edu.jhuapl.sbmt.layer.api.PixelBlock)} and
+ * {@link WritableLayer#setBlock(int, int, edu.jhuapl.sbmt.layer.api.PixelBlock)},
+ * so copying a dense layer moves whole runs of values at once.
+ *
+ * @author James Peachey
+ *
+ */
+public class WritableLayerFactory
+{
+    /**
+     * Approximate number of elements in each block used to copy layers.
+     */
+    protected static final int CopyBlockSize = 1 << 20;
+
+    public WritableLayerFactory()
+    {
+        super();
+    }
+
+    /**
+     * Return a writable copy of the specified layer whose values are held in an
+     * array of doubles.
+     *
+     * @param layer the layer to copy
+     * @return the copy
+     * @throws IllegalArgumentException if the layer does not have scalar or
+     *             vector data
+     */
+    public WritableDenseLayerOfDouble copyOfDouble(Layer layer)
+    {
+        Preconditions.checkNotNull(layer);
+
+        WritableDenseLayerOfDouble copy = new WritableDenseLayerOfDouble(layer.iSize(), layer.jSize(), kSize(layer), Double.NaN);
+        copy(layer, copy);
+
+        return copy;
+    }
+
+    /**
+     * Return a writable copy of the specified layer whose values are held in an
+     * array of floats. Values are rounded to the nearest float.
+     *
+     * @param layer the layer to copy
+     * @return the copy
+     * @throws IllegalArgumentException if the layer does not have scalar or
+     *             vector data
+     */
+    public WritableDenseLayerOfFloat copyOfFloat(Layer layer)
+    {
+        Preconditions.checkNotNull(layer);
+
+        WritableDenseLayerOfFloat copy = new WritableDenseLayerOfFloat(layer.iSize(), layer.jSize(), kSize(layer), Float.NaN);
+        copy(layer, copy);
+
+        return copy;
+    }
+
+    /**
+     * Copy the data of the source layer into the destination layer. Locations
+     * and bands of the source that are outside the destination are ignored.
+     *
+     * @param source the source layer
+     * @param destination the destination layer
+     */
+    public void copy(Layer source, WritableLayer destination)
+    {
+        Preconditions.checkNotNull(source);
+        Preconditions.checkNotNull(destination);
+
+        int iSize = Math.min(source.iSize(), destination.iSize());
+        int jSize = Math.min(source.jSize(), destination.jSize());
+        int kSize = Math.min(kSize(source), kSize(destination));
+        if (iSize == 0 || jSize == 0)
+        {
+            return;
+        }
+
+        int rows = (int) Math.max(1, Math.min(jSize, CopyBlockSize / ((long) iSize * kSize)));
+        BasicPixelBlockDouble block = new PixelBlockDoubleFactory().of(iSize, rows, kSize, Double.NaN);
+
+        for (int jMin = 0; jMin < jSize; jMin += rows)
+        {
+            if (jMin + rows > jSize)
+            {
+                block = new PixelBlockDoubleFactory().of(iSize, jSize - jMin, kSize, Double.NaN);
+            }
+
+            source.getBlock(0, jMin, block);
+            destination.setBlock(0, jMin, block);
+        }
+    }
+
+    protected int kSize(Layer layer)
+    {
+        List<Integer> dataSizes = layer.dataSizes();
+        Preconditions.checkArgument(dataSizes.size() == 1, "Cannot copy layer with data sizes %s", dataSizes);
+
+        return dataSizes.get(0).intValue();
+    }
+
+}
@@ -0,0 +1,34 @@
+package edu.jhuapl.sbmt.layer.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * Event recorded when layers are appended to form a vector layer. The sizes
+ * are those of the appended layer.
+ *
+ * @author James Peachey
+ *
+ */
+@Name("edu.jhuapl.sbmt.layer.Append")
+@Label("Layer Append")
+@Description("Appending layers to form a vector layer")
+@Threshold("1 ms")
+public class LayerAppendEvent extends LayerEvent
+{
+    @Label("Layers")
+    private int layerCount;
+
+    public LayerAppendEvent()
+    {
+        super();
+    }
+
+    public void setLayerCount(int layerCount)
+    {
+        this.layerCount = layerCount;
+    }
+
+}
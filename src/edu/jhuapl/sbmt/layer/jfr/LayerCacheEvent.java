@@ -0,0 +1,59 @@
+package edu.jhuapl.sbmt.layer.jfr;
+
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Event recorded when a layer cache reads or writes an entry. The sizes are
+ * those of the entry's layer, or 0 if a read missed.
+ *
+ * @author James Peachey
+ *
+ */
+@Name("edu.jhuapl.sbmt.layer.Cache")
+@Label("Layer Cache")
+@Description("Reading or writing an entry of a layer cache")
+public class LayerCacheEvent extends LayerEvent
+{
+    @Label("Operation")
+    private String operation;
+
+    @Label("Key")
+    private String key;
+
+    @Label("Hit")
+    @Description("True if a read found the entry, or a write stored it")
+    private boolean hit;
+
+    @Label("Entry Size")
+    @DataAmount
+    private long bytes;
+
+    public LayerCacheEvent()
+    {
+        super();
+    }
+
+    public void setOperation(String operation)
+    {
+        this.operation = operation;
+    }
+
+    public void setKey(String key)
+    {
+        this.key = key;
+    }
+
+    public void setHit(boolean hit)
+    {
+        this.hit = hit;
+    }
+
+    public void setBytes(long bytes)
+    {
+        this.bytes = bytes;
+    }
+
+}
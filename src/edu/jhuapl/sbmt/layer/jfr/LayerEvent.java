@@ -0,0 +1,71 @@
+package edu.jhuapl.sbmt.layer.jfr;
+
+import java.util.List;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+
+import edu.jhuapl.sbmt.layer.api.Layer;
+
+/**
+ * Base class for Java Flight Recorder events that record expensive
+ * operations on {@link Layer}s. Each event records the dimensions of the
+ * layer involved; the start time and duration are recorded by JFR.
+ * <p>
+ * Events follow the usual JFR pattern, which costs almost nothing when
+ * recording is off or the event is disabled:
+ *
+ * <pre>
+ * LayerAppendEvent event = new LayerAppendEvent();
+ * event.begin();
+ * // ... do the work ...
+ * if (event.shouldCommit())
+ * {
+ *     event.setSizes(layer);
+ *     event.commit();
+ * }
+ * </pre>
+ *
+ * @author James Peachey
+ *
+ */
+@Category({ "SBMT", "Layer" })
+public abstract class LayerEvent extends Event
+{
+    // JFR ignores private fields of event superclasses.
+    @Label("I Size")
+    protected int iSize;
+
+    @Label("J Size")
+    protected int jSize;
+
+    @Label("Bands")
+    protected int kSize;
+
+    protected LayerEvent()
+    {
+        super();
+    }
+
+    public void setSizes(int iSize, int jSize, int kSize)
+    {
+        this.iSize = iSize;
+        this.jSize = jSize;
+        this.kSize = kSize;
+    }
+
+    /**
+     * Record the dimensions of the specified layer. The number of bands is the
+     * first data size, or 0 if the layer has none.
+     *
+     * @param layer the layer
+     */
+    public void setSizes(Layer layer)
+    {
+        List<Integer> dataSizes = layer.dataSizes();
+
+        setSizes(layer.iSize(), layer.jSize(), dataSizes.isEmpty() ? 0 : dataSizes.get(0));
+    }
+
+}
@@ -0,0 +1,23 @@
+package edu.jhuapl.sbmt.layer.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Event recorded when a layer is loaded from a GDAL data set.
+ *
+ * @author James Peachey
+ *
+ */
+@Name("edu.jhuapl.sbmt.layer.Load")
+@Label("Layer Load")
+@Description("Loading a layer from a GDAL data set")
+public class LayerLoadEvent extends LayerEvent
+{
+    public LayerLoadEvent()
+    {
+        super();
+    }
+
+}
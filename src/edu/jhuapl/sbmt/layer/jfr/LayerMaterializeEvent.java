@@ -0,0 +1,24 @@
+package edu.jhuapl.sbmt.layer.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Event recorded when every element of a derived layer is computed and
+ * stored in a dense layer.
+ *
+ * @author James Peachey
+ *
+ */
+@Name("edu.jhuapl.sbmt.layer.Materialize")
+@Label("Layer Materialize")
+@Description("Computing and storing every element of a derived layer")
+public class LayerMaterializeEvent extends LayerEvent
+{
+    public LayerMaterializeEvent()
+    {
+        super();
+    }
+
+}
@@ -0,0 +1,34 @@
+package edu.jhuapl.sbmt.layer.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * Event recorded when the range of a layer's values is computed by scanning
+ * its values.
+ *
+ * @author James Peachey
+ *
+ */
+@Name("edu.jhuapl.sbmt.layer.RangeComputation")
+@Label("Layer Range Computation")
+@Description("Computing the range of values of a layer by scanning it")
+@Threshold("1 ms")
+public class RangeComputationEvent extends LayerEvent
+{
+    @Label("Operation")
+    private String operation;
+
+    public RangeComputationEvent()
+    {
+        super();
+    }
+
+    public void setOperation(String operation)
+    {
+        this.operation = operation;
+    }
+
+}
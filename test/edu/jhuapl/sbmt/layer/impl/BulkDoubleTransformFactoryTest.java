@@ -0,0 +1,88 @@
+package edu.jhuapl.sbmt.layer.impl;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.BitSet;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import edu.jhuapl.sbmt.layer.api.Layer;
+import edu.jhuapl.sbmt.layer.api.PixelDouble;
+import edu.jhuapl.sbmt.layer.impl.LayerDoubleTransformFactory.BulkDoubleTransform;
+
+class BulkDoubleTransformFactoryTest
+{
+	private static final BulkDoubleTransformFactory Factory = new BulkDoubleTransformFactory();
+
+	@BeforeAll
+	static void setUpBeforeClass() throws Exception
+	{
+	}
+
+	@AfterAll
+	static void tearDownAfterClass() throws Exception
+	{
+	}
+
+	@Test
+	void testArrayMatchesScalar()
+	{
+		double[] source = { -2.0, 0.0, 0.5, 1.0, 10.0, 1000.0, Double.NaN };
+
+		BulkDoubleTransform[] transforms = { //
+				Factory.linear(2.0, -1.0), //
+				Factory.log(), //
+				Factory.log10(), //
+				Factory.clamp(0.0, 5.0), //
+				Factory.power(2.0) //
+		};
+
+		for (BulkDoubleTransform transform : transforms)
+		{
+			double[] destination = new double[source.length];
+			transform.apply(source, destination, 1, source.length - 1);
+
+			assertEquals(0.0, destination[0], transform.toString());
+			for (int index = 1; index < source.length; ++index)
+			{
+				assertEquals(transform.apply(source[index]), destination[index], transform.toString());
+			}
+		}
+	}
+
+	@Test
+	void testToBulkLayerTransform()
+	{
+		int iSize = 3;
+		int jSize = 2;
+		int kSize = 2;
+		double[] values = new double[iSize * jSize * kSize];
+		for (int index = 0; index < values.length; ++index)
+		{
+			values[index] = index;
+		}
+		BitSet invalid = new BitSet();
+		invalid.set(4);
+
+		DenseLayerOfDouble layer = new DenseLayerOfDouble(iSize, jSize, kSize, values, invalid, null);
+
+		Function<Layer, Layer> function = new LayerDoubleTransformFactory().toBulkLayerTransform(Factory.linear(10.0, 1.0));
+		Layer transformed = function.apply(layer);
+
+		assertTrue(transformed instanceof DenseLayerOfDouble);
+		assertEquals(4.0, values[4], "input layer must not change");
+
+		PixelDouble p = new PixelDoubleFactory().of(Double.NaN, Double.NaN);
+		transformed.get(1, 1, p);
+		assertEquals(41.0, p.get());
+		assertFalse(p.isValid());
+
+		transformed.get(2, 1, p);
+		assertEquals(51.0, p.get());
+		assertTrue(p.isValid());
+	}
+
+}
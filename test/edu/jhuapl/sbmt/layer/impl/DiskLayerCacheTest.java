@@ -0,0 +1,131 @@
+package edu.jhuapl.sbmt.layer.impl;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.BitSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import edu.jhuapl.sbmt.layer.api.Layer;
+import edu.jhuapl.sbmt.layer.api.PixelDouble;
+import edu.jhuapl.sbmt.layer.api.PixelVector;
+
+class DiskLayerCacheTest
+{
+	private static final LayerContentKeyFactory KeyFactory = new LayerContentKeyFactory();
+	private static final LayerTransformFactory TransformFactory = new LayerTransformFactory();
+
+	@BeforeAll
+	static void setUpBeforeClass() throws Exception
+	{
+	}
+
+	@AfterAll
+	static void tearDownAfterClass() throws Exception
+	{
+	}
+
+	@Test
+	void testRoundTrip(@TempDir Path directory) throws IOException
+	{
+		DiskLayerCache cache = new DiskLayerCache(directory, 1 << 20);
+
+		double[] values = new double[4 * 3 * 2];
+		for (int index = 0; index < values.length; ++index)
+		{
+			values[index] = index == 5 ? Double.NaN : 0.5 * index;
+		}
+		BitSet invalid = new BitSet();
+		invalid.set(7);
+		DenseLayerOfDouble layer = new DenseLayerOfDouble(4, 3, 2, values, invalid, null);
+
+		String key = KeyFactory.fingerprint("round trip");
+		assertNull(cache.get(key));
+
+		cache.put(key, layer);
+		DenseLayerOfDouble cached = cache.get(key);
+		assertNotNull(cached);
+		assertEquals(4, cached.iSize());
+		assertEquals(3, cached.jSize());
+		assertEquals(2, cached.kSize());
+		assertArrayEquals(values, cached.values());
+		assertEquals(invalid, cached.invalid());
+		assertEquals(1, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+	}
+
+	@Test
+	void testHitWithoutTouch(@TempDir Path directory) throws IOException
+	{
+		DenseLayerOfDouble layer = new DenseLayerOfDouble(2, 2, 1, new double[] { 1.0, 2.0, 3.0, 4.0 }, null, null);
+		String key = KeyFactory.fingerprint("shared");
+		new DiskLayerCache(directory, 1 << 20).put(key, layer);
+
+		// As for an entry written by another user of a shared directory,
+		// whose time this user is not allowed to set.
+		DiskLayerCache cache = new DiskLayerCache(directory, 1 << 20) {
+			@Override
+			protected void touch(Path path) throws IOException
+			{
+				throw new IOException("Operation not permitted: " + path);
+			}
+		};
+
+		DenseLayerOfDouble cached = cache.get(key);
+		assertNotNull(cached);
+		assertArrayEquals(layer.values(), cached.values());
+		assertEquals(1, cache.getHitCount());
+		assertEquals(0, cache.getMissCount());
+	}
+
+	@Test
+	void testApplyAndEvict(@TempDir Path directory) throws IOException
+	{
+
+		AtomicInteger reads = new AtomicInteger();
+		Layer source = new LayerDoubleBuilder().doubleGetter((i, j) -> {
+			reads.incrementAndGet();
+			return 10.0 * j + i;
+		}, 10, 10).build();
+		String fingerprint = KeyFactory.fingerprint("source");
+
+		// Room for about two 5 x 5 entries.
+		DiskLayerCache cache = new DiskLayerCache(directory, 500);
+		LayerPipeline pipeline = LayerPipeline.of(TransformFactory.subset(0, 5, 0, 5), TransformFactory.rotateCW());
+
+		Layer first = cache.apply(pipeline, source, fingerprint);
+		assertEquals(25, reads.get());
+
+		// A new cache in the same directory, as in another session.
+		cache = new DiskLayerCache(directory, 500);
+		Layer second = cache.apply(pipeline, source, fingerprint);
+		assertEquals(25, reads.get());
+		assertEquals(1, cache.getHitCount());
+
+		PixelVector p1 = new PixelVectorDoubleFactory().of(1, Double.NaN);
+		PixelVector p2 = new PixelVectorDoubleFactory().of(1, Double.NaN);
+		for (int i = 0; i < 5; ++i)
+		{
+			for (int j = 0; j < 5; ++j)
+			{
+				first.get(i, j, p1);
+				second.get(i, j, p2);
+				assertEquals(((PixelDouble) p1.get(0)).get(), ((PixelDouble) p2.get(0)).get());
+			}
+		}
+
+		for (int iMin = 1; iMin < 5; ++iMin)
+		{
+			cache.apply(LayerPipeline.of(TransformFactory.subset(iMin, iMin + 5, 0, 5)), source, fingerprint);
+		}
+		assertTrue(cache.size() <= 500);
+		assertTrue(cache.getEvictionCount() > 0);
+	}
+
+}
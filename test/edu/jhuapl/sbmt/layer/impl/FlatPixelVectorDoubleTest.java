@@ -0,0 +1,135 @@
+package edu.jhuapl.sbmt.layer.impl;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.BitSet;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import edu.jhuapl.sbmt.layer.api.Layer;
+import edu.jhuapl.sbmt.layer.api.PixelDouble;
+import edu.jhuapl.sbmt.layer.api.PixelVector;
+
+class FlatPixelVectorDoubleTest
+{
+
+	@BeforeAll
+	static void setUpBeforeClass() throws Exception
+	{
+	}
+
+	@AfterAll
+	static void tearDownAfterClass() throws Exception
+	{
+	}
+
+	@Test
+	void testFlagsMatchBasic()
+	{
+		int size = 3;
+		PixelVector basic = new PixelVectorDoubleFactory().of(size, -1.0, -2.0);
+		FlatPixelVectorDouble flat = new FlatPixelVectorDoubleFactory().of(size, -1.0, -2.0);
+
+		// Exhaustively compare every combination of vector and element flags,
+		// visiting them in an order that exercises the incremental counts.
+		int numberFlags = 2 * (size + 1);
+		for (int step = 0; step < 1 << numberFlags; ++step)
+		{
+			int state = step ^ (step >> 1);
+			for (PixelVector pv : new PixelVector[] { basic, flat })
+			{
+				pv.setIsValid((state & 1) != 0);
+				pv.setInBounds((state & 2) != 0);
+				for (int k = 0; k < size; ++k)
+				{
+					PixelDouble pk = (PixelDouble) pv.get(k);
+					pk.set(k);
+					pk.setIsValid((state & 4 << 2 * k) != 0);
+					pk.setInBounds((state & 8 << 2 * k) != 0);
+				}
+			}
+
+			assertEquals(basic.isValid(), flat.isValid(), "State " + state);
+			assertEquals(basic.isInBounds(), flat.isInBounds(), "State " + state);
+			for (int k = 0; k < size; ++k)
+			{
+				PixelDouble basicK = (PixelDouble) basic.get(k);
+				PixelDouble flatK = flat.get(k);
+				assertEquals(basicK.isValid(), flatK.isValid(), "State " + state + ", element " + k);
+				assertEquals(basicK.isInBounds(), flatK.isInBounds(), "State " + state + ", element " + k);
+				assertEquals(basicK.get(), flatK.get(), "State " + state + ", element " + k);
+			}
+		}
+	}
+
+	@Test
+	void testLargeVector()
+	{
+		FlatPixelVectorDouble flat = new FlatPixelVectorDoubleFactory().of(130, Double.NaN);
+		assertTrue(flat.isValid());
+
+		flat.setAll(false, true);
+		assertFalse(flat.isValid());
+		assertTrue(flat.isInBounds());
+
+		flat.setElementValidFlag(129, true);
+		assertTrue(flat.isValid());
+		assertTrue(flat.get(129).isValid());
+		assertFalse(flat.get(128).isValid());
+
+		flat.setAll(true, false);
+		assertFalse(flat.isInBounds());
+		flat.get(64).setInBounds(true);
+		assertTrue(flat.isInBounds());
+		assertTrue(flat.isValid());
+	}
+
+	@Test
+	void testLayerFillsFlatVector()
+	{
+		int iSize = 3;
+		int jSize = 4;
+		int kSize = 5;
+		double[] values = new double[iSize * jSize * kSize];
+		for (int index = 0; index < values.length; ++index)
+		{
+			values[index] = index;
+		}
+		BitSet invalid = new BitSet();
+		invalid.set(2 * iSize * jSize + 1 * iSize + 2);
+
+		DenseLayerOfDouble dense = new DenseLayerOfDouble(iSize, jSize, kSize, values, invalid, null);
+		Layer builderLayer = new LayerDoubleBuilder().doubleGetter((i, j, k) -> values[(k * jSize + j) * iSize + i], iSize, jSize, kSize) //
+				.checker((ValidityChecker3d) (i, j, k, value) -> !invalid.get((k * jSize + j) * iSize + i)).build();
+		Layer transformed = new LayerDoubleTransformFactory().toLayerTransform(value -> -value, value -> 1000.0).apply(dense);
+
+		for (Layer layer : new Layer[] { dense, builderLayer, transformed })
+		{
+			PixelVector basic = new PixelVectorDoubleFactory().of(kSize + 1, -9.0);
+			FlatPixelVectorDouble flat = new FlatPixelVectorDoubleFactory().of(kSize + 1, -9.0);
+
+			for (int j = -1; j <= jSize; ++j)
+			{
+				for (int i = -1; i <= iSize; ++i)
+				{
+					layer.get(i, j, basic);
+					layer.get(i, j, flat);
+
+					assertEquals(basic.isValid(), flat.isValid());
+					assertEquals(basic.isInBounds(), flat.isInBounds());
+					for (int k = 0; k <= kSize; ++k)
+					{
+						PixelDouble basicK = (PixelDouble) basic.get(k);
+						PixelDouble flatK = flat.get(k);
+						assertEquals(basicK.isValid(), flatK.isValid());
+						assertEquals(basicK.isInBounds(), flatK.isInBounds());
+						assertEquals(basicK.get(), flatK.get());
+					}
+				}
+			}
+		}
+	}
+
+}
@@ -0,0 +1,82 @@
+package edu.jhuapl.sbmt.layer.impl;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.BitSet;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import edu.jhuapl.sbmt.layer.api.Layer;
+
+class LayerContentKeyFactoryTest
+{
+	private static final LayerContentKeyFactory KeyFactory = new LayerContentKeyFactory();
+	private static final LayerTransformFactory TransformFactory = new LayerTransformFactory();
+	private static final LayerDoubleTransformFactory DoubleTransformFactory = new LayerDoubleTransformFactory();
+	private static final BulkDoubleTransformFactory BulkFactory = new BulkDoubleTransformFactory();
+
+	@BeforeAll
+	static void setUpBeforeClass() throws Exception
+	{
+	}
+
+	@AfterAll
+	static void tearDownAfterClass() throws Exception
+	{
+	}
+
+	@Test
+	void testFingerprint()
+	{
+		double[] values = new double[] { 1.0, 2.0, 3.0, 4.0, 5.0, 6.0 };
+		BitSet invalid = new BitSet();
+		invalid.set(4);
+		Layer dense = new DenseLayerOfDouble(3, 2, 1, values, invalid, null);
+		Layer built = new LayerDoubleBuilder().doubleGetter((i, j) -> 3.0 * j + i + 1.0, 3, 2) //
+				.checker((ValidityChecker2d) (i, j, value) -> value != 5.0) //
+				.build();
+
+		String fingerprint = KeyFactory.fingerprint(dense);
+		assertEquals(64, fingerprint.length());
+		assertEquals(fingerprint, KeyFactory.fingerprint(built));
+
+		values[0] = -1.0;
+		assertFalse(fingerprint.equals(KeyFactory.fingerprint(dense)));
+
+		assertEquals(KeyFactory.fingerprint("file.fits 12345"), KeyFactory.fingerprint("file.fits 12345"));
+		assertFalse(KeyFactory.fingerprint("file.fits 12345").equals(KeyFactory.fingerprint("file.fits 12346")));
+	}
+
+	@Test
+	void testKey()
+	{
+		LayerPipeline pipeline = LayerPipeline.of( //
+				DoubleTransformFactory.rotatePreservingSize(90.0), //
+				DoubleTransformFactory.linearInterpolate(20, 30), //
+				DoubleTransformFactory.toLayerTransform(BulkFactory.linear(2.0, 1.0), null));
+		assertEquals("pipeline:1\nRotatePreservingSize(90.0,outOfBounds)\nLinearInterpolate(20,30)\nValueTransform(linear(2.0, 1.0),null)", KeyFactory.spec(pipeline));
+
+		String fingerprint = KeyFactory.fingerprint("source");
+		String key = KeyFactory.key(fingerprint, pipeline);
+		assertEquals(64, key.length());
+
+		// Identity and cache steps do not change the key.
+		LayerPipeline same = LayerPipeline.of( //
+				TransformFactory.identity(), //
+				DoubleTransformFactory.rotatePreservingSize(-270.0), //
+				DoubleTransformFactory.linearInterpolate(20, 30), //
+				DoubleTransformFactory.cache(new TileCache(1000), 10), //
+				DoubleTransformFactory.toLayerTransform(BulkFactory.linear(2.0, 1.0), null));
+		assertEquals(key, KeyFactory.key(fingerprint, same));
+
+		assertFalse(key.equals(KeyFactory.key(fingerprint, pipeline.then(TransformFactory.selectBands(0)))));
+		assertFalse(key.equals(KeyFactory.key(KeyFactory.fingerprint("other"), pipeline)));
+
+		// Functions without stable descriptions have no key.
+		assertNull(KeyFactory.key(fingerprint, pipeline.then(DoubleTransformFactory.toLayerTransform(value -> value, null))));
+		assertNull(KeyFactory.key(fingerprint, pipeline.then(layer -> layer)));
+	}
+
+}
@@ -1,11 +1,21 @@
 package edu.jhuapl.sbmt.layer.impl;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.*;
+
+import java.lang.management.ManagementFactory;
+import java.util.function.Function;
 
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
+import com.sun.management.ThreadMXBean;
+
+import edu.jhuapl.sbmt.layer.api.Layer;
+import edu.jhuapl.sbmt.layer.api.PixelDouble;
+import edu.jhuapl.sbmt.layer.api.PixelVector;
+
 class LayerDoubleTransformFactoryTest
 {
 
@@ -22,7 +32,84 @@ class LayerDoubleTransformFactoryTest
 	@Test
 	void testToLayerTransform()
 	{
-		fail("Not yet implemented"); // TODO
+		Layer layer = new LayerDoubleBuilder().doubleGetter((i, j, k) -> 100 * k + 10 * i + j, 4, 5, 3) //
+				.checker((ValidityChecker3d) (i, j, k, value) -> value != 123.0).build();
+
+		Function<Layer, Layer> transform = new LayerDoubleTransformFactory().toLayerTransform(value -> 2.0 * value, value -> -1.0);
+		Layer transformed = transform.apply(layer);
+
+		// Extra element in the pixel is out of bounds in the layer.
+		PixelVector pv = new PixelVectorDoubleFactory().of(4, -5.0);
+
+		transformed.get(2, 3, pv);
+		assertEquals(2.0 * 23.0, ((PixelDouble) pv.get(0)).get());
+		assertEquals(-1.0, ((PixelDouble) pv.get(1)).getStoredValue());
+		assertFalse(pv.get(1).isValid());
+		assertEquals(2.0 * 223.0, ((PixelDouble) pv.get(2)).get());
+		assertFalse(pv.get(3).isInBounds());
+		assertEquals(-5.0, ((PixelDouble) pv.get(3)).get());
+
+		// Each element is transformed from the layer, not from the pixel's
+		// previous contents.
+		transformed.get(1, 1, pv);
+		assertEquals(2.0 * 11.0, ((PixelDouble) pv.get(0)).get());
+		assertTrue(pv.get(1).isValid());
+		assertEquals(2.0 * 111.0, ((PixelDouble) pv.get(1)).get());
+
+		PixelDouble pd = new PixelDoubleFactory().of(Double.NaN, -7.0);
+		transformed.get(3, 4, pd);
+		assertEquals(2.0 * 34.0, pd.get());
+
+		transformed.get(4, 4, pd);
+		assertFalse(pd.isInBounds());
+		assertEquals(-7.0, pd.get());
+	}
+
+	@Test
+	void testToLayerTransformAllocation()
+	{
+		assumeTrue(ManagementFactory.getThreadMXBean() instanceof ThreadMXBean);
+
+		ThreadMXBean threadBean = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+		assumeTrue(threadBean.isThreadAllocatedMemorySupported() && threadBean.isThreadAllocatedMemoryEnabled());
+
+		int iSize = 64;
+		int jSize = 64;
+		int kSize = 16;
+		Layer layer = new DenseLayerOfDouble(iSize, jSize, kSize, new double[iSize * jSize * kSize], null, null);
+		Layer transformed = new LayerDoubleTransformFactory().toLayerTransform(value -> value + 1.0, null).apply(layer);
+
+		PixelVector pv = new PixelVectorDoubleFactory().of(kSize, Double.NaN);
+		PixelDouble pd = new PixelDoubleFactory().of(Double.NaN, Double.NaN);
+
+		// Warm up so that one-time allocations (class loading, JIT) are not
+		// counted.
+		getAll(transformed, pv, pd);
+		getAll(transformed, pv, pd);
+
+		long threadId = Thread.currentThread().getId();
+		long before = threadBean.getThreadAllocatedBytes(threadId);
+		for (int pass = 0; pass < 10; ++pass)
+		{
+			getAll(transformed, pv, pd);
+		}
+		long allocated = threadBean.getThreadAllocatedBytes(threadId) - before;
+
+		// 81920 gets; allow a little slack for incidental allocations by the
+		// JVM on this thread, but far less than one object per get.
+		assertTrue(allocated < 64 * 1024, "Allocated " + allocated + " bytes");
+	}
+
+	private static void getAll(Layer layer, PixelVector pv, PixelDouble pd)
+	{
+		for (int j = 0; j < layer.jSize(); ++j)
+		{
+			for (int i = 0; i < layer.iSize(); ++i)
+			{
+				layer.get(i, j, pv);
+				layer.get(i, j, pd);
+			}
+		}
 	}
 
 	@Test
@@ -0,0 +1,141 @@
+package edu.jhuapl.sbmt.layer.impl;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.BitSet;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import edu.jhuapl.sbmt.layer.api.Layer;
+import edu.jhuapl.sbmt.layer.api.PixelDouble;
+import edu.jhuapl.sbmt.layer.impl.LayerTransform.Kind;
+
+class LayerPipelineOptimizerTest
+{
+	private static final LayerTransformFactory TransformFactory = new LayerTransformFactory();
+	private static final LayerDoubleTransformFactory DoubleTransformFactory = new LayerDoubleTransformFactory();
+	private static final LayerPipelineOptimizer Optimizer = new LayerPipelineOptimizer();
+
+	private static final int ISize = 40;
+	private static final int JSize = 30;
+
+	@BeforeAll
+	static void setUpBeforeClass() throws Exception
+	{
+	}
+
+	@AfterAll
+	static void tearDownAfterClass() throws Exception
+	{
+	}
+
+	@Test
+	void testSubsetAfterResample()
+	{
+		LayerPipeline pipeline = LayerPipeline.of( //
+				DoubleTransformFactory.toLayerTransform(value -> 2.0 * value, null), //
+				TransformFactory.resampleNearestNeighbor(100, 75), //
+				TransformFactory.subset(10, 20, 30, 35));
+
+		LayerPipeline optimized = assertOptimizedMatches(pipeline, 4 * 2);
+
+		// The mask goes below the value transform, at the start.
+		LayerTransform mask = optimized.getSteps().get(0);
+		assertEquals(Kind.Mask, mask.getKind());
+		assertEquals(TransformFactory.mask(4, ISize - 8, 12, JSize - 14), mask);
+
+		// Optimizing again changes nothing.
+		assertEquals(optimized, Optimizer.optimize(optimized, ISize, JSize));
+	}
+
+	@Test
+	void testTrimAfterInterpolateAndRotate()
+	{
+		LayerPipeline pipeline = LayerPipeline.of( //
+				TransformFactory.identity(), //
+				DoubleTransformFactory.linearInterpolate(61, 45), //
+				TransformFactory.rotateCW(), //
+				TransformFactory.invertI(), //
+				TransformFactory.trim(20, 15, 30, 20));
+
+		LayerPipeline optimized = assertOptimizedMatches(pipeline, 100);
+		assertEquals(Kind.Mask, optimized.getSteps().get(0).getKind());
+		assertEquals(pipeline.size(), optimized.size());
+	}
+
+	@Test
+	void testStopsAtUnknownStep()
+	{
+		LayerPipeline pipeline = LayerPipeline.of( //
+				TransformFactory.resampleNearestNeighbor(80, 60), //
+				DoubleTransformFactory.rotatePreservingSize(90.0), //
+				TransformFactory.rotateCCW(), //
+				TransformFactory.mask(10, 40, 5, 40));
+
+		LayerPipeline optimized = assertOptimizedMatches(pipeline, ISize * JSize);
+		assertEquals(TransformFactory.mask(40, 5, 10, 40), optimized.getSteps().get(2));
+
+		// Sizes are not known after a custom step.
+		LayerPipeline custom = LayerPipeline.of(TransformFactory.resampleNearestNeighbor(80, 60), layer -> layer, TransformFactory.subset(0, 1, 0, 1));
+		assertEquals(custom, Optimizer.optimize(custom, ISize, JSize));
+
+		// Nothing to gain when the whole output is needed.
+		LayerPipeline whole = LayerPipeline.of(TransformFactory.rotateCW(), TransformFactory.resampleNearestNeighbor(100, 100));
+		assertEquals(whole, Optimizer.optimize(whole, ISize, JSize));
+	}
+
+	/**
+	 * Check the optimized pipeline gets the same pixels as the original, while
+	 * reading at most the specified number of distinct input pixels.
+	 */
+	private static LayerPipeline assertOptimizedMatches(LayerPipeline pipeline, int maxReads)
+	{
+		BitSet reads = new BitSet();
+		Layer input = new LayerDoubleBuilder().doubleGetter((i, j) -> {
+			reads.set(j * ISize + i);
+			return i == 7 && j == 13 ? Double.NaN : 100.0 * i + j;
+		}, ISize, JSize).build();
+
+		LayerPipeline optimized = Optimizer.optimize(pipeline, input);
+
+		Layer expected = pipeline.apply(input);
+		Layer actual = optimized.apply(input);
+		assertEquals(expected.iSize(), actual.iSize());
+		assertEquals(expected.jSize(), actual.jSize());
+
+		PixelDouble expectedPixel = new PixelDoubleFactory().of(Double.NaN, -1.0);
+		PixelDouble actualPixel = new PixelDoubleFactory().of(Double.NaN, -1.0);
+
+		reads.clear();
+		for (int i = 0; i < actual.iSize(); ++i)
+		{
+			for (int j = 0; j < actual.jSize(); ++j)
+			{
+				actual.get(i, j, actualPixel);
+			}
+		}
+		assertTrue(reads.cardinality() <= maxReads, "Read " + reads.cardinality() + " pixels");
+
+		for (int i = 0; i < actual.iSize(); ++i)
+		{
+			for (int j = 0; j < actual.jSize(); ++j)
+			{
+				expected.get(i, j, expectedPixel);
+				actual.get(i, j, actualPixel);
+
+				String where = "(" + i + ", " + j + ")";
+				assertEquals(expectedPixel.isInBounds(), actualPixel.isInBounds(), where);
+				if (expectedPixel.isInBounds())
+				{
+					assertEquals(expectedPixel.isValid(), actualPixel.isValid(), where);
+					assertEquals(expectedPixel.get(), actualPixel.get(), where);
+				}
+			}
+		}
+
+		return optimized;
+	}
+
+}
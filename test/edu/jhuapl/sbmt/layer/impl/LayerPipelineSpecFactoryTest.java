@@ -0,0 +1,136 @@
+package edu.jhuapl.sbmt.layer.impl;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import edu.jhuapl.sbmt.layer.impl.LayerTransform.Kind;
+
+class LayerPipelineSpecFactoryTest
+{
+	private static final LayerPipelineSpecFactory SpecFactory = new LayerPipelineSpecFactory();
+	private static final LayerContentKeyFactory KeyFactory = new LayerContentKeyFactory();
+	private static final LayerTransformFactory TransformFactory = new LayerTransformFactory();
+	private static final LayerDoubleTransformFactory DoubleTransformFactory = new LayerDoubleTransformFactory();
+	private static final BulkDoubleTransformFactory BulkFactory = new BulkDoubleTransformFactory();
+
+	@BeforeAll
+	static void setUpBeforeClass() throws Exception
+	{
+	}
+
+	@AfterAll
+	static void tearDownAfterClass() throws Exception
+	{
+	}
+
+	@Test
+	void testRoundTrip()
+	{
+		LayerPipeline pipeline = LayerPipeline.of( //
+				TransformFactory.identity(), //
+				TransformFactory.invertI(), //
+				TransformFactory.invertJ(), //
+				TransformFactory.invertIJ(), //
+				TransformFactory.swapIJ(), //
+				TransformFactory.rotateCW(), //
+				TransformFactory.rotateCCW(), //
+				TransformFactory.subsetI(1, 9), //
+				TransformFactory.subsetJ(2, 8), //
+				TransformFactory.subset(0, 6, 0, 5), //
+				TransformFactory.trimI(1, 0), //
+				TransformFactory.trimJ(0, 1), //
+				TransformFactory.trim(1, 1, 1, 1), //
+				TransformFactory.mask(1, 0, 0, 1), //
+				DoubleTransformFactory.expand(2, 2, 3, 3, Double.NaN), //
+				DoubleTransformFactory.rotatePreservingSize(90.0), //
+				DoubleTransformFactory.rotatePreservingSize(270.0, -1.0), //
+				TransformFactory.resampleNearestNeighbor(20, 20), //
+				DoubleTransformFactory.linearInterpolate(30, 40), //
+				DoubleTransformFactory.cache(new TileCache(1000), 16), //
+				DoubleTransformFactory.toLayerTransform(BulkFactory.linear(2.0, -1.5), BulkFactory.log()), //
+				DoubleTransformFactory.toBulkLayerTransform(BulkFactory.clamp(0.0, 1.0)), //
+				DoubleTransformFactory.toLayerTransform(BulkFactory.power(0.5), null), //
+				TransformFactory.selectBands(2, 0), //
+				DoubleTransformFactory.slice(1, Double.NaN));
+
+		String json = SpecFactory.toJson(pipeline);
+		LayerPipeline loaded = SpecFactory.fromJson(json);
+
+		// The cache step is dropped because no cache was supplied.
+		assertEquals(pipeline.size() - 1, loaded.size());
+		assertEquals(json.replace(",{\"op\":\"Cache\",\"args\":[16]}", ""), SpecFactory.toJson(loaded));
+
+		String fingerprint = KeyFactory.fingerprint("source");
+		assertEquals(KeyFactory.key(fingerprint, pipeline), KeyFactory.key(fingerprint, loaded));
+
+		LayerPipeline cached = new LayerPipelineSpecFactory(new TileCache(1000)).fromJson(json);
+		assertEquals(Kind.Cache, cached.getSteps().get(19).getKind());
+		assertEquals(List.of(1, 9), loaded.getSteps().get(7).getParameters());
+	}
+
+	@Test
+	void testFromJson()
+	{
+		String json = "{\"version\":1,\"steps\":[" //
+				+ "{\"op\":\"LinearInterpolate\",\"args\":[80,60]}," //
+				+ "{\"op\":\"ValueTransform\",\"args\":[\"clamp(0.0, 1.0)\",null]}," //
+				+ "{\"op\":\"Subset\",\"args\":[0,8,0,6]}]}";
+
+		LayerPipeline pipeline = SpecFactory.fromJson(json);
+		assertEquals(3, pipeline.size());
+		assertEquals(List.of(80, 60), pipeline.getSteps().get(0).getParameters());
+
+		LayerPipeline optimized = SpecFactory.fromJson(json, 40, 30);
+		assertEquals(Kind.Mask, optimized.getSteps().get(0).getKind());
+
+		assertThrows(IllegalArgumentException.class, () -> SpecFactory.fromJson("{\"version\":1,\"steps\":[{\"op\":\"Spin\"}]}"));
+		assertThrows(IllegalArgumentException.class, () -> SpecFactory.fromJson("{\"version\":2,\"steps\":[]}"));
+		assertThrows(IllegalArgumentException.class, () -> SpecFactory.toDoubleTransform("linear(1.0)"));
+		assertThrows(IllegalArgumentException.class, () -> SpecFactory.toJson(LayerPipeline.of(layer -> layer)));
+		assertThrows(IllegalArgumentException.class, () -> SpecFactory.toJson(LayerPipeline.of(DoubleTransformFactory.toLayerTransform(value -> value, null))));
+	}
+
+	@Test
+	void testInvalidSpecs()
+	{
+		String[] specs = { //
+				"not json {", //
+				"[]", //
+				"{\"steps\":[]}", //
+				"{\"version\":1.5,\"steps\":[]}", //
+				"{\"version\":1}", //
+				"{\"version\":1,\"steps\":{}}", //
+				"{\"version\":1,\"steps\":[3]}", //
+				"{\"version\":1,\"steps\":[{\"args\":[1,2]}]}", //
+				"{\"version\":1,\"steps\":[{\"op\":7}]}", //
+				"{\"version\":1,\"steps\":[{\"op\":\"SubsetI\"}]}", //
+				"{\"version\":1,\"steps\":[{\"op\":\"SubsetI\",\"args\":[1]}]}", //
+				"{\"version\":1,\"steps\":[{\"op\":\"SubsetI\",\"args\":[1,2,3]}]}", //
+				"{\"version\":1,\"steps\":[{\"op\":\"SubsetI\",\"args\":5}]}", //
+				"{\"version\":1,\"steps\":[{\"op\":\"SubsetI\",\"args\":[1.5,8]}]}", //
+				"{\"version\":1,\"steps\":[{\"op\":\"SubsetI\",\"args\":[1,1e10]}]}", //
+				"{\"version\":1,\"steps\":[{\"op\":\"SubsetI\",\"args\":[\"1\",8]}]}", //
+				"{\"version\":1,\"steps\":[{\"op\":\"Slice\",\"args\":[0,\"zero\"]}]}", //
+				"{\"version\":1,\"steps\":[{\"op\":\"SelectBands\",\"args\":[0]}]}", //
+				"{\"version\":1,\"steps\":[{\"op\":\"SelectBands\",\"args\":[[0.5]]}]}", //
+				"{\"version\":1,\"steps\":[{\"op\":\"BulkValueTransform\",\"args\":[3]}]}", //
+				"{\"version\":1,\"steps\":[{\"op\":\"Identity\",\"args\":[0]}]}", //
+				"{\"version\":1,\"steps\":[{\"op\":\"Custom\"}]}", //
+		};
+
+		for (String spec : specs)
+		{
+			assertThrows(IllegalArgumentException.class, () -> SpecFactory.fromJson(spec));
+		}
+
+		// Integral values written as doubles are accepted.
+		LayerPipeline pipeline = SpecFactory.fromJson("{\"version\":1.0,\"steps\":[{\"op\":\"SubsetI\",\"args\":[1.0,8]}]}");
+		assertEquals(List.of(1, 8), pipeline.getSteps().get(0).getParameters());
+	}
+
+}
@@ -0,0 +1,93 @@
+package edu.jhuapl.sbmt.layer.impl;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import edu.jhuapl.sbmt.layer.api.Layer;
+import edu.jhuapl.sbmt.layer.api.PixelDouble;
+import edu.jhuapl.sbmt.layer.impl.LayerTransform.Kind;
+
+class LayerPipelineTest
+{
+	private static final LayerTransformFactory TransformFactory = new LayerTransformFactory();
+	private static final LayerDoubleTransformFactory DoubleTransformFactory = new LayerDoubleTransformFactory();
+
+	@BeforeAll
+	static void setUpBeforeClass() throws Exception
+	{
+	}
+
+	@AfterAll
+	static void tearDownAfterClass() throws Exception
+	{
+	}
+
+	@Test
+	void testDescriptors()
+	{
+		LayerTransform subset = TransformFactory.subset(1, 4, 0, 3);
+		assertEquals(Kind.Subset, subset.getKind());
+		assertEquals(List.of(1, 4, 0, 3), subset.getParameters());
+		assertEquals(4, subset.getParameter(1, Integer.class).intValue());
+		assertEquals(TransformFactory.subset(1, 4, 0, 3), subset);
+		assertFalse(subset.equals(TransformFactory.subset(1, 4, 0, 2)));
+		assertEquals("Subset(1, 4, 0, 3)", subset.toString());
+
+		// Aliases return the same descriptor.
+		assertSame(TransformFactory.invertJ(), TransformFactory.flipAboutX());
+		assertEquals(Kind.InvertIJ, TransformFactory.rotateHalfway().getKind());
+		assertEquals(Kind.InvertIJ, DoubleTransformFactory.rotatePreservingSize(-180.0).getKind());
+
+		LayerTransform rotate = DoubleTransformFactory.rotatePreservingSize(-90.0, 5.0);
+		assertEquals(Kind.RotatePreservingSize, rotate.getKind());
+		assertEquals(List.of(270.0, 5.0), rotate.getParameters());
+
+		assertEquals(List.of(List.of(2, 0)), TransformFactory.selectBands(2, 0).getParameters());
+
+		Function<Layer, Layer> custom = layer -> layer;
+		assertEquals(Kind.Custom, LayerTransform.of(custom).getKind());
+		assertSame(subset, LayerTransform.of(subset));
+	}
+
+	@Test
+	void testApply()
+	{
+		Layer layer = new LayerDoubleBuilder().doubleGetter((i, j) -> 10.0 * j + i, 5, 4).build();
+
+		LayerPipeline pipeline = LayerPipeline.of(TransformFactory.subset(1, 4, 0, 3), TransformFactory.rotateCW());
+		pipeline = pipeline.then(LayerPipeline.of(DoubleTransformFactory.toLayerTransform(value -> 2.0 * value, null)));
+		assertEquals(3, pipeline.size());
+		assertEquals(Kind.ValueTransform, pipeline.getSteps().get(2).getKind());
+		assertEquals(pipeline, LayerPipeline.of(pipeline.getSteps()));
+
+		Function<Layer, Layer> composed = TransformFactory.subset(1, 4, 0, 3) //
+				.andThen(TransformFactory.rotateCW()) //
+				.andThen(pipeline.getSteps().get(2));
+
+		Layer expected = composed.apply(layer);
+		Layer actual = pipeline.apply(layer);
+		assertEquals(expected.iSize(), actual.iSize());
+		assertEquals(expected.jSize(), actual.jSize());
+
+		PixelDouble expectedPixel = new PixelDoubleFactory().of(Double.NaN, -1.0);
+		PixelDouble actualPixel = new PixelDoubleFactory().of(Double.NaN, -1.0);
+		for (int i = 0; i < actual.iSize(); ++i)
+		{
+			for (int j = 0; j < actual.jSize(); ++j)
+			{
+				expected.get(i, j, expectedPixel);
+				actual.get(i, j, actualPixel);
+				assertEquals(expectedPixel.get(), actualPixel.get());
+			}
+		}
+
+		assertSame(layer, LayerPipeline.of().apply(layer));
+	}
+
+}
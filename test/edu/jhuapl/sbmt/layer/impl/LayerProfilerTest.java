@@ -0,0 +1,122 @@
+package edu.jhuapl.sbmt.layer.impl;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import edu.jhuapl.sbmt.layer.api.Layer;
+import edu.jhuapl.sbmt.layer.api.PixelDouble;
+import edu.jhuapl.sbmt.layer.api.PixelVector;
+import edu.jhuapl.sbmt.layer.impl.LayerProfiler.Stage;
+import edu.jhuapl.sbmt.layer.impl.SyntheticLayerFactory.Pattern;
+
+class LayerProfilerTest
+{
+
+	@BeforeAll
+	static void setUpBeforeClass() throws Exception
+	{
+	}
+
+	@AfterAll
+	static void tearDownAfterClass() throws Exception
+	{
+	}
+
+	private static final LayerTransformFactory TransformFactory = new LayerTransformFactory();
+	private static final LayerDoubleTransformFactory DoubleTransformFactory = new LayerDoubleTransformFactory();
+	private static final SyntheticLayerFactory SyntheticFactory = new SyntheticLayerFactory();
+
+	@Test
+	void testApply()
+	{
+		Layer source = SyntheticFactory.vector(Pattern.Gradient, 40, 30, 3);
+		LayerPipeline pipeline = LayerPipeline.of(TransformFactory.subset(10, 30, 5, 25), DoubleTransformFactory.slice(1, Double.NaN), TransformFactory.invertJ());
+		Layer expected = pipeline.apply(source);
+
+		LayerProfiler profiler = new LayerProfiler();
+		Layer layer = profiler.apply(pipeline, source);
+		assertEquals(20, layer.iSize());
+		assertEquals(20, layer.jSize());
+
+		PixelDouble p = new PixelDoubleFactory().of(Double.NaN, -1.0);
+		PixelDouble pExpected = new PixelDoubleFactory().of(Double.NaN, -1.0);
+		for (int j = 0; j < layer.jSize(); ++j)
+		{
+			for (int i = 0; i < layer.iSize(); ++i)
+			{
+				layer.get(i, j, p);
+				expected.get(i, j, pExpected);
+				assertEquals(pExpected.get(), p.get());
+				assertEquals(pExpected.isValid(), p.isValid());
+			}
+		}
+
+		List<Stage> stages = profiler.getStages();
+		assertEquals(4, stages.size());
+		assertEquals("source", stages.get(0).getName());
+		assertEquals("Subset(10, 30, 5, 25)", stages.get(1).getName());
+
+		// Each pixel of the final layer is one get from every stage.
+		for (Stage stage : stages)
+		{
+			assertEquals(400, stage.getGetCount());
+			assertEquals(0, stage.getRangeCount());
+			assertTrue(stage.getTotalNanos() >= 0.0);
+		}
+		for (int index = 0; index < stages.size(); ++index)
+		{
+			assertTrue(profiler.getSelfNanos(index) >= 0.0);
+			assertTrue(profiler.getSelfNanos(index) <= stages.get(index).getTotalNanos());
+		}
+
+		PixelDouble pMin = new PixelDoubleFactory().of(Double.NaN, -1.0);
+		PixelDouble pMax = new PixelDoubleFactory().of(Double.NaN, -1.0);
+		layer.getRange(pMin, pMax);
+		assertEquals(1, stages.get(3).getRangeCount());
+
+		String report = profiler.report();
+		assertEquals(5, report.split("\n").length);
+		assertTrue(report.contains("Subset(10, 30, 5, 25)"));
+
+		profiler.reset();
+		for (Stage stage : stages)
+		{
+			assertEquals(0, stage.getGetCount());
+			assertEquals(0.0, stage.getTotalNanos());
+		}
+	}
+
+	@Test
+	void testForwarding()
+	{
+		Layer source = SyntheticFactory.vector(Pattern.Noise, 16, 16, 4);
+
+		LayerProfiler profiler = new LayerProfiler();
+		Layer layer = profiler.apply(LayerPipeline.of(), source);
+		assertTrue(layer instanceof BandSelective);
+
+		PixelDouble pd = new PixelDoubleFactory().of(Double.NaN, -1.0);
+		PixelDouble pdExpected = new PixelDoubleFactory().of(Double.NaN, -1.0);
+		((BandSelective) layer).getBand(3, 4, 2, pd);
+		((BandSelective) source).getBand(3, 4, 2, pdExpected);
+		assertEquals(pdExpected.get(), pd.get());
+
+		BasicPixelBlockDouble block = new PixelBlockDoubleFactory().of(8, 8, 4, Double.NaN);
+		layer.getBlock(4, 4, block);
+		Stage stage = profiler.getStages().get(0);
+		assertEquals(1, stage.getGetCount());
+		assertEquals(1, stage.getBlockCount());
+
+		PixelVector pv = new PixelVectorDoubleFactory().of(4, Double.NaN);
+		source.get(5, 6, pv);
+		assertEquals(((PixelDouble) pv.get(1)).get(), block.values()[block.index(1, 2, 1)]);
+
+		assertFalse(profiler.apply(LayerPipeline.of(), SyntheticFactory.scalar(Pattern.Noise, 4, 4)) instanceof BandSelective);
+	}
+
+}
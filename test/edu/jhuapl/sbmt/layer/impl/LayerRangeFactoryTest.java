@@ -0,0 +1,187 @@
+package edu.jhuapl.sbmt.layer.impl;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import com.google.common.collect.ImmutableList;
+
+import edu.jhuapl.sbmt.layer.api.Layer;
+import edu.jhuapl.sbmt.layer.api.PixelDouble;
+import edu.jhuapl.sbmt.layer.api.PixelVector;
+import edu.jhuapl.sbmt.layer.impl.LayerTransformFactory.ForwardingLayer;
+
+class LayerRangeFactoryTest
+{
+
+	private static final PixelDoubleFactory ScalarFactory = new PixelDoubleFactory();
+	private static final PixelVectorDoubleFactory VectorFactory = new PixelVectorDoubleFactory();
+	private static final BulkDoubleTransformFactory TransformFactory = new BulkDoubleTransformFactory();
+
+	@BeforeAll
+	static void setUpBeforeClass() throws Exception
+	{
+	}
+
+	@AfterAll
+	static void tearDownAfterClass() throws Exception
+	{
+	}
+
+	@Test
+	void testScan()
+	{
+		// One invalid value and one non-finite value, neither of which counts.
+		Layer layer = new LayerDoubleBuilder().doubleGetter((i, j, k) -> {
+			if (i == 2 && j == 3)
+			{
+				return k == 0 ? -1000.0 : Double.POSITIVE_INFINITY;
+			}
+			return 100 * k + 10 * i + j;
+		}, 300, 400, 2).checker((ValidityChecker3d) (i, j, k, value) -> value != -1000.0).build();
+
+		VectorRangeGetter range = new LayerRangeFactory().scan(layer);
+
+		assertEquals(2, range.size());
+		assertRange(0.0, 10 * 299 + 399, range.get(0));
+		assertRange(100.0, 100 + 10 * 299 + 399, range.get(1));
+	}
+
+	@Test
+	void testMonotonicTransformRange()
+	{
+		AtomicInteger getCount = new AtomicInteger();
+		Layer layer = new LayerDoubleBuilder().doubleGetter((i, j) -> {
+			getCount.incrementAndGet();
+			return 1.0 + i + j;
+		}, 10, 10).rangeGetter(new LayerRangeFactory().toRangeGetter(1.0, 19.0)).build();
+
+		Layer log10 = new LayerDoubleTransformFactory().toLayerTransform(TransformFactory.log10(), null).apply(layer);
+		Layer negate = new LayerDoubleTransformFactory().toLayerTransform(TransformFactory.linear(-2.0, 0.0), null).apply(layer);
+
+		PixelDouble pMin = ScalarFactory.of(Double.NaN, Double.NaN);
+		PixelDouble pMax = ScalarFactory.of(Double.NaN, Double.NaN);
+
+		log10.getRange(pMin, pMax);
+		assertEquals(0.0, pMin.get(), 1.e-15);
+		assertEquals(Math.log10(19.0), pMax.get(), 1.e-15);
+		assertTrue(pMin.isValid());
+		assertTrue(pMax.isValid());
+
+		negate.getRange(pMin, pMax);
+		assertEquals(-38.0, pMin.get());
+		assertEquals(-2.0, pMax.get());
+
+		// Derived analytically, so no pixels were read.
+		assertEquals(0, getCount.get());
+	}
+
+	@Test
+	void testNonMonotonicTransformRange()
+	{
+		Layer layer = new LayerDoubleBuilder().doubleGetter((i, j) -> i - 5.0, 11, 3).build();
+
+		Layer squared = new LayerDoubleTransformFactory().toLayerTransform(TransformFactory.power(2.0), null).apply(layer);
+
+		PixelDouble pMin = ScalarFactory.of(Double.NaN, Double.NaN);
+		PixelDouble pMax = ScalarFactory.of(Double.NaN, Double.NaN);
+
+		squared.getRange(pMin, pMax);
+		assertEquals(0.0, pMin.get());
+		assertEquals(25.0, pMax.get());
+	}
+
+	@Test
+	void testRangeCachedUntilVersionChanges()
+	{
+		AtomicLong version = new AtomicLong();
+		AtomicInteger getCount = new AtomicInteger();
+		double[] offset = { 0.0 };
+		Layer source = new LayerDoubleBuilder().doubleGetter((i, j) -> {
+			getCount.incrementAndGet();
+			return offset[0] + i * j;
+		}, 4, 5).build();
+
+		class VersionedLayer extends ForwardingLayer
+		{
+			VersionedLayer()
+			{
+				super(source);
+			}
+
+			@Override
+			public long getVersion()
+			{
+				return version.get();
+			}
+		}
+
+		Layer squared = new LayerDoubleTransformFactory().toLayerTransform(TransformFactory.power(2.0), null).apply(new VersionedLayer());
+
+		PixelDouble pMin = ScalarFactory.of(Double.NaN, Double.NaN);
+		PixelDouble pMax = ScalarFactory.of(Double.NaN, Double.NaN);
+
+		squared.getRange(pMin, pMax);
+		squared.getRange(pMin, pMax);
+		assertEquals(20, getCount.get());
+		assertEquals(144.0, pMax.get());
+
+		offset[0] = 1.0;
+		version.incrementAndGet();
+
+		squared.getRange(pMin, pMax);
+		assertEquals(40, getCount.get());
+		assertEquals(1.0, pMin.get());
+		assertEquals(169.0, pMax.get());
+	}
+
+	@Test
+	void testAppendRange()
+	{
+		Layer layer0 = new LayerDoubleBuilder().doubleGetter((i, j) -> i + j, 3, 4).build();
+		Layer layer1 = new LayerDoubleBuilder().doubleGetter((i, j, k) -> 10 * (k + 1) + i, 3, 4, 2) //
+				.rangeGetter(new LayerRangeFactory().toRangeGetter(-1.0, 1.0)).build();
+
+		Layer appended = new LayerUtility().append(ImmutableList.of(layer0, layer1));
+
+		PixelVector pMin = VectorFactory.of(3, Double.NaN);
+		PixelVector pMax = VectorFactory.of(3, Double.NaN);
+
+		appended.getRange(pMin, pMax);
+
+		// Band 0 has no range of its own, so it is scanned. Bands 1 and 2 use
+		// the range reported by layer1.
+		assertEquals(0.0, ((PixelDouble) pMin.get(0)).get());
+		assertEquals(5.0, ((PixelDouble) pMax.get(0)).get());
+		assertEquals(-1.0, ((PixelDouble) pMin.get(1)).get());
+		assertEquals(1.0, ((PixelDouble) pMax.get(2)).get());
+	}
+
+	@Test
+	void testInterpolatedRange()
+	{
+		Layer layer = new LayerDoubleBuilder().doubleGetter((i, j) -> 2.0 * i + j, 5, 5).build();
+
+		Layer interpolated = new LayerDoubleTransformFactory().linearInterpolate(50, 60).apply(layer);
+
+		PixelDouble pMin = ScalarFactory.of(Double.NaN, Double.NaN);
+		PixelDouble pMax = ScalarFactory.of(Double.NaN, Double.NaN);
+
+		interpolated.getRange(pMin, pMax);
+		assertEquals(0.0, pMin.get(), 1.e-12);
+		assertEquals(12.0, pMax.get(), 1.e-12);
+	}
+
+	private static void assertRange(double expectedMin, double expectedMax, RangeGetter actual)
+	{
+		DoubleBuilderBase.DoubleRangeGetter range = (DoubleBuilderBase.DoubleRangeGetter) actual;
+		assertEquals(expectedMin, range.getMin());
+		assertEquals(expectedMax, range.getMax());
+	}
+
+}
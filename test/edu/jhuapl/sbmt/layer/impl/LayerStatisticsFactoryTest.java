@@ -0,0 +1,147 @@
+package edu.jhuapl.sbmt.layer.impl;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.stream.LongStream;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import edu.jhuapl.sbmt.layer.api.Layer;
+import edu.jhuapl.sbmt.layer.api.PixelDouble;
+import edu.jhuapl.sbmt.layer.impl.LayerStatistics.Band;
+import edu.jhuapl.sbmt.layer.impl.LayerTransformFactory.ForwardingLayer;
+
+class LayerStatisticsFactoryTest
+{
+
+	@BeforeAll
+	static void setUpBeforeClass() throws Exception
+	{
+	}
+
+	@AfterAll
+	static void tearDownAfterClass() throws Exception
+	{
+	}
+
+	@Test
+	void testScalarLayer()
+	{
+		// Values 0 .. 9999, one per pixel, except one invalid pixel.
+		Layer layer = new LayerDoubleBuilder().doubleGetter((i, j) -> 100 * j + i, 100, 100) //
+				.checker((ValidityChecker2d) (i, j, value) -> value != 5000.0).build();
+
+		LayerStatistics statistics = new LayerStatisticsFactory().of(layer, 10);
+
+		assertEquals(1, statistics.size());
+		Band band = statistics.get(0);
+
+		double expectedMean = (49995000.0 - 5000.0) / 9999;
+		double expectedSumSq = 0.0;
+		for (int value = 0; value < 10000; ++value)
+		{
+			if (value != 5000)
+			{
+				expectedSumSq += (value - expectedMean) * (value - expectedMean);
+			}
+		}
+
+		assertEquals(9999, band.getCount());
+		assertEquals(0.0, band.getMin());
+		assertEquals(9999.0, band.getMax());
+		assertEquals(expectedMean, band.getMean(), 1.e-9);
+		assertEquals(Math.sqrt(expectedSumSq / 9999), band.getStandardDeviation(), 1.e-9);
+
+		assertEquals(10, band.getNumberBins());
+		assertEquals(9999, LongStream.of(band.getHistogram()).sum());
+		assertEquals(1000, band.getBinCount(0));
+		assertEquals(999, band.getBinCount(5));
+		assertEquals(1000, band.getBinCount(9));
+		assertEquals(0, band.getOutOfRangeCount());
+	}
+
+	@Test
+	void testVectorLayer()
+	{
+		Layer layer = new LayerDoubleBuilder().doubleGetter((i, j, k) -> k == 1 ? Double.NaN : k + 0.5 * (i % 2), 30, 3000, 3).build();
+
+		LayerStatistics statistics = new LayerStatisticsFactory().of(layer, 4);
+
+		assertEquals(3, statistics.size());
+
+		Band band0 = statistics.get(0);
+		assertEquals(90000, band0.getCount());
+		assertEquals(0.25, band0.getMean(), 1.e-12);
+		assertEquals(0.25, band0.getStandardDeviation(), 1.e-12);
+		assertEquals(45000, band0.getBinCount(0));
+		assertEquals(45000, band0.getBinCount(3));
+
+		// Band with no finite values.
+		Band band1 = statistics.get(1);
+		assertEquals(0, band1.getCount());
+		assertTrue(Double.isNaN(band1.getMean()));
+		assertTrue(Double.isNaN(band1.getStandardDeviation()));
+
+		Band band2 = statistics.get(2);
+		assertEquals(2.0, band2.getMin());
+		assertEquals(2.5, band2.getMax());
+	}
+
+	@Test
+	void testExplicitBinRange()
+	{
+		Layer layer = new LayerDoubleBuilder().doubleGetter((i, j) -> i, 10, 2).build();
+
+		LayerRangeFactory rangeFactory = new LayerRangeFactory();
+		VectorRangeGetter binRange = new RangeGetterVectorDoubleFactory().of(1, rangeFactory.toRangeGetter(2.0, 6.0));
+
+		Band band = new LayerStatisticsFactory().of(layer, 2, binRange).get(0);
+
+		assertEquals(20, band.getCount());
+		assertEquals(4, band.getBinCount(0));
+		assertEquals(6, band.getBinCount(1));
+		assertEquals(10, band.getOutOfRangeCount());
+		assertEquals(4.0, band.getBinLowerEdge(1));
+	}
+
+	@Test
+	void testParallelSlice()
+	{
+		int iSize = 256;
+		int jSize = 1024;
+		int kSize = 8;
+		Layer cube = new LayerDoubleBuilder().doubleGetter((i, j, k) -> 1000.0 * k + (i * 31 + j * 17) % 997, iSize, jSize, kSize).build();
+
+		// A forwarding layer is not BandSelective, so the slice gets whole
+		// vectors into its scratch pixels while the statistics are
+		// accumulated in parallel.
+		Layer slice = new LayerDoubleTransformFactory().slice(3, Double.NaN).apply(new ForwardingLayer(cube));
+
+		// Serial scan of the same values.
+		PixelDouble pd = new PixelDoubleFactory().of(Double.NaN, Double.NaN);
+		double sum = 0.0;
+		for (int j = 0; j < jSize; ++j)
+		{
+			for (int i = 0; i < iSize; ++i)
+			{
+				slice.get(i, j, pd);
+				sum += pd.get();
+			}
+		}
+		double expectedMean = sum / (iSize * jSize);
+
+		for (int pass = 0; pass < 5; ++pass)
+		{
+			Band band = new LayerStatisticsFactory().of(slice, 10).get(0);
+
+			assertEquals(iSize * jSize, band.getCount());
+			assertEquals(3000.0, band.getMin());
+			assertEquals(3996.0, band.getMax());
+			assertEquals(expectedMean, band.getMean(), 1.e-9);
+			assertEquals(iSize * jSize, LongStream.of(band.getHistogram()).sum());
+		}
+	}
+
+}
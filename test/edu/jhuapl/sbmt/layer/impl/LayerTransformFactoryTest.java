@@ -2,10 +2,18 @@ package edu.jhuapl.sbmt.layer.impl;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
+import edu.jhuapl.sbmt.layer.api.Layer;
+import edu.jhuapl.sbmt.layer.api.PixelDouble;
+import edu.jhuapl.sbmt.layer.api.PixelVector;
+import edu.jhuapl.sbmt.layer.impl.LayerTransformFactory.ForwardingLayer;
+
 class LayerTransformFactoryTest
 {
 
@@ -130,7 +138,86 @@ class LayerTransformFactoryTest
 	@Test
 	void testSlice()
 	{
-		fail("Not yet implemented"); // TODO
+		int iSize = 3;
+		int jSize = 2;
+		int kSize = 50;
+		AtomicIntegerArray reads = new AtomicIntegerArray(kSize);
+		Layer cube = new LayerDoubleBuilder().doubleGetter((i, j, k) -> {
+			reads.incrementAndGet(k);
+			return 100.0 * k + 10.0 * j + i;
+		}, iSize, jSize, kSize).build();
+
+		// A forwarding layer is not BandSelective, so the slice must get the
+		// whole vector.
+		Layer forwarding = new ForwardingLayer(cube);
+
+		LayerTransformFactory factory = new LayerTransformFactory();
+		for (Layer layer : new Layer[] { cube, forwarding })
+		{
+			PixelVector slicePixel = new PixelVectorDoubleFactory().of(kSize, -1.0);
+			PixelVector minPixel = new PixelVectorDoubleFactory().of(kSize, -1.0);
+			PixelVector maxPixel = new PixelVectorDoubleFactory().of(kSize, -1.0);
+			Layer slice = factory.slice(7, slicePixel, minPixel, maxPixel).apply(layer);
+
+			for (int k = 0; k < kSize; ++k)
+			{
+				reads.set(k, 0);
+			}
+
+			PixelDouble pd = new PixelDoubleFactory().of(Double.NaN, -1.0);
+			slice.get(2, 1, pd);
+			assertEquals(712.0, pd.get());
+			assertTrue(pd.isValid());
+
+			slice.get(3, 1, pd);
+			assertFalse(pd.isInBounds());
+
+			assertEquals(1, reads.get(7));
+			assertEquals(layer == cube ? 0 : 1, reads.get(8));
+		}
+	}
+
+	@Test
+	void testSelectBands()
+	{
+		int iSize = 3;
+		int jSize = 2;
+		AtomicIntegerArray reads = new AtomicIntegerArray(8);
+		Layer scalar = new LayerDoubleBuilder().doubleGetter((i, j) -> 1000.0 + 10.0 * j + i, iSize, jSize).build();
+		Layer cube = new LayerDoubleBuilder().doubleGetter((i, j, k) -> {
+			reads.incrementAndGet(k);
+			return 100.0 * k + 10.0 * j + i;
+		}, iSize, jSize, 8).build();
+
+		// Band 0 comes from the scalar layer, bands 1-8 from the cube.
+		Layer appended = new LayerUtility().append(new Layer[] { scalar, cube });
+		Layer selected = new LayerTransformFactory().selectBands(4, 0, 8).apply(appended);
+		assertEquals(List.of(3), selected.dataSizes());
+
+		for (PixelVector pv : new PixelVector[] { //
+				new PixelVectorDoubleFactory().of(4, -1.0), //
+				new FlatPixelVectorDoubleFactory().of(4, -1.0) })
+		{
+			selected.get(1, 1, pv);
+			assertEquals(311.0, ((PixelDouble) pv.get(0)).get());
+			assertEquals(1011.0, ((PixelDouble) pv.get(1)).get());
+			assertEquals(711.0, ((PixelDouble) pv.get(2)).get());
+			assertTrue(pv.get(2).isValid());
+			assertFalse(pv.get(3).isInBounds());
+			assertTrue(pv.isInBounds());
+
+			selected.get(-1, 1, pv);
+			assertFalse(pv.isInBounds());
+		}
+
+		// Only bands 3 and 7 of the cube were read.
+		for (int k = 0; k < 8; ++k)
+		{
+			assertEquals(k == 3 || k == 7 ? 2 : 0, reads.get(k), "Band " + k);
+		}
+
+		assertThrows(IllegalArgumentException.class, () -> new LayerTransformFactory().selectBands());
+		assertThrows(IllegalArgumentException.class, () -> new LayerTransformFactory().selectBands(1, -1));
 	}
 
 	@Test
@@ -2,10 +2,22 @@ package edu.jhuapl.sbmt.layer.impl;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
+import com.google.common.collect.ImmutableList;
+
+import edu.jhuapl.sbmt.layer.api.Layer;
+import edu.jhuapl.sbmt.layer.api.PixelBlockDouble;
+import edu.jhuapl.sbmt.layer.api.PixelDouble;
+import edu.jhuapl.sbmt.layer.api.PixelVector;
+import edu.jhuapl.sbmt.layer.impl.LayerTransformFactory.ForwardingLayer;
+
 class LayerUtilityTest
 {
 
@@ -19,22 +31,101 @@ class LayerUtilityTest
 	{
 	}
 
+	private static final int ISize = 4;
+	private static final int JSize = 3;
+
 	@Test
 	void testAppendLayerArray()
 	{
-		fail("Not yet implemented"); // TODO
+		// One scalar, one vector and one more scalar layer.
+		Layer appended = new LayerUtility().append(new Layer[] { createLayer(1, 0.0), createLayer(3, 100.0), createLayer(1, 200.0) });
+		assertEquals(ImmutableList.of(5), appended.dataSizes());
+
+		for (PixelVector pv : new PixelVector[] { //
+				new PixelVectorDoubleFactory().of(5, -1.0), //
+				new FlatPixelVectorDoubleFactory().of(5, -1.0), //
+				new PlainPixelVectorDoubleFactory().of(4, -1.0) })
+		{
+			appended.get(1, 1, pv);
+			double[] expected = { 5.0, 105.0, 117.0, 129.0, 205.0 };
+			for (int k = 0; k < pv.size(); ++k)
+			{
+				PixelDouble pk = (PixelDouble) pv.get(k);
+				assertEquals(expected[k], pk.get());
+				assertEquals(k != 2, pk.isValid());
+			}
+		}
+
+		PixelDouble pd = new PixelDoubleFactory().of(Double.NaN, -1.0);
+		appended.get(1, 1, pd);
+		assertEquals(5.0, pd.get());
 	}
 
 	@Test
 	void testAppendIterableOfQextendsLayer()
 	{
-		fail("Not yet implemented"); // TODO
+		// Append 100 scalar layers into a cube, and check that the bulk block
+		// path agrees with getting one pixel at a time.
+		int numberLayers = 100;
+		List<Layer> layers = new ArrayList<>();
+		for (int index = 0; index < numberLayers; ++index)
+		{
+			layers.add(createLayer(1, 1000.0 * index));
+		}
+		Layer appended = new LayerUtility().append(layers);
+		Layer perPixel = new ForwardingLayer(appended);
+
+		for (int kSize : new int[] { 1, numberLayers, numberLayers + 2 })
+		{
+			PixelBlockDouble expected = new PixelBlockDoubleFactory().of(ISize + 1, JSize, kSize, -1.0);
+			PixelBlockDouble actual = new PixelBlockDoubleFactory().of(ISize + 1, JSize, kSize, -1.0);
+
+			perPixel.getBlock(-1, 0, expected);
+			appended.getBlock(-1, 0, actual);
+
+			assertArrayEquals(expected.values(), actual.values());
+			assertEquals(expected.invalid(), actual.invalid());
+			assertEquals(expected.outOfBounds(), actual.outOfBounds());
+		}
 	}
 
 	@Test
 	void testCreateSubPixel()
 	{
-		fail("Not yet implemented"); // TODO
+		PixelVector pv = new PixelVectorDoubleFactory().of(5, -1.0);
+		for (int k = 0; k < pv.size(); ++k)
+		{
+			((PixelDouble) pv.get(k)).set(k);
+		}
+
+		PixelVector subPixel = new LayerUtility().createSubPixel(pv, 2, 2);
+		assertEquals(2, subPixel.size());
+		assertEquals(2.0, ((PixelDouble) subPixel.get(0)).get());
+		assertEquals(3.0, ((PixelDouble) subPixel.get(1)).get());
+		assertThrows(IndexOutOfBoundsException.class, () -> subPixel.get(2));
+
+		subPixel.setInBounds(false);
+		assertFalse(pv.isInBounds());
+	}
+
+	/**
+	 * Create a dense layer in which the value of each element is the offset
+	 * plus its array index, and every 7th element starting at 3 is invalid.
+	 */
+	private static Layer createLayer(int kSize, double offset)
+	{
+		double[] values = new double[ISize * JSize * kSize];
+		BitSet invalid = new BitSet();
+		for (int index = 0; index < values.length; ++index)
+		{
+			values[index] = offset + index;
+			if (index % 7 == 3)
+			{
+				invalid.set(index);
+			}
+		}
+
+		return new DenseLayerOfDouble(ISize, JSize, kSize, values, invalid, null);
 	}
 
 }
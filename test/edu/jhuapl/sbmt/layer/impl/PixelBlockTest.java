@@ -0,0 +1,160 @@
+package edu.jhuapl.sbmt.layer.impl;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.BitSet;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import edu.jhuapl.sbmt.layer.api.Layer;
+import edu.jhuapl.sbmt.layer.api.PixelBlockDouble;
+import edu.jhuapl.sbmt.layer.api.PixelDouble;
+import edu.jhuapl.sbmt.layer.api.PixelVector;
+import edu.jhuapl.sbmt.layer.impl.LayerTransformFactory.ForwardingLayer;
+
+class PixelBlockTest
+{
+	private static final PixelBlockDoubleFactory BlockFactory = new PixelBlockDoubleFactory();
+
+	private static final int ISize = 5;
+	private static final int JSize = 4;
+	private static final int KSize = 3;
+
+	private static final DenseLayerOfDouble Dense = createDense();
+
+	@BeforeAll
+	static void setUpBeforeClass() throws Exception
+	{
+	}
+
+	@AfterAll
+	static void tearDownAfterClass() throws Exception
+	{
+	}
+
+	@Test
+	void testGetSetRoundTrip()
+	{
+		BasicPixelBlockDouble block = BlockFactory.of(2, 1, KSize, -1.0);
+		assertTrue(block.outOfBounds().get(0));
+		assertFalse(block.isInBounds(1, 0, 2));
+
+		PixelVector source = new PixelVectorDoubleFactory().of(KSize, -1.0);
+		for (int k = 0; k < KSize; ++k)
+		{
+			((PixelDouble) source.get(k)).set(10.0 + k);
+		}
+		((PixelDouble) source.get(1)).setIsValid(false);
+		((PixelDouble) source.get(2)).setInBounds(false);
+
+		block.set(1, 0, source);
+		assertTrue(block.isValid(1, 0, 0));
+		assertTrue(block.isInBounds(1, 0, 1));
+		assertFalse(block.isValid(1, 0, 1));
+		assertFalse(block.isInBounds(1, 0, 2));
+		assertEquals(11.0, block.values()[block.index(1, 0, 1)]);
+		assertEquals(-1.0, block.values()[block.index(1, 0, 2)]);
+
+		for (boolean isVector : new boolean[] { true, false })
+		{
+			PixelVector destination = isVector ? (PixelVector) block.createPixel(true) : new PixelVectorDoubleFactory().of(KSize + 1, -1.0);
+			block.get(1, 0, destination);
+			for (int k = 0; k <= KSize && k < destination.size(); ++k)
+			{
+				PixelDouble expected = k < KSize ? (PixelDouble) source.get(k) : null;
+				PixelDouble actual = (PixelDouble) destination.get(k);
+				assertEquals(expected != null && expected.isValid(), actual.isValid());
+				assertEquals(expected != null && expected.isInBounds(), actual.isInBounds());
+				assertEquals(expected != null ? expected.get() : -1.0, actual.get());
+			}
+		}
+
+		PixelDouble pd = (PixelDouble) block.createPixel(false);
+		block.get(1, 0, pd);
+		assertEquals(10.0, pd.get());
+		assertTrue(pd.isValid());
+	}
+
+	@Test
+	void testDenseMatchesDefault()
+	{
+		// A forwarding layer only has the per-pixel default implementation.
+		Layer perPixel = new ForwardingLayer(Dense);
+
+		for (int kSize : new int[] { 1, KSize, KSize + 1 })
+		{
+			for (int iMin = -2; iMin <= ISize; iMin += 3)
+			{
+				for (int jMin = -3; jMin <= JSize; jMin += 2)
+				{
+					assertBlocksEqual(perPixel, Dense, iMin, jMin, 4, 3, kSize);
+				}
+			}
+		}
+	}
+
+	@Test
+	void testTransformMatchesDefault()
+	{
+		LayerDoubleTransformFactory factory = new LayerDoubleTransformFactory();
+		BulkDoubleTransformFactory bulkFactory = new BulkDoubleTransformFactory();
+
+		Layer[] transformed = new Layer[] { //
+				factory.toLayerTransform(bulkFactory.linear(2.0, 1.0), null).apply(Dense), //
+				factory.toLayerTransform(value -> -value, value -> 1000.0).apply(Dense), //
+		};
+
+		for (Layer layer : transformed)
+		{
+			Layer perPixel = new ForwardingLayer(layer);
+
+			assertBlocksEqual(perPixel, layer, -1, -1, ISize + 2, JSize + 2, KSize);
+			assertBlocksEqual(perPixel, layer, 1, 2, 2, 2, 1);
+		}
+	}
+
+	private static DenseLayerOfDouble createDense()
+	{
+		double[] values = new double[ISize * JSize * KSize];
+		BitSet invalid = new BitSet();
+		for (int index = 0; index < values.length; ++index)
+		{
+			values[index] = index;
+			if (index % 7 == 3)
+			{
+				invalid.set(index);
+			}
+		}
+
+		return new DenseLayerOfDouble(ISize, JSize, KSize, values, invalid, null);
+	}
+
+	private static void assertBlocksEqual(Layer expectedLayer, Layer actualLayer, int iMin, int jMin, int iSize, int jSize, int kSize)
+	{
+		PixelBlockDouble expected = BlockFactory.of(iSize, jSize, kSize, -1.0);
+		PixelBlockDouble actual = BlockFactory.of(iSize, jSize, kSize, -1.0);
+
+		// Dirty the actual block to show that all flags are reset.
+		actual.invalid().set(0, iSize * jSize * kSize);
+
+		expectedLayer.getBlock(iMin, jMin, expected);
+		actualLayer.getBlock(iMin, jMin, actual);
+
+		String where = "block at (" + iMin + ", " + jMin + ") x " + kSize;
+		assertEquals(expected.outOfBounds(), actual.outOfBounds(), where);
+		for (int k = 0; k < kSize; ++k)
+		{
+			for (int j = 0; j < jSize; ++j)
+			{
+				for (int i = 0; i < iSize; ++i)
+				{
+					assertEquals(expected.isValid(i, j, k), actual.isValid(i, j, k), where);
+					assertEquals(expected.values()[expected.index(i, j, k)], actual.values()[actual.index(i, j, k)], where);
+				}
+			}
+		}
+	}
+
+}
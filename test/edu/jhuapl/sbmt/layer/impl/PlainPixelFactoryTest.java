@@ -0,0 +1,91 @@
+package edu.jhuapl.sbmt.layer.impl;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import edu.jhuapl.sbmt.layer.api.PixelDouble;
+import edu.jhuapl.sbmt.layer.api.PixelVector;
+
+class PlainPixelFactoryTest
+{
+
+	@BeforeAll
+	static void setUpBeforeClass() throws Exception
+	{
+	}
+
+	@AfterAll
+	static void tearDownAfterClass() throws Exception
+	{
+	}
+
+	@Test
+	void testPixelDoubleMatchesBasic()
+	{
+		PixelDouble basic = new PixelDoubleFactory().of(1.0, -1.0, -2.0);
+		PixelDouble plain = new PlainPixelDoubleFactory().of(1.0, -1.0, -2.0);
+
+		for (int state = 0; state < 4; ++state)
+		{
+			boolean isValid = (state & 1) != 0;
+			boolean inBounds = (state & 2) != 0;
+
+			for (PixelDouble p : new PixelDouble[] { basic, plain })
+			{
+				p.set(state);
+				p.setIsValid(isValid);
+				p.setInBounds(inBounds);
+			}
+
+			assertEquals(basic.get(), plain.get());
+			assertEquals(basic.getStoredValue(), plain.getStoredValue());
+			assertEquals(basic.isValid(), plain.isValid());
+			assertEquals(basic.isInBounds(), plain.isInBounds());
+		}
+
+		PixelDouble copy = new PlainPixelDoubleFactory().of(plain);
+		assertTrue(copy instanceof PlainPixelDouble);
+		assertEquals(plain.get(), copy.get());
+	}
+
+	@Test
+	void testPixelVectorMatchesBasic()
+	{
+		int size = 3;
+		PixelVector basic = new PixelVectorDoubleFactory().of(size, -1.0, -2.0);
+		PixelVector plain = new PlainPixelVectorDoubleFactory().of(size, -1.0, -2.0);
+
+		// Exhaustively compare every combination of vector and element flags.
+		int numberFlags = 2 * (size + 1);
+		for (int state = 0; state < 1 << numberFlags; ++state)
+		{
+			for (PixelVector pv : new PixelVector[] { basic, plain })
+			{
+				pv.setIsValid((state & 1) != 0);
+				pv.setInBounds((state & 2) != 0);
+				for (int k = 0; k < size; ++k)
+				{
+					PixelDouble pk = (PixelDouble) pv.get(k);
+					pk.set(k);
+					pk.setIsValid((state & 4 << 2 * k) != 0);
+					pk.setInBounds((state & 8 << 2 * k) != 0);
+				}
+			}
+
+			assertEquals(basic.isValid(), plain.isValid());
+			assertEquals(basic.isInBounds(), plain.isInBounds());
+			for (int k = 0; k < size; ++k)
+			{
+				PixelDouble basicK = (PixelDouble) basic.get(k);
+				PixelDouble plainK = (PixelDouble) plain.get(k);
+				assertEquals(basicK.isValid(), plainK.isValid(), "State " + state + ", element " + k);
+				assertEquals(basicK.isInBounds(), plainK.isInBounds(), "State " + state + ", element " + k);
+				assertEquals(basicK.get(), plainK.get(), "State " + state + ", element " + k);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,129 @@
+package edu.jhuapl.sbmt.layer.impl;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import edu.jhuapl.sbmt.layer.api.Layer;
+import edu.jhuapl.sbmt.layer.api.PixelDouble;
+
+class QuantileSketchTest
+{
+
+	@BeforeAll
+	static void setUpBeforeClass() throws Exception
+	{
+	}
+
+	@AfterAll
+	static void tearDownAfterClass() throws Exception
+	{
+	}
+
+	@Test
+	void testQuantiles()
+	{
+		int n = 1_000_000;
+		QuantileSketch sketch = new QuantileSketch();
+		// Add values in a scrambled order.
+		for (int index = 0; index < n; ++index)
+		{
+			sketch.add((index * 7919L) % n);
+		}
+		sketch.add(Double.NaN);
+
+		assertEquals(n, sketch.getCount());
+		assertEquals(0.0, sketch.getMin());
+		assertEquals(n - 1.0, sketch.getMax());
+		assertTrue(sketch.getRetainedCount() < 2000);
+
+		for (double fraction : new double[] { 0.01, 0.25, 0.5, 0.75, 0.99 })
+		{
+			assertEquals(fraction * n, sketch.getQuantile(fraction), 0.02 * n);
+		}
+		assertEquals(0.0, sketch.getQuantile(0.0));
+		assertEquals(n - 1.0, sketch.getQuantile(1.0));
+	}
+
+	@Test
+	void testMerge()
+	{
+		QuantileSketch low = new QuantileSketch(QuantileSketch.DefaultK, 1L);
+		QuantileSketch high = new QuantileSketch(QuantileSketch.DefaultK, 2L);
+		for (int index = 0; index < 100000; ++index)
+		{
+			low.add(index);
+			high.add(100000 + index);
+		}
+
+		low.merge(high);
+		low.merge(new QuantileSketch());
+
+		assertEquals(200000, low.getCount());
+		assertEquals(199999.0, low.getMax());
+		assertEquals(100000.0, low.getQuantile(0.5), 4000.0);
+		assertEquals(20000.0, low.getQuantile(0.1), 4000.0);
+	}
+
+	@Test
+	void testMergeSelf()
+	{
+		QuantileSketch sketch = new QuantileSketch(QuantileSketch.DefaultK, 3L);
+		for (int index = 0; index < 100000; ++index)
+		{
+			sketch.add(index);
+		}
+
+		sketch.merge(sketch);
+
+		assertEquals(200000, sketch.getCount());
+		assertEquals(0.0, sketch.getMin());
+		assertEquals(99999.0, sketch.getMax());
+		assertEquals(50000.0, sketch.getQuantile(0.5), 2000.0);
+	}
+
+	@Test
+	void testEmpty()
+	{
+		QuantileSketch sketch = new QuantileSketch();
+		assertTrue(sketch.isEmpty());
+		assertTrue(Double.isNaN(sketch.getQuantile(0.5)));
+	}
+
+	@Test
+	void testLayerQuantileRange()
+	{
+		// Mostly values 0 .. 999, with a few huge outliers.
+		Layer layer = new LayerDoubleBuilder().doubleGetter((i, j) -> (i + j) % 97 == 0 && j == 0 ? 1.e9 : (1000 * j + i) % 1000, 1000, 500).build();
+
+		LayerQuantileFactory factory = new LayerQuantileFactory();
+
+		List<QuantileSketch> sketches = factory.of(layer);
+		assertEquals(1, sketches.size());
+		assertEquals(500000, sketches.get(0).getCount());
+		assertEquals(1.e9, sketches.get(0).getMax());
+
+		VectorRangeGetter range = factory.rangeGetter(sketches, 0.01, 0.99);
+		QuantileRangeGetter clipped = (QuantileRangeGetter) range.get(0);
+		assertEquals(10.0, clipped.getMin(), 20.0);
+		assertEquals(990.0, clipped.getMax(), 20.0);
+
+		// Preview from a sample gives a similar range.
+		QuantileRangeGetter preview = (QuantileRangeGetter) factory.rangeGetter(factory.sample(layer, 20000, 17L), 0.01, 0.99).get(0);
+		assertEquals(10.0, preview.getMin(), 30.0);
+		assertEquals(990.0, preview.getMax(), 30.0);
+
+		// The clipped range can be used to build a layer.
+		Layer clippedLayer = new LayerDoubleBuilder().doubleGetter((i, j) -> i, 1000, 500).rangeGetter(range).build();
+		PixelDouble pMin = new PixelDoubleFactory().of(Double.NaN, Double.NaN);
+		PixelDouble pMax = new PixelDoubleFactory().of(Double.NaN, Double.NaN);
+		clippedLayer.getRange(pMin, pMax);
+		assertEquals(clipped.getMin(), pMin.get());
+		assertEquals(clipped.getMax(), pMax.get());
+	}
+
+}
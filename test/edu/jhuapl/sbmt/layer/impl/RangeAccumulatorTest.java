@@ -0,0 +1,138 @@
+package edu.jhuapl.sbmt.layer.impl;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import edu.jhuapl.sbmt.layer.api.Layer;
+import edu.jhuapl.sbmt.layer.api.PixelDouble;
+import edu.jhuapl.sbmt.layer.api.PixelVector;
+import edu.jhuapl.sbmt.layer.impl.DoubleBuilderBase.DoubleRangeGetter;
+import edu.jhuapl.sbmt.layer.impl.SyntheticLayerFactory.Pattern;
+
+class RangeAccumulatorTest
+{
+
+	@BeforeAll
+	static void setUpBeforeClass() throws Exception
+	{
+	}
+
+	@AfterAll
+	static void tearDownAfterClass() throws Exception
+	{
+	}
+
+	@Test
+	void testAddStrips()
+	{
+		int iSize = 50;
+		int jSize = 20;
+		DoubleGetter2d getter = (i, j) -> i == 7 && j == 3 ? Double.NaN : Math.sin(i + 0.1 * j);
+		ValidityChecker2d checker = (i, j, value) -> (i + j) % 5 != 0;
+
+		RangeAccumulator accumulator = new RangeAccumulator(jSize, 1);
+		assertTrue(Double.isNaN(accumulator.getRange(0).getMin()));
+
+		// Add strips of I in reverse order, checking the snapshot after each.
+		for (int iMin = iSize - 10; iMin >= 0; iMin -= 10)
+		{
+			accumulator.add(getter, checker, iMin, iMin + 10, 0, jSize);
+
+			int offset = iMin;
+			DoubleRangeGetter expected = new RangeGetterDoubleBuilder().getter((i, j) -> getter.get(i + offset, j), iSize - offset, jSize) //
+					.checker((i, j, value) -> checker.isValid(i + offset, j, value)).build();
+			DoubleRangeGetter range = accumulator.getRange(0);
+			assertEquals(expected.getMin(), range.getMin());
+			assertEquals(expected.getMax(), range.getMax());
+		}
+
+		assertThrows(IllegalArgumentException.class, () -> accumulator.add(getter, null, 0, 1, 0, jSize + 1));
+		assertThrows(IllegalStateException.class, () -> new RangeAccumulator(jSize, 2).add(getter, null, 0, 1, 0, 1));
+	}
+
+	@Test
+	void testNonFinite()
+	{
+		RangeAccumulator accumulator = new RangeAccumulator(4, 1);
+		accumulator.add((i, j) -> i == 0 ? Double.NEGATIVE_INFINITY : Double.NaN, null, 1, 2, 0, 4);
+		accumulator.add((i, j) -> Double.NEGATIVE_INFINITY, null, 0, 1, 0, 4);
+
+		// The last non-finite value in scan order wins, regardless of the order
+		// in which strips were added.
+		assertTrue(Double.isNaN(accumulator.getRange(0).getMin()));
+
+		accumulator.add((i, j) -> 2.5, null, 3, 4, 1, 2);
+		assertEquals(2.5, accumulator.getRange(0).getMin());
+		assertEquals(2.5, accumulator.getRange(0).getMax());
+	}
+
+	@Test
+	void testMergeAndBlock()
+	{
+		int size = 300;
+		int kSize = 3;
+		Layer layer = new SyntheticLayerFactory().vector(Pattern.Noise, size, size, kSize, 0.1, 0.05, 3L);
+
+		double[][][] values = new double[size][size][kSize];
+		boolean[][][] valid = new boolean[size][size][kSize];
+		PixelVector pv = new PixelVectorDoubleFactory().of(kSize, Double.NaN);
+		for (int j = 0; j < size; ++j)
+		{
+			for (int i = 0; i < size; ++i)
+			{
+				layer.get(i, j, pv);
+				for (int k = 0; k < kSize; ++k)
+				{
+					PixelDouble pd = (PixelDouble) pv.get(k);
+					values[i][j][k] = pd.get();
+					valid[i][j][k] = pd.isValid();
+				}
+			}
+		}
+		DoubleGetter3d getter = (i, j, k) -> values[i][j][k];
+		ValidityChecker3d checker = (i, j, k, value) -> valid[i][j][k];
+
+		VectorRangeGetter expected = new RangeGetterVectorDoubleFactory().of(getter, checker, null, size, size, kSize);
+
+		// Concurrent strips added to one accumulator.
+		RangeAccumulator shared = new RangeAccumulator(size, kSize);
+		IntStream.range(0, size / 20).parallel().forEach(strip -> {
+			shared.add(getter, checker, 20 * strip, 20 * strip + 20, 0, size);
+		});
+
+		// Blocks added to separate accumulators, then merged.
+		RangeAccumulator top = new RangeAccumulator(size, kSize);
+		RangeAccumulator bottom = new RangeAccumulator(size, kSize);
+		BasicPixelBlockDouble block = new PixelBlockDoubleFactory().of(64, 64, kSize, Double.NaN);
+		for (int jMin = 0; jMin < size; jMin += 64)
+		{
+			for (int iMin = 0; iMin < size; iMin += 64)
+			{
+				layer.getBlock(iMin, jMin, block);
+				(jMin < size / 2 ? top : bottom).add(block, iMin, jMin);
+			}
+		}
+		top.merge(bottom);
+
+		for (RangeAccumulator accumulator : new RangeAccumulator[] { shared, top })
+		{
+			VectorRangeGetter ranges = accumulator.getRanges();
+			assertEquals(kSize, ranges.size());
+			for (int k = 0; k < kSize; ++k)
+			{
+				DoubleRangeGetter expectedRange = (DoubleRangeGetter) expected.get(k);
+				DoubleRangeGetter range = (DoubleRangeGetter) ranges.get(k);
+				assertEquals(expectedRange.getMin(), range.getMin());
+				assertEquals(expectedRange.getMax(), range.getMax());
+			}
+		}
+
+		assertThrows(IllegalArgumentException.class, () -> top.merge(new RangeAccumulator(size, 1)));
+	}
+
+}
@@ -2,10 +2,21 @@ package edu.jhuapl.sbmt.layer.impl;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
+import edu.jhuapl.sbmt.layer.impl.DoubleBuilderBase.DoubleRangeGetter;
+
 class RangeGetterDoubleBuilderTest
 {
 
@@ -61,6 +72,58 @@ class RangeGetterDoubleBuilderTest
 		fail("Not yet implemented"); // TODO
 	}
 
+	@Test
+	void testBuildLazy() throws Exception
+	{
+		AtomicInteger calls = new AtomicInteger();
+		DoubleGetter2d getter = (i, j) -> {
+			calls.incrementAndGet();
+			return i + 10.0 * j;
+		};
+
+		DoubleRangeGetter range = new RangeGetterDoubleBuilder().getter(getter, 4, 3).buildLazy();
+		assertEquals(0, calls.get());
+		assertFalse(((LazyRangeGetter) range).isAvailable());
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try
+		{
+			CountDownLatch start = new CountDownLatch(1);
+			List<Future<Double>> results = new ArrayList<>();
+			for (int index = 0; index < 8; ++index)
+			{
+				results.add(executor.submit(() -> {
+					start.await();
+					return range.getMax();
+				}));
+			}
+			start.countDown();
+
+			for (Future<Double> result : results)
+			{
+				assertEquals(23.0, result.get(10, TimeUnit.SECONDS).doubleValue());
+			}
+			assertEquals(0.0, range.getMin());
+
+			// The range was computed once, no matter how many threads asked.
+			assertEquals(12, calls.get());
+			assertTrue(((LazyRangeGetter) range).isAvailable());
+
+			calls.set(0);
+			DoubleRangeGetter precomputed = new RangeGetterDoubleBuilder().getter(getter, 4, 3).buildLazy(executor);
+			executor.shutdown();
+			assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+			assertEquals(12, calls.get());
+			assertTrue(((LazyRangeGetter) precomputed).isAvailable());
+			assertEquals(23.0, precomputed.getMax());
+			assertEquals(12, calls.get());
+		}
+		finally
+		{
+			executor.shutdownNow();
+		}
+	}
+
 	@Test
 	void testGetRange()
 	{
@@ -2,10 +2,14 @@ package edu.jhuapl.sbmt.layer.impl;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.util.Random;
+
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
+import edu.jhuapl.sbmt.layer.impl.DoubleBuilderBase.DoubleRangeGetter;
+
 class RangeGetterVectorDoubleFactoryTest
 {
 
@@ -40,7 +44,58 @@ class RangeGetterVectorDoubleFactoryTest
 	@Test
 	void testOfDoubleGetter3dValidityChecker3dDoubleRangeGetterIntIntInt()
 	{
-		fail("Not yet implemented"); // TODO
+		// Not a multiple of the tile size, with NaN and infinite values, a
+		// band that has only non-finite values and a band with no valid
+		// values.
+		int iSize = 300;
+		int jSize = 170;
+		int kSize = 5;
+		Random random = new Random(3L);
+		double[] values = new double[iSize * jSize * kSize];
+		for (int index = 0; index < values.length; ++index)
+		{
+			int k = index % kSize;
+			double r = random.nextDouble();
+			if (k == 3)
+			{
+				values[index] = r < 0.5 ? Double.NaN : (r < 0.75 ? Double.POSITIVE_INFINITY : Double.NEGATIVE_INFINITY);
+			}
+			else
+			{
+				values[index] = r < 0.05 ? Double.NaN : (r < 0.07 ? Double.POSITIVE_INFINITY : 1000.0 * random.nextGaussian());
+			}
+		}
+
+		DoubleGetter3d getter = (i, j, k) -> values[(j * iSize + i) * kSize + k];
+		ValidityChecker3d checker = (i, j, k, value) -> k != 4 && (i + j) % 7 != 0;
+
+		RangeGetterVectorDoubleFactory factory = new RangeGetterVectorDoubleFactory();
+		for (DoubleRangeGetter overallRange : new DoubleRangeGetter[] { null, new RangeGetterDoubleBuilder().min(-10.0).max(5000.0).build() })
+		{
+			VectorRangeGetter ranges = factory.of(getter, checker, overallRange, iSize, jSize, kSize);
+			assertEquals(kSize, ranges.size());
+
+			for (int k = 0; k < kSize; ++k)
+			{
+				int band = k;
+				RangeGetterDoubleBuilder b = new RangeGetterDoubleBuilder();
+				if (overallRange != null)
+				{
+					b.min(overallRange.getMin());
+					b.max(overallRange.getMax());
+				}
+				b.getter((i, j) -> getter.get(i, j, band), iSize, jSize);
+				b.checker((i, j, value) -> checker.isValid(i, j, band, value));
+				DoubleRangeGetter expected = b.build();
+
+				DoubleRangeGetter actual = (DoubleRangeGetter) ranges.get(k);
+				assertEquals(expected.getMin(), actual.getMin());
+				assertEquals(expected.getMax(), actual.getMax());
+			}
+		}
+
+		VectorRangeGetter empty = factory.of(getter, null, null, 0, jSize, kSize);
+		assertTrue(Double.isNaN(((DoubleRangeGetter) empty.get(0)).getMin()));
 	}
 
 	@Test
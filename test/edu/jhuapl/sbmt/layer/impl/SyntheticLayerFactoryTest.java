@@ -0,0 +1,161 @@
+package edu.jhuapl.sbmt.layer.impl;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import com.google.common.collect.ImmutableList;
+
+import edu.jhuapl.sbmt.layer.api.Layer;
+import edu.jhuapl.sbmt.layer.api.PixelDouble;
+import edu.jhuapl.sbmt.layer.api.PixelVector;
+import edu.jhuapl.sbmt.layer.impl.SyntheticLayerFactory.Pattern;
+
+class SyntheticLayerFactoryTest
+{
+
+	@BeforeAll
+	static void setUpBeforeClass() throws Exception
+	{
+	}
+
+	@AfterAll
+	static void tearDownAfterClass() throws Exception
+	{
+	}
+
+	private static final SyntheticLayerFactory Factory = new SyntheticLayerFactory();
+
+	@Test
+	void testScalarPatterns()
+	{
+		PixelDouble p = new PixelDoubleFactory().of(Double.NaN, -1.0);
+
+		Layer gradient = Factory.scalar(Pattern.Gradient, 10, 4);
+		assertEquals(10, gradient.iSize());
+		assertEquals(4, gradient.jSize());
+		assertEquals(ImmutableList.of(1), gradient.dataSizes());
+		gradient.get(5, 2, p);
+		assertEquals(0.5 + 0.5, p.get());
+		assertTrue(p.isValid());
+
+		Layer checkerboard = Factory.scalar(Pattern.Checkerboard, 64, 64);
+		int cell = SyntheticLayerFactory.CheckerboardCellSize;
+		checkerboard.get(0, 0, p);
+		assertEquals(0.0, p.get());
+		checkerboard.get(cell, 0, p);
+		assertEquals(1.0, p.get());
+		checkerboard.get(cell, cell, p);
+		assertEquals(0.0, p.get());
+
+		Layer noise = Factory.scalar(Pattern.Noise, 64, 64);
+		double sum = 0.0;
+		for (int j = 0; j < 64; ++j)
+		{
+			for (int i = 0; i < 64; ++i)
+			{
+				noise.get(i, j, p);
+				assertTrue(p.get() >= 0.0 && p.get() < 1.0);
+				sum += p.get();
+			}
+		}
+		assertEquals(0.5, sum / (64 * 64), 0.02);
+	}
+
+	@Test
+	void testVector()
+	{
+		Layer layer = Factory.vector(Pattern.Gradient, 8, 8, 3);
+		assertEquals(ImmutableList.of(3), layer.dataSizes());
+
+		PixelVector pv = new PixelVectorDoubleFactory().of(3, Double.NaN);
+		layer.get(4, 0, pv);
+		for (int k = 0; k < 3; ++k)
+		{
+			assertEquals(k + 0.5, ((PixelDouble) pv.get(k)).get());
+		}
+
+		PixelVector pMin = new PixelVectorDoubleFactory().of(3, Double.NaN);
+		PixelVector pMax = new PixelVectorDoubleFactory().of(3, Double.NaN);
+		layer.getRange(pMin, pMax);
+		for (int k = 0; k < 3; ++k)
+		{
+			assertEquals(k, ((PixelDouble) pMin.get(k)).get());
+			assertEquals(k + 1.75, ((PixelDouble) pMax.get(k)).get());
+		}
+	}
+
+	@Test
+	void testDefects()
+	{
+		int size = 200;
+		Layer layer = Factory.vector(Pattern.Noise, size, size, 2, 0.1, 0.05, 7L);
+		Layer same = Factory.vector(Pattern.Noise, size, size, 2, 0.1, 0.05, 7L);
+
+		PixelVector pv = new PixelVectorDoubleFactory().of(2, Double.NaN);
+		PixelVector pvSame = new PixelVectorDoubleFactory().of(2, Double.NaN);
+
+		int invalidCount = 0;
+		int nanCount = 0;
+		for (int j = 0; j < size; ++j)
+		{
+			for (int i = 0; i < size; ++i)
+			{
+				layer.get(i, j, pv);
+				same.get(i, j, pvSame);
+				for (int k = 0; k < 2; ++k)
+				{
+					PixelDouble pd = (PixelDouble) pv.get(k);
+					PixelDouble pdSame = (PixelDouble) pvSame.get(k);
+					assertEquals(pd.get(), pdSame.get());
+					assertEquals(pd.isValid(), pdSame.isValid());
+
+					if (!pd.isValid())
+					{
+						++invalidCount;
+					}
+					if (Double.isNaN(pd.get()))
+					{
+						++nanCount;
+					}
+				}
+			}
+		}
+
+		int total = 2 * size * size;
+		assertEquals(0.1, (double) invalidCount / total, 0.01);
+		assertEquals(0.05, (double) nanCount / total, 0.01);
+	}
+
+	@Test
+	void testHuge()
+	{
+		// 100,000 x 100,000 x 4 elements would take 320 GB if stored.
+		int size = 100_000;
+		Layer layer = Factory.vector(Pattern.Gradient, size, size, 4, 0.01, 0.01, SyntheticLayerFactory.DefaultSeed);
+		assertEquals(size, layer.iSize());
+		assertEquals(size, layer.jSize());
+
+		PixelVector pv = new PixelVectorDoubleFactory().of(4, Double.NaN);
+		layer.get(size - 1, size - 1, pv);
+		PixelDouble pd = (PixelDouble) pv.get(3);
+		assertTrue(Double.isNaN(pd.get()) || pd.get() > 4.99);
+
+		PixelVector pMin = new PixelVectorDoubleFactory().of(4, Double.NaN);
+		PixelVector pMax = new PixelVectorDoubleFactory().of(4, Double.NaN);
+		layer.getRange(pMin, pMax);
+		assertEquals(3.0, ((PixelDouble) pMin.get(3)).get());
+	}
+
+	@Test
+	void testArguments()
+	{
+		assertThrows(IllegalArgumentException.class, () -> Factory.scalar(Pattern.Noise, -1, 10));
+		assertThrows(IllegalArgumentException.class, () -> Factory.vector(Pattern.Noise, 10, 10, 2, 1.5, 0.0, 1L));
+		assertThrows(IllegalArgumentException.class, () -> Factory.vector(Pattern.Noise, 10, 10, 2, 0.0, -0.1, 1L));
+		assertThrows(NullPointerException.class, () -> Factory.scalar(null, 10, 10));
+	}
+
+}
@@ -0,0 +1,168 @@
+package edu.jhuapl.sbmt.layer.impl;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import edu.jhuapl.sbmt.layer.api.Layer;
+import edu.jhuapl.sbmt.layer.api.PixelDouble;
+import edu.jhuapl.sbmt.layer.api.PixelVector;
+
+class TileCacheTest
+{
+
+	@BeforeAll
+	static void setUpBeforeClass() throws Exception
+	{
+	}
+
+	@AfterAll
+	static void tearDownAfterClass() throws Exception
+	{
+	}
+
+	@Test
+	void testCachedScalarLayer()
+	{
+		AtomicInteger getCount = new AtomicInteger();
+		Layer layer = new LayerDoubleBuilder().doubleGetter((i, j) -> {
+			getCount.incrementAndGet();
+			return 10 * i + j;
+		}, 10, 7).checker((ValidityChecker2d) (i, j, value) -> value != 32.0).build();
+
+		TileCache cache = new TileCache(1L << 20);
+		Layer cached = new LayerDoubleTransformFactory().cache(cache, 4).apply(layer);
+
+		PixelDouble p = new PixelDoubleFactory().of(Double.NaN, -1.0);
+		for (int pass = 0; pass < 2; ++pass)
+		{
+			for (int i = 0; i < 10; ++i)
+			{
+				for (int j = 0; j < 7; ++j)
+				{
+					cached.get(i, j, p);
+					assertEquals(10 * i + j, p.get());
+					assertEquals(i != 3 || j != 2, p.isValid());
+					assertTrue(p.isInBounds());
+				}
+			}
+		}
+
+		// Every pixel was computed exactly once, in 3 x 2 tiles.
+		assertEquals(70, getCount.get());
+		assertEquals(6, cache.getMissCount());
+		assertEquals(6, cache.getTileCount());
+		assertEquals(0, cache.getEvictionCount());
+
+		cached.get(-1, 0, p);
+		assertFalse(p.isInBounds());
+		assertEquals(-1.0, p.get());
+	}
+
+	@Test
+	void testCachedVectorLayer()
+	{
+		Layer layer = new LayerDoubleBuilder().doubleGetter((i, j, k) -> 100 * k + 10 * i + j, 5, 5, 3).build();
+
+		Layer cached = new LayerDoubleTransformFactory().cache(new TileCache(1L << 20), 2).apply(layer);
+
+		PixelVector pv = new PixelVectorDoubleFactory().of(4, -1.0);
+		cached.get(3, 4, pv);
+
+		assertTrue(pv.isInBounds());
+		for (int k = 0; k < 3; ++k)
+		{
+			assertEquals(100 * k + 34, ((PixelDouble) pv.get(k)).get());
+		}
+		assertFalse(pv.get(3).isInBounds());
+		assertEquals(-1.0, ((PixelDouble) pv.get(3)).get());
+	}
+
+	@Test
+	void testEviction()
+	{
+		Layer layer = new LayerDoubleBuilder().doubleGetter((i, j) -> i + j, 100, 100).build();
+
+		// Room for roughly two 10 x 10 tiles.
+		TileCache cache = new TileCache(2 * (8 * 100 + 200));
+		Layer cached = new LayerDoubleTransformFactory().cache(cache, 10).apply(layer);
+
+		PixelDouble p = new PixelDoubleFactory().of(Double.NaN, Double.NaN);
+		for (int i = 0; i < 100; i += 10)
+		{
+			cached.get(i, 0, p);
+			assertEquals(i, p.get());
+		}
+
+		assertEquals(10, cache.getMissCount());
+		assertTrue(cache.getEvictionCount() >= 8);
+		assertTrue(cache.getTotalBytes() <= cache.getMaxBytes());
+
+		((TileCachedLayer) cached).invalidate();
+		assertEquals(0, cache.getTileCount());
+		assertEquals(0, cache.getTotalBytes());
+	}
+
+	@Test
+	void testInvalidateDuringComputation()
+	{
+		// The source changes while its first tile is being computed, and the
+		// cached layer is invalidated at that moment.
+		AtomicInteger offset = new AtomicInteger();
+		TileCachedLayer[] cached = new TileCachedLayer[1];
+		Layer layer = new LayerDoubleBuilder().doubleGetter((i, j) -> {
+			if (offset.get() == 0 && i == 3 && j == 3)
+			{
+				offset.set(100);
+				cached[0].invalidate();
+			}
+			return i + j + offset.get();
+		}, 4, 4).build();
+
+		TileCache cache = new TileCache(1L << 20);
+		cached[0] = (TileCachedLayer) new LayerDoubleTransformFactory().cache(cache, 4).apply(layer);
+
+		PixelDouble p = new PixelDoubleFactory().of(Double.NaN, Double.NaN);
+		cached[0].get(0, 0, p);
+		assertEquals(0.0, p.get());
+
+		// The stale tile was returned but neither cached nor reused.
+		assertEquals(0, cache.getTileCount());
+
+		cached[0].get(0, 0, p);
+		assertEquals(100.0, p.get());
+		assertEquals(1, cache.getTileCount());
+
+		// No state is kept for owners once their computations finish.
+		assertEquals(0, cache.getComputingOwnerCount());
+	}
+
+	@Test
+	void testInvalidateManyOwners()
+	{
+		Layer layer = new LayerDoubleBuilder().doubleGetter((i, j) -> i + j, 8, 8).build();
+		TileCache cache = new TileCache(1L << 20);
+
+		PixelDouble p = new PixelDoubleFactory().of(Double.NaN, Double.NaN);
+		for (int index = 0; index < 100; ++index)
+		{
+			TileCachedLayer cached = (TileCachedLayer) new LayerDoubleTransformFactory().cache(cache, 4).apply(layer);
+			cached.get(5, 6, p);
+			cached.invalidate();
+		}
+
+		assertEquals(0, cache.getTileCount());
+		assertEquals(0, cache.getComputingOwnerCount());
+
+		// A supplier that fails does not leave its owner behind.
+		assertThrows(IllegalStateException.class, () -> cache.get(TileCache.nextOwnerId(), 0, 0, () -> {
+			throw new IllegalStateException();
+		}));
+		assertEquals(0, cache.getComputingOwnerCount());
+	}
+
+}
@@ -0,0 +1,191 @@
+package edu.jhuapl.sbmt.layer.impl;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import edu.jhuapl.sbmt.layer.api.Layer;
+import edu.jhuapl.sbmt.layer.api.PixelDouble;
+import edu.jhuapl.sbmt.layer.api.PixelVector;
+import edu.jhuapl.sbmt.layer.api.WritableLayer;
+import edu.jhuapl.sbmt.layer.impl.SyntheticLayerFactory.Pattern;
+
+class WritableLayerTest
+{
+	private static final PixelDoubleFactory ScalarFactory = new PixelDoubleFactory();
+	private static final PixelVectorDoubleFactory VectorFactory = new PixelVectorDoubleFactory();
+	private static final FlatPixelVectorDoubleFactory FlatFactory = new FlatPixelVectorDoubleFactory();
+
+	@BeforeAll
+	static void setUpBeforeClass() throws Exception
+	{
+	}
+
+	@AfterAll
+	static void tearDownAfterClass() throws Exception
+	{
+	}
+
+	@Test
+	void testSetScalar()
+	{
+		for (WritableLayer layer : new WritableLayer[] { new WritableDenseLayerOfDouble(4, 3, 1, 0.0), new WritableDenseLayerOfFloat(4, 3, 1, 0.0f) })
+		{
+			assertTrue(layer.isSetAccepts(PixelDouble.class));
+			long version = ((Versioned) layer).getVersion();
+
+			PixelDouble p = ScalarFactory.of(2.5, Double.NaN);
+			layer.set(1, 2, p);
+			p.set(-7.0);
+			p.setIsValid(false);
+			layer.set(3, 0, p);
+			assertTrue(((Versioned) layer).getVersion() > version);
+
+			PixelDouble pOut = ScalarFactory.of(Double.NaN, Double.NaN);
+			layer.get(1, 2, pOut);
+			assertEquals(2.5, pOut.get());
+			assertTrue(pOut.isValid());
+			layer.get(3, 0, pOut);
+			assertFalse(pOut.isValid());
+			assertEquals(-7.0, pOut.getStoredValue());
+
+			// The range follows the writes; the invalid value is excluded.
+			PixelDouble pMin = ScalarFactory.of(Double.NaN, Double.NaN);
+			PixelDouble pMax = ScalarFactory.of(Double.NaN, Double.NaN);
+			layer.getRange(pMin, pMax);
+			assertEquals(0.0, pMin.get());
+			assertEquals(2.5, pMax.get());
+
+			p.set(9.0);
+			p.setIsValid(true);
+			layer.set(0, 0, p);
+			layer.getRange(pMin, pMax);
+			assertEquals(9.0, pMax.get());
+
+			// Out-of-bounds pixels do not change the layer.
+			p.setInBounds(false);
+			layer.set(0, 0, p);
+			layer.get(0, 0, pOut);
+			assertEquals(9.0, pOut.get());
+
+			assertThrows(IndexOutOfBoundsException.class, () -> layer.set(4, 0, ScalarFactory.of(0.0, 0.0)));
+			assertThrows(NullPointerException.class, () -> layer.set(0, 0, null));
+		}
+	}
+
+	@Test
+	void testSetVector()
+	{
+		int kSize = 3;
+		for (WritableLayer layer : new WritableLayer[] { new WritableDenseLayerOfDouble(5, 4, kSize, 1.0), new WritableDenseLayerOfFloat(5, 4, kSize, 1.0f) })
+		{
+			for (PixelVector pv : new PixelVector[] { VectorFactory.of(kSize, Double.NaN), FlatFactory.of(kSize, Double.NaN) })
+			{
+				for (int k = 0; k < kSize; ++k)
+				{
+					((PixelDouble) pv.get(k)).set(10.0 + k);
+					((PixelDouble) pv.get(k)).setIsValid(true);
+					((PixelDouble) pv.get(k)).setInBounds(true);
+				}
+				((PixelDouble) pv.get(1)).setIsValid(false);
+				((PixelDouble) pv.get(2)).setInBounds(false);
+
+				layer.set(2, 3, pv);
+
+				PixelVector pOut = VectorFactory.of(kSize, Double.NaN);
+				layer.get(2, 3, pOut);
+				assertEquals(10.0, ((PixelDouble) pOut.get(0)).get());
+				assertFalse(((PixelDouble) pOut.get(1)).isValid());
+				assertEquals(11.0, ((PixelDouble) pOut.get(1)).getStoredValue());
+				assertEquals(1.0, ((PixelDouble) pOut.get(2)).get());
+
+				// Restore the original values for the next pixel type.
+				for (int k = 0; k < kSize; ++k)
+				{
+					((PixelDouble) pv.get(k)).set(1.0);
+					((PixelDouble) pv.get(k)).setIsValid(true);
+					((PixelDouble) pv.get(k)).setInBounds(true);
+				}
+				layer.set(2, 3, pv);
+			}
+		}
+	}
+
+	@Test
+	void testSetBlock()
+	{
+		int size = 20;
+		int kSize = 2;
+		Layer source = new SyntheticLayerFactory().vector(Pattern.Noise, size, size, kSize, 0.1, 0.0, 5L);
+
+		// Copy with blocks that hang off every edge.
+		for (WritableLayer layer : new WritableLayer[] { new WritableDenseLayerOfDouble(size, size, kSize, 0.0), new WritableDenseLayerOfFloat(size, size, kSize, 0.0f) })
+		{
+			BasicPixelBlockDouble block = new PixelBlockDoubleFactory().of(7, 6, kSize, Double.NaN);
+			for (int jMin = -3; jMin < size; jMin += 6)
+			{
+				for (int iMin = -2; iMin < size; iMin += 7)
+				{
+					source.getBlock(iMin, jMin, block);
+					layer.setBlock(iMin, jMin, block);
+				}
+			}
+
+			assertSameValues(source, layer, layer instanceof WritableDenseLayerOfFloat);
+		}
+
+		assertSameValues(source, new WritableLayerFactory().copyOfDouble(source), false);
+		assertSameValues(source, new WritableLayerFactory().copyOfFloat(source), true);
+	}
+
+	@Test
+	void testTransform()
+	{
+		WritableDenseLayerOfDouble layer = new WritableLayerFactory().copyOfDouble(new SyntheticLayerFactory().scalar(Pattern.Gradient, 10, 10));
+		long version = layer.getVersion();
+
+		PixelDouble pMin = ScalarFactory.of(Double.NaN, Double.NaN);
+		PixelDouble pMax = ScalarFactory.of(Double.NaN, Double.NaN);
+		layer.getRange(pMin, pMax);
+		assertEquals(1.8, pMax.get(), 1.0e-12);
+
+		layer.transform(new BulkDoubleTransformFactory().linear(2.0, 1.0));
+		assertTrue(layer.getVersion() > version);
+
+		layer.getRange(pMin, pMax);
+		assertEquals(1.0, pMin.get());
+		assertEquals(4.6, pMax.get(), 1.0e-12);
+
+		layer.values()[0] = -5.0;
+		layer.touch();
+		layer.getRange(pMin, pMax);
+		assertEquals(-5.0, pMin.get());
+	}
+
+	private static void assertSameValues(Layer expected, Layer actual, boolean isFloat)
+	{
+		int kSize = expected.dataSizes().get(0);
+		PixelVector pExpected = VectorFactory.of(kSize, Double.NaN);
+		PixelVector pActual = VectorFactory.of(kSize, Double.NaN);
+
+		for (int j = 0; j < expected.jSize(); ++j)
+		{
+			for (int i = 0; i < expected.iSize(); ++i)
+			{
+				expected.get(i, j, pExpected);
+				actual.get(i, j, pActual);
+				for (int k = 0; k < kSize; ++k)
+				{
+					PixelDouble pdExpected = (PixelDouble) pExpected.get(k);
+					PixelDouble pdActual = (PixelDouble) pActual.get(k);
+					double value = isFloat ? (float) pdExpected.getStoredValue() : pdExpected.getStoredValue();
+					assertEquals(value, pdActual.getStoredValue());
+					assertEquals(pdExpected.isValid(), pdActual.isValid());
+				}
+			}
+		}
+	}
+
+}
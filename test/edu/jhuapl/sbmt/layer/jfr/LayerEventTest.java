@@ -0,0 +1,105 @@
+package edu.jhuapl.sbmt.layer.jfr;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import edu.jhuapl.sbmt.layer.api.Layer;
+import edu.jhuapl.sbmt.layer.impl.DiskLayerCache;
+import edu.jhuapl.sbmt.layer.impl.LayerDoubleTransformFactory;
+import edu.jhuapl.sbmt.layer.impl.LayerPipeline;
+import edu.jhuapl.sbmt.layer.impl.LayerRangeFactory;
+import edu.jhuapl.sbmt.layer.impl.RangeGetterDoubleBuilder;
+import edu.jhuapl.sbmt.layer.impl.RangeGetterVectorDoubleFactory;
+import edu.jhuapl.sbmt.layer.impl.SyntheticLayerFactory;
+import edu.jhuapl.sbmt.layer.impl.SyntheticLayerFactory.Pattern;
+
+class LayerEventTest
+{
+
+	@BeforeAll
+	static void setUpBeforeClass() throws Exception
+	{
+	}
+
+	@AfterAll
+	static void tearDownAfterClass() throws Exception
+	{
+	}
+
+	@Test
+	void testEvents(@TempDir Path directory) throws Exception
+	{
+		SyntheticLayerFactory syntheticFactory = new SyntheticLayerFactory();
+		Layer layer = syntheticFactory.vector(Pattern.Noise, 50, 40, 3);
+
+		Path recordingPath = directory.resolve("events.jfr");
+
+		try (Recording recording = new Recording())
+		{
+			for (String name : List.of("Load", "RangeComputation", "Append", "Materialize", "Cache"))
+			{
+				recording.enable("edu.jhuapl.sbmt.layer." + name).withThreshold(Duration.ZERO);
+			}
+			recording.start();
+
+			new LayerRangeFactory().scan(layer);
+			new RangeGetterVectorDoubleFactory().of((i, j, k) -> i + j + k, null, null, 50, 40, 3);
+			new RangeGetterDoubleBuilder().getter((i, j) -> i + j, 50, 40).build();
+
+			DiskLayerCache cache = new DiskLayerCache(directory.resolve("cache"), 1L << 20);
+			LayerPipeline pipeline = LayerPipeline.of(new LayerDoubleTransformFactory().slice(1, Double.NaN));
+			cache.apply(pipeline, layer, "fingerprint");
+			cache.apply(pipeline, layer, "fingerprint");
+
+			recording.stop();
+			recording.dump(recordingPath);
+		}
+
+		List<RecordedEvent> events = RecordingFile.readAllEvents(recordingPath);
+
+		RecordedEvent scan = find(events, "edu.jhuapl.sbmt.layer.RangeComputation", "LayerRangeFactory.scan");
+		assertEquals(50, scan.getInt("iSize"));
+		assertEquals(40, scan.getInt("jSize"));
+		assertEquals(3, scan.getInt("kSize"));
+		assertFalse(scan.getDuration().isNegative());
+
+		RecordedEvent vector = find(events, "edu.jhuapl.sbmt.layer.RangeComputation", "RangeGetterVectorDoubleFactory.of");
+		assertEquals(3, vector.getInt("kSize"));
+		assertNotNull(find(events, "edu.jhuapl.sbmt.layer.RangeComputation", "RangeGetterDoubleBuilder.build"));
+
+		RecordedEvent materialize = find(events, "edu.jhuapl.sbmt.layer.Materialize", null);
+		assertEquals(1, materialize.getInt("kSize"));
+
+		// Miss, then put, then hit.
+		List<RecordedEvent> cacheEvents = events.stream().filter(e -> e.getEventType().getName().equals("edu.jhuapl.sbmt.layer.Cache")).toList();
+		assertEquals(3, cacheEvents.size());
+		assertEquals(1, cacheEvents.stream().filter(e -> e.getString("operation").equals("put") && e.getBoolean("hit")).count());
+		assertEquals(1, cacheEvents.stream().filter(e -> e.getString("operation").equals("get") && e.getBoolean("hit") && e.getLong("bytes") > 0).count());
+	}
+
+	private static RecordedEvent find(List<RecordedEvent> events, String name, String operation)
+	{
+		for (RecordedEvent event : events)
+		{
+			if (event.getEventType().getName().equals(name) && (operation == null || operation.equals(event.getString("operation"))))
+			{
+				return event;
+			}
+		}
+
+		throw new AssertionError("No event " + name + " " + operation);
+	}
+
+}